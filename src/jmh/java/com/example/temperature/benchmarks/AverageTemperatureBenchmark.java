@@ -0,0 +1,102 @@
+package com.example.temperature.benchmarks;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.ingestion.IngestionQueue;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.locations.LocationRegistry;
+import com.example.temperature.metrics.WeatherMetrics;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.quota.QuotaScheduler;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.services.CollectorService;
+import com.example.temperature.services.TemperatureService;
+import com.example.temperature.services.impl.EventServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Усреднение, округление и построение сущностей в updateTemperature.
+ * Сбор показаний и сохранение в бд заменены заглушками.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AverageTemperatureBenchmark {
+    @Param({"3", "100", "1000"})
+    public int cities;
+
+    @Param({"3"})
+    public int sources;
+
+    private EventServiceImpl eventService;
+
+    @Setup
+    public void setUp() {
+        Map<String, String> locations = new LinkedHashMap<>();
+        Map<Map.Entry<String, String>, List<Double>> readings = new LinkedHashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < cities; i++) {
+            locations.put("City" + i, "Country" + i % 10);
+        }
+        for (Map.Entry<String, String> location : locations.entrySet()) {
+            List<Double> temperatures = new ArrayList<>(sources);
+            for (int i = 0; i < sources; i++) {
+                temperatures.add(Math.round(random.nextDouble(-30, 40) * 100) / 100.0);
+            }
+            readings.put(location, temperatures);
+        }
+        WeatherProperties properties = new WeatherProperties();
+        properties.setSources(Collections.emptyMap());
+        properties.setLocations(locations);
+        properties.getIngestion().setEnabled(false);
+        LocationRegistry locationRegistry = Mockito.mock(LocationRegistry.class, Mockito.withSettings().stubOnly());
+        when(locationRegistry.takeDue()).thenReturn(new ArrayList<>(locations.entrySet()));
+
+        CollectorService collectorService = (locationsToCollect, sourcesToCollect) -> readings;
+        TemperatureService temperatureService = Mockito.mock(
+                TemperatureService.class,
+                Mockito.withSettings().stubOnly()
+        );
+        eventService = new EventServiceImpl(
+                new IngestionQueue(properties, temperatureService, new ObjectMapper()),
+                collectorService,
+                new WeatherProviderRegistry(Collections.emptyList(), properties),
+                locationRegistry,
+                Mockito.mock(LocationDirectory.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(QuotaScheduler.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(ReadingIntervals.class, Mockito.withSettings().stubOnly()),
+                new WeatherMetrics(new SimpleMeterRegistry(), Scheduled.CRON_DISABLED)
+        );
+    }
+
+    @Benchmark
+    public void updateTemperature() {
+        eventService.updateTemperature();
+    }
+}
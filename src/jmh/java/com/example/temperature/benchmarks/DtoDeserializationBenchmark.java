@@ -0,0 +1,89 @@
+package com.example.temperature.benchmarks;
+
+import com.example.temperature.dto.OpenWeatherMapDto;
+import com.example.temperature.dto.WeatherApiDto;
+import com.example.temperature.dto.WeatherBitDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответов сервисов погоды в ДТО.
+ * ObjectMapper настроен так же, как в конвертерах RestTemplate и WebClient.
+ * Методы map* разбирают те же ответы прежними ДТО с распаковкой через Map,
+ * аллокации сравниваются запуском с -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DtoDeserializationBenchmark {
+    private ObjectReader openWeatherMapReader;
+    private ObjectReader weatherApiReader;
+    private ObjectReader weatherBitReader;
+    private ObjectReader openWeatherMapMapReader;
+    private ObjectReader weatherApiMapReader;
+    private ObjectReader weatherBitMapReader;
+    private byte[] openWeatherMap;
+    private byte[] weatherApi;
+    private byte[] weatherBit;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        openWeatherMapReader = objectMapper.readerFor(OpenWeatherMapDto.class);
+        weatherApiReader = objectMapper.readerFor(WeatherApiDto.class);
+        weatherBitReader = objectMapper.readerFor(WeatherBitDto.class);
+        openWeatherMapMapReader = objectMapper.readerFor(MapDtos.OpenWeatherMap.class);
+        weatherApiMapReader = objectMapper.readerFor(MapDtos.WeatherApi.class);
+        weatherBitMapReader = objectMapper.readerFor(MapDtos.WeatherBit.class);
+        openWeatherMap = Payloads.load(Payloads.OPEN_WEATHER_MAP);
+        weatherApi = Payloads.load(Payloads.WEATHER_API);
+        weatherBit = Payloads.load(Payloads.WEATHER_BIT);
+    }
+
+    @Benchmark
+    public OpenWeatherMapDto openWeatherMap() throws IOException {
+        return openWeatherMapReader.readValue(openWeatherMap);
+    }
+
+    @Benchmark
+    public WeatherApiDto weatherApi() throws IOException {
+        return weatherApiReader.readValue(weatherApi);
+    }
+
+    @Benchmark
+    public WeatherBitDto weatherBit() throws IOException {
+        return weatherBitReader.readValue(weatherBit);
+    }
+
+    @Benchmark
+    public MapDtos.OpenWeatherMap mapOpenWeatherMap() throws IOException {
+        return openWeatherMapMapReader.readValue(openWeatherMap);
+    }
+
+    @Benchmark
+    public MapDtos.WeatherApi mapWeatherApi() throws IOException {
+        return weatherApiMapReader.readValue(weatherApi);
+    }
+
+    @Benchmark
+    public MapDtos.WeatherBit mapWeatherBit() throws IOException {
+        return weatherBitMapReader.readValue(weatherBit);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.temperature.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Прежние ДТО с распаковкой вложенных объектов через Map для сравнения с потоковым разбором.
+ */
+final class MapDtos {
+
+    private MapDtos() {
+    }
+
+    @Data
+    static class OpenWeatherMap {
+        private Long id;
+        @JsonProperty("name")
+        private String city;
+        private double temperature;
+
+        @JsonProperty("main")
+        private void unpackMain(Map<String, Object> map) {
+            this.temperature = ((Number) map.get("temp")).doubleValue();
+        }
+    }
+
+    @Data
+    static class WeatherApi {
+        private String city;
+        private String country;
+        private double temperature;
+        @JsonProperty("custom_id")
+        private String customId;
+
+        @JsonProperty("location")
+        private void unpackLocation(Map<String, Object> map) {
+            this.city = (String) map.get("name");
+            this.country = (String) map.get("country");
+        }
+
+        @JsonProperty("current")
+        private void unpackCurrent(Map<String, Object> map) {
+            this.temperature = ((Number) map.get("temp_c")).doubleValue();
+        }
+    }
+
+    @Data
+    static class WeatherBit {
+        private String city;
+        private double temperature;
+
+        @JsonProperty("data")
+        private void unpackData(List<Map<String, Object>> list) {
+            if (!list.isEmpty()) {
+                this.city = (String) list.get(0).get("city_name");
+                this.temperature = ((Number) list.get(0).get("temp")).doubleValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.temperature.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Образцы ответов сервисов погоды из src/jmh/resources/payloads.
+ */
+final class Payloads {
+    static final String OPEN_WEATHER_MAP = "openweathermap";
+    static final String WEATHER_API = "weatherapi";
+    static final String WEATHER_BIT = "weatherbit";
+
+    private Payloads() {
+    }
+
+    static byte[] load(String source) {
+        try (InputStream inputStream = Payloads.class.getResourceAsStream("/payloads/" + source + ".json")) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Unexpected value: " + source);
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.temperature.benchmarks;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.OpenWeatherMapDto;
+import com.example.temperature.dto.WeatherApiDto;
+import com.example.temperature.dto.WeatherBitDto;
+import com.example.temperature.providers.OpenWeatherMapProvider;
+import com.example.temperature.providers.WeatherApiProvider;
+import com.example.temperature.providers.WeatherBitProvider;
+import com.example.temperature.providers.WeatherProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение URL и обработка ответа в requestTemperature без сетевого запроса.
+ * Клиент сразу возвращает готовый ДТО, поэтому измеряется только работа источника.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProviderUrlBenchmark {
+    @Param({Payloads.OPEN_WEATHER_MAP, Payloads.WEATHER_API, Payloads.WEATHER_BIT})
+    public String source;
+
+    @Param({"Izhevsk", "New York"})
+    public String city;
+
+    private WeatherProvider provider;
+    private Map.Entry<String, String> location;
+    private StubClient client;
+
+    @Setup
+    public void setUp() {
+        WeatherProperties properties = new WeatherProperties();
+        Map<String, Map<String, String>> sources = new LinkedHashMap<>();
+        Map<String, String> settings = new HashMap<>();
+        settings.put("key", "1d7659b294d1085934bf0a736e0d35b3");
+        settings.put("url", "https://api.example.com/v1/current");
+        sources.put(source, settings);
+        properties.setSources(sources);
+
+        switch (source) {
+            case Payloads.OPEN_WEATHER_MAP:
+                provider = new OpenWeatherMapProvider(properties);
+                client = new StubClient(new OpenWeatherMapDto());
+                break;
+            case Payloads.WEATHER_API:
+                provider = new WeatherApiProvider(properties);
+                client = new StubClient(new WeatherApiDto());
+                break;
+            case Payloads.WEATHER_BIT:
+                provider = new WeatherBitProvider(properties);
+                client = new StubClient(new WeatherBitDto());
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + source);
+        }
+        location = new AbstractMap.SimpleImmutableEntry<>(city, "Country");
+    }
+
+    @Benchmark
+    public void requestTemperature(Blackhole blackhole) {
+        blackhole.consume(provider.requestTemperature(location, client).join());
+        blackhole.consume(client.url);
+    }
+
+    /**
+     * Клиент без сетевого взаимодействия: запоминает URL и сразу возвращает ответ.
+     */
+    private static class StubClient implements WeatherClient {
+        private final CompletableFuture<Object> response;
+        private String url;
+
+        private StubClient(Object response) {
+            this.response = CompletableFuture.completedFuture(response);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> get(String url, Class<T> responseType) {
+            this.url = url;
+            return (CompletableFuture<T>) response;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> post(String url, Object body, Class<T> responseType) {
+            this.url = url;
+            return (CompletableFuture<T>) response;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<ResponseEntity<T>> exchange(String url, HttpHeaders headers, Class<T> responseType) {
+            this.url = url;
+            return response.thenApply(body -> ResponseEntity.ok((T) body));
+        }
+    }
+}
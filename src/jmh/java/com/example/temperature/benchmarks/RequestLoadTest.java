@@ -0,0 +1,252 @@
+package com.example.temperature.benchmarks;
+
+import com.example.temperature.TemperatureApplication;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.services.TemperatureService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочное сравнение обработки HTTP запросов на платформенных и виртуальных потоках.
+ * Приложение запускается в каждом режиме по очереди, клиент держит concurrency одновременных запросов
+ * GET /api/temperature за текущий день (каждый запрос читает бд) и выводит пропускную способность
+ * и перцентили задержки. Клиент запускается отдельной JVM, чтобы его соединения не расходовали
+ * лимит открытых файлов приложения и не конкурировали с ним за кучу.
+ * Режим virtual запускается только на Java 21+, на более старой JVM он пропускается,
+ * так как приложение работало бы на пуле потоков Tomcat.
+ * <p>
+ * Запуск:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-Dlogback.configurationFile=jmh-logback.xml -classpath %classpath \
+ *     com.example.temperature.benchmarks.RequestLoadTest 10000 100000"
+ * </pre>
+ * Аргументы: количество одновременных запросов, общее количество запросов, режимы (по умолчанию platform virtual).
+ * Бд задается так же, как для TickBenchmark: свойствами jmh.datasource.*, иначе запускается встроенный Postgres.
+ */
+public final class RequestLoadTest {
+    private static final int CITIES = 100;
+    private static final String CLIENT = "--client";
+
+    private RequestLoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && CLIENT.equals(args[0])) {
+            client(args);
+            return;
+        }
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        List<String> modes = args.length > 2
+                ? Arrays.asList(args).subList(2, args.length)
+                : Arrays.asList("platform", "virtual");
+
+        EmbeddedPostgres postgres = null;
+        String url = System.getProperty("jmh.datasource.url");
+        if (url == null) {
+            postgres = EmbeddedPostgres.start();
+        }
+        List<String> results = new ArrayList<>();
+        try {
+            for (String mode : modes) {
+                if ("virtual".equals(mode) && !isVirtualThreadsSupported()) {
+                    System.err.printf("Java %s не поддерживает виртуальные потоки, режим virtual пропущен%n",
+                            System.getProperty("java.version"));
+                    continue;
+                }
+                String datasource = url != null
+                        ? url
+                        : postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true";
+                results.add(run(mode, datasource, concurrency, requests));
+            }
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+
+        System.out.printf("%nconcurrency=%d requests=%d java=%s%n", concurrency, requests,
+                System.getProperty("java.version"));
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(String mode, String datasource, int concurrency, int requests)
+            throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.location=classpath:tick-benchmark.yml"
+                + ("virtual".equals(mode) ? ",classpath:application-virtual-threads.yml" : ""));
+        args.add("--spring.main.web-application-type=servlet");
+        args.add("--server.port=0");
+        args.add("--server.tomcat.max-connections=20000");
+        args.add("--server.tomcat.accept-count=1000");
+        args.add("--stub.url=http://localhost:1");
+        args.add("--cron=-");
+        args.add("--spring.datasource.url=" + datasource);
+        args.add("--spring.datasource.username=" + System.getProperty("jmh.datasource.username", "postgres"));
+        args.add("--spring.datasource.password=" + System.getProperty("jmh.datasource.password", ""));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TemperatureApplication.class)
+                .run(args.toArray(new String[0]));
+        try {
+            seed(context.getBean(TemperatureService.class));
+            String port = context.getEnvironment().getProperty("local.server.port");
+            Process client = new ProcessBuilder(
+                    Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-Dlogback.configurationFile=jmh-logback.xml",
+                    "-classpath",
+                    System.getProperty("java.class.path"),
+                    RequestLoadTest.class.getName(),
+                    CLIENT,
+                    port,
+                    String.valueOf(concurrency),
+                    String.valueOf(requests),
+                    mode
+            ).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            String result;
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(
+                    client.getInputStream(),
+                    StandardCharsets.UTF_8
+            ))) {
+                result = output.lines().reduce((first, second) -> second).orElse(null);
+            }
+            if (client.waitFor() != 0 || result == null) {
+                throw new IllegalStateException("Клиент нагрузки в режиме " + mode + " завершился с ошибкой");
+            }
+            return result;
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Клиент нагрузки: аргументы --client порт concurrency requests режим, результат выводится последней строкой.
+     */
+    private static void client(String[] args) {
+        String port = args[1];
+        int concurrency = Integer.parseInt(args[2]);
+        int requests = Integer.parseInt(args[3]);
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(5))
+                .build();
+        LoopResources loops = LoopResources.create("load-test");
+        try {
+            WebClient client = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(
+                            HttpClient.create(connections)
+                                    .runOn(loops)
+                                    .responseTimeout(Duration.ofMinutes(1))
+                    ))
+                    .build();
+
+            load(client, concurrency, Math.max(requests / 10, concurrency));
+            System.out.println(load(client, concurrency, requests).format(args[4]));
+        } finally {
+            connections.dispose();
+            loops.dispose();
+        }
+    }
+
+    private static boolean isVirtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static void seed(TemperatureService temperatureService) {
+        List<TemperatureEntity> entities = new ArrayList<>(CITIES);
+        for (int i = 0; i < CITIES; i++) {
+            TemperatureEntity entity = new TemperatureEntity();
+            entity.setCity("City" + i);
+            entity.setCountry("Country");
+            entity.setTemperature(12.5);
+            entity.setTimeCreate(LocalDateTime.now());
+            entities.add(entity);
+        }
+        temperatureService.insertAll(entities);
+    }
+
+    private static Result load(WebClient client, int concurrency, int requests) {
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        String date = LocalDate.now().toString();
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> {
+                    long requestStart = System.nanoTime();
+                    return client.get()
+                            .uri(uri -> uri.path("/api/temperature")
+                                    .queryParam("location", "City" + i % CITIES)
+                                    .queryParam("date", date)
+                                    .build())
+                            .retrieve()
+                            .toBodilessEntity()
+                            .then(Mono.fromRunnable(() -> latencies[i] = System.nanoTime() - requestStart))
+                            .onErrorResume(e -> {
+                                errors.incrementAndGet();
+                                latencies[i] = System.nanoTime() - requestStart;
+                                return Mono.empty();
+                            });
+                }, concurrency)
+                .blockLast();
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Result(requests, elapsed, latencies, errors.get());
+    }
+
+    private static final class Result {
+        private final int requests;
+        private final long elapsedNanos;
+        private final long[] latencies;
+        private final int errors;
+
+        private Result(int requests, long elapsedNanos, long[] latencies, int errors) {
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        private String format(String mode) {
+            return String.format("%-10s %12.0f %10.1f %10.1f %10.1f %8d",
+                    mode,
+                    requests / (elapsedNanos / 1e9),
+                    percentile(0.50),
+                    percentile(0.99),
+                    latencies[latencies.length - 1] / 1e6,
+                    errors);
+        }
+
+        private double percentile(double p) {
+            return latencies[Math.min(latencies.length - 1, (int) Math.ceil(p * latencies.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.temperature.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Локальная заглушка сервисов погоды для TickBenchmark.
+ * Отвечает в форматах openweathermap, weatherapi и weatherbit, включая пакетные запросы.
+ */
+final class StubWeatherServer implements AutoCloseable {
+    private static final double TEMPERATURE = 12.5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> cityById = new HashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param cityIds идентификаторы городов для пакетных запросов
+     * @param threads количество потоков обработки запросов
+     */
+    StubWeatherServer(Map<String, String> cityIds, int threads) throws IOException {
+        cityIds.forEach((city, id) -> cityById.put(id, city));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/openweathermap/", this::openWeatherMap);
+        server.createContext("/weatherapi/", this::weatherApi);
+        server.createContext("/weatherbit/", this::weatherBit);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void openWeatherMap(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        if (exchange.getRequestURI().getPath().endsWith("/group")) {
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode list = response.putArray("list");
+            for (String id : query.get("id").split(",")) {
+                list.add(openWeatherMapItem(Long.parseLong(id), cityById.get(id)));
+            }
+            response.put("cnt", list.size());
+            send(exchange, response);
+        } else {
+            send(exchange, openWeatherMapItem(0, query.get("q")));
+        }
+    }
+
+    private void weatherApi(HttpExchange exchange) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode bulk = response.putArray("bulk");
+            for (JsonNode location : request.path("locations")) {
+                ObjectNode item = weatherApiItem(location.path("q").asText());
+                item.put("custom_id", location.path("custom_id").asText());
+                bulk.addObject().set("query", item);
+            }
+            send(exchange, response);
+        } else {
+            send(exchange, weatherApiItem(query(exchange).get("q")));
+        }
+    }
+
+    private void weatherBit(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode data = response.putArray("data");
+        if (query.containsKey("cities")) {
+            for (String id : query.get("cities").split(",")) {
+                data.addObject().put("city_name", cityById.get(id)).put("temp", TEMPERATURE);
+            }
+        } else {
+            data.addObject().put("city_name", query.get("city")).put("temp", TEMPERATURE);
+        }
+        response.put("count", data.size());
+        send(exchange, response);
+    }
+
+    private ObjectNode openWeatherMapItem(long id, String city) {
+        ObjectNode item = objectMapper.createObjectNode();
+        item.put("id", id);
+        item.put("name", city);
+        item.putObject("main").put("temp", TEMPERATURE);
+        return item;
+    }
+
+    private ObjectNode weatherApiItem(String city) {
+        ObjectNode item = objectMapper.createObjectNode();
+        item.putObject("location").put("name", city).put("country", "Country");
+        item.putObject("current").put("temp_c", TEMPERATURE);
+        return item;
+    }
+
+    private void send(HttpExchange exchange, JsonNode response) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String parameter : raw.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(
+                        URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8.name()),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8.name())
+                );
+            }
+        }
+        return query;
+    }
+}
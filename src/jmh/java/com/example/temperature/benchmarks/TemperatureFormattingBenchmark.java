@@ -0,0 +1,172 @@
+package com.example.temperature.benchmarks;
+
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.cache.LatestTemperatureCache;
+import com.example.temperature.cache.ReadingWindow;
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.clients.WeatherResponseCache;
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.Granularity;
+import com.example.temperature.dto.TemperatureRollupDto;
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.LocationRepository;
+import com.example.temperature.repositories.TemperatureRecordRepository;
+import com.example.temperature.repositories.TemperatureRepository;
+import com.example.temperature.repositories.TemperatureRollupRepository;
+import com.example.temperature.services.TemperatureService;
+import com.example.temperature.services.impl.TemperatureServiceImpl;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Формирование текстового ответа getTemperature по записям за день и по часовым агрегатам.
+ * Репозитории возвращают заранее подготовленные данные, записи за день читаются из бд или из окна в памяти.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TemperatureFormattingBenchmark {
+    private static final String LOCATION = "Izhevsk";
+
+    /**
+     * Количество записей за день: 288 - раз в 5 минут, 17280 - раз в 5 секунд.
+     */
+    @Param({"288", "17280"})
+    public int records;
+
+    /**
+     * true - записи за день читаются из окна последних значений в памяти, false - из бд.
+     */
+    @Param({"false", "true"})
+    public boolean window;
+
+    private TemperatureService temperatureService;
+    private LocalDate date;
+
+    @Setup
+    public void setUp() {
+        date = LocalDate.of(2022, 9, 12);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TemperatureEntity> entities = new ArrayList<>(records);
+        long step = TimeUnit.DAYS.toSeconds(1) / records;
+        for (int i = 0; i < records; i++) {
+            TemperatureEntity entity = new TemperatureEntity();
+            entity.setLocationId(1);
+            entity.setTemperature(Math.round(random.nextDouble(-30, 40) * 100) / 100.0);
+            entity.setTimeCreate(date.atStartOfDay().plusSeconds(i * step));
+            entities.add(entity);
+        }
+        List<TemperatureRollupDto> rollups = new ArrayList<>(24);
+        for (int i = 0; i < 24; i++) {
+            rollups.add(TemperatureRollupDto.builder()
+                    .bucket(date.atTime(i, 0))
+                    .minTemperature(-1.5)
+                    .maxTemperature(12.25)
+                    .avgTemperature(random.nextDouble(-30, 40))
+                    .count(records / 24)
+                    .build());
+        }
+
+        TemperatureRepository temperatureRepository = Mockito.mock(
+                TemperatureRepository.class,
+                Mockito.withSettings().stubOnly()
+        );
+        when(temperatureRepository.findAllByTimeCreateBetweenAndLocationIdIn(
+                any(LocalDateTime.class),
+                any(LocalDateTime.class),
+                anyCollection()
+        )).thenReturn(entities);
+        TemperatureRollupRepository temperatureRollupRepository = Mockito.mock(
+                TemperatureRollupRepository.class,
+                Mockito.withSettings().stubOnly()
+        );
+        when(temperatureRollupRepository.find(
+                eq(Granularity.HOUR),
+                anyString(),
+                any(LocalDateTime.class),
+                any(LocalDateTime.class)
+        )).thenReturn(rollups);
+
+        LocationEntity location = new LocationEntity();
+        location.setId(1L);
+        location.setCity(LOCATION);
+        location.setCountry("Russia");
+        LocationRepository locationRepository = Mockito.mock(
+                LocationRepository.class,
+                Mockito.withSettings().stubOnly()
+        );
+        when(locationRepository.findAll()).thenReturn(Collections.singletonList(location));
+        LocationDirectory locationDirectory = new LocationDirectory(locationRepository);
+
+        WeatherProperties properties = new WeatherProperties();
+        properties.setSources(Collections.emptyMap());
+        properties.getWindow().setEnabled(window);
+        properties.getWindow().setDuration(Duration.ofDays(365_000));
+        ReadingIntervals readingIntervals = new ReadingIntervals(properties, locationDirectory);
+        ReadingWindow readingWindow = new ReadingWindow(
+                properties,
+                Mockito.mock(TemperatureRecordRepository.class, Mockito.withSettings().stubOnly()),
+                readingIntervals
+        );
+        readingWindow.rebuild();
+        readingWindow.addAll(entities);
+        temperatureService = new TemperatureServiceImpl(
+                temperatureRepository,
+                temperatureRollupRepository,
+                new WeatherProviderRegistry(Collections.emptyList(), properties),
+                Mockito.mock(WeatherClient.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(WeatherResponseCache.class, Mockito.withSettings().stubOnly()),
+                new LatestTemperatureCache(temperatureRepository, properties, locationDirectory, readingIntervals),
+                locationDirectory,
+                readingIntervals,
+                Mockito.mock(TemperatureRecordRepository.class, Mockito.withSettings().stubOnly()),
+                new SegmentStore(properties),
+                readingWindow,
+                new ClusterMembership(properties, Mockito.mock(JdbcTemplate.class, Mockito.withSettings().stubOnly()))
+        );
+    }
+
+    @Benchmark
+    public String raw() {
+        return temperatureService.getTemperature(LOCATION, date);
+    }
+
+    @Benchmark
+    public String hour() {
+        return temperatureService.getTemperature(LOCATION, date, Granularity.HOUR);
+    }
+}
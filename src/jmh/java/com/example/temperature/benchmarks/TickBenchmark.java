@@ -0,0 +1,100 @@
+package com.example.temperature.benchmarks;
+
+import com.example.temperature.TemperatureApplication;
+import com.example.temperature.services.impl.EventServiceImpl;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный цикл updateTemperature: запросы к локальной заглушке сервисов погоды и сохранение в Postgres.
+ * По умолчанию запускается встроенный Postgres, внешнюю бд можно задать свойствами
+ * jmh.datasource.url, jmh.datasource.username и jmh.datasource.password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TickBenchmark {
+    @Param({"3", "100"})
+    public int cities;
+
+    @Param({"blocking", "reactive"})
+    public String client;
+
+    private EmbeddedPostgres postgres;
+    private StubWeatherServer server;
+    private ConfigurableApplicationContext context;
+    private EventServiceImpl eventService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Map<String, String> cityIds = new LinkedHashMap<>();
+        for (int i = 0; i < cities; i++) {
+            cityIds.put("City" + i, String.valueOf(1000 + i));
+        }
+        server = new StubWeatherServer(cityIds, 16);
+
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.location=classpath:tick-benchmark.yml");
+        args.add("--stub.url=" + server.getUrl());
+        args.add("--weather.client.type=" + client);
+        String url = System.getProperty("jmh.datasource.url");
+        if (url == null) {
+            postgres = EmbeddedPostgres.start();
+            args.add("--spring.datasource.url="
+                    + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        } else {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.username=" + System.getProperty("jmh.datasource.username", "postgres"));
+            args.add("--spring.datasource.password=" + System.getProperty("jmh.datasource.password", ""));
+        }
+        cityIds.forEach((city, id) -> {
+            args.add("--weather.locations." + city + "=Country");
+            args.add("--weather.city-ids." + city + "=" + id);
+        });
+
+        context = new SpringApplicationBuilder(TemperatureApplication.class).run(args.toArray(new String[0]));
+        eventService = context.getBean(EventServiceImpl.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        eventService.updateTemperature();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.temperature.archive;
+
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * Чтение блока, сжатого {@link GorillaEncoder}, без копирования из буфера.
+ */
+final class GorillaDecoder {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int count;
+    private long position;
+    private int read;
+
+    private long time;
+    private long delta;
+    private long value;
+    private int leading;
+    private int trailing;
+
+    /**
+     * @param buffer буфер с блоком
+     * @param start  смещение блока в буфере
+     * @param count  количество значений в блоке
+     */
+    GorillaDecoder(ByteBuffer buffer, int start, int count) {
+        this.buffer = buffer;
+        this.start = start;
+        this.count = count;
+    }
+
+    boolean hasNext() {
+        return read < count;
+    }
+
+    /**
+     * Переходит к следующему значению блока.
+     */
+    void next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (read == 0) {
+            time = read(64);
+            value = read(64);
+        } else {
+            delta += readTime();
+            time += delta;
+            value ^= readValue();
+        }
+        read++;
+    }
+
+    /**
+     * @return время текущего значения в микросекундах
+     */
+    long time() {
+        return time;
+    }
+
+    double value() {
+        return Double.longBitsToDouble(value);
+    }
+
+    private long readTime() {
+        if (read(1) == 0) {
+            return 0;
+        }
+        if (read(1) == 0) {
+            return readSigned(12);
+        }
+        if (read(1) == 0) {
+            return readSigned(20);
+        }
+        if (read(1) == 0) {
+            return readSigned(32);
+        }
+        return read(64);
+    }
+
+    private long readValue() {
+        if (read(1) == 0) {
+            return 0;
+        }
+        if (read(1) == 1) {
+            leading = (int) read(5);
+            int significant = (int) read(6) + 1;
+            trailing = 64 - leading - significant;
+        }
+        return read(64 - leading - trailing) << trailing;
+    }
+
+    private long readSigned(int n) {
+        return read(n) << (64 - n) >> (64 - n);
+    }
+
+    private long read(int n) {
+        long result = 0;
+        while (n > 0) {
+            int available = 8 - (int) (position & 7);
+            int take = Math.min(available, n);
+            int b = buffer.get(start + (int) (position >>> 3)) & 0xFF;
+            result = (result << take) | ((b >>> (available - take)) & ((1 << take) - 1));
+            position += take;
+            n -= take;
+        }
+        return result;
+    }
+}
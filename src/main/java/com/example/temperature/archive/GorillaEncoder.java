@@ -0,0 +1,121 @@
+package com.example.temperature.archive;
+
+import java.util.Arrays;
+
+/**
+ * Сжатие последовательности значений по схеме Gorilla.
+ * Время хранится разностью второго порядка: при равномерном опросе это один бит на значение.
+ * Значение хранится как XOR с предыдущим: повтор занимает один бит, близкие значения -
+ * только различающиеся биты мантиссы.
+ * Первое значение блока хранится полностью, поэтому блок декодируется независимо от других.
+ */
+final class GorillaEncoder {
+    private long[] words = new long[16];
+    private long bits;
+    private int count;
+
+    private long lastTime;
+    private long lastDelta;
+    private long lastValue;
+    private int lastLeading = Integer.MAX_VALUE;
+    private int lastTrailing;
+
+    /**
+     * @param time  время в микросекундах
+     * @param value значение, NaN - значение не задано
+     */
+    void add(long time, double value) {
+        long valueBits = Double.doubleToLongBits(value);
+        if (count == 0) {
+            write(time, 64);
+            write(valueBits, 64);
+        } else {
+            long delta = time - lastTime;
+            writeTime(delta - lastDelta);
+            writeValue(valueBits ^ lastValue);
+            lastDelta = delta;
+        }
+        lastTime = time;
+        lastValue = valueBits;
+        count++;
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] toByteArray() {
+        byte[] result = new byte[(int) ((bits + 7) >>> 3)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return result;
+    }
+
+    private void writeTime(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            write(0, 1);
+        } else if (fits(deltaOfDelta, 12)) {
+            write(0b10, 2);
+            write(deltaOfDelta, 12);
+        } else if (fits(deltaOfDelta, 20)) {
+            write(0b110, 3);
+            write(deltaOfDelta, 20);
+        } else if (fits(deltaOfDelta, 32)) {
+            write(0b1110, 4);
+            write(deltaOfDelta, 32);
+        } else {
+            write(0b1111, 4);
+            write(deltaOfDelta, 64);
+        }
+    }
+
+    /**
+     * Если значащие биты помещаются в окно предыдущего значения, окно не записывается.
+     */
+    private void writeValue(long xor) {
+        if (xor == 0) {
+            write(0, 1);
+            return;
+        }
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (leading >= lastLeading && trailing >= lastTrailing) {
+            write(0b10, 2);
+            write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            return;
+        }
+        int significant = 64 - leading - trailing;
+        write(0b11, 2);
+        write(leading, 5);
+        write(significant - 1, 6);
+        write(xor >>> trailing, significant);
+        lastLeading = leading;
+        lastTrailing = trailing;
+    }
+
+    /**
+     * Записывает младшие n бит значения, начиная со старшего.
+     */
+    private void write(long value, int n) {
+        if (n < 64) {
+            value &= (1L << n) - 1;
+        }
+        int index = (int) (bits >>> 6);
+        int free = 64 - (int) (bits & 63);
+        if (index + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        if (n <= free) {
+            words[index] |= value << (free - n);
+        } else {
+            words[index] |= value >>> (n - free);
+            words[index + 1] |= value << (64 - (n - free));
+        }
+        bits += n;
+    }
+
+    private static boolean fits(long value, int n) {
+        return value >= -(1L << (n - 1)) && value < (1L << (n - 1));
+    }
+}
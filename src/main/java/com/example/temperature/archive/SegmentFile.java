@@ -0,0 +1,207 @@
+package com.example.temperature.archive;
+
+import com.example.temperature.entities.TemperatureEntity;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Файл сегмента: значения одной локации за месяц в порядке времени.
+ * Значения разбиты на блоки, сжатые {@link GorillaEncoder}. Индекс в начале файла хранит время
+ * первого и последнего значения каждого блока, поэтому при чтении периода декодируются только
+ * блоки, пересекающиеся с периодом. Файл читается через отображение в память.
+ * <p>
+ * Формат: magic, версия, идентификатор локации, количество блоков, количество значений,
+ * индекс (время первого и последнего значения, количество значений, смещение и длина блока), блоки.
+ */
+final class SegmentFile {
+    private static final int MAGIC = 0x54534547;
+    private static final short VERSION = 1;
+    private static final int HEADER = 4 + 2 + 4 + 4 + 8;
+    private static final int INDEX_ENTRY = 8 + 8 + 4 + 4 + 4;
+
+    private SegmentFile() {
+    }
+
+    /**
+     * Записывает значения в файл сегмента.
+     */
+    static final class Writer {
+        private final int locationId;
+        private final int blockSize;
+        private final List<Block> blocks = new ArrayList<>();
+        private GorillaEncoder encoder;
+        private long first;
+        private long last;
+        private long count;
+
+        /**
+         * @param locationId идентификатор локации
+         * @param blockSize  количество значений в блоке
+         */
+        Writer(int locationId, int blockSize) {
+            this.locationId = locationId;
+            this.blockSize = blockSize;
+        }
+
+        int getLocationId() {
+            return locationId;
+        }
+
+        /**
+         * Добавляет значение. Значения должны добавляться в порядке времени.
+         */
+        void add(TemperatureEntity sample) {
+            long time = toMicros(sample.getTimeCreate());
+            if (encoder != null && time < last) {
+                throw new IllegalArgumentException("Значения сегмента должны идти в порядке времени");
+            }
+            if (encoder == null || encoder.count() == blockSize) {
+                finishBlock();
+                encoder = new GorillaEncoder();
+                first = time;
+            }
+            encoder.add(time, sample.getTemperature() != null ? sample.getTemperature() : Double.NaN);
+            last = time;
+            count++;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        /**
+         * Записывает сегмент в файл.
+         *
+         * @param path путь к файлу
+         */
+        void writeTo(Path path) throws IOException {
+            finishBlock();
+            try (OutputStream stream = Files.newOutputStream(path);
+                 DataOutputStream output = new DataOutputStream(stream)) {
+                output.writeInt(MAGIC);
+                output.writeShort(VERSION);
+                output.writeInt(locationId);
+                output.writeInt(blocks.size());
+                output.writeLong(count);
+                int offset = HEADER + blocks.size() * INDEX_ENTRY;
+                for (Block block : blocks) {
+                    output.writeLong(block.first);
+                    output.writeLong(block.last);
+                    output.writeInt(block.count);
+                    output.writeInt(offset);
+                    output.writeInt(block.data.length);
+                    offset += block.data.length;
+                }
+                for (Block block : blocks) {
+                    output.write(block.data);
+                }
+            }
+        }
+
+        private void finishBlock() {
+            if (encoder != null && encoder.count() > 0) {
+                blocks.add(new Block(first, last, encoder.count(), encoder.toByteArray()));
+            }
+            encoder = null;
+        }
+    }
+
+    /**
+     * Читает значения сегмента за период.
+     *
+     * @param path путь к файлу
+     * @param from начало периода
+     * @param to   конец периода, включается
+     * @return значения в порядке времени, температура не задана, если значение не было задано
+     */
+    static List<TemperatureEntity> read(Path path, LocalDateTime from, LocalDateTime to) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Неизвестный формат файла сегмента " + path);
+        }
+        int locationId = buffer.getInt(6);
+        int blocks = buffer.getInt(10);
+        long start = toMicros(from);
+        long end = toMicros(to);
+
+        List<TemperatureEntity> result = new ArrayList<>();
+        for (int i = firstBlock(buffer, blocks, start); i < blocks; i++) {
+            int entry = HEADER + i * INDEX_ENTRY;
+            if (buffer.getLong(entry) > end) {
+                break;
+            }
+            GorillaDecoder decoder = new GorillaDecoder(buffer, buffer.getInt(entry + 20), buffer.getInt(entry + 16));
+            while (decoder.hasNext()) {
+                decoder.next();
+                if (decoder.time() > end) {
+                    break;
+                }
+                if (decoder.time() >= start) {
+                    result.add(sample(locationId, decoder.time(), decoder.value()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Первый блок, последнее значение которого не раньше начала периода.
+     */
+    private static int firstBlock(ByteBuffer buffer, int blocks, long start) {
+        int low = 0;
+        int high = blocks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(HEADER + middle * INDEX_ENTRY + 8) < start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static TemperatureEntity sample(int locationId, long time, double value) {
+        TemperatureEntity sample = new TemperatureEntity();
+        sample.setLocationId(locationId);
+        sample.setTimeCreate(LocalDateTime.ofEpochSecond(
+                Math.floorDiv(time, 1_000_000L),
+                (int) Math.floorMod(time, 1_000_000L) * 1000,
+                ZoneOffset.UTC
+        ));
+        sample.setTemperature(Double.isNaN(value) ? null : value);
+        return sample;
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    private static final class Block {
+        private final long first;
+        private final long last;
+        private final int count;
+        private final byte[] data;
+
+        private Block(long first, long last, int count, byte[] data) {
+            this.first = first;
+            this.last = last;
+            this.count = count;
+            this.data = data;
+        }
+    }
+}
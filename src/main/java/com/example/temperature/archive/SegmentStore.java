@@ -0,0 +1,399 @@
+package com.example.temperature.archive;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище значений, перенесенных из бд в файлы сегментов.
+ * Значения месяца хранятся в каталоге yyyyMM, по файлу сегмента на локацию.
+ * Каталог месяца записывается во временный каталог и переименовывается целиком,
+ * поэтому месяц либо отсутствует в хранилище, либо записан полностью.
+ */
+@Slf4j
+@Component
+public class SegmentStore {
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Comparator<TemperatureEntity> BY_TIME = Comparator
+            .comparing(TemperatureEntity::getTimeCreate)
+            .thenComparing(TemperatureEntity::getLocationId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final WeatherProperties.Tiering settings;
+    private final Path directory;
+
+    public SegmentStore(WeatherProperties properties) {
+        this.settings = properties.getTiering();
+        this.directory = settings.getDirectory() != null ? Paths.get(settings.getDirectory()) : null;
+    }
+
+    /**
+     * @param month месяц
+     * @return true, если значения месяца перенесены в хранилище
+     */
+    public boolean contains(YearMonth month) {
+        return directory != null && Files.isDirectory(monthDirectory(month));
+    }
+
+    /**
+     * Объединяет значения из бд со значениями из хранилища за период.
+     * Значение, которое есть и в бд, и в хранилище, возвращается один раз.
+     *
+     * @param values значения из бд
+     * @param ids    идентификаторы локаций
+     * @param from   начало периода
+     * @param to     конец периода, включается
+     * @return значения в порядке времени и локации, без изменений, если месяцев периода нет в хранилище
+     */
+    public List<TemperatureEntity> merge(
+            List<TemperatureEntity> values,
+            Collection<Integer> ids,
+            LocalDateTime from,
+            LocalDateTime to
+    ) {
+        return merge(values, read(ids, from, to));
+    }
+
+    /**
+     * Объединяет значения из бд с уже прочитанными значениями из хранилища.
+     *
+     * @param values   значения из бд
+     * @param archived значения из хранилища
+     * @return значения в порядке времени и локации, без изменений, если значений из хранилища нет
+     */
+    public List<TemperatureEntity> merge(List<TemperatureEntity> values, List<TemperatureEntity> archived) {
+        if (archived.isEmpty()) {
+            return values;
+        }
+        List<TemperatureEntity> result = new ArrayList<>(values.size() + archived.size());
+        result.addAll(values);
+        result.addAll(archived);
+        result.sort(BY_TIME);
+        TemperatureEntity previous = null;
+        for (Iterator<TemperatureEntity> iterator = result.iterator(); iterator.hasNext(); ) {
+            TemperatureEntity current = iterator.next();
+            if (previous != null && BY_TIME.compare(previous, current) == 0) {
+                iterator.remove();
+            } else {
+                previous = current;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Значения локаций за период из хранилища.
+     *
+     * @param ids  идентификаторы локаций
+     * @param from начало периода
+     * @param to   конец периода, включается
+     * @return значения без города и страны, в порядке времени для каждой локации
+     */
+    public List<TemperatureEntity> read(Collection<Integer> ids, LocalDateTime from, LocalDateTime to) {
+        return read(ids, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Значения локаций за период из хранилища, начиная с самых ранних месяцев.
+     * Месяцы читаются целиком, чтение прекращается после месяца, на котором набралось limit значений.
+     *
+     * @param ids   идентификаторы локаций
+     * @param from  начало периода
+     * @param to    конец периода, включается
+     * @param limit количество значений, после которого следующие месяцы не читаются
+     * @return значения без города и страны, в порядке времени для каждой локации
+     */
+    public List<TemperatureEntity> read(Collection<Integer> ids, LocalDateTime from, LocalDateTime to, int limit) {
+        List<TemperatureEntity> result = new ArrayList<>();
+        if (directory == null || ids.isEmpty()) {
+            return result;
+        }
+        for (YearMonth month = YearMonth.from(from);
+             !month.isAfter(YearMonth.from(to)) && result.size() < limit;
+             month = month.plusMonths(1)) {
+            if (contains(month)) {
+                result.addAll(readMonth(month, ids, from, to));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Объединяет значения из бд, прочитанные курсором, со значениями из хранилища за период.
+     * Значения хранилища читаются по одному месяцу, поэтому в памяти хранятся значения только одного месяца.
+     *
+     * @param values значения из бд в порядке времени и локации
+     * @param ids    идентификаторы локаций, null - все локации
+     * @param from   начало периода
+     * @param end    конец периода, не включается
+     * @return значения в порядке времени и локации, значение из бд и хранилища возвращается один раз
+     */
+    public Iterator<TemperatureEntity> merge(
+            Iterator<TemperatureEntity> values,
+            Collection<Integer> ids,
+            LocalDateTime from,
+            LocalDateTime end
+    ) {
+        if (directory == null || ids != null && ids.isEmpty()) {
+            return values;
+        }
+        Iterator<TemperatureEntity> archived = new Iterator<TemperatureEntity>() {
+            private YearMonth month = YearMonth.from(from);
+            private Iterator<TemperatureEntity> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && !month.isAfter(YearMonth.from(end))) {
+                    if (contains(month)) {
+                        List<TemperatureEntity> samples = readMonth(
+                                month,
+                                ids != null ? ids : locations(month),
+                                from,
+                                end
+                        );
+                        samples.removeIf(sample -> !sample.getTimeCreate().isBefore(end));
+                        samples.sort(BY_TIME);
+                        current = samples.iterator();
+                    }
+                    month = month.plusMonths(1);
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public TemperatureEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return new Iterator<TemperatureEntity>() {
+            private TemperatureEntity value;
+            private TemperatureEntity archive;
+
+            @Override
+            public boolean hasNext() {
+                if (value == null && values.hasNext()) {
+                    value = values.next();
+                }
+                if (archive == null && archived.hasNext()) {
+                    archive = archived.next();
+                }
+                return value != null || archive != null;
+            }
+
+            @Override
+            public TemperatureEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int compare = value == null ? 1 : archive == null ? -1 : BY_TIME.compare(value, archive);
+                TemperatureEntity result = compare <= 0 ? value : archive;
+                if (compare <= 0) {
+                    value = null;
+                }
+                if (compare >= 0) {
+                    archive = null;
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Последние значения локаций в хранилище. Месяцы читаются от последнего,
+     * пока не найдены значения всех локаций.
+     *
+     * @param ids идентификаторы локаций
+     * @return последнее значение по каждой локации, у которой есть значения в хранилище
+     */
+    public Map<Integer, TemperatureEntity> last(Collection<Integer> ids) {
+        Map<Integer, TemperatureEntity> result = new HashMap<>();
+        if (directory == null || ids.isEmpty() || !Files.isDirectory(directory)) {
+            return result;
+        }
+        List<YearMonth> months = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches("\\d{6}"))
+                    .map(name -> YearMonth.parse(name, MONTH))
+                    .forEach(months::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог сегментов " + directory, e);
+        }
+        months.sort(Comparator.reverseOrder());
+        for (YearMonth month : months) {
+            List<Integer> missing = new ArrayList<>(ids);
+            missing.removeAll(result.keySet());
+            if (missing.isEmpty()) {
+                break;
+            }
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            for (TemperatureEntity sample : readMonth(month, missing, start, start.plusMonths(1))) {
+                result.merge(sample.getLocationId(), sample, (first, second) ->
+                        second.getTimeCreate().isAfter(first.getTimeCreate()) ? second : first);
+            }
+        }
+        return result;
+    }
+
+    private List<TemperatureEntity> readMonth(
+            YearMonth month,
+            Collection<Integer> ids,
+            LocalDateTime from,
+            LocalDateTime to
+    ) {
+        List<TemperatureEntity> result = new ArrayList<>();
+        for (Integer id : ids) {
+            Path segment = monthDirectory(month).resolve(id + SEGMENT_SUFFIX);
+            if (!Files.exists(segment)) {
+                continue;
+            }
+            try {
+                result.addAll(SegmentFile.read(segment, from, to));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать сегмент " + segment, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Локации, значения которых есть в месяце хранилища.
+     */
+    private List<Integer> locations(YearMonth month) {
+        List<Integer> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(monthDirectory(month))) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> result.add(Integer.valueOf(
+                            name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог месяца " + month, e);
+        }
+        return result;
+    }
+
+    /**
+     * Начинает запись месяца. Незавершенная запись месяца, оставшаяся от прошлого запуска, удаляется.
+     *
+     * @param month месяц
+     * @return запись месяца, значения становятся видны после {@link MonthWriter#commit()}
+     */
+    public MonthWriter open(YearMonth month) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("Не задан каталог сегментов weather.tiering.directory");
+        }
+        Path temp = directory.resolve(month.format(MONTH) + TEMP_SUFFIX);
+        delete(temp);
+        Files.createDirectories(temp);
+        return new MonthWriter(month, temp);
+    }
+
+    private Path monthDirectory(YearMonth month) {
+        return directory.resolve(month.format(MONTH));
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(path);
+    }
+
+    /**
+     * Запись значений месяца. Значения добавляются сгруппированными по локации, в порядке времени.
+     */
+    public final class MonthWriter implements Closeable {
+        private final YearMonth month;
+        private final Path temp;
+        private SegmentFile.Writer segment;
+        private int segments;
+        private long count;
+        private boolean committed;
+
+        private MonthWriter(YearMonth month, Path temp) {
+            this.month = month;
+            this.temp = temp;
+        }
+
+        /**
+         * @param sample значение с заполненным идентификатором локации
+         */
+        public void add(TemperatureEntity sample) throws IOException {
+            Objects.requireNonNull(sample.getLocationId(), "Не задан идентификатор локации");
+            if (segment != null && segment.getLocationId() != sample.getLocationId()) {
+                flush();
+            }
+            if (segment == null) {
+                segment = new SegmentFile.Writer(sample.getLocationId(), settings.getBlockSize());
+            }
+            segment.add(sample);
+        }
+
+        /**
+         * Записывает месяц в хранилище.
+         *
+         * @return количество записанных значений
+         */
+        public long commit() throws IOException {
+            flush();
+            Files.move(temp, monthDirectory(month), StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            log.info(
+                    "Месяц {} записан в хранилище сегментов, локаций {}, значений {}",
+                    month,
+                    segments,
+                    count
+            );
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                delete(temp);
+            }
+        }
+
+        private void flush() throws IOException {
+            if (segment == null) {
+                return;
+            }
+            segment.writeTo(temp.resolve(segment.getLocationId() + SEGMENT_SUFFIX));
+            segments++;
+            count += segment.getCount();
+            segment = null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.temperature.cache;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.TemperatureRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш последних сохраненных значений температуры по городу и по стране.
+ * Обновляется при сохранении записей и заполняется из бд при старте приложения.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LatestTemperatureCache {
+    private final TemperatureRepository temperatureRepository;
+    private final WeatherProperties properties;
+    private final LocationDirectory locationDirectory;
+    private final ReadingIntervals readingIntervals;
+
+    private final Map<String, TemperatureEntity> byCity = new ConcurrentHashMap<>();
+    private final Map<String, TemperatureEntity> byCountry = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Загружает последние записи для городов из weather.locations.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (properties.getLocations() == null || properties.getLocations().isEmpty()) {
+            return;
+        }
+        int count = 0;
+        for (Map.Entry<String, String> location : properties.getLocations().entrySet()) {
+            Integer id = locationDirectory.find(location.getKey(), location.getValue());
+            if (id == null) {
+                continue;
+            }
+            Optional<TemperatureEntity> entity = temperatureRepository.findFirstByLocationIdOrderByTimeCreateDesc(id);
+            if (entity.isPresent()) {
+                put(readingIntervals.last(locationDirectory.fill(entity.get())));
+                count++;
+            }
+        }
+        log.info(
+                "Кэш последних значений температуры заполнен для {} городов",
+                count
+        );
+    }
+
+    /**
+     * Сохраняет запись, если она новее уже сохраненной для ее города и страны.
+     *
+     * @param entity запись температуры
+     */
+    public void put(TemperatureEntity entity) {
+        if (entity.getTimeCreate() == null) {
+            return;
+        }
+        if (entity.getCity() != null) {
+            byCity.merge(entity.getCity(), entity, LatestTemperatureCache::latest);
+        }
+        if (entity.getCountry() != null) {
+            byCountry.merge(entity.getCountry(), entity, LatestTemperatureCache::latest);
+        }
+    }
+
+    public void putAll(Collection<TemperatureEntity> entities) {
+        entities.forEach(this::put);
+    }
+
+    /**
+     * Последняя запись по городу или стране.
+     *
+     * @param location город или страна
+     * @return последняя запись или пустой результат, если локации нет в кэше
+     */
+    public Optional<TemperatureEntity> get(String location) {
+        TemperatureEntity city = byCity.get(location);
+        TemperatureEntity country = byCountry.get(location);
+        if (city == null && country == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        if (city == null || country == null) {
+            return Optional.of(city != null ? city : country);
+        }
+        return Optional.of(latest(city, country));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static TemperatureEntity latest(TemperatureEntity first, TemperatureEntity second) {
+        return second.getTimeCreate().isAfter(first.getTimeCreate()) ? second : first;
+    }
+}
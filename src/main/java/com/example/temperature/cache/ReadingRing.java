@@ -0,0 +1,142 @@
+package com.example.temperature.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Кольцевой буфер значений одной локации вне кучи: время в микросекундах и температура.
+ * Значения хранятся в порядке времени, при переполнении вытесняется самое старое значение.
+ * Буфер занимает фиксированные 16 байт на значение независимо от заполнения.
+ * Методы класса не потокобезопасны.
+ */
+final class ReadingRing {
+    static final int BYTES_PER_READING = Long.BYTES + Double.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private int head;
+    private int size;
+    private long evicted = Long.MIN_VALUE;
+
+    ReadingRing(int capacity) {
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity * BYTES_PER_READING);
+    }
+
+    /**
+     * Добавляет значение. Значение со временем, которое уже есть в буфере, не добавляется,
+     * как и запись с тем же ключом в бд.
+     *
+     * @param time  время в микросекундах
+     * @param value температура, NaN - не задана
+     */
+    void add(long time, double value) {
+        if (time <= evicted) {
+            return;
+        }
+        if (size == 0 || time > time(size - 1)) {
+            if (size == capacity) {
+                evictOldest();
+            }
+            set(size, time, value);
+            size++;
+            return;
+        }
+        int position = lowerBound(time);
+        if (time(position) == time) {
+            return;
+        }
+        if (size == capacity) {
+            if (position == 0) {
+                evicted = time;
+                return;
+            }
+            evictOldest();
+            position--;
+        }
+        for (int i = size; i > position; i--) {
+            set(i, time(i - 1), value(i - 1));
+        }
+        set(position, time, value);
+        size++;
+    }
+
+    /**
+     * Удаляет значения за период, например, промежуточные значения интервала перед его заменой.
+     *
+     * @param from начало периода в микросекундах
+     * @param to   конец периода в микросекундах, включается
+     */
+    void remove(long from, long to) {
+        int first = lowerBound(from);
+        int last = to == Long.MAX_VALUE ? size : lowerBound(to + 1);
+        if (first >= last) {
+            return;
+        }
+        for (int i = last; i < size; i++) {
+            set(first + i - last, time(i), value(i));
+        }
+        size -= last - first;
+    }
+
+    /**
+     * @param from время в микросекундах
+     * @return true, если в буфере есть все добавленные значения не раньше from
+     */
+    boolean covers(long from) {
+        return from > evicted;
+    }
+
+    /**
+     * @param time время в микросекундах
+     * @return индекс первого значения не раньше time или size(), если таких нет
+     */
+    int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (time(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index индекс значения от самого старого
+     */
+    long time(int index) {
+        return buffer.getLong(offset(index) * Long.BYTES);
+    }
+
+    double value(int index) {
+        return buffer.getDouble(capacity * Long.BYTES + offset(index) * Double.BYTES);
+    }
+
+    long memory() {
+        return (long) capacity * BYTES_PER_READING;
+    }
+
+    private void evictOldest() {
+        evicted = time(0);
+        head = (head + 1) % capacity;
+        size--;
+    }
+
+    private void set(int index, long time, double value) {
+        int offset = offset(index);
+        buffer.putLong(offset * Long.BYTES, time);
+        buffer.putDouble(capacity * Long.BYTES + offset * Double.BYTES, value);
+    }
+
+    private int offset(int index) {
+        int offset = head + index;
+        return offset < capacity ? offset : offset - capacity;
+    }
+}
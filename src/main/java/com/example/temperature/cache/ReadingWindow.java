@@ -0,0 +1,415 @@
+package com.example.temperature.cache;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationRemovedEvent;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.TemperatureRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Окно последних значений температуры в памяти.
+ * Значения каждой локации хранятся в кольцевом буфере вне кучи, без объектов TemperatureEntity.
+ * Окно загружается из бд при старте и дополняется записями после фиксации их сохранения,
+ * поэтому содержит все значения локации, начиная с начала окна или с последнего вытесненного значения.
+ * Записи интервалов хранятся развернутыми в значения так же, как при чтении из бд.
+ * Буфер удаленной или отключенной локации освобождается, ее значения до перезапуска читаются из бд.
+ * Запрос за период, который целиком попадает в окно, выполняется без обращения к бд и без создания
+ * объектов на каждое значение.
+ */
+@Slf4j
+@Component
+public class ReadingWindow {
+    private final WeatherProperties.Window settings;
+    private final boolean enabled;
+    private final TemperatureRecordRepository temperatureRecordRepository;
+    private final ReadingIntervals readingIntervals;
+    private final Supplier<LocalDateTime> now;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, ReadingRing> rings = new HashMap<>();
+    /**
+     * Локации, буферы которых освобождены. Значения таких локаций в окне неполные.
+     */
+    private final Set<Integer> released = new HashSet<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Начало окна в микросекундах, до загрузки окна из бд запросы выполняются в бд.
+     */
+    private volatile long start = Long.MAX_VALUE;
+    /**
+     * true - значения части локаций не сохранены из-за ограничения max-locations.
+     */
+    private boolean overflow;
+
+    @Autowired
+    public ReadingWindow(
+            WeatherProperties properties,
+            TemperatureRecordRepository temperatureRecordRepository,
+            ReadingIntervals readingIntervals
+    ) {
+        this(properties, temperatureRecordRepository, readingIntervals, LocalDateTime::now);
+    }
+
+    ReadingWindow(
+            WeatherProperties properties,
+            TemperatureRecordRepository temperatureRecordRepository,
+            ReadingIntervals readingIntervals,
+            Supplier<LocalDateTime> now
+    ) {
+        this.settings = properties.getWindow();
+        this.enabled = settings.isEnabled() && !properties.getCluster().isEnabled();
+        this.temperatureRecordRepository = temperatureRecordRepository;
+        this.readingIntervals = readingIntervals;
+        this.now = now;
+    }
+
+    /**
+     * Загружает из бд значения за duration.
+     * Значения, сохраненные во время загрузки, добавляются в окно параллельно и не теряются.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime from = now.get().minus(settings.getDuration());
+        long[] count = new long[1];
+        try {
+            temperatureRecordRepository.forEachSince(from, sample -> {
+                lock.writeLock().lock();
+                try {
+                    add(sample);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                count[0]++;
+            });
+        } catch (DataAccessException e) {
+            log.error("Не удалось загрузить окно последних значений температуры", e);
+            return;
+        }
+        start = toMicros(from);
+        log.info(
+                "Окно последних значений температуры загружено с {}, значений {}, локаций {}, памяти вне кучи {} байт",
+                from,
+                count[0],
+                size(),
+                memory()
+        );
+    }
+
+    /**
+     * Добавляет сохраненные записи. Значения интервала заменяют значения окна за период интервала,
+     * поэтому продленный интервал заменяет значения, добавленные при прошлом сохранении.
+     *
+     * @param rows записи с заполненным идентификатором локации
+     */
+    public void addAll(Collection<TemperatureEntity> rows) {
+        if (!enabled) {
+            return;
+        }
+        for (TemperatureEntity row : rows) {
+            if (row.getLocationId() == null || row.getTimeCreate() == null) {
+                continue;
+            }
+            List<TemperatureEntity> samples = readingIntervals.expand(row);
+            lock.writeLock().lock();
+            try {
+                ReadingRing ring = rings.get(row.getLocationId());
+                if (ring != null && row.getValidTo() != null) {
+                    ring.remove(toMicros(row.getTimeCreate()), toMicros(row.getValidTo()));
+                }
+                samples.forEach(this::add);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Освобождает буфер удаленной или отключенной локации. Локация может быть снова включена
+     * с тем же идентификатором, поэтому до перезапуска ее значения читаются из бд.
+     */
+    @EventListener
+    public void onLocationRemoved(LocationRemovedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int id = Math.toIntExact(event.getId());
+        lock.writeLock().lock();
+        try {
+            released.add(id);
+            // память вне кучи освобождается вместе с буфером сборщиком мусора
+            rings.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Дописывает значения локаций за период в формате "температура | время", по строке на значение.
+     *
+     * @param ids  идентификаторы локаций
+     * @param from начало периода
+     * @param to   конец периода, включается
+     * @param out  результат
+     * @return количество значений или -1, если период не попадает в окно и запрос нужно выполнить в бд
+     */
+    public int appendTo(Collection<Integer> ids, LocalDateTime from, LocalDateTime to, StringBuilder out) {
+        if (!enabled) {
+            return -1;
+        }
+        long first = toMicros(from);
+        long last = toMicros(to);
+        lock.readLock().lock();
+        try {
+            if (!covers(ids, first)) {
+                misses.increment();
+                return -1;
+            }
+            hits.increment();
+            return ids.size() == 1
+                    ? appendTo(rings.get(ids.iterator().next()), first, last, out)
+                    : appendMerged(ids, first, last, out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return память вне кучи, занятая буферами локаций, в байтах
+     */
+    public long memory() {
+        return (long) size() * memoryPerLocation();
+    }
+
+    /**
+     * @return память вне кучи на одну локацию в байтах
+     */
+    public long memoryPerLocation() {
+        return (long) settings.getCapacity() * ReadingRing.BYTES_PER_READING;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Добавляет значение, вызывается под блокировкой записи.
+     */
+    private void add(TemperatureEntity entity) {
+        if (entity.getLocationId() == null || entity.getTimeCreate() == null
+                || released.contains(entity.getLocationId())) {
+            return;
+        }
+        long time = toMicros(entity.getTimeCreate());
+        double value = entity.getTemperature() != null
+                ? Math.round(entity.getTemperature() * 100) / 100.0
+                : Double.NaN;
+        ReadingRing ring = rings.get(entity.getLocationId());
+        if (ring == null) {
+            if (rings.size() >= settings.getMaxLocations()) {
+                if (!overflow) {
+                    log.warn(
+                            "Окно последних значений температуры заполнено, локаций {}",
+                            rings.size()
+                    );
+                }
+                overflow = true;
+                return;
+            }
+            ring = new ReadingRing(settings.getCapacity());
+            rings.put(entity.getLocationId(), ring);
+        }
+        ring.add(time, value);
+    }
+
+    /**
+     * Локация без буфера попадает в окно, если у нее нет значений в окне,
+     * то есть если ни одна локация не была отброшена из-за max-locations и буфер локации не освобожден.
+     */
+    private boolean covers(Collection<Integer> ids, long first) {
+        if (first < start) {
+            return false;
+        }
+        for (Integer id : ids) {
+            ReadingRing ring = rings.get(id);
+            if (ring == null ? overflow || released.contains(id) : !ring.covers(first)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int appendTo(ReadingRing ring, long first, long last, StringBuilder out) {
+        if (ring == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = ring.lowerBound(first); i < ring.size() && ring.time(i) <= last; i++) {
+            append(ring.value(i), ring.time(i), out);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Объединяет буферы нескольких локаций в порядке времени и идентификатора локации,
+     * как значения из бд.
+     */
+    private int appendMerged(Collection<Integer> ids, long first, long last, StringBuilder out) {
+        int[] locations = new int[ids.size()];
+        ReadingRing[] sources = new ReadingRing[ids.size()];
+        int[] positions = new int[ids.size()];
+        int n = 0;
+        for (Integer id : ids) {
+            ReadingRing ring = rings.get(id);
+            if (ring != null) {
+                locations[n] = id;
+                sources[n] = ring;
+                positions[n] = ring.lowerBound(first);
+                n++;
+            }
+        }
+        int count = 0;
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (positions[i] >= sources[i].size() || sources[i].time(positions[i]) > last) {
+                    continue;
+                }
+                if (next < 0 || isBefore(sources[i], positions[i], locations[i], sources[next], positions[next],
+                        locations[next])) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                return count;
+            }
+            append(sources[next].value(positions[next]), sources[next].time(positions[next]), out);
+            positions[next]++;
+            count++;
+        }
+    }
+
+    private static boolean isBefore(
+            ReadingRing ring,
+            int position,
+            int location,
+            ReadingRing other,
+            int otherPosition,
+            int otherLocation
+    ) {
+        long time = ring.time(position);
+        long otherTime = other.time(otherPosition);
+        return time < otherTime || time == otherTime && location < otherLocation;
+    }
+
+    private static void append(double value, long time, StringBuilder out) {
+        if (Double.isNaN(value)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+        out.append(" | ");
+        appendTime(time, out);
+        out.append('\n');
+    }
+
+    /**
+     * Дописывает время в формате LocalDateTime.toString() без создания LocalDateTime.
+     */
+    static void appendTime(long micros, StringBuilder out) {
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        int micro = (int) Math.floorMod(micros, 1_000_000L);
+        long days = Math.floorDiv(seconds, 86_400L);
+        int secondOfDay = (int) Math.floorMod(seconds, 86_400L);
+
+        long shifted = days + 719_468L;
+        long era = Math.floorDiv(shifted, 146_097L);
+        long dayOfEra = shifted - era * 146_097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            out.append(LocalDateTime.ofEpochSecond(seconds, micro * 1000, ZoneOffset.UTC));
+            return;
+        }
+
+        appendDigits(year, 4, out);
+        out.append('-');
+        appendDigits(month, 2, out);
+        out.append('-');
+        appendDigits(day, 2, out);
+        out.append('T');
+        appendDigits(secondOfDay / 3600, 2, out);
+        out.append(':');
+        appendDigits(secondOfDay / 60 % 60, 2, out);
+        if (secondOfDay % 60 > 0 || micro > 0) {
+            out.append(':');
+            appendDigits(secondOfDay % 60, 2, out);
+            if (micro > 0) {
+                out.append('.');
+                if (micro % 1000 == 0) {
+                    appendDigits(micro / 1000, 3, out);
+                } else {
+                    appendDigits(micro, 6, out);
+                }
+            }
+        }
+    }
+
+    private static void appendDigits(long value, int digits, StringBuilder out) {
+        for (long divisor = pow10(digits - 1); divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+}
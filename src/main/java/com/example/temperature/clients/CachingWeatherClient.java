@@ -0,0 +1,143 @@
+package com.example.temperature.clients;
+
+import com.example.temperature.exceptions.QuotaExceededException;
+import com.example.temperature.quota.QuotaScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Клиент одного сервиса погоды с кэшем ответов.
+ * Свежий ответ возвращается из кэша без запроса. Для устаревшего ответа отправляется условный запрос
+ * с If-None-Match и If-Modified-Since, и при 304 Not Modified используется сохраненное тело.
+ * Время жизни берется из Cache-Control max-age, а при его отсутствии - из cache-ttl сервиса.
+ * Каждый запрос по сети расходует квоту сервиса.
+ */
+@Slf4j
+class CachingWeatherClient implements WeatherClient {
+    private final String source;
+    private final WeatherClient delegate;
+    private final WeatherResponseCache cache;
+    private final QuotaScheduler quotaScheduler;
+
+    CachingWeatherClient(
+            String source,
+            WeatherClient delegate,
+            WeatherResponseCache cache,
+            QuotaScheduler quotaScheduler
+    ) {
+        this.source = source;
+        this.delegate = delegate;
+        this.cache = cache;
+        this.quotaScheduler = quotaScheduler;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String url, Class<T> responseType) {
+        if (!cache.isEnabled()) {
+            return acquire() ? delegate.get(url, responseType) : quotaExceeded();
+        }
+        WeatherResponseCache.CachedResponse cached = cache.get(url);
+        if (cached != null && cached.isFresh(cache.now()) && responseType.isInstance(cached.getBody())) {
+            log.debug(
+                    "Ответ сервиса {} взят из кэша",
+                    source
+            );
+            cache.onHit();
+            return CompletableFuture.completedFuture(responseType.cast(cached.getBody()));
+        }
+        if (!acquire()) {
+            return quotaExceeded();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (cached != null && cached.getEtag() != null) {
+            headers.setIfNoneMatch(cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+        return delegate.exchange(url, headers, responseType).thenApply(response -> {
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED
+                    && cached != null
+                    && responseType.isInstance(cached.getBody())) {
+                cache.onRevalidated();
+                Long expiresAt = expiresAt(response);
+                if (expiresAt != null) {
+                    cache.put(url, cached.withExpiresAt(expiresAt));
+                }
+                return responseType.cast(cached.getBody());
+            }
+            cache.onMiss();
+            T body = response.getBody();
+            Long expiresAt = expiresAt(response);
+            if (body != null && expiresAt != null) {
+                cache.put(url, new WeatherResponseCache.CachedResponse(
+                        body,
+                        response.getHeaders().getETag(),
+                        response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED),
+                        expiresAt
+                ));
+            } else {
+                cache.remove(url);
+            }
+            return body;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> post(String url, Object body, Class<T> responseType) {
+        return acquire() ? delegate.post(url, body, responseType) : quotaExceeded();
+    }
+
+    @Override
+    public <T> CompletableFuture<ResponseEntity<T>> exchange(String url, HttpHeaders headers, Class<T> responseType) {
+        return acquire() ? delegate.exchange(url, headers, responseType) : quotaExceeded();
+    }
+
+    /**
+     * @return момент устаревания ответа или null, если ответ нельзя сохранять (Cache-Control: no-store)
+     */
+    private Long expiresAt(ResponseEntity<?> response) {
+        Duration ttl = cache.getTtl(source);
+        boolean noCache = false;
+        List<String> cacheControl = response.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL);
+        for (String header : cacheControl) {
+            for (String directive : header.split(",")) {
+                String value = directive.trim().toLowerCase(Locale.ROOT);
+                if (value.equals("no-store")) {
+                    return null;
+                } else if (value.equals("no-cache")) {
+                    noCache = true;
+                } else if (value.startsWith("max-age=")) {
+                    try {
+                        ttl = Duration.ofSeconds(Long.parseLong(value.substring("max-age=".length())));
+                    } catch (NumberFormatException e) {
+                        log.debug(
+                                "Некорректный Cache-Control {} в ответе сервиса {}",
+                                header,
+                                source
+                        );
+                    }
+                }
+            }
+        }
+        return cache.now() + (noCache ? 0 : ttl.toNanos());
+    }
+
+    private boolean acquire() {
+        return quotaScheduler.tryAcquire(source);
+    }
+
+    private <T> CompletableFuture<T> quotaExceeded() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new QuotaExceededException("Квота сервиса " + source + " исчерпана"));
+        return future;
+    }
+}
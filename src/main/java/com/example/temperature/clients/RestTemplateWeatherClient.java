@@ -0,0 +1,44 @@
+package com.example.temperature.clients;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Блокирующий клиент на основе RestTemplate.
+ * Каждый запрос занимает поток пула collectorExecutor на все время ожидания ответа.
+ */
+@Component
+@ConditionalOnProperty(prefix = "weather.client", name = "type", havingValue = "blocking", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RestTemplateWeatherClient implements WeatherClient {
+    private final RestTemplate restTemplate;
+    private final Executor collectorExecutor;
+
+    @Override
+    public <T> CompletableFuture<T> get(String url, Class<T> responseType) {
+        return CompletableFuture.supplyAsync(() -> restTemplate.getForObject(URI.create(url), responseType), collectorExecutor);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> post(String url, Object body, Class<T> responseType) {
+        return CompletableFuture.supplyAsync(() -> restTemplate.postForObject(URI.create(url), body, responseType), collectorExecutor);
+    }
+
+    @Override
+    public <T> CompletableFuture<ResponseEntity<T>> exchange(String url, HttpHeaders headers, Class<T> responseType) {
+        return CompletableFuture.supplyAsync(
+                () -> restTemplate.exchange(URI.create(url), HttpMethod.GET, new HttpEntity<>(headers), responseType),
+                collectorExecutor
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.temperature.clients;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP клиент для запросов к сервисам погоды.
+ */
+public interface WeatherClient {
+    <T> CompletableFuture<T> get(String url, Class<T> responseType);
+
+    <T> CompletableFuture<T> post(String url, Object body, Class<T> responseType);
+
+    /**
+     * GET запрос с дополнительными заголовками, например условный запрос с If-None-Match.
+     * Ответ 304 Not Modified не считается ошибкой и возвращается без тела.
+     */
+    <T> CompletableFuture<ResponseEntity<T>> exchange(String url, HttpHeaders headers, Class<T> responseType);
+}
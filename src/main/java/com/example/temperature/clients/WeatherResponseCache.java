@@ -0,0 +1,166 @@
+package com.example.temperature.clients;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.quota.QuotaScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Кэш ответов сервисов погоды по URL запроса, то есть по паре сервис - локация.
+ * Размер ограничен weather.response-cache.max-entries, вытесняются давно не использованные ответы.
+ */
+@Component
+public class WeatherResponseCache {
+    private final WeatherProperties properties;
+    private final QuotaScheduler quotaScheduler;
+    private final LongSupplier nanoTime;
+    private final Map<String, CachedResponse> responses;
+    private final Map<String, WeatherClient> clients = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public WeatherResponseCache(WeatherProperties properties, QuotaScheduler quotaScheduler) {
+        this(properties, quotaScheduler, System::nanoTime);
+    }
+
+    WeatherResponseCache(WeatherProperties properties, QuotaScheduler quotaScheduler, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.quotaScheduler = quotaScheduler;
+        this.nanoTime = nanoTime;
+        int maxEntries = properties.getResponseCache().getMaxEntries();
+        this.responses = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Клиент сервиса с кэшем ответов и учетом квоты: запрос по сети отправляется,
+     * только если в кэше нет свежего ответа.
+     *
+     * @param source   имя сервиса
+     * @param delegate клиент, выполняющий запросы
+     * @return клиент сервиса
+     */
+    public WeatherClient forSource(String source, WeatherClient delegate) {
+        return clients.computeIfAbsent(source, name -> new CachingWeatherClient(name, delegate, this, quotaScheduler));
+    }
+
+    boolean isEnabled() {
+        return properties.getResponseCache().isEnabled();
+    }
+
+    CachedResponse get(String url) {
+        return responses.get(url);
+    }
+
+    void put(String url, CachedResponse response) {
+        responses.put(url, response);
+    }
+
+    void remove(String url) {
+        responses.remove(url);
+    }
+
+    public int size() {
+        return responses.size();
+    }
+
+    /**
+     * @return ответы, возвращенные из кэша без запроса
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return ответы, подтвержденные сервисом через 304 Not Modified
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return запросы, для которых в кэше не было подходящего ответа
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    void onHit() {
+        hits.increment();
+    }
+
+    void onRevalidated() {
+        revalidations.increment();
+    }
+
+    void onMiss() {
+        misses.increment();
+    }
+
+    long now() {
+        return nanoTime.getAsLong();
+    }
+
+    /**
+     * @return время жизни ответа сервиса без Cache-Control max-age
+     */
+    Duration getTtl(String source) {
+        Map<String, String> settings = properties.getSources() != null
+                ? properties.getSources().get(source)
+                : null;
+        String ttl = settings != null ? settings.get("cache-ttl") : null;
+        return ttl != null ? DurationStyle.detectAndParse(ttl) : properties.getResponseCache().getDefaultTtl();
+    }
+
+    /**
+     * Сохраненный ответ и данные для условного запроса.
+     */
+    static class CachedResponse {
+        private final Object body;
+        private final String etag;
+        private final String lastModified;
+        private final long expiresAt;
+
+        CachedResponse(Object body, String etag, String lastModified, long expiresAt) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        Object getBody() {
+            return body;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        boolean isFresh(long now) {
+            return now - expiresAt < 0;
+        }
+
+        CachedResponse withExpiresAt(long expiresAt) {
+            return new CachedResponse(body, etag, lastModified, expiresAt);
+        }
+    }
+}
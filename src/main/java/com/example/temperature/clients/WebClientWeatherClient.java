@@ -0,0 +1,51 @@
+package com.example.temperature.clients;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Неблокирующий клиент на основе WebClient и Reactor Netty.
+ * Запросы выполняются на event loop потоках Netty, соединения переиспользуются из пула.
+ */
+@Component
+@ConditionalOnProperty(prefix = "weather.client", name = "type", havingValue = "reactive")
+@RequiredArgsConstructor
+public class WebClientWeatherClient implements WeatherClient {
+    private final WebClient weatherWebClient;
+
+    @Override
+    public <T> CompletableFuture<T> get(String url, Class<T> responseType) {
+        return weatherWebClient.get()
+                .uri(URI.create(url))
+                .retrieve()
+                .bodyToMono(responseType)
+                .toFuture();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> post(String url, Object body, Class<T> responseType) {
+        return weatherWebClient.post()
+                .uri(URI.create(url))
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(responseType)
+                .toFuture();
+    }
+
+    @Override
+    public <T> CompletableFuture<ResponseEntity<T>> exchange(String url, HttpHeaders headers, Class<T> responseType) {
+        return weatherWebClient.get()
+                .uri(URI.create(url))
+                .headers(requestHeaders -> requestHeaders.addAll(headers))
+                .retrieve()
+                .toEntity(responseType)
+                .toFuture();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.temperature.cluster;
+
+import com.example.temperature.configuration.WeatherProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Участие экземпляра приложения в кластере.
+ * Экземпляры регистрируются в таблице cluster_instance и продлевают аренду записи каждые heartbeat-interval.
+ * Локации распределяются между живыми экземплярами согласованным хэшированием, поэтому каждую
+ * локацию опрашивает один экземпляр. Лидер - самый давно зарегистрированный живой экземпляр,
+ * он выполняет задачи обслуживания базы.
+ * Если кластерный режим выключен, экземпляр опрашивает все локации и считается лидером.
+ */
+@Slf4j
+@Component
+public class ClusterMembership {
+    private static final String UPSERT = "INSERT INTO cluster_instance (instance_id, started_at, expires_at) " +
+            "VALUES (?, now(), now() + ? * interval '1 millisecond') " +
+            "ON CONFLICT (instance_id) DO UPDATE SET expires_at = EXCLUDED.expires_at";
+    private static final String DELETE_EXPIRED = "DELETE FROM cluster_instance WHERE expires_at < now()";
+    private static final String SELECT_MEMBERS = "SELECT instance_id FROM cluster_instance " +
+            "WHERE expires_at >= now() ORDER BY started_at, instance_id";
+    private static final String DELETE = "DELETE FROM cluster_instance WHERE instance_id = ?";
+
+    private final WeatherProperties.Cluster settings;
+    private final JdbcTemplate jdbcTemplate;
+    private final LongSupplier nanoTime;
+    private final String instanceId;
+
+    private volatile View view;
+
+    @Autowired
+    public ClusterMembership(WeatherProperties properties, JdbcTemplate jdbcTemplate) {
+        this(properties, jdbcTemplate, System::nanoTime);
+    }
+
+    ClusterMembership(WeatherProperties properties, JdbcTemplate jdbcTemplate, LongSupplier nanoTime) {
+        this.settings = properties.getCluster();
+        this.jdbcTemplate = jdbcTemplate;
+        this.nanoTime = nanoTime;
+        this.instanceId = settings.getInstanceId() != null ? settings.getInstanceId() : generateInstanceId();
+        this.view = new View(new ConsistentHashRing(Collections.emptyList(), 0), null, nanoTime.getAsLong());
+    }
+
+    /**
+     * Регистрирует экземпляр до запуска остальных задач при старте приложения.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        heartbeat();
+    }
+
+    /**
+     * Продлевает аренду экземпляра, удаляет записи экземпляров с истекшей арендой
+     * и перестраивает распределение локаций при изменении состава кластера.
+     */
+    @Scheduled(fixedDelayString = "#{@weatherProperties.cluster.heartbeatInterval.toMillis()}")
+    public void heartbeat() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        List<String> members;
+        try {
+            jdbcTemplate.update(UPSERT, instanceId, settings.getLeaseDuration().toMillis());
+            jdbcTemplate.update(DELETE_EXPIRED);
+            members = jdbcTemplate.queryForList(SELECT_MEMBERS, String.class);
+        } catch (DataAccessException e) {
+            log.error(
+                    "Не удалось продлить аренду экземпляра {} в кластере",
+                    instanceId,
+                    e
+            );
+            return;
+        }
+
+        View current = view;
+        if (!current.ring.getMembers().equals(new TreeSet<>(members))) {
+            log.info(
+                    "Состав кластера изменился: {}, локации будут перераспределены",
+                    members
+            );
+            view = new View(
+                    new ConsistentHashRing(members, settings.getVirtualNodes()),
+                    members.isEmpty() ? null : members.get(0),
+                    now
+            );
+        } else {
+            view = new View(current.ring, members.isEmpty() ? null : members.get(0), now);
+        }
+    }
+
+    /**
+     * Удаляет запись экземпляра при остановке, чтобы остальные сразу забрали его локации.
+     */
+    @PreDestroy
+    public void leave() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        view = new View(new ConsistentHashRing(Collections.emptyList(), 0), null, nanoTime.getAsLong());
+        try {
+            jdbcTemplate.update(DELETE, instanceId);
+            log.info("Экземпляр {} покинул кластер", instanceId);
+        } catch (DataAccessException e) {
+            log.warn(
+                    "Не удалось удалить экземпляр {} из кластера, запись удалится после окончания аренды",
+                    instanceId,
+                    e
+            );
+        }
+    }
+
+    /**
+     * Локации, которые опрашивает этот экземпляр.
+     *
+     * @param locations все локации
+     * @return локации этого экземпляра в исходном порядке
+     * @see #ownership()
+     */
+    public List<Map.Entry<String, String>> assign(Collection<Map.Entry<String, String>> locations) {
+        Predicate<Map.Entry<String, String>> owned = ownership();
+        List<Map.Entry<String, String>> assigned = new ArrayList<>();
+        for (Map.Entry<String, String> location : locations) {
+            if (owned.test(location)) {
+                assigned.add(location);
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Распределение локаций на момент вызова.
+     * Если аренда не продлевалась дольше lease-duration, остальные экземпляры уже могли забрать
+     * локации этого экземпляра, поэтому ни одна локация ему не принадлежит.
+     *
+     * @return true для локаций, которые опрашивает этот экземпляр
+     */
+    public Predicate<Map.Entry<String, String>> ownership() {
+        if (!settings.isEnabled()) {
+            return location -> true;
+        }
+        View current = view;
+        if (isExpired(current)) {
+            log.warn(
+                    "Аренда экземпляра {} в кластере истекла, локации не опрашиваются",
+                    instanceId
+            );
+            return location -> false;
+        }
+        return location -> instanceId.equals(current.ring.getOwner(key(location)));
+    }
+
+    /**
+     * @return true, если экземпляр выполняет задачи обслуживания базы
+     */
+    public boolean isLeader() {
+        if (!settings.isEnabled()) {
+            return true;
+        }
+        View current = view;
+        return !isExpired(current) && instanceId.equals(current.leader);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    private boolean isExpired(View current) {
+        return !current.ring.getMembers().contains(instanceId)
+                || nanoTime.getAsLong() - current.refreshedAt > settings.getLeaseDuration().toNanos();
+    }
+
+    private static String key(Map.Entry<String, String> location) {
+        return location.getKey() + "," + location.getValue();
+    }
+
+    private static String generateInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Состав кластера на момент последнего продления аренды.
+     */
+    private static class View {
+        private final ConsistentHashRing ring;
+        private final String leader;
+        private final long refreshedAt;
+
+        private View(ConsistentHashRing ring, String leader, long refreshedAt) {
+            this.ring = ring;
+            this.leader = leader;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.temperature.configuration;
+
+import com.example.threads.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Конфигурация пула потоков для запросов к сервисам погоды.
+ */
+@Slf4j
+@Configuration
+public class CollectorConfiguration {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService collectorExecutor(WeatherProperties properties) {
+        if (properties.getThreads().isVirtual()) {
+            if (VirtualThreads.isSupported()) {
+                log.info("Запросы к сервисам погоды выполняются на виртуальных потоках");
+                return VirtualThreads.newThreadPerTaskExecutor("collector-");
+            }
+            log.warn(
+                    "Java {} не поддерживает виртуальные потоки, используется пул из {} потоков",
+                    System.getProperty("java.version"),
+                    properties.getCollector().getPoolSize()
+            );
+        }
+        return Executors.newFixedThreadPool(
+                properties.getCollector().getPoolSize(),
+                new CustomizableThreadFactory("collector-")
+        );
+    }
+}
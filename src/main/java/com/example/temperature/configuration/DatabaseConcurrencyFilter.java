@@ -0,0 +1,96 @@
+package com.example.temperature.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение количества одновременно обрабатываемых запросов размером пула соединений с бд.
+ * На виртуальных потоках Tomcat не ограничивает количество одновременных запросов, и без ограничения
+ * лишние запросы ждут соединение в Hikari. Запрос, не получивший разрешение за время ожидания соединения,
+ * завершается ответом 503. Разрешение асинхронного запроса (выгрузки) освобождается после его завершения.
+ */
+@Slf4j
+final class DatabaseConcurrencyFilter extends OncePerRequestFilter {
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    DatabaseConcurrencyFilter(int maxConcurrentRequests, long timeoutMillis) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (!acquire()) {
+            log.warn("Запрос {} {} отклонен: все соединения с бд заняты", request.getMethod(), request.getRequestURI());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Все соединения с бд заняты");
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * @return количество свободных разрешений
+     */
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * onComplete вызывается для каждого асинхронного запроса, в том числе после ошибки и таймаута.
+     */
+    private class ReleaseListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permits.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.temperature.configuration;
+
+import com.example.threads.VirtualThreads;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Обработка HTTP запросов на виртуальных потоках при weather.threads.virtual=true.
+ * Каждый запрос Tomcat и каждая асинхронная выгрузка выполняются в отдельном виртуальном потоке,
+ * поэтому server.tomcat.threads.max не ограничивает количество одновременных запросов,
+ * и количество одновременно обрабатываемых запросов к api ограничивается размером пула соединений с бд.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "weather.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadWebConfiguration implements WebMvcConfigurer {
+    private final ExecutorService executor;
+
+    public VirtualThreadWebConfiguration() {
+        if (VirtualThreads.isSupported()) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("http-");
+            log.info("HTTP запросы обрабатываются на виртуальных потоках");
+        } else {
+            executor = null;
+            log.warn(
+                    "Java {} не поддерживает виртуальные потоки, HTTP запросы обрабатываются пулом Tomcat",
+                    System.getProperty("java.version")
+            );
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<DatabaseConcurrencyFilter> databaseConcurrencyFilter(DataSource dataSource) {
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        log.info("Одновременно обрабатывается не больше {} запросов к api", hikari.getMaximumPoolSize());
+        FilterRegistrationBean<DatabaseConcurrencyFilter> registration = new FilterRegistrationBean<>(
+                new DatabaseConcurrencyFilter(hikari.getMaximumPoolSize(), hikari.getConnectionTimeout())
+        );
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (executor != null) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
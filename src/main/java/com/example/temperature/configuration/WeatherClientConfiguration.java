@@ -0,0 +1,94 @@
+package com.example.temperature.configuration;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация HTTP клиентов для запросов к сервисам погоды.
+ * Тип используемого клиента задается параметром weather.client.type.
+ * Блокирующий запрос нельзя прервать отменой, поэтому сумма таймаутов соединения и чтения
+ * ограничивается tick-timeout, и поток, занятый медленным сервисом, освобождается к следующему запуску.
+ */
+@Slf4j
+@Configuration
+public class WeatherClientConfiguration {
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, WeatherProperties properties) {
+        Duration[] timeouts = timeouts(properties);
+        return builder
+                .setConnectTimeout(timeouts[0])
+                .setReadTimeout(timeouts[1])
+                .build();
+    }
+
+    /**
+     * Пул соединений Reactor Netty. Пул создается отдельно для каждого хоста сервиса,
+     * простаивающие keep-alive соединения закрываются через maxIdleTime.
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(prefix = "weather.client", name = "type", havingValue = "reactive")
+    public ConnectionProvider weatherConnectionProvider(WeatherProperties properties) {
+        WeatherProperties.Client client = properties.getClient();
+        return ConnectionProvider.builder("weather")
+                .maxConnections(client.getMaxConnections())
+                .pendingAcquireTimeout(client.getPendingAcquireTimeout())
+                .maxIdleTime(client.getMaxIdleTime())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "weather.client", name = "type", havingValue = "reactive")
+    public WebClient weatherWebClient(
+            WebClient.Builder builder,
+            ConnectionProvider weatherConnectionProvider,
+            WeatherProperties properties
+    ) {
+        Duration[] timeouts = timeouts(properties);
+        HttpClient httpClient = HttpClient.create(weatherConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeouts[0].toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(timeouts[1])
+                .keepAlive(true);
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Таймауты соединения и чтения. Если их сумма больше tick-timeout, они пропорционально уменьшаются.
+     *
+     * @return таймаут соединения и таймаут чтения
+     */
+    static Duration[] timeouts(WeatherProperties properties) {
+        Duration connect = properties.getClient().getConnectTimeout();
+        Duration read = properties.getClient().getReadTimeout();
+        Duration tick = properties.getCollector().getTickTimeout();
+        Duration total = connect.plus(read);
+        if (total.compareTo(tick) <= 0) {
+            return new Duration[]{connect, read};
+        }
+        Duration boundedConnect = Duration.ofMillis(Math.max(1, tick.toMillis() * connect.toMillis() / total.toMillis()));
+        Duration boundedRead = Duration.ofMillis(Math.max(1, tick.toMillis() - boundedConnect.toMillis()));
+        log.warn(
+                "Таймауты клиента {} и {} больше tick-timeout {}, используются {} и {}",
+                connect,
+                read,
+                tick,
+                boundedConnect,
+                boundedRead
+        );
+        return new Duration[]{boundedConnect, boundedRead};
+    }
+}
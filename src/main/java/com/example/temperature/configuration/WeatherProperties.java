@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 
 @Data
@@ -12,4 +14,321 @@ import java.util.Map;
 public class WeatherProperties {
     private Map<String, Map<String, String>> sources;
     private Map<String, String> locations;
+    /**
+     * Идентификаторы городов GeoNames для пакетных запросов (openweathermap, weatherbit).
+     */
+    private Map<String, String> cityIds = new HashMap<>();
+    private Collector collector = new Collector();
+    private Client client = new Client();
+    private Partitions partitions = new Partitions();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private ResponseCache responseCache = new ResponseCache();
+    private Cluster cluster = new Cluster();
+    private Registry registry = new Registry();
+    private Threads threads = new Threads();
+    private Ingestion ingestion = new Ingestion();
+    private Intervals intervals = new Intervals();
+    private Tiering tiering = new Tiering();
+    private Window window = new Window();
+
+    /**
+     * Настройки параллельного опроса сервисов погоды.
+     */
+    @Data
+    public static class Collector {
+        /**
+         * Количество потоков для запросов к сервисам.
+         */
+        private int poolSize = 16;
+        /**
+         * Количество одновременных запросов к одному сервису,
+         * если для него не задан параметр concurrency.
+         */
+        private int concurrency = 4;
+        /**
+         * Максимальное время сбора данных за один запуск задачи.
+         */
+        private Duration tickTimeout = Duration.ofSeconds(4);
+    }
+
+    /**
+     * Настройки HTTP клиента для запросов к сервисам погоды.
+     */
+    @Data
+    public static class Client {
+        /**
+         * Тип клиента: blocking (RestTemplate) или reactive (WebClient).
+         */
+        private String type = "blocking";
+        /**
+         * Сумма таймаутов соединения и чтения не больше collector.tick-timeout.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration readTimeout = Duration.ofSeconds(3);
+        /**
+         * Максимальное количество соединений к одному хосту сервиса.
+         */
+        private int maxConnections = 50;
+        /**
+         * Максимальное время ожидания свободного соединения из пула.
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        /**
+         * Время простоя keep-alive соединения до закрытия.
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Настройки обслуживания секций таблицы temperature.
+     */
+    @Data
+    public static class Partitions {
+        /**
+         * Количество месяцев, для которых секции создаются заранее.
+         */
+        private int monthsAhead = 2;
+        /**
+         * Количество месяцев хранения данных, 0 - хранить без ограничения.
+         */
+        private int retentionMonths = 0;
+        /**
+         * true - устаревшие секции отсоединяются и переименовываются в temperature_archive_*,
+         * false - удаляются.
+         */
+        private boolean archive = true;
+    }
+
+    /**
+     * Настройки отключения недоступных сервисов погоды.
+     */
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * Количество последних запросов, по которым считается доля ошибок.
+         */
+        private int windowSize = 20;
+        /**
+         * Минимальное количество запросов в окне для принятия решения об отключении.
+         */
+        private int minimumCalls = 5;
+        /**
+         * Доля ошибок в процентах, при которой сервис отключается.
+         */
+        private int failureRateThreshold = 50;
+        /**
+         * Запрос дольше этого времени считается медленным.
+         */
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+        /**
+         * Доля медленных запросов в процентах, при которой сервис отключается.
+         */
+        private int slowCallRateThreshold = 80;
+        /**
+         * Время, на которое сервис отключается перед пробным запросом.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Настройки кэша ответов сервисов погоды.
+     * Время жизни ответа для отдельного сервиса задается параметром cache-ttl в weather.sources.
+     */
+    @Data
+    public static class ResponseCache {
+        private boolean enabled = true;
+        /**
+         * Максимальное количество ответов в кэше, при превышении удаляются давно не использованные.
+         */
+        private int maxEntries = 10_000;
+        /**
+         * Время жизни ответа без Cache-Control max-age, если для сервиса не задан cache-ttl.
+         */
+        private Duration defaultTtl = Duration.ofSeconds(60);
+    }
+
+    /**
+     * Настройки распределения локаций между несколькими экземплярами приложения.
+     */
+    @Data
+    public static class Cluster {
+        /**
+         * true - локации распределяются между экземплярами, зарегистрированными в таблице cluster_instance.
+         */
+        private boolean enabled = false;
+        /**
+         * Идентификатор экземпляра, по умолчанию имя хоста и случайный суффикс.
+         */
+        private String instanceId;
+        /**
+         * Период продления аренды экземпляра.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(5);
+        /**
+         * Время, после которого экземпляр без продления аренды считается остановленным.
+         */
+        private Duration leaseDuration = Duration.ofSeconds(15);
+        /**
+         * Количество точек экземпляра на кольце согласованного хэширования.
+         */
+        private int virtualNodes = 64;
+    }
+
+    /**
+     * Настройки реестра опрашиваемых локаций.
+     */
+    @Data
+    public static class Registry {
+        /**
+         * Период опроса локации, для которой он не задан.
+         */
+        private Duration defaultPollInterval = Duration.ofSeconds(5);
+        /**
+         * Период чтения изменений локаций из бд.
+         */
+        private Duration refreshInterval = Duration.ofSeconds(5);
+        /**
+         * Запас при чтении изменений на транзакции, зафиксированные позже времени изменения строки.
+         */
+        private Duration refreshOverlap = Duration.ofSeconds(30);
+        /**
+         * Локация считается готовой к опросу, если до срока осталось меньше этого времени.
+         * Компенсирует разброс времени запуска задачи.
+         */
+        private Duration dueTolerance = Duration.ofMillis(500);
+        /**
+         * Максимальное количество локаций за один запуск задачи.
+         */
+        private int maxPerTick = 5000;
+    }
+
+    /**
+     * Настройки потоков для запросов к сервисам погоды и обработки HTTP запросов.
+     */
+    @Data
+    public static class Threads {
+        /**
+         * true - запросы к сервисам и HTTP запросы выполняются на виртуальных потоках (Java 21+).
+         * На JVM без виртуальных потоков используются пулы платформенных потоков.
+         */
+        private boolean virtual = false;
+    }
+
+    /**
+     * Настройки очереди записи собранных значений в бд.
+     */
+    @Data
+    public static class Ingestion {
+        /**
+         * true - значения сохраняются отдельным потоком через очередь, false - в потоке задачи опроса.
+         */
+        private boolean enabled = true;
+        /**
+         * Максимальное количество значений в очереди.
+         */
+        private int capacity = 10_000;
+        /**
+         * Максимальное количество значений, сохраняемых одной транзакцией.
+         */
+        private int batchSize = 500;
+        /**
+         * Максимальное время ожидания заполнения пакета.
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+        /**
+         * Время ожидания места в заполненной очереди, после которого значение отбрасывается.
+         */
+        private Duration offerTimeout = Duration.ofSeconds(1);
+        /**
+         * Пауза перед повторной попыткой записи после ошибки бд.
+         */
+        private Duration retryInterval = Duration.ofSeconds(10);
+        /**
+         * Файл для значений, которые не удалось сохранить из-за недоступности бд.
+         * Значения дописываются в конец файла и сохраняются в бд после ее восстановления.
+         * Если не задан, запись повторяется, пока бд не станет доступна, а при заполнении очереди
+         * новые значения отбрасываются.
+         */
+        private String spillFile;
+    }
+
+    /**
+     * Настройки хранения повторяющихся значений интервалами.
+     */
+    @Data
+    public static class Intervals {
+        /**
+         * true - значение, совпадающее с предыдущим значением локации, не сохраняется отдельной записью,
+         * а продлевает интервал предыдущей записи. При чтении интервал разворачивается в значения,
+         * время которых, кроме первого и последнего, синтезировано и не совпадает со временем опроса.
+         */
+        private boolean enabled = false;
+        /**
+         * Максимальная длительность интервала одной записи. Запросы за период читают записи,
+         * начатые не раньше чем за max-interval до начала периода, поэтому уменьшать значение
+         * можно только после истечения хранения записей с более длинными интервалами.
+         */
+        private Duration maxInterval = Duration.ofHours(1);
+        /**
+         * Наибольший промежуток между соседними значениями одного интервала для всех локаций.
+         * По умолчанию - полтора периода опроса локации (location.poll_interval_seconds
+         * или registry.default-poll-interval), отсчитываемые от последнего значения или
+         * от последнего запуска, в котором локация не запрошена из-за квоты.
+         */
+        private Duration maxGap;
+        /**
+         * Как часто продленный интервал записывается в бд, если значение не меняется.
+         * Значения, не записанные в бд, видны на других экземплярах с этой задержкой.
+         */
+        private Duration flushInterval = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Настройки переноса старых данных из бд в сжатые файлы сегментов.
+     */
+    @Data
+    public static class Tiering {
+        /**
+         * true - секции таблицы reading за месяцы старше after переносятся в файлы сегментов.
+         */
+        private boolean enabled = false;
+        /**
+         * Каталог файлов сегментов. В кластерном режиме должен быть общим для всех экземпляров.
+         */
+        private String directory;
+        /**
+         * Возраст данных для переноса: месяц переносится, когда его конец старше after.
+         */
+        private Duration after = Duration.ofDays(90);
+        /**
+         * Количество значений в блоке сегмента. Блок - минимальная единица чтения,
+         * меньший блок ускоряет чтение коротких периодов, но увеличивает индекс.
+         */
+        private int blockSize = 1024;
+    }
+
+    /**
+     * Настройки окна последних значений в памяти.
+     */
+    @Data
+    public static class Window {
+        /**
+         * true - запросы за период внутри окна выполняются без обращения к бд.
+         * Окно заполняется значениями, сохраненными этим экземпляром, поэтому в кластерном режиме не используется.
+         */
+        private boolean enabled = false;
+        /**
+         * Длительность окна, за которую значения загружаются из бд при старте.
+         */
+        private Duration duration = Duration.ofHours(24);
+        /**
+         * Максимальное количество значений одной локации, по 16 байт вне кучи на значение.
+         * При переполнении вытесняются старые значения, и окно локации становится короче duration.
+         */
+        private int capacity = 17280;
+        /**
+         * Максимальное количество локаций в окне. Запросы по остальным локациям выполняются в бд.
+         */
+        private int maxLocations = 1000;
+    }
 }
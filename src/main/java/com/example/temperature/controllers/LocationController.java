@@ -0,0 +1,77 @@
+package com.example.temperature.controllers;
+
+import com.example.temperature.dto.LocationDto;
+import com.example.temperature.services.LocationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/locations")
+@RequiredArgsConstructor
+public class LocationController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final LocationService locationService;
+
+    @GetMapping
+    public ResponseEntity<List<LocationDto>> getLocations(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.findAll(page, size));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<LocationDto> getLocation(@PathVariable long id) {
+        return ResponseEntity.of(locationService.find(id));
+    }
+
+    @PostMapping
+    public ResponseEntity<LocationDto> createLocation(@RequestBody LocationDto location) {
+        if (!isValid(location) || isBlank(location.getCity()) || isBlank(location.getCountry())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(locationService.create(location));
+    }
+
+    /**
+     * Изменяет период опроса, приоритет и признак опроса. Город и страна не изменяются.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<LocationDto> updateLocation(@PathVariable long id, @RequestBody LocationDto location) {
+        if (!isValid(location)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.of(locationService.update(id, location));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteLocation(@PathVariable long id) {
+        return locationService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static boolean isValid(LocationDto location) {
+        return location.getPollIntervalSeconds() == null || location.getPollIntervalSeconds() > 0;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
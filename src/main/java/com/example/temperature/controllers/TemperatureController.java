@@ -1,29 +1,143 @@
 package com.example.temperature.controllers;
 
+import com.example.temperature.dto.BulkTemperatureRequestDto;
+import com.example.temperature.dto.ExportFormat;
+import com.example.temperature.dto.Granularity;
+import com.example.temperature.dto.TemperatureCursor;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.dto.TemperatureField;
+import com.example.temperature.dto.TemperaturePageDto;
+import com.example.temperature.quota.LocationDemand;
+import com.example.temperature.services.ExportService;
+import com.example.temperature.services.TemperatureQueryService;
 import com.example.temperature.services.TemperatureService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Значения температуры.
+ * Значения, сохраненные интервалом повторяющихся значений, возвращаются развернутыми:
+ * время промежуточных значений интервала синтезировано, см. {@link TemperatureDto} timeCreate.
+ */
 @RestController
 @RequestMapping("/api/temperature")
 @RequiredArgsConstructor
 public class TemperatureController {
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_BULK_LOCATIONS = 1000;
+
     private final TemperatureService temperatureService;
+    private final TemperatureQueryService temperatureQueryService;
+    private final ExportService exportService;
+    private final LocationDemand locationDemand;
 
     @GetMapping
     public ResponseEntity<String> getTemperature(
             @RequestParam String location,
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "raw") Granularity granularity
     ) {
-        String result = temperatureService.getTemperature(location, date);
+        locationDemand.record(location);
+        String result = granularity == Granularity.RAW
+                ? temperatureService.getTemperature(location, date)
+                : temperatureService.getTemperature(location, date, granularity);
 
         return ResponseEntity.ok(result);
     }
+
+    /**
+     * Записи за период [from, to] в JSON, страницами по limit записей.
+     * Следующая страница запрашивается с курсором nextCursor из предыдущей,
+     * в fields перечисляются нужные поля записей, по умолчанию возвращаются все.
+     * timeCreate промежуточных значений интервала синтезирован.
+     */
+    @GetMapping(value = "/records", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TemperaturePageDto> getRecords(
+            @RequestParam String location,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) TemperatureCursor cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) Set<TemperatureField> fields
+    ) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        locationDemand.record(location);
+        LocalDate start = from != null ? from : LocalDate.now();
+        TemperaturePageDto page = temperatureQueryService.findRecords(
+                location,
+                start,
+                to != null ? to : start,
+                cursor,
+                limit,
+                fields == null || fields.isEmpty() ? EnumSet.allOf(TemperatureField.class) : EnumSet.copyOf(fields)
+        );
+
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Записи по нескольким локациям одним запросом к бд, например для дашборда.
+     * Без периода возвращается последняя запись по каждой локации.
+     */
+    @PostMapping(value = "/bulk", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, List<TemperatureDto>>> getBulk(@RequestBody BulkTemperatureRequestDto request) {
+        if (request.getLocations() == null || request.getLocations().isEmpty()
+                || request.getLocations().size() > MAX_BULK_LOCATIONS
+                || request.getLocations().stream().anyMatch(location -> location == null || location.trim().isEmpty())
+                || request.getFrom() == null && request.getTo() != null) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<String> locations = new LinkedHashSet<>(request.getLocations());
+        locations.forEach(locationDemand::record);
+
+        return ResponseEntity.ok(temperatureQueryService.findBulk(locations, request.getFrom(), request.getTo()));
+    }
+
+    /**
+     * Выгрузка записей за период [from, to] потоком, без формирования всего ответа в памяти.
+     * Если локация не задана, выгружаются записи по всем городам.
+     * Время промежуточных значений интервала синтезировано.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String location,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") ExportFormat format
+    ) {
+        StreamingResponseBody body = outputStream -> exportService.export(
+                location,
+                from.atStartOfDay(),
+                to.plusDays(1).atStartOfDay(),
+                format,
+                outputStream
+        );
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"temperature_" + from + "_" + to + "." + format.getExtension() + "\""
+                )
+                .body(body);
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.temperature.controllers.converters;
+
+import com.example.temperature.dto.ExportFormat;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Преобразование параметра format без учета регистра.
+ */
+@Component
+public class StringToExportFormatConverter implements Converter<String, ExportFormat> {
+
+    @Override
+    public ExportFormat convert(String source) {
+        return ExportFormat.of(source);
+    }
+}
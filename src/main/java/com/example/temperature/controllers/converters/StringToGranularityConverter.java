@@ -0,0 +1,17 @@
+package com.example.temperature.controllers.converters;
+
+import com.example.temperature.dto.Granularity;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Преобразование параметра granularity без учета регистра.
+ */
+@Component
+public class StringToGranularityConverter implements Converter<String, Granularity> {
+
+    @Override
+    public Granularity convert(String source) {
+        return Granularity.of(source);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.temperature.controllers.converters;
+
+import com.example.temperature.dto.TemperatureCursor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Преобразование параметра cursor.
+ */
+@Component
+public class StringToTemperatureCursorConverter implements Converter<String, TemperatureCursor> {
+
+    @Override
+    public TemperatureCursor convert(String source) {
+        return TemperatureCursor.parse(source);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.temperature.controllers.converters;
+
+import com.example.temperature.dto.TemperatureField;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Преобразование значений параметра fields без учета регистра.
+ */
+@Component
+public class StringToTemperatureFieldConverter implements Converter<String, TemperatureField> {
+
+    @Override
+    public TemperatureField convert(String source) {
+        return TemperatureField.of(source);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.temperature.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Запрос записей температуры по нескольким локациям.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTemperatureRequestDto {
+    /**
+     * Города или страны.
+     */
+    private List<String> locations;
+    /**
+     * Первый день периода, null - запрашиваются последние записи.
+     */
+    private LocalDate from;
+    /**
+     * Последний день периода, включительно, null - совпадает с from.
+     */
+    private LocalDate to;
+}
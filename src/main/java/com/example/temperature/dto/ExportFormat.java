@@ -0,0 +1,41 @@
+package com.example.temperature.dto;
+
+import java.util.Locale;
+
+/**
+ * Формат выгрузки сохраненных записей температуры.
+ */
+public enum ExportFormat {
+    /**
+     * CSV с заголовком.
+     */
+    CSV("text/csv;charset=UTF-8"),
+    /**
+     * JSON-объект на каждой строке.
+     */
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return тип содержимого ответа
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return расширение файла выгрузки
+     */
+    public String getExtension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ExportFormat of(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.temperature.dto;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Детализация данных о температуре.
+ */
+public enum Granularity {
+    /**
+     * Все сохраненные записи.
+     */
+    RAW(null),
+    /**
+     * Агрегаты по часам.
+     */
+    HOUR("temperature_rollup_hour"),
+    /**
+     * Агрегаты по дням.
+     */
+    DAY("temperature_rollup_day");
+
+    private final String table;
+
+    Granularity(String table) {
+        this.table = table;
+    }
+
+    /**
+     * @return таблица агрегатов
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @param time время записи
+     * @return начало интервала агрегата, в который попадает запись
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        return this == DAY ? time.truncatedTo(ChronoUnit.DAYS) : time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    public static Granularity of(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.temperature.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationDto {
+    private Long id;
+    private String city;
+    private String country;
+    /**
+     * Период опроса в секундах, null - период по умолчанию.
+     */
+    private Integer pollIntervalSeconds;
+    private int priority;
+    @Builder.Default
+    private boolean enabled = true;
+}
@@ -1,25 +1,17 @@
 package com.example.temperature.dto;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.example.temperature.dto.deserializers.OpenWeatherMapDtoDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
-import java.util.Map;
-
 /**
  * ДТО для сервиса openweathermap.org
+ * Температура читается из main.temp потоковым разбором, остальные поля ответа пропускаются.
  */
 @Data
+@JsonDeserialize(using = OpenWeatherMapDtoDeserializer.class)
 public class OpenWeatherMapDto {
-    @JsonProperty("name")
+    private Long id;
     private String city;
     private double temperature;
-
-    /**
-     * Метод распаковки вложенного массива main.
-     * После распаковки сохраняет значение Температура.
-     */
-    @JsonProperty("main")
-    private void unpackMain(Map<String, Object> map) {
-        this.temperature = (double) map.get("temp");
-    }
 }
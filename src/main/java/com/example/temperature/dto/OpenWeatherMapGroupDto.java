@@ -0,0 +1,13 @@
+package com.example.temperature.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * ДТО пакетного запроса по идентификаторам городов для сервиса openweathermap.org
+ */
+@Data
+public class OpenWeatherMapGroupDto {
+    private List<OpenWeatherMapDto> list;
+}
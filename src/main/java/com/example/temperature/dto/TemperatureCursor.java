@@ -0,0 +1,50 @@
+package com.example.temperature.dto;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в выборке записей температуры, упорядоченной по (time_create, location_id).
+ * Следующая страница начинается с первой записи после этой позиции,
+ * поэтому чтение страницы не зависит от ее номера.
+ */
+@Value
+public class TemperatureCursor {
+    private static final char SEPARATOR = '|';
+
+    LocalDateTime timeCreate;
+    int locationId;
+
+    /**
+     * @return непрозрачная строка для передачи клиенту
+     */
+    public String encode() {
+        String value = timeCreate.toString() + SEPARATOR + locationId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param value строка, полученная из {@link #encode()}
+     * @return позиция
+     * @throws IllegalArgumentException если строка не является курсором
+     */
+    public static TemperatureCursor parse(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value.trim()), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Некорректный курсор " + value);
+            }
+            return new TemperatureCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Integer.parseInt(decoded.substring(separator + 1))
+            );
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный курсор " + value, e);
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.example.temperature.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
-import java.time.Instant;
+import java.time.LocalDateTime;
 
+/**
+ * Сохраненная запись температуры.
+ * Поля, не выбранные параметром fields, не заполняются и не попадают в ответ.
+ */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class TemperatureDto {
     private String city;
     private String country;
-    private double temperature;
-    private Instant timeCreate;
+    private Double temperature;
+    /**
+     * Время значения. Если включено хранение повторяющихся значений интервалами (weather.intervals.enabled),
+     * точным остается только время первого и последнего значения интервала, время промежуточных значений
+     * синтезировано равномерным распределением по интервалу и не совпадает со временем опроса.
+     */
+    private LocalDateTime timeCreate;
 }
@@ -0,0 +1,34 @@
+package com.example.temperature.dto;
+
+/**
+ * Поле записи температуры, которое можно выбрать параметром fields.
+ */
+public enum TemperatureField {
+    CITY("city"),
+    COUNTRY("country"),
+    TEMPERATURE("temperature"),
+    TIME_CREATE("timeCreate");
+
+    private final String name;
+
+    TemperatureField(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return имя поля в ответе
+     */
+    public String getName() {
+        return name;
+    }
+
+    public static TemperatureField of(String value) {
+        String name = value.trim();
+        for (TemperatureField field : values()) {
+            if (field.name.equalsIgnoreCase(name) || field.name().equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное поле " + value);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.temperature.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Страница записей температуры.
+ */
+@Data
+@Builder
+public class TemperaturePageDto {
+    private List<TemperatureDto> items;
+    /**
+     * Курсор следующей страницы, null - записей больше нет.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,19 @@
+package com.example.temperature.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Агрегат температуры за интервал.
+ */
+@Data
+@Builder
+public class TemperatureRollupDto {
+    private LocalDateTime bucket;
+    private double minTemperature;
+    private double maxTemperature;
+    private double avgTemperature;
+    private long count;
+}
@@ -0,0 +1,18 @@
+package com.example.temperature.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * ДТО пакетного запроса для сервиса www.weatherapi.com
+ */
+@Data
+public class WeatherApiBulkDto {
+    private List<Item> bulk;
+
+    @Data
+    public static class Item {
+        private WeatherApiDto query;
+    }
+}
@@ -1,35 +1,21 @@
 package com.example.temperature.dto;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.example.temperature.dto.deserializers.WeatherApiDtoDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
-import java.util.Map;
-
 /**
  * ДТО для сервиса www.weatherapi.com
+ * Город и страна читаются из location, температура из current.temp_c потоковым разбором.
  */
 @Data
+@JsonDeserialize(using = WeatherApiDtoDeserializer.class)
 public class WeatherApiDto {
     private String city;
     private String country;
     private double temperature;
-
-    /**
-     * Метод распаковки вложенного массива location.
-     * После распаковки сохраняет значения Город и Страна.
-     */
-    @JsonProperty("location")
-    private void unpackLocation(Map<String, Object> map) {
-        this.city = (String) map.get("name");
-        this.country = (String) map.get("country");
-    }
-
     /**
-     * Метод распаковки вложенного массива current.
-     * После распаковки сохраняет значение Температура.
+     * Идентификатор локации в пакетном запросе.
      */
-    @JsonProperty("current")
-    private void unpackCurrent(Map<String, Object> map) {
-        this.temperature = (double) map.get("temp_c");
-    }
+    private String customId;
 }
@@ -0,0 +1,24 @@
+package com.example.temperature.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * ДТО пакетного запроса по идентификаторам городов для сервиса www.weatherbit.io
+ */
+@Data
+public class WeatherBitBatchDto {
+    private List<Item> data;
+
+    @Data
+    public static class Item {
+        @JsonProperty("city_name")
+        private String city;
+        @JsonProperty("country_code")
+        private String countryCode;
+        @JsonProperty("temp")
+        private double temperature;
+    }
+}
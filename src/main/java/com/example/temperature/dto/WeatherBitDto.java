@@ -1,28 +1,16 @@
 package com.example.temperature.dto;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.example.temperature.dto.deserializers.WeatherBitDtoDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * ДТО для сервиса www.weatherbit.io
+ * Город и температура читаются из первого элемента data потоковым разбором.
  */
 @Data
+@JsonDeserialize(using = WeatherBitDtoDeserializer.class)
 public class WeatherBitDto {
     private String city;
     private double temperature;
-
-    /**
-     * Метод распаковки вложенного массива data.
-     * После распаковки сохраняет значения Город и Температура.
-     */
-    @JsonProperty("data")
-    private void unpackData(List<Map<String, Object>> list) {
-        if (!list.isEmpty()) {
-            this.city = (String) list.get(0).get("city_name");
-            this.temperature = (double) list.get(0).get("temp");
-        }
-    }
 }
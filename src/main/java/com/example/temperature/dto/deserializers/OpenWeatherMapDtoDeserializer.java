@@ -0,0 +1,47 @@
+package com.example.temperature.dto.deserializers;
+
+import com.example.temperature.dto.OpenWeatherMapDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+
+/**
+ * Разбор ответа openweathermap.org: id, name и main.temp.
+ */
+public class OpenWeatherMapDtoDeserializer extends StreamingDeserializer<OpenWeatherMapDto> {
+
+    public OpenWeatherMapDtoDeserializer() {
+        super(OpenWeatherMapDto.class);
+    }
+
+    @Override
+    protected OpenWeatherMapDto create() {
+        return new OpenWeatherMapDto();
+    }
+
+    @Override
+    protected boolean readField(JsonParser p, DeserializationContext ctxt, String field, OpenWeatherMapDto dto)
+            throws IOException {
+        switch (field) {
+            case "id":
+                dto.setId(p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsLong());
+                return true;
+            case "name":
+                dto.setCity(p.getValueAsString());
+                return true;
+            case "main":
+                readObject(p, ctxt, main -> {
+                    if ("temp".equals(main)) {
+                        dto.setTemperature(readDouble(p));
+                        return true;
+                    }
+                    return false;
+                });
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.temperature.dto.deserializers;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Потоковый разбор ответа сервиса погоды.
+ * Нужные поля читаются сразу из токенов в ДТО, остальные поддеревья пропускаются без построения Map.
+ *
+ * @param <T> тип ДТО
+ */
+public abstract class StreamingDeserializer<T> extends StdDeserializer<T> {
+
+    protected StreamingDeserializer(Class<T> type) {
+        super(type);
+    }
+
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        T dto = create();
+        readObject(p, ctxt, field -> readField(p, ctxt, field, dto));
+        return dto;
+    }
+
+    /**
+     * @return пустой ДТО
+     */
+    protected abstract T create();
+
+    /**
+     * Читает значение поля верхнего уровня, парсер стоит на первом токене значения.
+     *
+     * @return false, если поле не нужно и его значение следует пропустить
+     */
+    protected abstract boolean readField(JsonParser p, DeserializationContext ctxt, String field, T dto)
+            throws IOException;
+
+    /**
+     * Обходит поля текущего объекта. Значения полей, которые не прочитал handler, пропускаются целиком.
+     * После выхода парсер стоит на конце объекта.
+     */
+    protected void readObject(JsonParser p, DeserializationContext ctxt, FieldHandler handler) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            ctxt.handleUnexpectedToken(handledType(), p);
+            return;
+        }
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if (!handler.read(field)) {
+                p.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Читает первый элемент текущего массива, остальные элементы пропускаются.
+     * После выхода парсер стоит на конце массива.
+     */
+    protected void readFirst(JsonParser p, DeserializationContext ctxt, FieldHandler handler) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        boolean first = true;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (first && p.currentToken() == JsonToken.START_OBJECT) {
+                readObject(p, ctxt, handler);
+                first = false;
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Значение температуры: целое и дробное число, а также число в строке приводятся к double.
+     */
+    protected static double readDouble(JsonParser p) throws IOException {
+        return p.getValueAsDouble();
+    }
+
+    /**
+     * Чтение поля вложенного объекта.
+     */
+    @FunctionalInterface
+    protected interface FieldHandler {
+        /**
+         * @param field имя поля, парсер стоит на первом токене значения
+         * @return false, если значение не прочитано и его нужно пропустить
+         */
+        boolean read(String field) throws IOException;
+    }
+}
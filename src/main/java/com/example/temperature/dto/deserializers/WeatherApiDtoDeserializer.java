@@ -0,0 +1,56 @@
+package com.example.temperature.dto.deserializers;
+
+import com.example.temperature.dto.WeatherApiDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+
+/**
+ * Разбор ответа www.weatherapi.com: location.name, location.country, current.temp_c и custom_id пакетного запроса.
+ */
+public class WeatherApiDtoDeserializer extends StreamingDeserializer<WeatherApiDto> {
+
+    public WeatherApiDtoDeserializer() {
+        super(WeatherApiDto.class);
+    }
+
+    @Override
+    protected WeatherApiDto create() {
+        return new WeatherApiDto();
+    }
+
+    @Override
+    protected boolean readField(JsonParser p, DeserializationContext ctxt, String field, WeatherApiDto dto)
+            throws IOException {
+        switch (field) {
+            case "custom_id":
+                dto.setCustomId(p.getValueAsString());
+                return true;
+            case "location":
+                readObject(p, ctxt, location -> {
+                    if ("name".equals(location)) {
+                        dto.setCity(p.getValueAsString());
+                        return true;
+                    }
+                    if ("country".equals(location)) {
+                        dto.setCountry(p.getValueAsString());
+                        return true;
+                    }
+                    return false;
+                });
+                return true;
+            case "current":
+                readObject(p, ctxt, current -> {
+                    if ("temp_c".equals(current)) {
+                        dto.setTemperature(readDouble(p));
+                        return true;
+                    }
+                    return false;
+                });
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.temperature.dto.deserializers;
+
+import com.example.temperature.dto.WeatherBitDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+
+/**
+ * Разбор ответа www.weatherbit.io: city_name и temp первого элемента data.
+ */
+public class WeatherBitDtoDeserializer extends StreamingDeserializer<WeatherBitDto> {
+
+    public WeatherBitDtoDeserializer() {
+        super(WeatherBitDto.class);
+    }
+
+    @Override
+    protected WeatherBitDto create() {
+        return new WeatherBitDto();
+    }
+
+    @Override
+    protected boolean readField(JsonParser p, DeserializationContext ctxt, String field, WeatherBitDto dto)
+            throws IOException {
+        if (!"data".equals(field)) {
+            return false;
+        }
+        readFirst(p, ctxt, data -> {
+            if ("city_name".equals(data)) {
+                dto.setCity(p.getValueAsString());
+                return true;
+            }
+            if ("temp".equals(data)) {
+                dto.setTemperature(readDouble(p));
+                return true;
+            }
+            return false;
+        });
+        return true;
+    }
+}
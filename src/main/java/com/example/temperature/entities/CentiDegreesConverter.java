@@ -0,0 +1,30 @@
+package com.example.temperature.entities;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Температура хранится в smallint в сотых долях градуса: точности сервисов погоды этого достаточно,
+ * а строка таблицы фактов становится короче.
+ */
+@Converter
+public class CentiDegreesConverter implements AttributeConverter<Double, Short> {
+    private static final double SCALE = 100;
+
+    @Override
+    public Short convertToDatabaseColumn(Double attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        long value = Math.round(attribute * SCALE);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Температура " + attribute + " вне допустимого диапазона");
+        }
+        return (short) value;
+    }
+
+    @Override
+    public Double convertToEntityAttribute(Short dbData) {
+        return dbData != null ? dbData / SCALE : null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.temperature.entities;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@Entity
+@Table(name = "location")
+@Getter
+@Setter
+public class LocationEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "city", nullable = false)
+    private String city;
+
+    @Column(name = "country", nullable = false)
+    private String country;
+
+    /**
+     * Период опроса в секундах, null - период по умолчанию.
+     */
+    @Column(name = "poll_interval_seconds")
+    private Integer pollIntervalSeconds;
+
+    @Column(name = "priority", nullable = false)
+    private int priority;
+
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled = true;
+
+    @Column(name = "deleted", nullable = false)
+    private boolean deleted;
+
+    /**
+     * Проставляется триггером бд.
+     */
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private Instant updatedAt;
+}
@@ -1,35 +1,126 @@
 package com.example.temperature.entities;
 
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ResultCheckStyle;
+import org.hibernate.annotations.SQLInsert;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.io.Serializable;
 import java.time.LocalDateTime;
 
+/**
+ * Запись температуры в таблице фактов reading.
+ * Город и страна хранятся в таблице location, в записи - только идентификатор локации.
+ * Поля city и country не сохраняются, их заполняет LocationDirectory.
+ * Запись с уже существующим ключом, например, при повторе после сбоя, вместо reading сохраняется
+ * в reading_duplicate, как и повторы при переносе записей в reading.
+ * Количество измененных строк не проверяется: при повторе reading не изменяется.
+ * Запись может хранить интервал одинаковых значений, см. ReadingIntervals.
+ */
 @Entity
-@Table(name = "temperature")
+@Table(name = "reading")
+@SQLInsert(
+        sql = "WITH row_value (samples, temperature, valid_to, location_id, time_create) AS ("
+                + " VALUES (CAST(? AS integer), CAST(? AS smallint), CAST(? AS timestamp),"
+                + " CAST(? AS integer), CAST(? AS timestamp))"
+                + "), inserted AS ("
+                + " INSERT INTO reading (samples, temperature, valid_to, location_id, time_create)"
+                + " SELECT * FROM row_value ON CONFLICT DO NOTHING RETURNING 1"
+                + ")"
+                + " INSERT INTO reading_duplicate (samples, temperature, valid_to, location_id, time_create)"
+                + " SELECT * FROM row_value WHERE NOT EXISTS (SELECT FROM inserted)",
+        check = ResultCheckStyle.NONE
+)
+@IdClass(TemperatureEntity.Key.class)
 @Getter
 @Setter
-public class TemperatureEntity {
+public class TemperatureEntity implements Persistable<TemperatureEntity.Key> {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(name = "id", nullable = false)
-    private Long id;
+    @Column(name = "location_id", nullable = false)
+    private Integer locationId;
 
-    @Column(name = "city")
+    @Id
+    @Column(name = "time_create", nullable = false)
+    private LocalDateTime timeCreate;
+
+    @Column(name = "temperature")
+    @Convert(converter = CentiDegreesConverter.class)
+    private Double temperature;
+
+    /**
+     * Время последнего значения интервала одинаковых значений, который начинается в time_create.
+     * null - запись с одним значением.
+     */
+    @Column(name = "valid_to")
+    private LocalDateTime validTo;
+
+    /**
+     * Количество значений в интервале, значения распределены по интервалу равномерно.
+     */
+    @Column(name = "samples", nullable = false)
+    private int samples = 1;
+
+    @Transient
     private String city;
 
-    @Column(name = "country")
+    @Transient
     private String country;
 
-    @Column(name = "temperature")
-    private Double temperature;
+    /**
+     * Записи только добавляются, поэтому сохранение новой записи не должно читать ее из бд.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
 
-    @Column(name = "time_create")
-    private LocalDateTime timeCreate;
+    @Override
+    public Key getId() {
+        return new Key(locationId, timeCreate);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    /**
+     * Запись снова сохраняется вставкой, например, после отката транзакции.
+     */
+    public void markNew() {
+        persisted = false;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Integer locationId;
+        private LocalDateTime timeCreate;
+
+        public Key(Integer locationId, LocalDateTime timeCreate) {
+            this.locationId = locationId;
+            this.timeCreate = timeCreate;
+        }
+    }
 }
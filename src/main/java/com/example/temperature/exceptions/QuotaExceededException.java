@@ -0,0 +1,10 @@
+package com.example.temperature.exceptions;
+
+/**
+ * Квота запросов к сервису погоды исчерпана, запрос не отправлялся.
+ */
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.temperature.health;
+
+import com.example.temperature.configuration.WeatherProperties;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Автомат состояния одного сервиса погоды.
+ * CLOSED - запросы выполняются, результаты последних windowSize запросов учитываются в скользящем окне.
+ * OPEN - доля ошибок или медленных запросов превысила порог, запросы не отправляются openDuration.
+ * HALF_OPEN - после openDuration выполняется один пробный запрос: успех закрывает автомат, ошибка снова открывает.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final WeatherProperties.CircuitBreaker settings;
+    private final LongSupplier nanoTime;
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failureCount;
+    private int slowCount;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, WeatherProperties.CircuitBreaker settings) {
+        this(name, settings, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, WeatherProperties.CircuitBreaker settings, LongSupplier nanoTime) {
+        this.name = name;
+        this.settings = settings;
+        this.nanoTime = nanoTime;
+        this.failures = new boolean[Math.max(1, settings.getWindowSize())];
+        this.slowCalls = new boolean[failures.length];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return текущее состояние; открытый автомат, у которого истекло openDuration, считается полуоткрытым
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && isOpenDurationElapsed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Разрешение на отправку запроса. В полуоткрытом состоянии разрешается только один пробный запрос.
+     *
+     * @return true, если запрос можно отправить; после него нужно вызвать {@link #onSuccess} или {@link #onFailure}
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (!isOpenDurationElapsed()) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+            default:
+                throw new IllegalStateException("Unexpected value: " + state);
+        }
+    }
+
+    /**
+     * Возвращает разрешение, по которому запрос не был отправлен.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * @param durationNanos время выполнения запроса
+     * @return true, если состояние изменилось
+     */
+    public synchronized boolean onSuccess(long durationNanos) {
+        return record(false, durationNanos > settings.getSlowCallDuration().toNanos());
+    }
+
+    /**
+     * @return true, если состояние изменилось
+     */
+    public synchronized boolean onFailure() {
+        return record(true, false);
+    }
+
+    private boolean record(boolean failure, boolean slow) {
+        switch (state) {
+            case HALF_OPEN:
+                probeInFlight = false;
+                if (failure || slow) {
+                    open();
+                } else {
+                    close();
+                }
+                return true;
+            case CLOSED:
+                add(failure, slow);
+                if (calls >= settings.getMinimumCalls()
+                        && (failureCount * 100 >= settings.getFailureRateThreshold() * calls
+                        || slowCount * 100 >= settings.getSlowCallRateThreshold() * calls)) {
+                    open();
+                    return true;
+                }
+                return false;
+            default:
+                // ответ на запрос, отправленный до отключения сервиса
+                return false;
+        }
+    }
+
+    private void add(boolean failure, boolean slow) {
+        if (calls == failures.length) {
+            failureCount -= failures[position] ? 1 : 0;
+            slowCount -= slowCalls[position] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failures[position] = failure;
+        slowCalls[position] = slow;
+        failureCount += failure ? 1 : 0;
+        slowCount += slow ? 1 : 0;
+        position = (position + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoTime.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        calls = 0;
+        failureCount = 0;
+        slowCount = 0;
+    }
+
+    private boolean isOpenDurationElapsed() {
+        return nanoTime.getAsLong() - openedAt >= settings.getOpenDuration().toNanos();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.temperature.health;
+
+import com.example.temperature.configuration.WeatherProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Состояние доступности сервисов погоды, по одному автомату на сервис.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProviderHealthRegistry {
+    private final WeatherProperties properties;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * @param name имя сервиса
+     * @return автомат состояния сервиса
+     */
+    public CircuitBreaker get(String name) {
+        return breakers.computeIfAbsent(name, key -> new CircuitBreaker(key, properties.getCircuitBreaker()));
+    }
+}
@@ -0,0 +1,445 @@
+package com.example.temperature.ingestion;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.services.TemperatureService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Очередь записи собранных значений температуры в бд.
+ * Задача опроса только добавляет значения в ограниченную очередь, отдельный поток сохраняет их
+ * пакетами по batch-size или раз в flush-interval, поэтому медленная бд не задерживает опрос.
+ * Если очередь заполнена, задача опроса ждет освобождения места не дольше offer-timeout.
+ * <p>
+ * При ошибке бд пакет дописывается в файл spill-file, и следующие retry-interval пакеты пишутся
+ * сразу в файл. После успешной записи в бд файл переименовывается и его значения сохраняются
+ * в бд по одному пакету между пакетами из очереди. Файл, оставшийся после остановки, сохраняется
+ * после запуска.
+ */
+@Slf4j
+@Component
+public class IngestionQueue {
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final WeatherProperties.Ingestion settings;
+    private final TemperatureService temperatureService;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<TemperatureEntity> queue;
+    private final Path spillFile;
+    private final Path replayFile;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * Поля ниже используются только потоком записи.
+     */
+    private long retryAt;
+    private BufferedReader replayReader;
+    private boolean replayAdvanced;
+
+    public IngestionQueue(
+            WeatherProperties properties,
+            TemperatureService temperatureService,
+            ObjectMapper objectMapper
+    ) {
+        this.settings = properties.getIngestion();
+        this.temperatureService = temperatureService;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(settings.getCapacity());
+        this.spillFile = settings.getSpillFile() != null ? Paths.get(settings.getSpillFile()) : null;
+        this.replayFile = spillFile != null ? Paths.get(settings.getSpillFile() + REPLAY_SUFFIX) : null;
+        this.retryAt = System.nanoTime();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "ingestion-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Останавливает поток записи после сохранения значений, оставшихся в очереди.
+     * Значения, которые поток записи не успел сохранить за retry-interval + flush-interval,
+     * дописываются в spill-file и сохраняются в бд после следующего запуска.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(settings.getRetryInterval().toMillis() + settings.getFlushInterval().toMillis());
+        List<TemperatureEntity> remaining = new ArrayList<>(queue.size());
+        queue.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        if (spillFile != null) {
+            spill(remaining);
+        } else {
+            dropped.add(remaining.size());
+            log.error(
+                    "При остановке не сохранено {} значений температуры",
+                    remaining.size()
+            );
+        }
+    }
+
+    /**
+     * Добавляет значения в очередь записи. Если запись через очередь выключена, значения сохраняются сразу.
+     *
+     * @param entities значения температуры
+     * @return количество принятых значений, остальные отброшены из-за заполненной очереди
+     */
+    public int offer(Collection<TemperatureEntity> entities) {
+        if (!settings.isEnabled()) {
+            temperatureService.insertAll(entities);
+            written.add(entities.size());
+            return entities.size();
+        }
+        long deadline = System.nanoTime() + settings.getOfferTimeout().toNanos();
+        int accepted = 0;
+        try {
+            for (TemperatureEntity entity : entities) {
+                if (!queue.offer(entity, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                accepted++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (accepted < entities.size()) {
+            dropped.add(entities.size() - accepted);
+            log.warn(
+                    "Очередь записи заполнена, отброшено {} значений температуры",
+                    entities.size() - accepted
+            );
+        }
+        return accepted;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            boolean replayPending = isReplayPending();
+            List<TemperatureEntity> batch;
+            try {
+                batch = nextBatch(replayPending ? 0 : settings.getFlushInterval().toNanos());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            if (replayPending && running) {
+                replayNext();
+            }
+        }
+        closeReplay();
+    }
+
+    /**
+     * Ждет первое значение не дольше timeoutNanos, затем добирает пакет до batch-size,
+     * пока с первого значения не прошло flush-interval.
+     */
+    private List<TemperatureEntity> nextBatch(long timeoutNanos) throws InterruptedException {
+        List<TemperatureEntity> batch = new ArrayList<>(settings.getBatchSize());
+        TemperatureEntity first = running ? queue.poll(timeoutNanos, TimeUnit.NANOSECONDS) : queue.poll();
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + settings.getFlushInterval().toNanos();
+        while (batch.size() < settings.getBatchSize()) {
+            queue.drainTo(batch, settings.getBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= settings.getBatchSize() || remaining <= 0 || !running) {
+                break;
+            }
+            TemperatureEntity next;
+            try {
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void write(List<TemperatureEntity> batch) {
+        while (true) {
+            if (spillFile != null && System.nanoTime() - retryAt < 0) {
+                spill(batch);
+                return;
+            }
+            if (insert(batch)) {
+                return;
+            }
+            retryAt = System.nanoTime() + settings.getRetryInterval().toNanos();
+            if (spillFile != null) {
+                spill(batch);
+                return;
+            }
+            if (!running) {
+                log.error(
+                        "При остановке не сохранено {} значений температуры",
+                        batch.size()
+                );
+                return;
+            }
+            batch.forEach(TemperatureEntity::markNew);
+            try {
+                TimeUnit.NANOSECONDS.sleep(settings.getRetryInterval().toNanos());
+            } catch (InterruptedException e) {
+                log.debug("Ожидание повторной записи прервано остановкой приложения");
+            }
+        }
+    }
+
+    private boolean insert(List<TemperatureEntity> batch) {
+        try {
+            temperatureService.insertAll(batch);
+            written.add(batch.size());
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            log.error(
+                    "Не удалось сохранить {} значений температуры в бд",
+                    batch.size(),
+                    e
+            );
+            return false;
+        }
+    }
+
+    /**
+     * Вызывается потоком записи и при остановке, если поток записи не успел завершиться,
+     * поэтому запись в файл синхронизирована.
+     */
+    private synchronized void spill(List<TemperatureEntity> batch) {
+        try (FileChannel channel = FileChannel.open(
+                spillFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        )) {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    Channels.newOutputStream(channel),
+                    StandardCharsets.UTF_8
+            ));
+            for (TemperatureEntity entity : batch) {
+                out.write(objectMapper.writeValueAsString(toDto(entity)));
+                out.newLine();
+            }
+            out.flush();
+            channel.force(false);
+            spilled.add(batch.size());
+            log.warn(
+                    "{} значений температуры записано в файл {} до восстановления бд",
+                    batch.size(),
+                    spillFile
+            );
+        } catch (IOException e) {
+            dropped.add(batch.size());
+            log.error(
+                    "Не удалось записать {} значений температуры в файл {}",
+                    batch.size(),
+                    spillFile,
+                    e
+            );
+        }
+    }
+
+    private boolean isReplayPending() {
+        if (spillFile == null || System.nanoTime() - retryAt < 0) {
+            return false;
+        }
+        return replayReader != null || Files.exists(replayFile) || Files.exists(spillFile);
+    }
+
+    /**
+     * Сохраняет в бд следующий пакет из файла. Новые значения во время сохранения пишутся
+     * в новый spill-file, поэтому сохраняемый файл сначала переименовывается.
+     */
+    private void replayNext() {
+        List<TemperatureEntity> batch = new ArrayList<>(settings.getBatchSize());
+        try {
+            if (replayReader == null) {
+                if (!Files.exists(replayFile)) {
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+                log.info(
+                        "Сохранение в бд значений температуры из файла {}",
+                        replayFile
+                );
+                replayReader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8);
+                replayAdvanced = false;
+            }
+            String line;
+            while (batch.size() < settings.getBatchSize() && (line = replayReader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    batch.add(toEntity(objectMapper.readValue(line, TemperatureDto.class)));
+                }
+            }
+            if (batch.isEmpty()) {
+                closeReplay();
+                Files.delete(replayFile);
+                log.info(
+                        "Значения температуры из файла сохранены в бд, всего {}",
+                        replayed.sum()
+                );
+                return;
+            }
+        } catch (IOException e) {
+            log.error(
+                    "Не удалось прочитать значения температуры из файла {}",
+                    replayFile,
+                    e
+            );
+            closeReplay();
+            retryAt = System.nanoTime() + settings.getRetryInterval().toNanos();
+            return;
+        }
+
+        if (insert(batch)) {
+            replayed.add(batch.size());
+            replayAdvanced = true;
+            return;
+        }
+        retryAt = System.nanoTime() + settings.getRetryInterval().toNanos();
+        if (replayAdvanced) {
+            keepUnreplayed(batch);
+        } else {
+            closeReplay();
+        }
+    }
+
+    /**
+     * Оставляет в файле пакет, который не удалось сохранить, и непрочитанные строки.
+     * Если из файла еще ничего не сохранено, файл не переписывается.
+     */
+    private void keepUnreplayed(List<TemperatureEntity> batch) {
+        Path remaining = Paths.get(replayFile + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(remaining, StandardCharsets.UTF_8)) {
+            for (TemperatureEntity entity : batch) {
+                out.write(objectMapper.writeValueAsString(toDto(entity)));
+                out.newLine();
+            }
+            String line;
+            while ((line = replayReader.readLine()) != null) {
+                out.write(line);
+                out.newLine();
+            }
+        } catch (IOException e) {
+            log.error(
+                    "Не удалось сохранить непрочитанные значения температуры из файла {}",
+                    replayFile,
+                    e
+            );
+            closeReplay();
+            return;
+        }
+        closeReplay();
+        try {
+            Files.move(remaining, replayFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error(
+                    "Не удалось заменить файл {}",
+                    replayFile,
+                    e
+            );
+        }
+    }
+
+    private void closeReplay() {
+        if (replayReader == null) {
+            return;
+        }
+        try {
+            replayReader.close();
+        } catch (IOException e) {
+            log.debug("Не удалось закрыть файл {}", replayFile, e);
+        }
+        replayReader = null;
+    }
+
+    private static TemperatureDto toDto(TemperatureEntity entity) {
+        return TemperatureDto.builder()
+                .city(entity.getCity())
+                .country(entity.getCountry())
+                .temperature(entity.getTemperature())
+                .timeCreate(entity.getTimeCreate())
+                .build();
+    }
+
+    private static TemperatureEntity toEntity(TemperatureDto dto) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setCity(dto.getCity());
+        entity.setCountry(dto.getCountry());
+        entity.setTemperature(dto.getTemperature());
+        entity.setTimeCreate(dto.getTimeCreate());
+        return entity;
+    }
+}
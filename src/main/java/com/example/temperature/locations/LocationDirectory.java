@@ -0,0 +1,257 @@
+package com.example.temperature.locations;
+
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.repositories.LocationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Справочник локаций таблицы location для записей температуры.
+ * Записи хранят только идентификатор локации, поэтому поиск по городу или стране
+ * выполняется в памяти: имя преобразуется в множество идентификаторов локаций.
+ * Справочник загружается из бд при первом обращении и обновляется вместе с реестром локаций.
+ * Пустая строка в бд означает, что город или страна не заданы.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocationDirectory {
+    private static final String NONE = "";
+
+    private final LocationRepository locationRepository;
+
+    private final Map<Integer, Map.Entry<String, String>> byId = new ConcurrentHashMap<>();
+    private final Map<Map.Entry<String, String>, Integer> byKey = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> byName = new ConcurrentHashMap<>();
+    private final Map<Integer, Duration> pollIntervals = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * Идентификаторы локаций с заданным городом или страной.
+     * Если имени нет в памяти, локации ищутся в бд: они могли быть добавлены другим экземпляром.
+     *
+     * @param location город или страна
+     * @return идентификаторы локаций, пустое множество, если таких локаций нет
+     */
+    public Set<Integer> resolve(String location) {
+        load();
+        if (location == null || location.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Integer> ids = byName.get(location);
+        if (ids != null) {
+            return ids;
+        }
+        List<LocationEntity> found = locationRepository.findAllByCityOrCountry(location, location);
+        found.forEach(this::put);
+        return byName.getOrDefault(location, Collections.emptySet());
+    }
+
+    /**
+     * @param city    город
+     * @param country страна
+     * @return идентификатор локации или null, если ее нет в справочнике
+     */
+    public Integer find(String city, String country) {
+        load();
+        return byKey.get(key(city, country));
+    }
+
+    /**
+     * Идентификатор локации для сохранения записи.
+     * Локация, которой еще нет в таблице location, добавляется отключенной, чтобы не попасть в опрос.
+     *
+     * @param city    город
+     * @param country страна
+     * @return идентификатор локации
+     */
+    public Integer idFor(String city, String country) {
+        Integer id = find(city, country);
+        if (id != null) {
+            return id;
+        }
+        Map.Entry<String, String> key = key(city, country);
+        synchronized (this) {
+            id = byKey.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (locationRepository.insertDisabledIfAbsent(key.getKey(), key.getValue()) > 0) {
+                log.info(
+                        "В справочник добавлена локация {}, {} без опроса",
+                        key.getKey(),
+                        key.getValue()
+                );
+            }
+            LocationEntity location = locationRepository.findByCityAndCountry(key.getKey(), key.getValue())
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Не найдена локация " + key.getKey() + ", " + key.getValue()
+                    ));
+            put(location);
+            return toInt(location.getId());
+        }
+    }
+
+    /**
+     * Заполняет город и страну записи по идентификатору локации.
+     *
+     * @param entity запись температуры
+     * @return та же запись
+     */
+    public TemperatureEntity fill(TemperatureEntity entity) {
+        if (entity.getLocationId() == null) {
+            return entity;
+        }
+        Map.Entry<String, String> location = describe(entity.getLocationId());
+        if (location != null) {
+            entity.setCity(location.getKey());
+            entity.setCountry(location.getValue());
+        }
+        return entity;
+    }
+
+    /**
+     * Проставляет записи идентификатор локации по ее городу и стране.
+     *
+     * @param entity запись температуры
+     * @return та же запись
+     */
+    public TemperatureEntity assign(TemperatureEntity entity) {
+        entity.setLocationId(idFor(entity.getCity(), entity.getCountry()));
+        return entity;
+    }
+
+    /**
+     * @param id идентификатор локации
+     * @return город и страна, null - если не заданы, или null, если локации нет
+     */
+    public Map.Entry<String, String> describe(Integer id) {
+        load();
+        Map.Entry<String, String> location = byId.get(id);
+        if (location == null) {
+            location = locationRepository.findById(id.longValue())
+                    .map(this::put)
+                    .orElse(null);
+        }
+        if (location == null) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(value(location.getKey()), value(location.getValue()));
+    }
+
+    /**
+     * Период опроса локации, известный справочнику. Читается без блокировки.
+     *
+     * @param id идентификатор локации
+     * @return период опроса или null, если у локации он не задан и используется registry.default-poll-interval
+     */
+    public Duration pollInterval(Integer id) {
+        return pollIntervals.get(id);
+    }
+
+    /**
+     * Добавляет локацию или обновляет ее город, страну и период опроса.
+     * Удаленные и отключенные локации остаются в справочнике: по ним есть сохраненные записи.
+     *
+     * @param location локация из таблицы location
+     * @return город и страна локации
+     */
+    public synchronized Map.Entry<String, String> put(LocationEntity location) {
+        Integer id = toInt(location.getId());
+        if (location.getPollIntervalSeconds() != null) {
+            pollIntervals.put(id, Duration.ofSeconds(location.getPollIntervalSeconds()));
+        } else {
+            pollIntervals.remove(id);
+        }
+        Map.Entry<String, String> key = key(location.getCity(), location.getCountry());
+        Map.Entry<String, String> previous = byId.put(id, key);
+        if (key.equals(previous)) {
+            return key;
+        }
+        if (previous != null) {
+            byKey.remove(previous, id);
+            unindex(previous.getKey(), id);
+            unindex(previous.getValue(), id);
+        }
+        byKey.put(key, id);
+        index(key.getKey(), id);
+        index(key.getValue(), id);
+        return key;
+    }
+
+    public int size() {
+        load();
+        return byId.size();
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            List<LocationEntity> locations = locationRepository.findAll();
+            locations.forEach(this::put);
+            loaded = true;
+            log.info(
+                    "Справочник локаций загружен, локаций {}",
+                    locations.size()
+            );
+        }
+    }
+
+    /**
+     * Множества идентификаторов не изменяются после публикации, поэтому читаются без блокировки.
+     */
+    private void index(String name, Integer id) {
+        if (NONE.equals(name)) {
+            return;
+        }
+        Set<Integer> ids = new HashSet<>(byName.getOrDefault(name, Collections.emptySet()));
+        ids.add(id);
+        byName.put(name, Collections.unmodifiableSet(ids));
+    }
+
+    private void unindex(String name, Integer id) {
+        Set<Integer> current = byName.get(name);
+        if (current == null || !current.contains(id)) {
+            return;
+        }
+        Set<Integer> ids = new HashSet<>(current);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            byName.remove(name);
+        } else {
+            byName.put(name, Collections.unmodifiableSet(ids));
+        }
+    }
+
+    private static Map.Entry<String, String> key(String city, String country) {
+        return new AbstractMap.SimpleImmutableEntry<>(
+                city != null ? city : NONE,
+                country != null ? country : NONE
+        );
+    }
+
+    private static String value(String name) {
+        return NONE.equals(name) ? null : name;
+    }
+
+    private static Integer toInt(Long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.temperature.locations;
+
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.repositories.LocationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр опрашиваемых локаций.
+ * Локации хранятся в таблице location, в памяти хранится расписание их опроса.
+ * Расписание обновляется инкрементально: периодически читаются только строки, измененные
+ * после последнего обновления, с запасом refresh-overlap на транзакции, зафиксированные с задержкой.
+ * При старте в таблицу добавляются локации из weather.locations, которых в ней еще нет.
+ * При удалении или отключении локации публикуется {@link LocationRemovedEvent}.
+ */
+@Slf4j
+@Component
+public class LocationRegistry {
+    private final WeatherProperties properties;
+    private final LocationRepository locationRepository;
+    private final LocationDirectory locationDirectory;
+    private final ClusterMembership clusterMembership;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LongSupplier currentTimeMillis;
+    private final LocationSchedule schedule = new LocationSchedule();
+
+    private Instant watermark = Instant.EPOCH;
+
+    @Autowired
+    public LocationRegistry(
+            WeatherProperties properties,
+            LocationRepository locationRepository,
+            LocationDirectory locationDirectory,
+            ClusterMembership clusterMembership,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this(
+                properties,
+                locationRepository,
+                locationDirectory,
+                clusterMembership,
+                eventPublisher,
+                System::currentTimeMillis
+        );
+    }
+
+    LocationRegistry(
+            WeatherProperties properties,
+            LocationRepository locationRepository,
+            LocationDirectory locationDirectory,
+            ClusterMembership clusterMembership,
+            ApplicationEventPublisher eventPublisher,
+            LongSupplier currentTimeMillis
+    ) {
+        this.properties = properties;
+        this.locationRepository = locationRepository;
+        this.locationDirectory = locationDirectory;
+        this.clusterMembership = clusterMembership;
+        this.eventPublisher = eventPublisher;
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        Map<String, String> locations = properties.getLocations();
+        if (locations != null) {
+            int added = 0;
+            for (Map.Entry<String, String> location : locations.entrySet()) {
+                added += locationRepository.insertIfAbsent(location.getKey(), location.getValue());
+            }
+            if (added > 0) {
+                log.info(
+                        "В реестр добавлено {} локаций из конфигурации",
+                        added
+                );
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Применяет к расписанию изменения локаций, сделанные после предыдущего обновления,
+     * в том числе на других экземплярах приложения.
+     */
+    @Scheduled(
+            fixedDelayString = "#{@weatherProperties.registry.refreshInterval.toMillis()}",
+            initialDelayString = "#{@weatherProperties.registry.refreshInterval.toMillis()}"
+    )
+    public void refresh() {
+        Instant since;
+        synchronized (this) {
+            since = watermark.minus(properties.getRegistry().getRefreshOverlap());
+        }
+        List<LocationEntity> changed;
+        try {
+            changed = locationRepository.findAllByUpdatedAtAfter(since);
+        } catch (DataAccessException e) {
+            log.error("Не удалось обновить реестр локаций", e);
+            return;
+        }
+        synchronized (this) {
+            for (LocationEntity location : changed) {
+                apply(location);
+                if (location.getUpdatedAt() != null && location.getUpdatedAt().isAfter(watermark)) {
+                    watermark = location.getUpdatedAt();
+                }
+            }
+        }
+        log.debug(
+                "Реестр локаций обновлен, изменено {}, всего {}",
+                changed.size(),
+                size()
+        );
+    }
+
+    /**
+     * Применяет изменение локации к расписанию и справочнику локаций этого экземпляра,
+     * не дожидаясь обновления из бд.
+     *
+     * @param location сохраненная локация
+     */
+    public synchronized void apply(LocationEntity location) {
+        locationDirectory.put(location);
+        if (location.isDeleted() || !location.isEnabled()) {
+            if (schedule.remove(location.getId())) {
+                eventPublisher.publishEvent(new LocationRemovedEvent(
+                        location.getId(),
+                        location.getCity(),
+                        location.getCountry()
+                ));
+            }
+            return;
+        }
+        long interval = location.getPollIntervalSeconds() != null
+                ? location.getPollIntervalSeconds() * 1000L
+                : properties.getRegistry().getDefaultPollInterval().toMillis();
+        schedule.put(
+                location.getId(),
+                location.getCity(),
+                location.getCountry(),
+                interval,
+                location.getPriority(),
+                currentTimeMillis.getAsLong()
+        );
+    }
+
+    /**
+     * Локации этого экземпляра, срок опроса которых наступил, в порядке приоритета.
+     * Локации, опрашиваемые с периодом запуска задачи, попадают в каждый запуск,
+     * даже если задача запустилась немного раньше, чем в прошлый раз.
+     * Локации других экземпляров кластера не занимают место в max-per-tick.
+     *
+     * @return не больше max-per-tick локаций
+     */
+    public synchronized List<Map.Entry<String, String>> takeDue() {
+        WeatherProperties.Registry settings = properties.getRegistry();
+        return schedule.takeDue(
+                currentTimeMillis.getAsLong() + settings.getDueTolerance().toMillis(),
+                settings.getMaxPerTick(),
+                clusterMembership.ownership()
+        );
+    }
+
+    public synchronized int size() {
+        return schedule.size();
+    }
+}
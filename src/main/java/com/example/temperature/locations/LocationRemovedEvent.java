@@ -0,0 +1,24 @@
+package com.example.temperature.locations;
+
+import lombok.Value;
+
+import java.util.AbstractMap;
+import java.util.Map;
+
+/**
+ * Локация удалена из реестра или отключена и больше не опрашивается.
+ * Публикуется, чтобы компоненты могли освободить состояние, хранимое для локации.
+ */
+@Value
+public class LocationRemovedEvent {
+    long id;
+    String city;
+    String country;
+
+    /**
+     * @return город и страна
+     */
+    public Map.Entry<String, String> getLocation() {
+        return new AbstractMap.SimpleImmutableEntry<>(city, country);
+    }
+}
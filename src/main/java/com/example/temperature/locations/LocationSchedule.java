@@ -0,0 +1,138 @@
+package com.example.temperature.locations;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Расписание опроса локаций: очередь с приоритетом по времени следующего опроса.
+ * За один запуск задачи извлекаются только локации, срок опроса которых наступил,
+ * поэтому стоимость запуска не зависит от общего количества локаций.
+ * Измененные и удаленные локации не удаляются из очереди, а помечаются и пропускаются при извлечении.
+ * Методы класса не потокобезопасны.
+ */
+class LocationSchedule {
+    private static final Comparator<Slot> BY_DUE = Comparator.<Slot>comparingLong(slot -> slot.nextDue)
+            .thenComparing(Comparator.<Slot>comparingInt(slot -> slot.priority).reversed());
+    private static final Comparator<Slot> BY_PRIORITY = Comparator.<Slot>comparingInt(slot -> slot.priority)
+            .reversed()
+            .thenComparingLong(slot -> slot.nextDue);
+
+    private final Map<Long, Slot> slots = new HashMap<>();
+    private final PriorityQueue<Slot> queue = new PriorityQueue<>(BY_DUE);
+
+    /**
+     * Добавляет локацию или обновляет ее параметры.
+     * Новая локация опрашивается при ближайшем запуске, у существующей сохраняется время следующего опроса,
+     * если оно наступает не позже, чем через новый период.
+     *
+     * @param id         идентификатор локации
+     * @param city       город
+     * @param country    страна
+     * @param intervalMs период опроса в миллисекундах
+     * @param priority   приоритет, локации с большим приоритетом опрашиваются раньше
+     * @param now        текущее время в миллисекундах
+     */
+    void put(long id, String city, String country, long intervalMs, int priority, long now) {
+        Slot current = slots.get(id);
+        long nextDue = now;
+        if (current != null) {
+            if (current.city.equals(city) && current.country.equals(country)
+                    && current.intervalMs == intervalMs && current.priority == priority) {
+                return;
+            }
+            current.cancelled = true;
+            nextDue = Math.min(current.nextDue, now + intervalMs);
+        }
+        Slot slot = new Slot(city, country, intervalMs, priority, nextDue);
+        slots.put(id, slot);
+        queue.add(slot);
+        compact();
+    }
+
+    /**
+     * @param id идентификатор локации
+     * @return true, если локация была в расписании
+     */
+    boolean remove(long id) {
+        Slot slot = slots.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        slot.cancelled = true;
+        compact();
+        return true;
+    }
+
+    /**
+     * Извлекает локации, срок опроса которых наступил, и назначает им время следующего опроса.
+     * Локации, которые опрашивает другой экземпляр, не учитываются в limit и переносятся на следующий период.
+     * Если своих локаций больше limit, возвращаются локации с большим приоритетом,
+     * остальные остаются в очереди до следующего запуска.
+     *
+     * @param now   текущее время в миллисекундах
+     * @param limit максимальное количество локаций
+     * @param owned true для локаций, которые опрашивает этот экземпляр
+     * @return локации в порядке приоритета
+     */
+    List<Map.Entry<String, String>> takeDue(long now, int limit, Predicate<Map.Entry<String, String>> owned) {
+        List<Slot> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().nextDue <= now) {
+            Slot slot = queue.poll();
+            if (!slot.cancelled) {
+                due.add(slot);
+            }
+        }
+        due.sort(BY_PRIORITY);
+
+        List<Map.Entry<String, String>> result = new ArrayList<>(Math.min(due.size(), limit));
+        for (Slot slot : due) {
+            if (result.size() < limit) {
+                Map.Entry<String, String> location = new AbstractMap.SimpleImmutableEntry<>(slot.city, slot.country);
+                if (owned.test(location)) {
+                    result.add(location);
+                }
+                long nextDue = slot.nextDue + slot.intervalMs;
+                slot.nextDue = nextDue > now ? nextDue : now + slot.intervalMs;
+            }
+            queue.add(slot);
+        }
+        return result;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * Пересобирает очередь, когда помеченных записей становится больше, чем актуальных.
+     */
+    private void compact() {
+        if (queue.size() > 2 * slots.size() + 1024) {
+            queue.clear();
+            queue.addAll(slots.values());
+        }
+    }
+
+    private static class Slot {
+        private final String city;
+        private final String country;
+        private final long intervalMs;
+        private final int priority;
+        private long nextDue;
+        private boolean cancelled;
+
+        private Slot(String city, String country, long intervalMs, int priority, long nextDue) {
+            this.city = city;
+            this.country = country;
+            this.intervalMs = intervalMs;
+            this.priority = priority;
+            this.nextDue = nextDue;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.temperature.metrics;
+
+import com.example.temperature.cache.LatestTemperatureCache;
+import com.example.temperature.cache.ReadingWindow;
+import com.example.temperature.clients.WeatherResponseCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Метрики кэшей приложения.
+ * Кэши сами считают обращения, значения счетчиков читаются только при снятии метрик.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheMetrics implements MeterBinder {
+    private static final String GETS = "weather.cache.gets";
+
+    private final LatestTemperatureCache latestTemperatureCache;
+    private final WeatherResponseCache weatherResponseCache;
+    private final ReadingWindow readingWindow;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gets(registry, "latest-temperature", "hit", latestTemperatureCache, LatestTemperatureCache::getHits);
+        gets(registry, "latest-temperature", "miss", latestTemperatureCache, LatestTemperatureCache::getMisses);
+
+        gets(registry, "provider-response", "hit", weatherResponseCache, WeatherResponseCache::getHits);
+        gets(registry, "provider-response", "revalidated", weatherResponseCache, WeatherResponseCache::getRevalidations);
+        gets(registry, "provider-response", "miss", weatherResponseCache, WeatherResponseCache::getMisses);
+        Gauge.builder("weather.cache.size", weatherResponseCache, WeatherResponseCache::size)
+                .description("Количество ответов в кэше")
+                .tag("cache", "provider-response")
+                .register(registry);
+
+        gets(registry, "reading-window", "hit", readingWindow, ReadingWindow::getHits);
+        gets(registry, "reading-window", "miss", readingWindow, ReadingWindow::getMisses);
+        Gauge.builder("weather.cache.size", readingWindow, ReadingWindow::size)
+                .description("Количество локаций в окне последних значений")
+                .tag("cache", "reading-window")
+                .register(registry);
+        Gauge.builder("weather.window.memory", readingWindow, ReadingWindow::memory)
+                .description("Память вне кучи, занятая окном последних значений")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("weather.window.location.memory", readingWindow, ReadingWindow::memoryPerLocation)
+                .description("Память вне кучи на одну локацию окна последних значений")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static <T> void gets(
+            MeterRegistry registry,
+            String cache,
+            String result,
+            T source,
+            ToDoubleFunction<T> count
+    ) {
+        FunctionCounter.builder(GETS, source, count)
+                .description("Обращения к кэшу")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.temperature.metrics;
+
+import com.example.temperature.ingestion.IngestionQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Метрики очереди записи значений температуры в бд.
+ * Очередь зависит от клиентов сервисов погоды, которые сами регистрируют метрики,
+ * поэтому она внедряется лениво и создается уже после реестра метрик.
+ */
+@Component
+public class IngestionMetrics implements MeterBinder {
+    private static final String ROWS = "weather.ingestion.rows";
+
+    private final IngestionQueue ingestionQueue;
+
+    public IngestionMetrics(@Lazy IngestionQueue ingestionQueue) {
+        this.ingestionQueue = ingestionQueue;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("weather.ingestion.queue.size", ingestionQueue, IngestionQueue::size)
+                .description("Количество значений, ожидающих записи в бд")
+                .register(registry);
+        rows(registry, "written", IngestionQueue::getWritten);
+        rows(registry, "dropped", IngestionQueue::getDropped);
+        rows(registry, "spilled", IngestionQueue::getSpilled);
+        rows(registry, "replayed", IngestionQueue::getReplayed);
+    }
+
+    private void rows(MeterRegistry registry, String result, ToDoubleFunction<IngestionQueue> count) {
+        FunctionCounter.builder(ROWS, ingestionQueue, count)
+                .description("Значения температуры, прошедшие через очередь записи")
+                .tag("result", result)
+                .register(registry);
+    }
+}
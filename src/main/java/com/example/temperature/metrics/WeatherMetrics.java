@@ -0,0 +1,197 @@
+package com.example.temperature.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики опроса сервисов погоды.
+ * Счетчики и таймеры создаются один раз на сервис и тип ошибки и дальше берутся из словаря,
+ * поэтому запись измерения не выделяет память и не обращается к реестру метрик.
+ */
+@Component
+public class WeatherMetrics {
+    private static final Duration MIN_EXPECTED_LATENCY = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofSeconds(30);
+    private static final int MAX_MISSED_TICKS = 10_000;
+
+    private final MeterRegistry registry;
+    private final CronExpression cron;
+    private final Clock clock;
+    private final Map<String, SourceMeters> sources = new ConcurrentHashMap<>();
+
+    private final Timer tickDuration;
+    private final Timer tickLag;
+    private final Counter tickMissed;
+    private final DistributionSummary tickLocations;
+    private final DistributionSummary tickInserted;
+    private final Counter unresolvedLocations;
+
+    private ZonedDateTime lastScheduled;
+
+    @Autowired
+    public WeatherMetrics(MeterRegistry registry, @Value("${cron:" + Scheduled.CRON_DISABLED + "}") String cron) {
+        this(registry, cron, Clock.systemDefaultZone());
+    }
+
+    WeatherMetrics(MeterRegistry registry, String cron, Clock clock) {
+        this.registry = registry;
+        this.cron = Scheduled.CRON_DISABLED.equals(cron) ? null : CronExpression.parse(cron);
+        this.clock = clock;
+        this.tickDuration = Timer.builder("weather.tick.duration")
+                .description("Длительность задачи опроса локаций")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.tickLag = Timer.builder("weather.tick.lag")
+                .description("Опоздание запуска задачи опроса относительно расписания")
+                .register(registry);
+        this.tickMissed = Counter.builder("weather.tick.missed")
+                .description("Запуски по расписанию, пропущенные из-за долгого выполнения предыдущей задачи")
+                .register(registry);
+        this.tickLocations = DistributionSummary.builder("weather.tick.locations")
+                .description("Количество локаций, опрошенных за запуск")
+                .register(registry);
+        this.tickInserted = DistributionSummary.builder("weather.tick.rows.inserted")
+                .description("Количество записей, переданных на сохранение за запуск")
+                .register(registry);
+        this.unresolvedLocations = Counter.builder("weather.locations.unresolved")
+                .description("Локации, по которым не ответил ни один сервис")
+                .register(registry);
+    }
+
+    /**
+     * Отмечает начало задачи опроса и записывает ее опоздание относительно расписания cron.
+     *
+     * @return время начала для {@link #finishTick}
+     */
+    public long startTick() {
+        if (cron != null) {
+            recordLag(ZonedDateTime.now(clock));
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * @param startNanos  значение, возвращенное {@link #startTick()}
+     * @param locations   количество опрошенных локаций
+     * @param inserted    количество записей, переданных на сохранение
+     * @param unresolved  количество локаций без ответа ни от одного сервиса
+     */
+    public void finishTick(long startNanos, int locations, int inserted, int unresolved) {
+        tickDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        tickLocations.record(locations);
+        tickInserted.record(inserted);
+        unresolvedLocations.increment(unresolved);
+    }
+
+    /**
+     * Записывает длительность и результат запроса к сервису.
+     *
+     * @param source        имя сервиса
+     * @param durationNanos длительность запроса
+     * @param error         ошибка запроса или null
+     */
+    public void recordRequest(String source, long durationNanos, Throwable error) {
+        SourceMeters meters = source(source);
+        Timer timer = error == null ? meters.success : meters.error(error.getClass());
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Запрос не отправлен, потому что квота сервиса исчерпана.
+     */
+    public void recordQuotaExceeded(String source) {
+        source(source).quotaExceeded.increment();
+    }
+
+    /**
+     * Сервис ответил, но не вернул температуру для локации.
+     */
+    public void recordMissingReading(String source) {
+        source(source).missing.increment();
+    }
+
+    private synchronized void recordLag(ZonedDateTime now) {
+        if (lastScheduled == null) {
+            // задача запускается в начале секунды, на которую приходится срабатывание cron
+            lastScheduled = now.truncatedTo(ChronoUnit.SECONDS);
+            return;
+        }
+        ZonedDateTime scheduled = cron.next(lastScheduled);
+        if (scheduled == null) {
+            return;
+        }
+        tickLag.record(Math.max(0, Duration.between(scheduled, now).toNanos()), TimeUnit.NANOSECONDS);
+
+        ZonedDateTime next;
+        int missed = 0;
+        while (missed < MAX_MISSED_TICKS && (next = cron.next(scheduled)) != null && !next.isAfter(now)) {
+            scheduled = next;
+            missed++;
+        }
+        tickMissed.increment(missed);
+        lastScheduled = scheduled;
+    }
+
+    private SourceMeters source(String source) {
+        SourceMeters meters = sources.get(source);
+        return meters != null ? meters : sources.computeIfAbsent(source, SourceMeters::new);
+    }
+
+    /**
+     * Метрики одного сервиса.
+     */
+    private class SourceMeters {
+        private final String source;
+        private final Timer success;
+        private final Counter quotaExceeded;
+        private final Counter missing;
+        private final Map<Class<?>, Timer> errors = new ConcurrentHashMap<>();
+
+        private SourceMeters(String source) {
+            this.source = source;
+            this.success = requestTimer(source, "success", "none");
+            this.quotaExceeded = Counter.builder("weather.provider.quota.exceeded")
+                    .description("Запросы, не отправленные из-за исчерпания квоты сервиса")
+                    .tag("source", source)
+                    .register(registry);
+            this.missing = Counter.builder("weather.provider.readings.missing")
+                    .description("Локации, для которых сервис не вернул температуру")
+                    .tag("source", source)
+                    .register(registry);
+        }
+
+        private Timer error(Class<?> type) {
+            Timer timer = errors.get(type);
+            return timer != null
+                    ? timer
+                    : errors.computeIfAbsent(type, key -> requestTimer(source, "error", key.getSimpleName()));
+        }
+
+        private Timer requestTimer(String source, String outcome, String exception) {
+            return Timer.builder("weather.provider.requests")
+                    .description("Запросы к сервисам погоды")
+                    .tag("source", source)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED_LATENCY)
+                    .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+                    .register(registry);
+        }
+    }
+}
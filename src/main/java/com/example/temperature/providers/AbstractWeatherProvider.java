@@ -0,0 +1,165 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.exceptions.IncorrectResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Базовый HTTP источник температуры.
+ * Шаблон URL разбирается один раз при создании, в запросе подставляется только локация.
+ *
+ * @param <T> ДТО ответа сервиса
+ */
+@Slf4j
+public abstract class AbstractWeatherProvider<T> implements WeatherProvider {
+    protected static final String LOCATION = "{location}";
+
+    private final String name;
+    private final Class<T> responseType;
+    private final Map<String, String> source;
+    private final Map<String, String> cityIds;
+    private final int maxConcurrency;
+    private final int maxBatchSize;
+    private final UriComponents uriTemplate;
+
+    protected AbstractWeatherProvider(String name, Class<T> responseType, WeatherProperties properties) {
+        this(name, responseType, properties, 1);
+    }
+
+    protected AbstractWeatherProvider(
+            String name,
+            Class<T> responseType,
+            WeatherProperties properties,
+            int defaultBatchSize
+    ) {
+        this.name = name;
+        this.responseType = responseType;
+        this.source = properties.getSources() != null && properties.getSources().containsKey(name)
+                ? properties.getSources().get(name)
+                : Collections.emptyMap();
+        String concurrency = source.get("concurrency");
+        this.maxConcurrency = concurrency != null
+                ? Integer.parseInt(concurrency)
+                : properties.getCollector().getConcurrency();
+        String batchSize = source.get("batch-size");
+        this.maxBatchSize = Math.max(1, batchSize != null ? Integer.parseInt(batchSize) : defaultBatchSize);
+        this.cityIds = properties.getCityIds() != null ? properties.getCityIds() : Collections.emptyMap();
+        this.uriTemplate = source.containsKey("url")
+                ? uriTemplate(UriComponentsBuilder.fromHttpUrl(source.get("url")), source).encode().build()
+                : null;
+    }
+
+    /**
+     * Добавляет к URL сервиса параметры запроса. Локация передается переменной {@link #LOCATION}.
+     *
+     * @param builder URL сервиса
+     * @param source  ключ и урл сервиса
+     * @return шаблон URL
+     */
+    protected abstract UriComponentsBuilder uriTemplate(UriComponentsBuilder builder, Map<String, String> source);
+
+    /**
+     * Извлекает температуру из ответа сервиса.
+     *
+     * @param dto ответ сервиса
+     * @return температура
+     */
+    protected abstract Double extractTemperature(T dto);
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    protected Map<String, String> getSource() {
+        return source;
+    }
+
+    /**
+     * @param location город и страна
+     * @return идентификатор города GeoNames или null, если он не задан
+     */
+    protected String getCityId(Map.Entry<String, String> location) {
+        return cityIds.get(location.getKey());
+    }
+
+    /**
+     * Запрашивает температуру отдельным запросом для каждой локации.
+     */
+    protected CompletableFuture<Map<Map.Entry<String, String>, Double>> requestEach(
+            List<Map.Entry<String, String>> locations,
+            WeatherClient client
+    ) {
+        return WeatherProvider.super.requestTemperatures(locations, client);
+    }
+
+    /**
+     * Объединяет результат пакетного запроса с результатами отдельных запросов
+     * для локаций, которые нельзя запросить пакетом.
+     * Ошибка пакетного запроса завершает результат ошибкой, чтобы она была учтена в состоянии сервиса,
+     * отсутствие в ответе отдельных локаций ошибкой не считается.
+     *
+     * @param batch   пакетный запрос
+     * @param singles локации для отдельных запросов
+     * @param client  HTTP клиент
+     * @return значения температуры по локациям
+     */
+    protected CompletableFuture<Map<Map.Entry<String, String>, Double>> combine(
+            CompletableFuture<Map<Map.Entry<String, String>, Double>> batch,
+            List<Map.Entry<String, String>> singles,
+            WeatherClient client
+    ) {
+        return batch.thenCombine(requestEach(singles, client), (batchResult, singlesResult) -> {
+            Map<Map.Entry<String, String>, Double> result = new HashMap<>(batchResult);
+            result.putAll(singlesResult);
+            return result;
+        });
+    }
+
+    /**
+     * Проверяет, что сервис вернул ответ.
+     */
+    protected <R> R checkResponse(R dto) {
+        if (dto == null) {
+            log.error(
+                    "При запросе к сервису {} был получен не корректный результат.",
+                    name
+            );
+            throw new IncorrectResponseException("В ответ на запрос получен не корректный результат.");
+        }
+        return dto;
+    }
+
+    @Override
+    public CompletableFuture<Double> requestTemperature(Map.Entry<String, String> location, WeatherClient client) {
+        if (uriTemplate == null) {
+            throw new IllegalStateException("Не задан url для сервиса " + name);
+        }
+        String url = uriTemplate.expand(location.getKey()).toUriString();
+        log.debug(
+                "Сформированный URL для запроса температуры в локации {}: {}",
+                location,
+                url
+        );
+        return client.get(url, responseType).thenApply(dto -> extractTemperature(checkResponse(dto)));
+    }
+}
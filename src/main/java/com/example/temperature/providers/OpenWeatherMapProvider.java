@@ -0,0 +1,90 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.OpenWeatherMapDto;
+import com.example.temperature.dto.OpenWeatherMapGroupDto;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Источник температуры openweathermap.org
+ * Локации с известным идентификатором города запрашиваются пакетом через endpoint group (до 20 городов).
+ */
+@Component
+public class OpenWeatherMapProvider extends AbstractWeatherProvider<OpenWeatherMapDto> {
+    private static final int GROUP_SIZE = 20;
+
+    private final UriComponents groupUriTemplate;
+
+    public OpenWeatherMapProvider(WeatherProperties properties) {
+        super("openweathermap", OpenWeatherMapDto.class, properties, GROUP_SIZE);
+        Map<String, String> source = getSource();
+        this.groupUriTemplate = source.containsKey("url")
+                ? UriComponentsBuilder
+                .fromHttpUrl(source.getOrDefault("batch-url", source.get("url").replaceFirst("/weather$", "/group")))
+                .queryParam("appid", source.get("key"))
+                .queryParam("id", "{ids}")
+                .queryParam("units", "metric")
+                .encode().build()
+                : null;
+    }
+
+    @Override
+    protected UriComponentsBuilder uriTemplate(UriComponentsBuilder builder, Map<String, String> source) {
+        return builder
+                .queryParam("appid", source.get("key"))
+                .queryParam("q", LOCATION)
+                .queryParam("units", "metric");
+    }
+
+    @Override
+    protected Double extractTemperature(OpenWeatherMapDto dto) {
+        return dto.getTemperature();
+    }
+
+    @Override
+    public CompletableFuture<Map<Map.Entry<String, String>, Double>> requestTemperatures(
+            List<Map.Entry<String, String>> locations,
+            WeatherClient client
+    ) {
+        Map<String, Map.Entry<String, String>> byId = new LinkedHashMap<>();
+        List<Map.Entry<String, String>> singles = new ArrayList<>();
+        for (Map.Entry<String, String> location : locations) {
+            String id = getCityId(location);
+            if (id != null && groupUriTemplate != null) {
+                byId.put(id, location);
+            } else {
+                singles.add(location);
+            }
+        }
+        if (byId.size() < 2) {
+            return requestEach(locations, client);
+        }
+
+        String url = groupUriTemplate.expand(String.join(",", byId.keySet())).toUriString();
+        CompletableFuture<Map<Map.Entry<String, String>, Double>> group = client
+                .get(url, OpenWeatherMapGroupDto.class)
+                .thenApply(dto -> {
+                    Map<Map.Entry<String, String>, Double> result = new HashMap<>();
+                    if (checkResponse(dto).getList() != null) {
+                        for (OpenWeatherMapDto item : dto.getList()) {
+                            Map.Entry<String, String> location = byId.get(String.valueOf(item.getId()));
+                            if (location != null) {
+                                result.put(location, item.getTemperature());
+                            }
+                        }
+                    }
+                    return result;
+                });
+        return combine(group, singles, client);
+    }
+}
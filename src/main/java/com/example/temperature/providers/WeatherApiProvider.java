@@ -0,0 +1,88 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.WeatherApiBulkDto;
+import com.example.temperature.dto.WeatherApiDto;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Источник температуры www.weatherapi.com
+ * Несколько локаций запрашиваются одним bulk запросом (до 50 локаций).
+ */
+@Component
+public class WeatherApiProvider extends AbstractWeatherProvider<WeatherApiDto> {
+    private static final int BULK_SIZE = 50;
+
+    private final String bulkUrl;
+
+    public WeatherApiProvider(WeatherProperties properties) {
+        super("weatherapi", WeatherApiDto.class, properties, BULK_SIZE);
+        Map<String, String> source = getSource();
+        this.bulkUrl = source.containsKey("url")
+                ? UriComponentsBuilder.fromHttpUrl(source.get("url"))
+                .queryParam("key", source.get("key"))
+                .queryParam("q", "bulk")
+                .encode().toUriString()
+                : null;
+    }
+
+    @Override
+    protected UriComponentsBuilder uriTemplate(UriComponentsBuilder builder, Map<String, String> source) {
+        return builder
+                .queryParam("key", source.get("key"))
+                .queryParam("q", LOCATION);
+    }
+
+    @Override
+    protected Double extractTemperature(WeatherApiDto dto) {
+        return dto.getTemperature();
+    }
+
+    @Override
+    public CompletableFuture<Map<Map.Entry<String, String>, Double>> requestTemperatures(
+            List<Map.Entry<String, String>> locations,
+            WeatherClient client
+    ) {
+        if (locations.size() < 2 || bulkUrl == null) {
+            return requestEach(locations, client);
+        }
+
+        Map<String, Map.Entry<String, String>> byCustomId = new LinkedHashMap<>();
+        List<Map<String, String>> queries = new ArrayList<>(locations.size());
+        for (Map.Entry<String, String> location : locations) {
+            byCustomId.put(location.getKey(), location);
+            Map<String, String> query = new HashMap<>();
+            query.put("q", location.getKey());
+            query.put("custom_id", location.getKey());
+            queries.add(query);
+        }
+
+        return client
+                .post(bulkUrl, Collections.singletonMap("locations", queries), WeatherApiBulkDto.class)
+                .thenApply(dto -> {
+                    Map<Map.Entry<String, String>, Double> result = new HashMap<>();
+                    if (checkResponse(dto).getBulk() != null) {
+                        for (WeatherApiBulkDto.Item item : dto.getBulk()) {
+                            if (item.getQuery() == null) {
+                                continue;
+                            }
+                            Map.Entry<String, String> location = byCustomId.get(item.getQuery().getCustomId());
+                            if (location != null) {
+                                result.put(location, item.getQuery().getTemperature());
+                            }
+                        }
+                    }
+                    return result;
+                });
+    }
+}
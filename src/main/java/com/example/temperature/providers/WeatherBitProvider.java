@@ -0,0 +1,135 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.WeatherBitBatchDto;
+import com.example.temperature.dto.WeatherBitDto;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Источник температуры www.weatherbit.io
+ * Локации с известным идентификатором города запрашиваются пакетом через параметр cities.
+ * Ответ не содержит идентификатор города, поэтому результат сопоставляется по названию города и коду страны.
+ * Локация, страну которой не удалось перевести в код, сопоставляется только по названию города,
+ * поэтому она попадает в пакет, только если других локаций с таким городом в пакете нет.
+ */
+@Component
+public class WeatherBitProvider extends AbstractWeatherProvider<WeatherBitDto> {
+    private static final int CITIES_SIZE = 20;
+    /**
+     * Коды стран ISO 3166 по английскому названию страны в нижнем регистре.
+     */
+    private static final Map<String, String> COUNTRY_CODES = new HashMap<>();
+
+    static {
+        for (String code : Locale.getISOCountries()) {
+            COUNTRY_CODES.put(new Locale("", code).getDisplayCountry(Locale.ENGLISH).toLowerCase(Locale.ROOT), code);
+        }
+    }
+
+    private final UriComponents citiesUriTemplate;
+
+    public WeatherBitProvider(WeatherProperties properties) {
+        super("weatherbit", WeatherBitDto.class, properties, CITIES_SIZE);
+        Map<String, String> source = getSource();
+        this.citiesUriTemplate = source.containsKey("url")
+                ? UriComponentsBuilder.fromHttpUrl(source.get("url"))
+                .queryParam("key", source.get("key"))
+                .queryParam("cities", "{ids}")
+                .encode().build()
+                : null;
+    }
+
+    @Override
+    protected UriComponentsBuilder uriTemplate(UriComponentsBuilder builder, Map<String, String> source) {
+        return builder
+                .queryParam("key", source.get("key"))
+                .queryParam("city", LOCATION);
+    }
+
+    @Override
+    protected Double extractTemperature(WeatherBitDto dto) {
+        return dto.getTemperature();
+    }
+
+    @Override
+    public CompletableFuture<Map<Map.Entry<String, String>, Double>> requestTemperatures(
+            List<Map.Entry<String, String>> locations,
+            WeatherClient client
+    ) {
+        Map<String, Integer> cities = new HashMap<>();
+        locations.forEach(location -> cities.merge(location.getKey().toLowerCase(Locale.ROOT), 1, Integer::sum));
+        Set<String> ids = new LinkedHashSet<>();
+        Map<String, Map.Entry<String, String>> byName = new HashMap<>();
+        List<Map.Entry<String, String>> singles = new ArrayList<>();
+        for (Map.Entry<String, String> location : locations) {
+            String id = getCityId(location);
+            String city = location.getKey().toLowerCase(Locale.ROOT);
+            String countryCode = countryCode(location.getValue());
+            if (id != null && citiesUriTemplate != null && (countryCode != null || cities.get(city) == 1)) {
+                ids.add(id);
+                byName.put(key(city, countryCode), location);
+            } else {
+                singles.add(location);
+            }
+        }
+        if (ids.size() < 2) {
+            return requestEach(locations, client);
+        }
+
+        String url = citiesUriTemplate.expand(String.join(",", ids)).toUriString();
+        CompletableFuture<Map<Map.Entry<String, String>, Double>> batch = client
+                .get(url, WeatherBitBatchDto.class)
+                .thenApply(dto -> {
+                    Map<Map.Entry<String, String>, Double> result = new HashMap<>();
+                    if (checkResponse(dto).getData() != null) {
+                        for (WeatherBitBatchDto.Item item : dto.getData()) {
+                            if (item.getCity() == null) {
+                                continue;
+                            }
+                            String city = item.getCity().toLowerCase(Locale.ROOT);
+                            Map.Entry<String, String> location = item.getCountryCode() != null
+                                    ? byName.get(key(city, item.getCountryCode().toUpperCase(Locale.ROOT)))
+                                    : null;
+                            if (location == null) {
+                                location = byName.get(key(city, null));
+                            }
+                            if (location != null) {
+                                result.put(location, item.getTemperature());
+                            }
+                        }
+                    }
+                    return result;
+                });
+        return combine(batch, singles, client);
+    }
+
+    private static String key(String city, String countryCode) {
+        return countryCode != null ? city + "," + countryCode : city;
+    }
+
+    /**
+     * @param country название страны на английском или код ISO 3166
+     * @return код страны или null, если страна не найдена
+     */
+    static String countryCode(String country) {
+        if (country == null) {
+            return null;
+        }
+        if (country.length() == 2) {
+            return country.toUpperCase(Locale.ROOT);
+        }
+        return COUNTRY_CODES.get(country.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Источник данных о температуре.
+ * Реализации регистрируются как бины и сопоставляются с weather.sources по имени.
+ */
+public interface WeatherProvider {
+    /**
+     * @return имя сервиса, совпадающее с ключом в weather.sources
+     */
+    String getName();
+
+    /**
+     * Запрашивает текущую температуру в локации.
+     *
+     * @param location город и страна
+     * @param client   HTTP клиент
+     * @return значение температуры
+     */
+    CompletableFuture<Double> requestTemperature(Map.Entry<String, String> location, WeatherClient client);
+
+    /**
+     * Запрашивает текущую температуру в нескольких локациях.
+     * По умолчанию выполняет отдельный запрос для каждой локации.
+     * Локации, для которых не удалось получить температуру, в результат не попадают.
+     * Если не удалось получить температуру ни для одной локации, результат завершается ошибкой.
+     *
+     * @param locations список городов и стран
+     * @param client    HTTP клиент
+     * @return значения температуры по локациям
+     */
+    default CompletableFuture<Map<Map.Entry<String, String>, Double>> requestTemperatures(
+            List<Map.Entry<String, String>> locations,
+            WeatherClient client
+    ) {
+        Map<Map.Entry<String, String>, Double> result = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] futures = new CompletableFuture[locations.size()];
+        for (int i = 0; i < futures.length; i++) {
+            Map.Entry<String, String> location = locations.get(i);
+            CompletableFuture<Double> future;
+            try {
+                future = requestTemperature(location, client);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            futures[i] = future.thenAccept(temperature -> result.put(location, temperature));
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignored -> result).exceptionally(e -> {
+            if (result.isEmpty()) {
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @return количество одновременных запросов к сервису
+     */
+    int getMaxConcurrency();
+
+    /**
+     * @return максимальное количество локаций в одном запросе, 1 если сервис не поддерживает пакетные запросы
+     */
+    default int getMaxBatchSize() {
+        return 1;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.configuration.WeatherProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Реестр источников температуры, настроенных в weather.sources.
+ */
+@Slf4j
+@Component
+public class WeatherProviderRegistry {
+    private final Map<String, WeatherProvider> providers = new LinkedHashMap<>();
+
+    public WeatherProviderRegistry(Collection<WeatherProvider> providers, WeatherProperties properties) {
+        Map<String, WeatherProvider> available = new HashMap<>();
+        providers.forEach(provider -> available.put(provider.getName(), provider));
+        if (properties.getSources() != null) {
+            for (String name : properties.getSources().keySet()) {
+                WeatherProvider provider = available.get(name);
+                if (provider != null) {
+                    this.providers.put(name, provider);
+                } else {
+                    log.warn(
+                            "Для сервиса {} не найдена реализация источника температуры",
+                            name
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name имя сервиса
+     * @return источник температуры
+     * @throws IllegalStateException если источник с таким именем не настроен
+     */
+    public WeatherProvider get(String name) {
+        WeatherProvider provider = providers.get(name);
+        if (provider == null) {
+            throw new IllegalStateException("Unexpected value: " + name);
+        }
+        return provider;
+    }
+
+    /**
+     * @return имена настроенных сервисов в порядке их перечисления в weather.sources
+     */
+    public Collection<String> getNames() {
+        return Collections.unmodifiableSet(providers.keySet());
+    }
+}
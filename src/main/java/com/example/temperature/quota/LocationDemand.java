@@ -0,0 +1,53 @@
+package com.example.temperature.quota;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчик запросов температуры по локациям.
+ * Раз в час счетчики уменьшаются вдвое, чтобы приоритет определялся недавним спросом.
+ */
+@Component
+public class LocationDemand {
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+
+    /**
+     * @param location город или страна из запроса
+     */
+    public void record(String location) {
+        if (location == null) {
+            return;
+        }
+        requests.computeIfAbsent(key(location), key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * @param location город и страна
+     * @return количество недавних запросов по городу и по его стране
+     */
+    public long get(Map.Entry<String, String> location) {
+        return get(location.getKey()) + get(location.getValue());
+    }
+
+    @Scheduled(fixedRate = 3_600_000, initialDelay = 3_600_000)
+    public void decay() {
+        requests.values().removeIf(counter -> counter.updateAndGet(value -> value / 2) == 0);
+    }
+
+    private long get(String location) {
+        if (location == null) {
+            return 0;
+        }
+        AtomicLong counter = requests.get(key(location));
+        return counter != null ? counter.get() : 0;
+    }
+
+    private static String key(String location) {
+        return location.trim().toLowerCase(Locale.ROOT);
+    }
+}
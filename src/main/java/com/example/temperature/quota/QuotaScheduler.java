@@ -0,0 +1,200 @@
+package com.example.temperature.quota;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.locations.LocationRemovedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Планирование запросов с учетом квот сервисов погоды.
+ * Ограничения задаются в weather.sources.[name]: requests-per-minute, requests-per-day и burst.
+ * Запросы расходуют токены из корзины сервиса, которая пополняется равномерно,
+ * поэтому квота расходуется в течение всего периода, а не в начале каждой минуты или дня.
+ * Если токенов на все локации не хватает, первыми запрашиваются локации, пропущенные в прошлые запуски,
+ * затем локации, которые давно не обновлялись и которые чаще запрашивают пользователи.
+ * Запрос, завершившийся ошибкой, расходует квоту так же, как успешный, поэтому локация после ошибки
+ * не считается пропущенной и не занимает начало очереди в каждом запуске.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuotaScheduler {
+    private static final double SECONDS_PER_MINUTE = 60;
+    private static final double SECONDS_PER_DAY = 86_400;
+    /**
+     * Всплеск по умолчанию - количество запросов за 5 секунд, интервал запуска задачи по умолчанию.
+     */
+    private static final double DEFAULT_BURST_SECONDS = 5;
+
+    private final WeatherProperties properties;
+    private final LocationDemand locationDemand;
+
+    private final Map<String, Optional<TokenBucket>> buckets = new ConcurrentHashMap<>();
+    /**
+     * Время последнего запроса локации, успешного или завершившегося ошибкой, по сервисам.
+     */
+    private final Map<String, Map<Map.Entry<String, String>, Long>> fetchedAt = new ConcurrentHashMap<>();
+    /**
+     * Локации, переданные на запрос, но еще не получившие значение, по сервисам.
+     */
+    private final Map<String, Set<Map.Entry<String, String>>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Упорядочивает локации по приоритету обновления для сервиса.
+     * Первыми идут локации, пропущенные в прошлые запуски из-за квоты или ошибки,
+     * начиная с давнее всего обновлявшейся, остальные - по возрасту последнего значения, умноженному на спрос.
+     * Локации без значений идут первыми в своей группе.
+     *
+     * @param source    имя сервиса
+     * @param locations локации
+     * @return локации в порядке убывания приоритета
+     */
+    public List<Map.Entry<String, String>> prioritize(String source, Collection<Map.Entry<String, String>> locations) {
+        List<Map.Entry<String, String>> result = new ArrayList<>(locations);
+        if (!isLimited(source)) {
+            return result;
+        }
+        Map<Map.Entry<String, String>, Long> fetched = fetchedAt.getOrDefault(source, Collections.emptyMap());
+        Set<Map.Entry<String, String>> requested = pending.computeIfAbsent(source, key -> ConcurrentHashMap.newKeySet());
+        long now = System.nanoTime();
+        Set<Map.Entry<String, String>> skipped = new HashSet<>();
+        Map<Map.Entry<String, String>, Double> priorities = new HashMap<>();
+        for (Map.Entry<String, String> location : result) {
+            Long time = fetched.get(location);
+            double age = time == null ? Double.POSITIVE_INFINITY : (double) (now - time);
+            if (requested.contains(location)) {
+                skipped.add(location);
+                priorities.put(location, age);
+            } else {
+                priorities.put(location, age * (1 + locationDemand.get(location)));
+            }
+        }
+        result.sort(Comparator.<Map.Entry<String, String>, Boolean>comparing(skipped::contains)
+                .thenComparing(priorities::get)
+                .reversed());
+        requested.addAll(result);
+        return result;
+    }
+
+    /**
+     * @param source имя сервиса
+     * @return true, если квота сервиса позволяет отправить запрос
+     */
+    public boolean tryAcquire(String source) {
+        Optional<TokenBucket> bucket = bucket(source);
+        if (bucket.isPresent() && !bucket.get().tryAcquire()) {
+            log.debug(
+                    "Квота сервиса {} исчерпана, запрос отложен",
+                    source
+            );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param source   имя сервиса
+     * @param location локация, для которой получено значение температуры
+     */
+    public void onFetched(String source, Map.Entry<String, String> location) {
+        onRequested(source, location);
+    }
+
+    /**
+     * Запрос завершился ошибкой, не вернул значение или ответ получен после окончания отведенного времени.
+     *
+     * @param source   имя сервиса
+     * @param location локация, для которой не получено значение температуры
+     */
+    public void onFailed(String source, Map.Entry<String, String> location) {
+        onRequested(source, location);
+    }
+
+    private void onRequested(String source, Map.Entry<String, String> location) {
+        if (isLimited(source)) {
+            fetchedAt.computeIfAbsent(source, key -> new ConcurrentHashMap<>()).put(location, System.nanoTime());
+            Set<Map.Entry<String, String>> requested = pending.get(source);
+            if (requested != null) {
+                requested.remove(location);
+            }
+        }
+    }
+
+    /**
+     * Локация передана на запрос, но не запрошена хотя бы в одном сервисе с квотой:
+     * квота исчерпана или время запуска закончилось раньше, чем до нее дошла очередь.
+     * Запросы, завершившиеся ошибкой или после окончания времени, пропуском не считаются.
+     *
+     * @param location локация
+     * @return true, если локация пропущена в последнем запуске
+     */
+    public boolean isDeferred(Map.Entry<String, String> location) {
+        for (Set<Map.Entry<String, String>> requested : pending.values()) {
+            if (requested.contains(location)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Удаляет время обновления и отметку пропуска удаленной локации.
+     */
+    @EventListener
+    public void onLocationRemoved(LocationRemovedEvent event) {
+        Map.Entry<String, String> location = event.getLocation();
+        fetchedAt.values().forEach(fetched -> fetched.remove(location));
+        pending.values().forEach(requested -> requested.remove(location));
+    }
+
+    private boolean isLimited(String source) {
+        return bucket(source).isPresent();
+    }
+
+    private Optional<TokenBucket> bucket(String source) {
+        return buckets.computeIfAbsent(source, this::createBucket);
+    }
+
+    /**
+     * Скорость пополнения - меньшая из минутной и дневной квоты в пересчете на секунду.
+     */
+    private Optional<TokenBucket> createBucket(String source) {
+        Map<String, String> settings = properties.getSources() != null
+                ? properties.getSources().getOrDefault(source, Collections.emptyMap())
+                : Collections.<String, String>emptyMap();
+        double rate = Double.POSITIVE_INFINITY;
+        if (settings.containsKey("requests-per-minute")) {
+            rate = Math.min(rate, Double.parseDouble(settings.get("requests-per-minute")) / SECONDS_PER_MINUTE);
+        }
+        if (settings.containsKey("requests-per-day")) {
+            rate = Math.min(rate, Double.parseDouble(settings.get("requests-per-day")) / SECONDS_PER_DAY);
+        }
+        if (Double.isInfinite(rate)) {
+            return Optional.empty();
+        }
+        double burst = settings.containsKey("burst")
+                ? Double.parseDouble(settings.get("burst"))
+                : Math.max(1, Math.floor(rate * DEFAULT_BURST_SECONDS));
+        log.info(
+                "Квота сервиса {}: {} запросов в секунду, всплеск до {} запросов",
+                source,
+                rate,
+                burst
+        );
+        return Optional.of(new TokenBucket(rate, burst));
+    }
+}
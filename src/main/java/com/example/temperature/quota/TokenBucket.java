@@ -0,0 +1,60 @@
+package com.example.temperature.quota;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Корзина токенов: пополняется равномерно со скоростью rate в секунду, но не больше capacity.
+ * Каждый запрос к сервису забирает один токен, при пустой корзине запрос не отправляется.
+ */
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double ratePerNano;
+    private final double capacity;
+    private final LongSupplier nanoTime;
+
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param ratePerSecond количество токенов, добавляемых в секунду
+     * @param capacity      максимальное количество токенов, допустимый всплеск запросов
+     */
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this(ratePerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, double capacity, LongSupplier nanoTime) {
+        this.ratePerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.capacity = capacity;
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * @return true, если токен получен
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * @return количество целых токенов, доступных сейчас
+     */
+    public synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,469 @@
+package com.example.temperature.readings;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.locations.LocationRemovedEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Хранение повторяющихся значений температуры интервалами.
+ * Сервисы погоды обновляют данные реже, чем выполняется опрос, поэтому значение локации часто совпадает
+ * с предыдущим. Такое значение не вставляется отдельной записью, а продлевает открытый интервал
+ * предыдущей записи: time_create - время первого значения, valid_to - последнего, samples - количество.
+ * Значение, полученное позже последнего больше чем на max-gap, например, после неудачных опросов,
+ * начинает новую запись, поэтому пропуски в данных не скрываются интервалом. max-gap считается по расписанию
+ * локации: от ее периода опроса и от последнего запуска, в котором локация не запрошена из-за квоты.
+ * Открытые интервалы хранятся в памяти экземпляра, опрашивающего локацию, и записываются в бд
+ * при смене значения или раз в flush-interval. Интервалы удаленных локаций и локаций,
+ * перешедших к другому экземпляру, закрываются.
+ * При чтении интервал разворачивается обратно в значения, равномерно распределенные по интервалу:
+ * точно хранится только время первого и последнего значения, время промежуточных значений синтезируется
+ * и не совпадает со временем опроса.
+ */
+@Component
+public class ReadingIntervals {
+    private static final Comparator<TemperatureEntity> BY_TIME = Comparator
+            .comparing(TemperatureEntity::getTimeCreate)
+            .thenComparing(TemperatureEntity::getLocationId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final WeatherProperties.Intervals settings;
+    private final Duration defaultPollInterval;
+    private final Function<Integer, Duration> pollInterval;
+    private final LongSupplier nanoTime;
+    private final Map<Integer, Interval> open = new ConcurrentHashMap<>();
+    /**
+     * Время последнего запуска, в котором локация не запрошена из-за квоты сервисов, по локациям.
+     */
+    private final Map<Integer, LocalDateTime> skippedAt = new ConcurrentHashMap<>();
+    /**
+     * Записи интервалов удаленных локаций, еще не записанные в бд.
+     */
+    private final List<TemperatureEntity> closed = new ArrayList<>();
+
+    @Autowired
+    public ReadingIntervals(WeatherProperties properties, LocationDirectory locationDirectory) {
+        this(properties, locationDirectory::pollInterval, System::nanoTime);
+    }
+
+    ReadingIntervals(
+            WeatherProperties properties,
+            Function<Integer, Duration> pollInterval,
+            LongSupplier nanoTime
+    ) {
+        this.settings = properties.getIntervals();
+        this.defaultPollInterval = properties.getRegistry().getDefaultPollInterval();
+        this.pollInterval = pollInterval;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Начало чтения записей для периода: интервал записи, начатой раньше периода, может попадать в период.
+     *
+     * @param start начало периода
+     * @return время, не позже которого начинаются все записи со значениями в периоде
+     */
+    public LocalDateTime lookback(LocalDateTime start) {
+        return start.minus(settings.getMaxInterval());
+    }
+
+    /**
+     * @return максимальная длительность интервала одной записи
+     */
+    public Duration getMaxInterval() {
+        return settings.getMaxInterval();
+    }
+
+    /**
+     * Разделяет новые значения на вставляемые записи и продлеваемые интервалы.
+     * Значения одной локации должны сохраняться одним потоком, план применяется после фиксации
+     * транзакции методом {@link #commit(Plan)}. Если транзакция откатилась, план отбрасывается.
+     *
+     * @param readings значения с заполненным идентификатором локации в порядке получения
+     * @return записи для вставки и интервалы, которые нужно обновить в бд
+     */
+    public synchronized Plan plan(Collection<TemperatureEntity> readings) {
+        if (!settings.isEnabled()) {
+            return new Plan(new ArrayList<>(readings), Collections.emptyList(), Collections.emptyMap());
+        }
+        long now = nanoTime.getAsLong();
+        List<TemperatureEntity> inserts = new ArrayList<>();
+        Map<Integer, Interval> changed = new HashMap<>();
+        List<TemperatureEntity> updates = new ArrayList<>();
+        for (TemperatureEntity reading : readings) {
+            Integer id = reading.getLocationId();
+            Interval current = changed.containsKey(id) ? changed.get(id) : open.get(id);
+            if (current != null
+                    && current.canExtend(reading, settings.getMaxInterval(), maxGap(id), skippedAt.get(id))) {
+                changed.put(id, current.extend(reading.getTimeCreate()));
+                continue;
+            }
+            if (current != null && current.isDirty()) {
+                updates.add(current.row);
+            }
+            inserts.add(reading);
+            changed.put(id, new Interval(row(reading, reading.getTimeCreate(), 1), 1, now));
+        }
+        long flushNanos = settings.getFlushInterval().toNanos();
+        for (Map.Entry<Integer, Interval> entry : changed.entrySet()) {
+            Interval interval = entry.getValue();
+            if (interval.isDirty() && now - interval.flushedAt >= flushNanos) {
+                updates.add(interval.row);
+                entry.setValue(interval.flushed(now));
+            }
+        }
+        return new Plan(inserts, updates, changed);
+    }
+
+    /**
+     * Отмечает запуск, в котором срок опроса локации наступил, но она не запрошена из-за квоты сервисов.
+     * Промежуток до следующего значения отсчитывается от этого запуска, поэтому пропуск из-за квоты
+     * не начинает новую запись, в отличие от неудачного запроса.
+     *
+     * @param id   идентификатор локации
+     * @param time время запуска
+     */
+    public void skip(Integer id, LocalDateTime time) {
+        if (settings.isEnabled()) {
+            skippedAt.merge(id, time, (first, second) -> second.isAfter(first) ? second : first);
+        }
+    }
+
+    /**
+     * Применяет план после фиксации транзакции.
+     */
+    public synchronized void commit(Plan plan) {
+        open.putAll(plan.intervals);
+    }
+
+    /**
+     * Интервалы, продленные после последней записи в бд, например, для записи при остановке.
+     * Интервалы считаются записанными.
+     *
+     * @return записи интервалов для обновления в бд
+     */
+    public synchronized List<TemperatureEntity> drain() {
+        long now = nanoTime.getAsLong();
+        List<TemperatureEntity> updates = new ArrayList<>(closed);
+        closed.clear();
+        for (Map.Entry<Integer, Interval> entry : open.entrySet()) {
+            if (entry.getValue().isDirty()) {
+                updates.add(entry.getValue().row);
+                entry.setValue(entry.getValue().flushed(now));
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * Интервалы, которые не записывались в бд дольше flush-interval, например, потому что локация
+     * больше не опрашивается. Интервалы локаций, которые не принадлежат этому экземпляру, закрываются.
+     * Интервалы считаются записанными.
+     *
+     * @param owned true для локаций, которые опрашивает этот экземпляр
+     * @return записи интервалов для обновления в бд
+     */
+    public synchronized List<TemperatureEntity> flush(Predicate<Integer> owned) {
+        long now = nanoTime.getAsLong();
+        long flushNanos = settings.getFlushInterval().toNanos();
+        List<TemperatureEntity> updates = new ArrayList<>(closed);
+        closed.clear();
+        for (Iterator<Map.Entry<Integer, Interval>> iterator = open.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Integer, Interval> entry = iterator.next();
+            Interval interval = entry.getValue();
+            boolean close = !owned.test(entry.getKey());
+            if (interval.isDirty() && (close || now - interval.flushedAt >= flushNanos)) {
+                updates.add(interval.row);
+                entry.setValue(interval.flushed(now));
+            }
+            if (close) {
+                iterator.remove();
+            }
+        }
+        skippedAt.keySet().removeIf(id -> !open.containsKey(id));
+        return updates;
+    }
+
+    /**
+     * Закрывает интервал удаленной локации, продленная часть записывается следующим {@link #flush(Predicate)}.
+     */
+    @EventListener
+    public synchronized void onLocationRemoved(LocationRemovedEvent event) {
+        Integer id = Math.toIntExact(event.getId());
+        skippedAt.remove(id);
+        Interval interval = open.remove(id);
+        if (interval != null && interval.isDirty()) {
+            closed.add(interval.row);
+        }
+    }
+
+    /**
+     * @return количество открытых интервалов
+     */
+    public int size() {
+        return open.size();
+    }
+
+    /**
+     * Значения записи. Если интервал записи открыт на этом экземпляре, учитываются значения,
+     * еще не записанные в бд. Время первого и последнего значения точное, время промежуточных
+     * синтезируется равномерным распределением между ними.
+     *
+     * @param row запись из бд
+     * @return значения в порядке времени, для записи с одним значением - сама запись
+     */
+    public List<TemperatureEntity> expand(TemperatureEntity row) {
+        TemperatureEntity current = current(row);
+        if (current.getSamples() <= 1 || current.getValidTo() == null) {
+            return Collections.singletonList(current);
+        }
+        int samples = current.getSamples();
+        long span = ChronoUnit.NANOS.between(current.getTimeCreate(), current.getValidTo());
+        List<TemperatureEntity> result = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            LocalDateTime time = i == samples - 1
+                    ? current.getValidTo()
+                    : current.getTimeCreate().plusNanos(span / (samples - 1) * i).truncatedTo(ChronoUnit.MICROS);
+            result.add(sample(current, time));
+        }
+        return result;
+    }
+
+    /**
+     * Значения записей в порядке времени и локации.
+     *
+     * @param rows записи из бд
+     * @return значения всех записей
+     */
+    public List<TemperatureEntity> expand(Collection<TemperatureEntity> rows) {
+        List<TemperatureEntity> result = new ArrayList<>(rows.size());
+        rows.forEach(row -> result.addAll(expand(row)));
+        result.sort(BY_TIME);
+        return result;
+    }
+
+    /**
+     * Последнее значение записи.
+     *
+     * @param row запись из бд
+     * @return значение в конце интервала
+     */
+    public TemperatureEntity last(TemperatureEntity row) {
+        TemperatureEntity current = current(row);
+        return current.getValidTo() == null ? current : sample(current, current.getValidTo());
+    }
+
+    /**
+     * Значения записей, прочитанных курсором в порядке time_create, в порядке времени.
+     * Значения записи не раньше ее time_create, поэтому в памяти держатся только значения,
+     * время которых еще может совпасть со значениями непрочитанных записей.
+     *
+     * @param rows  записи в порядке time_create
+     * @param start начало периода
+     * @param end   конец периода, не включается
+     * @return значения в периоде
+     */
+    public Iterator<TemperatureEntity> expand(
+            Iterator<TemperatureEntity> rows,
+            LocalDateTime start,
+            LocalDateTime end
+    ) {
+        return new Iterator<TemperatureEntity>() {
+            private final PriorityQueue<TemperatureEntity> pending = new PriorityQueue<>(BY_TIME);
+            private LocalDateTime lastRowTime;
+
+            @Override
+            public boolean hasNext() {
+                while (true) {
+                    while (rows.hasNext() && (pending.isEmpty() || !isBeforeUnread(pending.peek()))) {
+                        TemperatureEntity row = rows.next();
+                        lastRowTime = row.getTimeCreate();
+                        pending.addAll(expand(row));
+                    }
+                    TemperatureEntity next = pending.peek();
+                    if (next == null) {
+                        return false;
+                    }
+                    if (!next.getTimeCreate().isBefore(start) && next.getTimeCreate().isBefore(end)) {
+                        return true;
+                    }
+                    pending.poll();
+                }
+            }
+
+            @Override
+            public TemperatureEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pending.poll();
+            }
+
+            /**
+             * Значения непрочитанных записей не раньше последнего прочитанного time_create.
+             */
+            private boolean isBeforeUnread(TemperatureEntity sample) {
+                return sample.getTimeCreate().isBefore(lastRowTime);
+            }
+        };
+    }
+
+    /**
+     * Наибольший промежуток между значениями интервала локации: max-gap, если задан,
+     * иначе полтора периода опроса локации.
+     */
+    private Duration maxGap(Integer id) {
+        if (settings.getMaxGap() != null) {
+            return settings.getMaxGap();
+        }
+        Duration interval = pollInterval.apply(id);
+        return (interval != null ? interval : defaultPollInterval).multipliedBy(3).dividedBy(2);
+    }
+
+    /**
+     * Запись с учетом открытого интервала этого экземпляра.
+     */
+    private TemperatureEntity current(TemperatureEntity row) {
+        Interval interval = row.getLocationId() != null ? open.get(row.getLocationId()) : null;
+        if (interval == null
+                || !interval.row.getTimeCreate().equals(row.getTimeCreate())
+                || interval.row.getSamples() <= row.getSamples()) {
+            return row;
+        }
+        TemperatureEntity current = sample(row, row.getTimeCreate());
+        current.setValidTo(interval.row.getValidTo());
+        current.setSamples(interval.row.getSamples());
+        return current;
+    }
+
+    private static TemperatureEntity sample(TemperatureEntity row, LocalDateTime time) {
+        TemperatureEntity sample = new TemperatureEntity();
+        sample.setLocationId(row.getLocationId());
+        sample.setCity(row.getCity());
+        sample.setCountry(row.getCountry());
+        sample.setTemperature(row.getTemperature());
+        sample.setTimeCreate(time);
+        return sample;
+    }
+
+    private static TemperatureEntity row(TemperatureEntity reading, LocalDateTime validTo, int samples) {
+        TemperatureEntity row = sample(reading, reading.getTimeCreate());
+        row.setValidTo(samples > 1 ? validTo : null);
+        row.setSamples(samples);
+        return row;
+    }
+
+    /**
+     * Записи для сохранения одной транзакцией.
+     */
+    @RequiredArgsConstructor
+    public static class Plan {
+        /**
+         * Значения, которые вставляются новыми записями.
+         */
+        @Getter
+        private final List<TemperatureEntity> inserts;
+        /**
+         * Записи, у которых нужно обновить valid_to и samples.
+         */
+        @Getter
+        private final List<TemperatureEntity> updates;
+        private final Map<Integer, Interval> intervals;
+
+        /**
+         * Записи, которые изменяет план: вставленные, обновленные и открытые интервалы.
+         * Для записи, которая изменялась несколько раз, возвращается последнее состояние.
+         *
+         * @return записи в порядке первого изменения
+         */
+        public List<TemperatureEntity> getRows() {
+            Map<Map.Entry<Integer, LocalDateTime>, TemperatureEntity> rows = new LinkedHashMap<>();
+            List<TemperatureEntity> changed = new ArrayList<>(updates);
+            changed.addAll(inserts);
+            intervals.values().forEach(interval -> changed.add(interval.row));
+            for (TemperatureEntity row : changed) {
+                rows.merge(
+                        new AbstractMap.SimpleImmutableEntry<>(row.getLocationId(), row.getTimeCreate()),
+                        row,
+                        (first, second) -> second.getSamples() > first.getSamples() ? second : first
+                );
+            }
+            return new ArrayList<>(rows.values());
+        }
+    }
+
+    /**
+     * Открытый интервал локации. Не изменяется после создания.
+     */
+    static final class Interval {
+        private final TemperatureEntity row;
+        private final int flushedSamples;
+        private final long flushedAt;
+
+        private Interval(TemperatureEntity row, int flushedSamples, long flushedAt) {
+            this.row = row;
+            this.flushedSamples = flushedSamples;
+            this.flushedAt = flushedAt;
+        }
+
+        /**
+         * Значение продлевает интервал, если оно совпадает с точностью хранения, получено позже
+         * последнего значения, но не позже чем через maxGap после последнего значения или
+         * пропущенного после него из-за квоты запуска, и интервал не станет длиннее maxInterval.
+         */
+        private boolean canExtend(
+                TemperatureEntity reading,
+                Duration maxInterval,
+                Duration maxGap,
+                LocalDateTime skippedAt
+        ) {
+            LocalDateTime last = row.getValidTo() != null ? row.getValidTo() : row.getTimeCreate();
+            LocalDateTime expected = skippedAt != null && skippedAt.isAfter(last) ? skippedAt : last;
+            return Objects.equals(centi(row.getTemperature()), centi(reading.getTemperature()))
+                    && reading.getTimeCreate().isAfter(last)
+                    && !reading.getTimeCreate().isAfter(expected.plus(maxGap))
+                    && !reading.getTimeCreate().isAfter(row.getTimeCreate().plus(maxInterval));
+        }
+
+        private Interval extend(LocalDateTime time) {
+            return new Interval(row(row, time, row.getSamples() + 1), flushedSamples, flushedAt);
+        }
+
+        private Interval flushed(long now) {
+            return new Interval(row, row.getSamples(), now);
+        }
+
+        private boolean isDirty() {
+            return row.getSamples() > flushedSamples;
+        }
+
+        private static Long centi(Double temperature) {
+            return temperature != null ? Math.round(temperature * 100) : null;
+        }
+    }
+}
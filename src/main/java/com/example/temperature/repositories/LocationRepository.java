@@ -0,0 +1,56 @@
+package com.example.temperature.repositories;
+
+import com.example.temperature.entities.LocationEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Локации изменяются только через LocationService, чтобы удаление было мягким
+ * и изменения доходили до расписания опроса.
+ */
+@RepositoryRestResource(exported = false)
+public interface LocationRepository extends JpaRepository<LocationEntity, Long> {
+    /**
+     * Локации, измененные после заданного момента, включая отключенные и удаленные.
+     */
+    List<LocationEntity> findAllByUpdatedAtAfter(Instant updatedAt);
+
+    Page<LocationEntity> findAllByDeletedFalse(Pageable pageable);
+
+    Optional<LocationEntity> findByIdAndDeletedFalse(Long id);
+
+    Optional<LocationEntity> findByCityAndCountry(String city, String country);
+
+    List<LocationEntity> findAllByCityOrCountry(String city, String country);
+
+    /**
+     * Добавляет локацию, если ее еще нет, в том числе удаленной.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO location (city, country) VALUES (:city, :country) " +
+            "ON CONFLICT (city, country) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("city") String city, @Param("country") String country);
+
+    /**
+     * Добавляет отключенную локацию для записей температуры, если ее еще нет.
+     * Выполняется в отдельной транзакции, чтобы идентификатор оставался действительным
+     * при откате транзакции, сохраняющей записи.
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO location (city, country, enabled) VALUES (:city, :country, false) " +
+            "ON CONFLICT (city, country) DO NOTHING", nativeQuery = true)
+    int insertDisabledIfAbsent(@Param("city") String city, @Param("country") String country);
+}
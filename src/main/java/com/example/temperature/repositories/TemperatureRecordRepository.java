@@ -0,0 +1,310 @@
+package com.example.temperature.repositories;
+
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.dto.TemperatureCursor;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.dto.TemperatureField;
+import com.example.temperature.dto.TemperaturePageDto;
+import com.example.temperature.entities.CentiDegreesConverter;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.readings.ReadingIntervals;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Чтение записей температуры запросами, которые неудобно выразить через JPA:
+ * постраничное чтение по курсору (time_create, location_id) и чтение по нескольким локациям одним запросом.
+ * Город или страна преобразуются в идентификаторы локаций через LocationDirectory,
+ * для каждого идентификатора строки читаются по первичному ключу (location_id, time_create).
+ * Записи с интервалами одинаковых значений разворачиваются в значения через ReadingIntervals.
+ * Значения месяцев, перенесенных из бд, дополняются из хранилища сегментов.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TemperatureRecordRepository {
+    private static final CentiDegreesConverter DEGREES = new CentiDegreesConverter();
+    private static final Comparator<TemperatureEntity> BY_CURSOR = Comparator
+            .comparing(TemperatureEntity::getTimeCreate)
+            .thenComparing(TemperatureEntity::getLocationId);
+    /**
+     * Для каждой локации читается не больше limit записей, значения которых не раньше курсора.
+     * Запись может хранить интервал значений, начатый до курсора, поэтому записи читаются с запасом max-interval.
+     */
+    private static final String PAGE = "SELECT r.* FROM unnest(CAST(:ids AS int[])) l(id) " +
+            "CROSS JOIN LATERAL (SELECT * FROM reading " +
+            "WHERE location_id = l.id AND time_create >= :from AND time_create < :end " +
+            "AND COALESCE(valid_to, time_create) >= :after " +
+            "ORDER BY time_create LIMIT :limit) r";
+    /**
+     * Для каждой локации читается одна строка с конца первичного ключа.
+     */
+    private static final String LATEST = "SELECT r.* FROM unnest(CAST(:ids AS int[])) l(id) " +
+            "CROSS JOIN LATERAL (SELECT * FROM reading WHERE location_id = l.id " +
+            "ORDER BY time_create DESC LIMIT 1) r";
+    private static final String RANGE = "SELECT * FROM reading " +
+            "WHERE location_id = ANY(CAST(:ids AS int[])) AND time_create >= :from AND time_create < :end " +
+            "AND COALESCE(valid_to, time_create) >= :start";
+    private static final String SINCE = "SELECT * FROM reading " +
+            "WHERE time_create >= ? AND COALESCE(valid_to, time_create) >= ? " +
+            "ORDER BY location_id, time_create";
+    private static final int FETCH_SIZE = 10_000;
+    private static final String UPDATE_INTERVAL = "UPDATE reading SET valid_to = :validTo, samples = :samples " +
+            "WHERE location_id = :locationId AND time_create = :timeCreate AND samples < :samples";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final LocationDirectory locationDirectory;
+    private final ReadingIntervals readingIntervals;
+    private final SegmentStore segmentStore;
+
+    /**
+     * Страница записей по городу или стране за период.
+     *
+     * @param location город или страна
+     * @param start    начало периода
+     * @param end      конец периода, не включается
+     * @param cursor   позиция, после которой начинается страница, null - с начала периода
+     * @param limit    размер страницы
+     * @param fields   заполняемые поля записей
+     * @return записи в порядке времени и курсор следующей страницы
+     */
+    public TemperaturePageDto find(
+            String location,
+            LocalDateTime start,
+            LocalDateTime end,
+            TemperatureCursor cursor,
+            int limit,
+            Set<TemperatureField> fields
+    ) {
+        Set<Integer> ids = locationDirectory.resolve(location);
+        if (ids.isEmpty()) {
+            return TemperaturePageDto.builder()
+                    .items(new ArrayList<>())
+                    .build();
+        }
+        LocalDateTime after = cursor != null && cursor.getTimeCreate().isAfter(start) ? cursor.getTimeCreate() : start;
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("ids", ids.toArray(new Integer[0]))
+                .addValue("from", readingIntervals.lookback(after))
+                .addValue("after", after)
+                .addValue("end", end)
+                // каждая запись дает хотя бы одно значение после курсора, кроме записи, заканчивающейся на курсоре
+                .addValue("limit", limit + 2);
+        List<TemperatureEntity> rows = jdbcTemplate.query(PAGE, parameters, (rs, rowNum) -> toEntity(rs));
+        // значения с временем курсора не попадают в страницу, поэтому из хранилища читается с запасом
+        List<TemperatureEntity> archived = segmentStore.read(ids, after, end, limit + ids.size() + 1);
+
+        List<TemperatureEntity> samples = new ArrayList<>();
+        for (TemperatureEntity sample : segmentStore.merge(readingIntervals.expand(rows), archived)) {
+            if (!sample.getTimeCreate().isBefore(start)
+                    && sample.getTimeCreate().isBefore(end)
+                    && (cursor == null || isAfter(sample, cursor))) {
+                samples.add(sample);
+            }
+        }
+        samples.sort(BY_CURSOR);
+
+        String nextCursor = null;
+        if (samples.size() > limit) {
+            samples = samples.subList(0, limit);
+            TemperatureEntity last = samples.get(limit - 1);
+            nextCursor = new TemperatureCursor(last.getTimeCreate(), last.getLocationId()).encode();
+        }
+        List<TemperatureDto> items = new ArrayList<>(samples.size());
+        samples.forEach(sample -> items.add(toDto(locationDirectory.fill(sample), fields)));
+        return TemperaturePageDto.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Последние записи по нескольким городам или странам одним запросом.
+     * Для локаций без записей в бд последнее значение ищется в хранилище сегментов.
+     *
+     * @param locations города или страны
+     * @return последняя запись по каждой локации, для которой есть записи
+     */
+    public Map<String, TemperatureEntity> findLatest(Collection<String> locations) {
+        Map<Integer, List<String>> names = resolve(locations);
+        Map<String, TemperatureEntity> result = new HashMap<>();
+        if (names.isEmpty()) {
+            return result;
+        }
+        Set<Integer> stored = new HashSet<>();
+        jdbcTemplate.query(
+                LATEST,
+                new MapSqlParameterSource("ids", names.keySet().toArray(new Integer[0])),
+                (RowCallbackHandler) rs -> {
+                    TemperatureEntity entity = readingIntervals.last(toEntity(rs));
+                    stored.add(entity.getLocationId());
+                    putLatest(result, names.get(entity.getLocationId()), entity);
+                }
+        );
+        Set<Integer> archived = new HashSet<>(names.keySet());
+        archived.removeAll(stored);
+        segmentStore.last(archived).forEach((id, entity) ->
+                putLatest(result, names.get(id), locationDirectory.fill(entity)));
+        return result;
+    }
+
+    private static void putLatest(Map<String, TemperatureEntity> result, List<String> locations, TemperatureEntity entity) {
+        for (String location : locations) {
+            result.merge(location, entity, (first, second) ->
+                    second.getTimeCreate().isAfter(first.getTimeCreate()) ? second : first);
+        }
+    }
+
+    /**
+     * Записи по нескольким городам или странам за период одним запросом.
+     *
+     * @param locations города или страны
+     * @param start     начало периода
+     * @param end       конец периода, не включается
+     * @return записи каждой локации в порядке времени, для локаций без записей значения нет
+     */
+    public Map<String, List<TemperatureEntity>> findAll(
+            Collection<String> locations,
+            LocalDateTime start,
+            LocalDateTime end
+    ) {
+        Map<Integer, List<String>> names = resolve(locations);
+        Map<String, List<TemperatureEntity>> result = new HashMap<>();
+        if (names.isEmpty()) {
+            return result;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("ids", names.keySet().toArray(new Integer[0]))
+                .addValue("from", readingIntervals.lookback(start))
+                .addValue("start", start)
+                .addValue("end", end);
+        List<TemperatureEntity> rows = jdbcTemplate.query(RANGE, parameters, (rs, rowNum) -> toEntity(rs));
+        List<TemperatureEntity> samples = segmentStore.merge(readingIntervals.expand(rows), names.keySet(), start, end);
+        for (TemperatureEntity sample : samples) {
+            if (sample.getTimeCreate().isBefore(start) || !sample.getTimeCreate().isBefore(end)) {
+                continue;
+            }
+            locationDirectory.fill(sample);
+            for (String location : names.get(sample.getLocationId())) {
+                result.computeIfAbsent(location, key -> new ArrayList<>()).add(sample);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Локации запроса по идентификаторам: одна локация может совпасть и по городу, и по стране.
+     */
+    private Map<Integer, List<String>> resolve(Collection<String> locations) {
+        Map<Integer, List<String>> names = new HashMap<>();
+        for (String location : new LinkedHashSet<>(locations)) {
+            for (Integer id : locationDirectory.resolve(location)) {
+                names.computeIfAbsent(id, key -> new ArrayList<>(1)).add(location);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Значения всех локаций не раньше start в порядке локации и времени.
+     * Строки читаются курсором, поэтому в памяти не накапливаются.
+     *
+     * @param start  начало периода
+     * @param action обработчик значений
+     */
+    @Transactional(readOnly = true)
+    public void forEachSince(LocalDateTime start, Consumer<TemperatureEntity> action) {
+        jdbcTemplate.getJdbcOperations().query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(SINCE);
+                    statement.setFetchSize(FETCH_SIZE);
+                    statement.setTimestamp(1, Timestamp.valueOf(readingIntervals.lookback(start)));
+                    statement.setTimestamp(2, Timestamp.valueOf(start));
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> {
+                    for (TemperatureEntity sample : readingIntervals.expand(toEntity(rs))) {
+                        if (!sample.getTimeCreate().isBefore(start)) {
+                            action.accept(sample);
+                        }
+                    }
+                }
+        );
+    }
+
+    /**
+     * Обновляет интервалы записей одним пакетом. Интервал может записываться одновременно
+     * при сохранении значений и по расписанию, поэтому запись с большим samples не изменяется.
+     *
+     * @param rows записи с новыми valid_to и samples
+     */
+    public void updateIntervals(List<TemperatureEntity> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] parameters = new MapSqlParameterSource[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            TemperatureEntity row = rows.get(i);
+            parameters[i] = new MapSqlParameterSource()
+                    .addValue("validTo", row.getValidTo())
+                    .addValue("samples", row.getSamples())
+                    .addValue("locationId", row.getLocationId())
+                    .addValue("timeCreate", row.getTimeCreate());
+        }
+        jdbcTemplate.batchUpdate(UPDATE_INTERVAL, parameters);
+    }
+
+    private TemperatureEntity toEntity(ResultSet rs) throws SQLException {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(rs.getInt("location_id"));
+        short value = rs.getShort("temperature");
+        entity.setTemperature(DEGREES.convertToEntityAttribute(rs.wasNull() ? null : value));
+        entity.setTimeCreate(rs.getTimestamp("time_create").toLocalDateTime());
+        Timestamp validTo = rs.getTimestamp("valid_to");
+        entity.setValidTo(validTo != null ? validTo.toLocalDateTime() : null);
+        entity.setSamples(rs.getInt("samples"));
+        return locationDirectory.fill(entity);
+    }
+
+    private static boolean isAfter(TemperatureEntity sample, TemperatureCursor cursor) {
+        int compare = sample.getTimeCreate().compareTo(cursor.getTimeCreate());
+        return compare > 0 || compare == 0 && sample.getLocationId() > cursor.getLocationId();
+    }
+
+    private static TemperatureDto toDto(TemperatureEntity sample, Set<TemperatureField> fields) {
+        TemperatureDto.TemperatureDtoBuilder dto = TemperatureDto.builder();
+        if (fields.contains(TemperatureField.CITY)) {
+            dto.city(sample.getCity());
+        }
+        if (fields.contains(TemperatureField.COUNTRY)) {
+            dto.country(sample.getCountry());
+        }
+        if (fields.contains(TemperatureField.TEMPERATURE)) {
+            dto.temperature(sample.getTemperature());
+        }
+        if (fields.contains(TemperatureField.TIME_CREATE)) {
+            dto.timeCreate(sample.getTimeCreate());
+        }
+        return dto.build();
+    }
+}
@@ -2,14 +2,79 @@ package com.example.temperature.repositories;
 
 import com.example.temperature.entities.TemperatureEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface TemperatureRepository extends JpaRepository<TemperatureEntity, Long> {
-    Collection<TemperatureEntity> findAllByTimeCreateBetweenAndCityOrCountry
-            (LocalDateTime start, LocalDateTime end, String city, String country);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
-    Optional<TemperatureEntity> findDistinctFirstByCityOrCountryOrderByTimeCreateDesc(String city, String country);
+/**
+ * Записи температуры в таблице фактов reading.
+ * Город или страна запроса заранее преобразуются в идентификаторы локаций через LocationDirectory,
+ * каждый идентификатор читается по первичному ключу (location_id, time_create) только из секций периода.
+ * Коллекции идентификаторов не должны быть пустыми.
+ */
+public interface TemperatureRepository extends JpaRepository<TemperatureEntity, TemperatureEntity.Key> {
+    /**
+     * Записи по локациям за период.
+     */
+    @Query(value = "SELECT * FROM reading WHERE location_id IN (:ids) AND time_create BETWEEN :start AND :end " +
+            "ORDER BY time_create", nativeQuery = true)
+    Collection<TemperatureEntity> findAllByTimeCreateBetweenAndLocationIdIn(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("ids") Collection<Integer> ids
+    );
+
+    /**
+     * Последняя запись каждой из локаций в порядке убывания времени последнего значения COALESCE(valid_to, time_create).
+     * Для каждой локации читаются строки с конца первичного ключа не дальше max-interval от последней.
+     *
+     * @param maxIntervalSeconds максимальная длительность интервала записи в секундах
+     */
+    @Query(value = "SELECT r.* FROM location l CROSS JOIN LATERAL (" +
+            "SELECT * FROM reading WHERE location_id = l.id AND time_create >= (" +
+            "SELECT time_create FROM reading WHERE location_id = l.id ORDER BY time_create DESC LIMIT 1" +
+            ") - make_interval(secs => CAST(:maxIntervalSeconds AS double precision)) " +
+            "ORDER BY COALESCE(valid_to, time_create) DESC, time_create DESC LIMIT 1" +
+            ") r WHERE l.id IN (:ids) ORDER BY COALESCE(r.valid_to, r.time_create) DESC", nativeQuery = true)
+    List<TemperatureEntity> findLastByLocationIdIn(
+            @Param("ids") Collection<Integer> ids,
+            @Param("maxIntervalSeconds") long maxIntervalSeconds
+    );
+
+    Optional<TemperatureEntity> findFirstByLocationIdOrderByTimeCreateDesc(Integer locationId);
+
+    /**
+     * Записи по локациям за период [start, end) для выгрузки.
+     * Строки читаются курсором порциями по fetch size, поток нужно закрыть в той же транзакции.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "SELECT * FROM reading WHERE location_id IN (:ids) AND time_create >= :start AND time_create < :end " +
+            "ORDER BY time_create", nativeQuery = true)
+    Stream<TemperatureEntity> streamAllByTimeCreateBetweenAndLocationIdIn(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("ids") Collection<Integer> ids
+    );
+
+    /**
+     * Все записи за период [start, end) для выгрузки.
+     * Строки читаются курсором порциями по fetch size, поток нужно закрыть в той же транзакции.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "SELECT * FROM reading WHERE time_create >= :start AND time_create < :end " +
+            "ORDER BY time_create", nativeQuery = true)
+    Stream<TemperatureEntity> streamAllByTimeCreateBetween(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
 }
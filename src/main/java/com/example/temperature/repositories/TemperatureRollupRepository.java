@@ -0,0 +1,139 @@
+package com.example.temperature.repositories;
+
+import com.example.temperature.dto.Granularity;
+import com.example.temperature.dto.TemperatureRollupDto;
+import com.example.temperature.entities.TemperatureEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Агрегаты температуры по часам и дням.
+ * Агрегаты обновляются инкрементально при сохранении каждой пачки записей.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TemperatureRollupRepository {
+    private static final String UPSERT = "INSERT INTO %s " +
+            "(city, bucket, country, min_temperature, max_temperature, sum_temperature, count) " +
+            "VALUES (:city, :bucket, :country, :min, :max, :sum, :count) " +
+            "ON CONFLICT (city, bucket) DO UPDATE SET " +
+            "country = EXCLUDED.country, " +
+            "min_temperature = LEAST(%1$s.min_temperature, EXCLUDED.min_temperature), " +
+            "max_temperature = GREATEST(%1$s.max_temperature, EXCLUDED.max_temperature), " +
+            "sum_temperature = %1$s.sum_temperature + EXCLUDED.sum_temperature, " +
+            "count = %1$s.count + EXCLUDED.count";
+
+    private static final String SELECT = "SELECT bucket, " +
+            "CAST(MIN(min_temperature) AS numeric) AS min_temperature, " +
+            "CAST(MAX(max_temperature) AS numeric) AS max_temperature, " +
+            "SUM(sum_temperature) / SUM(count) AS avg_temperature, " +
+            "SUM(count) AS count " +
+            "FROM %s " +
+            "WHERE (city = :location OR country = :location) AND bucket >= :start AND bucket < :end " +
+            "GROUP BY bucket ORDER BY bucket";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Добавляет записи в часовые и дневные агрегаты.
+     *
+     * @param entities сохраненные записи температуры
+     */
+    public void add(Collection<TemperatureEntity> entities) {
+        add(Granularity.HOUR, entities);
+        add(Granularity.DAY, entities);
+    }
+
+    /**
+     * Агрегаты по городу или стране за период.
+     *
+     * @param granularity детализация
+     * @param location    город или страна
+     * @param start       начало периода
+     * @param end         конец периода, не включается
+     * @return агрегаты в порядке времени
+     */
+    public List<TemperatureRollupDto> find(
+            Granularity granularity,
+            String location,
+            LocalDateTime start,
+            LocalDateTime end
+    ) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("location", location)
+                .addValue("start", start)
+                .addValue("end", end);
+        return jdbcTemplate.query(
+                String.format(SELECT, granularity.getTable()),
+                parameters,
+                (rs, rowNum) -> TemperatureRollupDto.builder()
+                        .bucket(rs.getTimestamp("bucket").toLocalDateTime())
+                        .minTemperature(rs.getDouble("min_temperature"))
+                        .maxTemperature(rs.getDouble("max_temperature"))
+                        .avgTemperature(rs.getDouble("avg_temperature"))
+                        .count(rs.getLong("count"))
+                        .build()
+        );
+    }
+
+    /**
+     * Записи сначала агрегируются по (город, интервал), чтобы в одной пачке не было повторяющихся ключей.
+     */
+    private void add(Granularity granularity, Collection<TemperatureEntity> entities) {
+        Map<Map.Entry<String, LocalDateTime>, Rollup> rollups = new LinkedHashMap<>();
+        for (TemperatureEntity entity : entities) {
+            if (entity.getCity() == null || entity.getTemperature() == null || entity.getTimeCreate() == null) {
+                continue;
+            }
+            LocalDateTime bucket = granularity.truncate(entity.getTimeCreate());
+            rollups.computeIfAbsent(
+                    new AbstractMap.SimpleImmutableEntry<>(entity.getCity(), bucket),
+                    key -> new Rollup(entity.getCountry())
+            ).add(entity.getTemperature());
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        SqlParameterSource[] batch = rollups.entrySet().stream()
+                .map(rollup -> new MapSqlParameterSource()
+                        .addValue("city", rollup.getKey().getKey())
+                        .addValue("bucket", rollup.getKey().getValue())
+                        .addValue("country", rollup.getValue().country)
+                        .addValue("min", rollup.getValue().min)
+                        .addValue("max", rollup.getValue().max)
+                        .addValue("sum", rollup.getValue().sum)
+                        .addValue("count", rollup.getValue().count))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(String.format(UPSERT, granularity.getTable()), batch);
+    }
+
+    private static class Rollup {
+        private final String country;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long count;
+
+        private Rollup(String country) {
+            this.country = country;
+        }
+
+        private void add(double temperature) {
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            sum += temperature;
+            count++;
+        }
+    }
+}
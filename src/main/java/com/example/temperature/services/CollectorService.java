@@ -0,0 +1,12 @@
+package com.example.temperature.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface CollectorService {
+    Map<Map.Entry<String, String>, List<Double>> collect(
+            Collection<Map.Entry<String, String>> locations,
+            Collection<String> sources
+    );
+}
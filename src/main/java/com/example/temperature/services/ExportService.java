@@ -0,0 +1,17 @@
+package com.example.temperature.services;
+
+import com.example.temperature.dto.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface ExportService {
+    long export(
+            String location,
+            LocalDateTime start,
+            LocalDateTime end,
+            ExportFormat format,
+            OutputStream outputStream
+    ) throws IOException;
+}
@@ -0,0 +1,42 @@
+package com.example.temperature.services;
+
+import com.example.temperature.dto.LocationDto;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис управления опрашиваемыми локациями.
+ */
+public interface LocationService {
+    /**
+     * @param page номер страницы, начиная с 0
+     * @param size размер страницы
+     * @return локации в порядке идентификатора
+     */
+    List<LocationDto> findAll(int page, int size);
+
+    Optional<LocationDto> find(long id);
+
+    /**
+     * Добавляет локацию. Если локация с таким городом и страной уже есть, в том числе удаленная,
+     * она восстанавливается и ее параметры заменяются переданными.
+     *
+     * @param location параметры локации
+     * @return сохраненная локация
+     */
+    LocationDto create(LocationDto location);
+
+    /**
+     * @return сохраненная локация или пустой результат, если локации нет
+     */
+    Optional<LocationDto> update(long id, LocationDto location);
+
+    /**
+     * Удаляет локацию. Запись остается в бд с признаком deleted, чтобы удаление
+     * дошло до расписания опроса на всех экземплярах.
+     *
+     * @return false, если локации нет
+     */
+    boolean delete(long id);
+}
@@ -0,0 +1,48 @@
+package com.example.temperature.services;
+
+import com.example.temperature.dto.TemperatureCursor;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.dto.TemperatureField;
+import com.example.temperature.dto.TemperaturePageDto;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сервис постраничного чтения записей температуры.
+ */
+public interface TemperatureQueryService {
+    /**
+     * Страница записей по городу или стране за период [from, to].
+     *
+     * @param location город или страна
+     * @param from     первый день периода
+     * @param to       последний день периода, включительно
+     * @param cursor   курсор из предыдущей страницы, null - первая страница
+     * @param limit    размер страницы
+     * @param fields   заполняемые поля записей
+     * @return записи в порядке времени и курсор следующей страницы
+     */
+    TemperaturePageDto findRecords(
+            String location,
+            LocalDate from,
+            LocalDate to,
+            TemperatureCursor cursor,
+            int limit,
+            Set<TemperatureField> fields
+    );
+
+    /**
+     * Записи по нескольким городам или странам.
+     * Без периода возвращается последняя запись по каждой локации.
+     *
+     * @param locations города или страны
+     * @param from      первый день периода, null - последние записи
+     * @param to        последний день периода, включительно
+     * @return записи по локациям в порядке запроса, для локации без записей - пустой список
+     */
+    Map<String, List<TemperatureDto>> findBulk(Collection<String> locations, LocalDate from, LocalDate to);
+}
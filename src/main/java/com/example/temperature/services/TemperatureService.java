@@ -1,16 +1,31 @@
 package com.example.temperature.services;
 
+import com.example.temperature.dto.Granularity;
 import com.example.temperature.entities.TemperatureEntity;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface TemperatureService {
-    Double identifyTemperature(Map.Entry<String, String> location, Map<String, String> source, String serviceName);
+    Double identifyTemperature(Map.Entry<String, String> location, String serviceName);
+
+    CompletableFuture<Double> identifyTemperatureAsync(Map.Entry<String, String> location, String serviceName);
+
+    CompletableFuture<Map<Map.Entry<String, String>, Double>> identifyTemperaturesAsync(
+            List<Map.Entry<String, String>> locations,
+            String serviceName
+    );
 
     void insert(TemperatureEntity entity);
 
+    void insertAll(Collection<TemperatureEntity> entities);
+
     String getTemperature(String location, LocalDate date);
 
     String getTemperature(String location);
+
+    String getTemperature(String location, LocalDate date, Granularity granularity);
 }
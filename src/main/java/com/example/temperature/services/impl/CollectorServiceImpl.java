@@ -0,0 +1,302 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.exceptions.QuotaExceededException;
+import com.example.temperature.health.CircuitBreaker;
+import com.example.temperature.health.ProviderHealthRegistry;
+import com.example.temperature.metrics.WeatherMetrics;
+import com.example.temperature.providers.WeatherProvider;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.quota.QuotaScheduler;
+import com.example.temperature.services.CollectorService;
+import com.example.temperature.services.TemperatureService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Сервис параллельного сбора температуры из всех источников.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CollectorServiceImpl implements CollectorService {
+    private final WeatherProperties properties;
+    private final TemperatureService temperatureService;
+    private final WeatherProviderRegistry providerRegistry;
+    private final ProviderHealthRegistry healthRegistry;
+    private final QuotaScheduler quotaScheduler;
+    private final WeatherMetrics metrics;
+
+    /**
+     * Запрашивает температуру для каждой пары локация - сервис.
+     * Для каждого сервиса одновременно выполняется не больше concurrency запросов,
+     * следующий запрос цепочки отправляется после завершения предыдущего.
+     * Если сервис поддерживает пакетные запросы, локации запрашиваются пакетами.
+     * Запросы, не успевшие выполниться до окончания tickTimeout, отменяются,
+     * а их результаты, полученные позже, не учитываются ни в значениях, ни в состоянии сервиса.
+     * Отмена не прерывает блокирующий запрос, его поток освобождается таймаутами клиента,
+     * сумма которых не больше tickTimeout.
+     * Запросы к отключенному сервису не отправляются, среднее считается по остальным сервисам.
+     * Локации запрашиваются в порядке приоритета, при исчерпании квоты сервиса его цепочки завершаются.
+     *
+     * @param locations список локаций
+     * @param sources   имена сервисов
+     * @return полученные значения температуры по каждой локации в порядке перечисления сервисов
+     */
+    @Override
+    public Map<Map.Entry<String, String>, List<Double>> collect(
+            Collection<Map.Entry<String, String>> locations,
+            Collection<String> sources
+    ) {
+        long deadline = System.nanoTime() + properties.getCollector().getTickTimeout().toNanos();
+        Map<Map.Entry<String, String>, AtomicReferenceArray<Double>> readings = new LinkedHashMap<>();
+        for (Map.Entry<String, String> location : locations) {
+            readings.put(location, new AtomicReferenceArray<>(sources.size()));
+        }
+
+        List<CompletableFuture<Void>> chains = new ArrayList<>();
+        Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+        AtomicBoolean finished = new AtomicBoolean();
+        int sourceIndex = 0;
+        for (String source : sources) {
+            WeatherProvider provider = providerRegistry.get(source);
+            CircuitBreaker breaker = healthRegistry.get(source);
+            if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                log.warn(
+                        "Сервис {} отключен после ошибок, запросы к нему не отправляются",
+                        source
+                );
+                sourceIndex++;
+                continue;
+            }
+            int batchSize = provider.getMaxBatchSize();
+            Queue<Map.Entry<String, String>> queue = new ConcurrentLinkedQueue<>(
+                    quotaScheduler.prioritize(source, readings.keySet())
+            );
+            int concurrency = Math.min(provider.getMaxConcurrency(), (readings.size() + batchSize - 1) / batchSize);
+            for (int i = 0; i < concurrency; i++) {
+                Chain chain = new Chain(
+                        source,
+                        sourceIndex,
+                        batchSize,
+                        breaker,
+                        queue,
+                        readings,
+                        deadline,
+                        inFlight,
+                        finished
+                );
+                next(chain);
+                chains.add(chain.done);
+            }
+            sourceIndex++;
+        }
+
+        try {
+            CompletableFuture.allOf(chains.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Не все запросы температуры завершились до окончания отведенного времени.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Сбор температуры был прерван.");
+        } catch (ExecutionException e) {
+            log.error("Ошибка при сборе температуры", e);
+        }
+        finished.set(true);
+        if (!inFlight.isEmpty()) {
+            log.debug("Отменено {} запросов температуры после окончания отведенного времени", inFlight.size());
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        Map<Map.Entry<String, String>, List<Double>> result = new LinkedHashMap<>();
+        readings.forEach((location, values) -> {
+            List<Double> temperatures = new ArrayList<>(values.length());
+            for (int i = 0; i < values.length(); i++) {
+                Double value = values.get(i);
+                if (value != null) {
+                    temperatures.add(value);
+                }
+            }
+            result.put(location, temperatures);
+        });
+        return result;
+    }
+
+    /**
+     * Выполняет запросы цепочки, пока в очереди есть локации, не истекло время и сервис доступен.
+     * Уже завершенные запросы обрабатываются в цикле, чтобы не увеличивать глубину стека.
+     */
+    private void next(Chain chain) {
+        while (true) {
+            if (chain.queue.isEmpty()
+                    || chain.quotaExceeded
+                    || System.nanoTime() - chain.deadline >= 0
+                    || !chain.breaker.tryAcquire()) {
+                chain.done.complete(null);
+                return;
+            }
+            List<Map.Entry<String, String>> batch = new ArrayList<>(chain.batchSize);
+            Map.Entry<String, String> location;
+            while (batch.size() < chain.batchSize && (location = chain.queue.poll()) != null) {
+                batch.add(location);
+            }
+            if (batch.isEmpty()) {
+                chain.breaker.release();
+                chain.done.complete(null);
+                return;
+            }
+
+            long start = System.nanoTime();
+            CompletableFuture<Map<Map.Entry<String, String>, Double>> future = request(chain, batch);
+            if (!future.isDone()) {
+                future.whenComplete((temperatures, e) -> {
+                    record(chain, batch, temperatures, e, System.nanoTime() - start);
+                    next(chain);
+                });
+                return;
+            }
+            future.whenComplete((temperatures, e) -> record(chain, batch, temperatures, e, System.nanoTime() - start));
+        }
+    }
+
+    private CompletableFuture<Map<Map.Entry<String, String>, Double>> request(
+            Chain chain,
+            List<Map.Entry<String, String>> batch
+    ) {
+        try {
+            if (batch.size() == 1) {
+                Map.Entry<String, String> location = batch.get(0);
+                return track(chain, temperatureService.identifyTemperatureAsync(location, chain.sourceName))
+                        .thenApply(temperature -> Collections.singletonMap(location, temperature));
+            }
+            return track(chain, temperatureService.identifyTemperaturesAsync(batch, chain.sourceName));
+        } catch (RuntimeException e) {
+            CompletableFuture<Map<Map.Entry<String, String>, Double>> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Запоминает выполняющийся запрос, чтобы отменить его по окончании отведенного времени.
+     */
+    private static <T> CompletableFuture<T> track(Chain chain, CompletableFuture<T> future) {
+        chain.inFlight.add(future);
+        future.whenComplete((result, e) -> chain.inFlight.remove(future));
+        return future;
+    }
+
+    private void record(
+            Chain chain,
+            List<Map.Entry<String, String>> batch,
+            Map<Map.Entry<String, String>, Double> temperatures,
+            Throwable e,
+            long durationNanos
+    ) {
+        if (chain.finished.get() || System.nanoTime() - chain.deadline >= 0) {
+            log.debug(
+                    "Ответ сервиса {} для локаций {} получен после окончания отведенного времени и не учитывается",
+                    chain.sourceName,
+                    batch
+            );
+            chain.breaker.release();
+            batch.forEach(location -> quotaScheduler.onFailed(chain.sourceName, location));
+            return;
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof QuotaExceededException) {
+            log.debug(
+                    "Квота сервиса {} исчерпана, локации {} будут запрошены позже",
+                    chain.sourceName,
+                    batch
+            );
+            chain.quotaExceeded = true;
+            chain.breaker.release();
+            metrics.recordQuotaExceeded(chain.sourceName);
+            return;
+        }
+        metrics.recordRequest(chain.sourceName, durationNanos, cause);
+        if (e != null) {
+            log.error(
+                    "Ошибка при запросе температуры из сервиса {}",
+                    chain.sourceName,
+                    cause
+            );
+            if (chain.breaker.onFailure()) {
+                logState(chain.breaker);
+            }
+            batch.forEach(location -> quotaScheduler.onFailed(chain.sourceName, location));
+            return;
+        }
+        if (chain.breaker.onSuccess(durationNanos)) {
+            logState(chain.breaker);
+        }
+        for (Map.Entry<String, String> location : batch) {
+            Double temperature = temperatures.get(location);
+            if (temperature != null) {
+                chain.readings.get(location).set(chain.sourceIndex, temperature);
+                quotaScheduler.onFetched(chain.sourceName, location);
+            } else {
+                metrics.recordMissingReading(chain.sourceName);
+                quotaScheduler.onFailed(chain.sourceName, location);
+                log.warn(
+                        "Сервис {} не вернул температуру для локации {}",
+                        chain.sourceName,
+                        location
+                );
+            }
+        }
+    }
+
+    private static void logState(CircuitBreaker breaker) {
+        if (breaker.getState() == CircuitBreaker.State.CLOSED) {
+            log.info(
+                    "Сервис {} снова доступен",
+                    breaker.getName()
+            );
+        } else {
+            log.warn(
+                    "Сервис {} отключен из-за ошибок или медленных ответов",
+                    breaker.getName()
+            );
+        }
+    }
+
+    /**
+     * Цепочка последовательных запросов к одному сервису.
+     */
+    @RequiredArgsConstructor
+    private static class Chain {
+        private final String sourceName;
+        private final int sourceIndex;
+        private final int batchSize;
+        private final CircuitBreaker breaker;
+        private final Queue<Map.Entry<String, String>> queue;
+        private final Map<Map.Entry<String, String>, AtomicReferenceArray<Double>> readings;
+        private final long deadline;
+        private final Set<CompletableFuture<?>> inFlight;
+        private final AtomicBoolean finished;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile boolean quotaExceeded;
+    }
+}
@@ -1,18 +1,24 @@
 package com.example.temperature.services.impl;
 
-import com.example.temperature.configuration.WeatherProperties;
 import com.example.temperature.entities.TemperatureEntity;
-import com.example.temperature.exceptions.IncorrectResponseException;
-import com.example.temperature.services.TemperatureService;
+import com.example.temperature.ingestion.IngestionQueue;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.locations.LocationRegistry;
+import com.example.temperature.metrics.WeatherMetrics;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.quota.QuotaScheduler;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.services.CollectorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,48 +28,77 @@ import java.util.Map;
 @Slf4j
 @RequiredArgsConstructor
 public class EventServiceImpl {
-    private final WeatherProperties properties;
-    private final TemperatureService temperatureService;
+    private final IngestionQueue ingestionQueue;
+    private final CollectorService collectorService;
+    private final WeatherProviderRegistry providerRegistry;
+    private final LocationRegistry locationRegistry;
+    private final LocationDirectory locationDirectory;
+    private final QuotaScheduler quotaScheduler;
+    private final ReadingIntervals readingIntervals;
+    private final WeatherMetrics metrics;
 
 
     /**
      * Задача запускающаяся по таймеру.
-     * Вызывает методы запроса температуры и сохранения их в базу.
+     * Параллельно запрашивает температуру во всех сервисах и передает средние значения в очередь записи в бд.
+     * Опрашиваются только локации, срок опроса которых наступил.
+     * В кластерном режиме опрашиваются только локации, распределенные на этот экземпляр.
+     * Локации, не запрошенные из-за квоты, отмечаются в интервалах повторяющихся значений,
+     * чтобы пропуск не считался пропуском данных.
      */
     @Scheduled(cron = "${cron}")
     public void updateTemperature() {
         log.info("Запуск выполнения задачи для обновления данных по температуре.");
-        Map<String, String> locations = properties.getLocations();
-        Map<String, Map<String, String>> sources = properties.getSources();
+        long start = metrics.startTick();
+        List<Map.Entry<String, String>> locations = locationRegistry.takeDue();
         log.info(
+                "Количество локаций к опросу: {}",
+                locations.size()
+        );
+        log.debug(
                 "Список город: {}",
                 locations
         );
+        if (locations.isEmpty()) {
+            metrics.finishTick(start, 0, 0, 0);
+            log.info("Конец выполнение задачи.");
+            return;
+        }
 
-        for (Map.Entry<String, String> location : locations.entrySet()) {
-            double temperature = 0;
-            int successfulCount = sources.size();
-            for (Map.Entry<String, Map<String, String>> source : sources.entrySet()) {
-                try {
-                    temperature += temperatureService.identifyTemperature(location, source.getValue(), source.getKey());
-                } catch (HttpClientErrorException | IncorrectResponseException e) {
-                    successfulCount--;
-                    log.error(
-                            "Ошибка при запросе температуры из сервиса {}",
-                            source.getKey(),
-                            e
-                    );
+        Map<Map.Entry<String, String>, List<Double>> readings = collectorService.collect(
+                locations,
+                providerRegistry.getNames()
+        );
+
+        List<TemperatureEntity> entities = new ArrayList<>(readings.size());
+        for (Map.Entry<Map.Entry<String, String>, List<Double>> reading : readings.entrySet()) {
+            Map.Entry<String, String> location = reading.getKey();
+            List<Double> temperatures = reading.getValue();
+            if (temperatures.isEmpty() && quotaScheduler.isDeferred(location)) {
+                log.debug(
+                        "Локация {} не запрошена из-за квоты сервисов",
+                        location
+                );
+                Integer id = locationDirectory.find(location.getKey(), location.getValue());
+                if (id != null) {
+                    readingIntervals.skip(id, LocalDateTime.now());
                 }
+                continue;
             }
-
-            if (successfulCount == 0) {
+            if (temperatures.isEmpty()) {
                 log.warn(
                         "Для локации {} не удалось получить информацию ни из одного источника." +
                                 "Запись не будет сохранена в бд",
                         location
                 );
+                continue;
+            }
+
+            double temperature = 0;
+            for (Double value : temperatures) {
+                temperature += value;
             }
-            BigDecimal big = new BigDecimal(temperature / successfulCount);
+            BigDecimal big = new BigDecimal(temperature / temperatures.size());
             double avgTemperature = big.setScale(2, RoundingMode.HALF_EVEN).doubleValue();
             log.info(
                     "Средняя температура для города {} равна {}",
@@ -77,9 +112,12 @@ public class EventServiceImpl {
             entity.setTemperature(avgTemperature);
             entity.setTimeCreate(LocalDateTime.now());
 
-            temperatureService.insert(entity);
+            entities.add(entity);
         }
 
+        int accepted = entities.isEmpty() ? 0 : ingestionQueue.offer(entities);
+        metrics.finishTick(start, locations.size(), accepted, readings.size() - entities.size());
+
         log.info("Конец выполнение задачи.");
     }
 }
@@ -0,0 +1,192 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.dto.ExportFormat;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.TemperatureRepository;
+import com.example.temperature.services.ExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Сервис выгрузки сохраненных записей температуры.
+ * Записи читаются курсором и сразу пишутся в ответ, поэтому память не зависит от размера периода.
+ * Интервалы одинаковых значений разворачиваются в значения в порядке времени.
+ * Значения месяцев, перенесенных из бд, читаются из хранилища сегментов по одному месяцу.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ExportServiceImpl implements ExportService {
+    private static final String CSV_HEADER = "city,country,temperature,time_create";
+
+    private final TemperatureRepository temperatureRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final LocationDirectory locationDirectory;
+    private final ReadingIntervals readingIntervals;
+    private final SegmentStore segmentStore;
+
+    /**
+     * Выгрузка записей по локации за период
+     *
+     * @param location     город или страна, если не задана - все записи
+     * @param start        начало периода
+     * @param end          конец периода, не включается
+     * @param format       формат выгрузки
+     * @param outputStream поток ответа
+     * @return количество выгруженных записей
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public long export(
+            String location,
+            LocalDateTime start,
+            LocalDateTime end,
+            ExportFormat format,
+            OutputStream outputStream
+    ) throws IOException {
+        log.info(
+                "Выгрузка температуры в формате {} для локации {} за период {} - {}",
+                format,
+                location,
+                start,
+                end
+        );
+        long count;
+        Set<Integer> ids = location != null ? locationDirectory.resolve(location) : null;
+        try (Stream<TemperatureEntity> rows = stream(ids, readingIntervals.lookback(start), end)) {
+            Iterator<TemperatureEntity> entities = segmentStore.merge(
+                    readingIntervals.expand(detaching(rows.iterator()), start, end),
+                    ids,
+                    start,
+                    end
+            );
+            switch (format) {
+                case CSV:
+                    count = writeCsv(entities, outputStream);
+                    break;
+                case NDJSON:
+                    count = writeNdjson(entities, outputStream);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected value: " + format);
+            }
+        }
+        log.info(
+                "Выгружено {} записей для локации {}",
+                count,
+                location
+        );
+        return count;
+    }
+
+    private Stream<TemperatureEntity> stream(Set<Integer> ids, LocalDateTime from, LocalDateTime end) {
+        if (ids == null) {
+            return temperatureRepository.streamAllByTimeCreateBetween(from, end);
+        }
+        return ids.isEmpty()
+                ? Stream.empty()
+                : temperatureRepository.streamAllByTimeCreateBetweenAndLocationIdIn(from, end, ids);
+    }
+
+    private long writeCsv(Iterator<TemperatureEntity> entities, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (entities.hasNext()) {
+            TemperatureEntity entity = next(entities);
+            writer.write(csv(entity.getCity()));
+            writer.write(',');
+            writer.write(csv(entity.getCountry()));
+            writer.write(',');
+            writer.write(String.valueOf(entity.getTemperature()));
+            writer.write(',');
+            writer.write(String.valueOf(entity.getTimeCreate()));
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long writeNdjson(Iterator<TemperatureEntity> entities, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        long count = 0;
+        while (entities.hasNext()) {
+            TemperatureEntity entity = next(entities);
+            generator.writeStartObject();
+            generator.writeStringField("city", entity.getCity());
+            generator.writeStringField("country", entity.getCountry());
+            if (entity.getTemperature() != null) {
+                generator.writeNumberField("temperature", entity.getTemperature());
+            } else {
+                generator.writeNullField("temperature");
+            }
+            generator.writeStringField("time_create", String.valueOf(entity.getTimeCreate()));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            count++;
+        }
+        generator.flush();
+        return count;
+    }
+
+    /**
+     * Записи курсора. Каждая запись сразу отсоединяется от контекста,
+     * чтобы прочитанные сущности не накапливались в памяти.
+     */
+    private Iterator<TemperatureEntity> detaching(Iterator<TemperatureEntity> rows) {
+        return new Iterator<TemperatureEntity>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public TemperatureEntity next() {
+                TemperatureEntity row = rows.next();
+                entityManager.detach(row);
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Следующее значение, город и страна берутся из справочника локаций.
+     */
+    private TemperatureEntity next(Iterator<TemperatureEntity> entities) {
+        return locationDirectory.fill(entities.next());
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
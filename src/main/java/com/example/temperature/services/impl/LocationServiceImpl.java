@@ -0,0 +1,106 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.dto.LocationDto;
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.locations.LocationRegistry;
+import com.example.temperature.repositories.LocationRepository;
+import com.example.temperature.services.LocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис управления опрашиваемыми локациями.
+ * Изменения сразу применяются к расписанию этого экземпляра,
+ * остальные экземпляры получают их при обновлении реестра.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LocationServiceImpl implements LocationService {
+    private final LocationRepository locationRepository;
+    private final LocationRegistry locationRegistry;
+
+    @Override
+    public List<LocationDto> findAll(int page, int size) {
+        return locationRepository.findAllByDeletedFalse(PageRequest.of(page, size, Sort.by("id")))
+                .stream()
+                .map(LocationServiceImpl::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<LocationDto> find(long id) {
+        return locationRepository.findByIdAndDeletedFalse(id).map(LocationServiceImpl::toDto);
+    }
+
+    @Override
+    public LocationDto create(LocationDto location) {
+        LocationEntity entity = locationRepository.findByCityAndCountry(location.getCity(), location.getCountry())
+                .orElseGet(LocationEntity::new);
+        entity.setCity(location.getCity());
+        entity.setCountry(location.getCountry());
+        entity.setDeleted(false);
+        copy(location, entity);
+        LocationEntity saved = save(entity);
+        log.info(
+                "Добавлена локация {}, {}",
+                saved.getCity(),
+                saved.getCountry()
+        );
+        return toDto(saved);
+    }
+
+    @Override
+    public Optional<LocationDto> update(long id, LocationDto location) {
+        return locationRepository.findByIdAndDeletedFalse(id).map(entity -> {
+            copy(location, entity);
+            return toDto(save(entity));
+        });
+    }
+
+    @Override
+    public boolean delete(long id) {
+        Optional<LocationEntity> entity = locationRepository.findByIdAndDeletedFalse(id);
+        if (!entity.isPresent()) {
+            return false;
+        }
+        entity.get().setDeleted(true);
+        LocationEntity saved = save(entity.get());
+        log.info(
+                "Удалена локация {}, {}",
+                saved.getCity(),
+                saved.getCountry()
+        );
+        return true;
+    }
+
+    private LocationEntity save(LocationEntity entity) {
+        LocationEntity saved = locationRepository.save(entity);
+        locationRegistry.apply(saved);
+        return saved;
+    }
+
+    private static void copy(LocationDto location, LocationEntity entity) {
+        entity.setPollIntervalSeconds(location.getPollIntervalSeconds());
+        entity.setPriority(location.getPriority());
+        entity.setEnabled(location.isEnabled());
+    }
+
+    private static LocationDto toDto(LocationEntity entity) {
+        return LocationDto.builder()
+                .id(entity.getId())
+                .city(entity.getCity())
+                .country(entity.getCountry())
+                .pollIntervalSeconds(entity.getPollIntervalSeconds())
+                .priority(entity.getPriority())
+                .enabled(entity.isEnabled())
+                .build();
+    }
+}
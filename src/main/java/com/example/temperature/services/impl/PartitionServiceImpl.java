@@ -0,0 +1,182 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Сервис обслуживания секций таблицы reading.
+ * Создает секции на будущие месяцы и архивирует или удаляет устаревшие.
+ * Записи месяца, попавшие в секцию по умолчанию, переносятся в секцию месяца при ее создании.
+ * Ошибка обслуживания одной секции не прерывает обслуживание остальных.
+ */
+@Service
+@Slf4j
+public class PartitionServiceImpl {
+    private static final String TABLE = "reading";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String ARCHIVE_PREFIX = TABLE + "_archive_";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final WeatherProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterMembership clusterMembership;
+
+    public PartitionServiceImpl(
+            WeatherProperties properties,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ClusterMembership clusterMembership
+    ) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterMembership = clusterMembership;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * Задача обслуживания секций, запускающаяся по таймеру.
+     * В кластерном режиме выполняется только лидером.
+     */
+    @Scheduled(cron = "${weather.partitions.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        if (!clusterMembership.isLeader()) {
+            log.debug("Обслуживание секций выполняет лидер кластера");
+            return;
+        }
+        maintainPartitions(YearMonth.now());
+    }
+
+    void maintainPartitions(YearMonth current) {
+        WeatherProperties.Partitions settings = properties.getPartitions();
+        for (int i = 0; i <= settings.getMonthsAhead(); i++) {
+            createPartition(current.plusMonths(i));
+        }
+        if (settings.getRetentionMonths() > 0) {
+            removePartitionsBefore(current.minusMonths(settings.getRetentionMonths()), settings.isArchive());
+        }
+    }
+
+    /**
+     * Создает секцию месяца одной транзакцией: таблица создается отдельно, в нее переносятся
+     * записи месяца из секции по умолчанию, после чего таблица присоединяется к reading.
+     * Иначе создание секции завершилось бы ошибкой, если в секции по умолчанию есть записи месяца.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = PARTITION_PREFIX + month.format(SUFFIX);
+        try {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL",
+                    Boolean.class,
+                    partition
+            ))) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute(String.format(
+                        "CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)",
+                        partition,
+                        TABLE
+                ));
+                int moved = jdbcTemplate.update(String.format(
+                        "WITH moved AS (DELETE FROM %s WHERE time_create >= '%s' AND time_create < '%s' RETURNING *) " +
+                                "INSERT INTO %s SELECT * FROM moved",
+                        DEFAULT_PARTITION,
+                        month.atDay(1),
+                        month.plusMonths(1).atDay(1),
+                        partition
+                ));
+                jdbcTemplate.execute(String.format(
+                        "ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                        TABLE,
+                        partition,
+                        month.atDay(1),
+                        month.plusMonths(1).atDay(1)
+                ));
+                if (moved > 0) {
+                    log.info(
+                            "В секцию {} перенесено {} записей из секции {}",
+                            partition,
+                            moved,
+                            DEFAULT_PARTITION
+                    );
+                }
+            });
+        } catch (DataAccessException | TransactionException e) {
+            log.error(
+                    "Не удалось создать секцию {}",
+                    partition,
+                    e
+            );
+        }
+    }
+
+    private void removePartitionsBefore(YearMonth boundary, boolean archive) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = ?",
+                String.class,
+                TABLE
+        );
+        for (String partition : partitions) {
+            YearMonth month = parseMonth(partition);
+            if (month == null || !month.isBefore(boundary)) {
+                continue;
+            }
+            try {
+                if (archive) {
+                    log.info("Отсоединение устаревшей секции {}", partition);
+                    // без транзакции ошибка переименования оставила бы отсоединенную таблицу с именем секции
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+                        jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + ARCHIVE_PREFIX + month.format(SUFFIX));
+                    });
+                } else {
+                    log.info("Удаление устаревшей секции {}", partition);
+                    jdbcTemplate.execute("DROP TABLE " + partition);
+                }
+            } catch (DataAccessException | TransactionException e) {
+                log.error(
+                        "Не удалось {} устаревшую секцию {}",
+                        archive ? "архивировать" : "удалить",
+                        partition,
+                        e
+                );
+            }
+        }
+    }
+
+    private static YearMonth parseMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.cache.LatestTemperatureCache;
+import com.example.temperature.dto.TemperatureCursor;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.dto.TemperatureField;
+import com.example.temperature.dto.TemperaturePageDto;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.repositories.TemperatureRecordRepository;
+import com.example.temperature.services.TemperatureQueryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис чтения записей температуры для JSON API.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TemperatureQueryServiceImpl implements TemperatureQueryService {
+    private final TemperatureRecordRepository temperatureRecordRepository;
+    private final LatestTemperatureCache latestTemperatureCache;
+
+    @Override
+    public TemperaturePageDto findRecords(
+            String location,
+            LocalDate from,
+            LocalDate to,
+            TemperatureCursor cursor,
+            int limit,
+            Set<TemperatureField> fields
+    ) {
+        return temperatureRecordRepository.find(
+                location,
+                from.atStartOfDay(),
+                to.plusDays(1).atStartOfDay(),
+                cursor,
+                limit,
+                fields
+        );
+    }
+
+    /**
+     * Записи по нескольким локациям.
+     * Последние записи берутся из кэша, отсутствующие в кэше читаются из бд одним запросом,
+     * записи за период всегда читаются одним запросом.
+     */
+    @Override
+    public Map<String, List<TemperatureDto>> findBulk(Collection<String> locations, LocalDate from, LocalDate to) {
+        log.info(
+                "Запрос поиска температуры для {} локаций за период {} - {}",
+                locations.size(),
+                from,
+                to
+        );
+        Map<String, List<TemperatureDto>> result = new LinkedHashMap<>();
+        if (from == null) {
+            List<String> missing = new ArrayList<>();
+            for (String location : locations) {
+                Optional<TemperatureEntity> cached = latestTemperatureCache.get(location);
+                result.put(location, cached.map(entity -> Collections.singletonList(toDto(entity)))
+                        .orElse(Collections.emptyList()));
+                if (!cached.isPresent()) {
+                    missing.add(location);
+                }
+            }
+            if (!missing.isEmpty()) {
+                log.debug(
+                        "Последние записи для {} локаций отсутствуют в кэше",
+                        missing.size()
+                );
+                temperatureRecordRepository.findLatest(missing).forEach((location, entity) -> {
+                    latestTemperatureCache.put(entity);
+                    result.put(location, Collections.singletonList(toDto(entity)));
+                });
+            }
+            return result;
+        }
+
+        Map<String, List<TemperatureEntity>> entities = temperatureRecordRepository.findAll(
+                locations,
+                from.atStartOfDay(),
+                (to != null ? to : from).plusDays(1).atStartOfDay()
+        );
+        for (String location : locations) {
+            result.put(location, entities.getOrDefault(location, Collections.emptyList()).stream()
+                    .map(TemperatureQueryServiceImpl::toDto)
+                    .collect(Collectors.toList()));
+        }
+        return result;
+    }
+
+    private static TemperatureDto toDto(TemperatureEntity entity) {
+        return TemperatureDto.builder()
+                .city(entity.getCity())
+                .country(entity.getCountry())
+                .temperature(entity.getTemperature())
+                .timeCreate(entity.getTimeCreate())
+                .build();
+    }
+}
@@ -1,24 +1,47 @@
 package com.example.temperature.services.impl;
 
-import com.example.temperature.dto.OpenWeatherMapDto;
-import com.example.temperature.dto.WeatherApiDto;
-import com.example.temperature.dto.WeatherBitDto;
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.cache.LatestTemperatureCache;
+import com.example.temperature.cache.ReadingWindow;
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.clients.WeatherResponseCache;
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.dto.Granularity;
+import com.example.temperature.dto.TemperatureRollupDto;
 import com.example.temperature.entities.TemperatureEntity;
 import com.example.temperature.exceptions.IncorrectResponseException;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.TemperatureRecordRepository;
 import com.example.temperature.repositories.TemperatureRepository;
+import com.example.temperature.repositories.TemperatureRollupRepository;
 import com.example.temperature.services.TemperatureService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 
 /**
  * Сервис для работы с температурой.
@@ -28,36 +51,91 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class TemperatureServiceImpl implements TemperatureService {
     private final TemperatureRepository temperatureRepository;
-    private final RestTemplate restTemplate;
+    private final TemperatureRollupRepository temperatureRollupRepository;
+    private final WeatherProviderRegistry providerRegistry;
+    private final WeatherClient weatherClient;
+    private final WeatherResponseCache weatherResponseCache;
+    private final LatestTemperatureCache latestTemperatureCache;
+    private final LocationDirectory locationDirectory;
+    private final ReadingIntervals readingIntervals;
+    private final TemperatureRecordRepository temperatureRecordRepository;
+    private final SegmentStore segmentStore;
+    private final ReadingWindow readingWindow;
+    private final ClusterMembership clusterMembership;
 
     /**
      * запрашивает текущую температуру в городе
      *
      * @param location    город и страна
-     * @param source      ключ и урл сервиса
      * @param serviceName имя сервиса
      * @return значение температуры
      */
     @Override
     public Double identifyTemperature(
             Map.Entry<String, String> location,
-            Map<String, String> source,
             String serviceName
     ) throws HttpClientErrorException, IncorrectResponseException {
+        try {
+            return identifyTemperatureAsync(location, serviceName).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * асинхронно запрашивает текущую температуру в городе.
+     * Пока ответ сервиса для города не устарел, он берется из кэша без запроса.
+     *
+     * @param location    город и страна
+     * @param serviceName имя сервиса
+     * @return значение температуры, которое будет получено после ответа сервиса
+     */
+    @Override
+    public CompletableFuture<Double> identifyTemperatureAsync(
+            Map.Entry<String, String> location,
+            String serviceName
+    ) {
         log.debug(
                 "Запрос температуры в городе {} из сервиса {}",
                 location.getKey(),
                 serviceName
         );
-        Double temperature = requestTemperature(location, source, serviceName);
+        return providerRegistry.get(serviceName)
+                .requestTemperature(location, weatherResponseCache.forSource(serviceName, weatherClient))
+                .thenApply(temperature -> {
+                    log.debug(
+                            "Сервис {} вернул температуру {} для города {}",
+                            serviceName,
+                            temperature,
+                            location.getKey()
+                    );
+                    return temperature;
+                });
+    }
+
+    /**
+     * асинхронно запрашивает текущую температуру в нескольких городах.
+     * Если сервис поддерживает пакетные запросы, локации запрашиваются одним запросом.
+     *
+     * @param locations   города и страны
+     * @param serviceName имя сервиса
+     * @return значения температуры по локациям
+     */
+    @Override
+    public CompletableFuture<Map<Map.Entry<String, String>, Double>> identifyTemperaturesAsync(
+            List<Map.Entry<String, String>> locations,
+            String serviceName
+    ) {
         log.debug(
-                "Сервис {} вернул температуру {} для города {}",
-                serviceName,
-                temperature,
-                location.getKey()
+                "Запрос температуры в городах {} из сервиса {}",
+                locations,
+                serviceName
         );
-
-        return temperature;
+        return providerRegistry.get(serviceName)
+                .requestTemperatures(locations, weatherResponseCache.forSource(serviceName, weatherClient));
     }
 
     /**
@@ -72,15 +150,38 @@ public class TemperatureServiceImpl implements TemperatureService {
                 "Сохраняем данные для города {} в бд",
                 entity.getCity()
         );
-        temperatureRepository.save(entity);
+        save(Collections.singletonList(entity));
         log.info(
                 "Успешное сохранение данных для города {} в бд",
                 entity.getCity()
         );
     }
 
+    /**
+     * сохранение данных в бд одной транзакцией.
+     * Записи вставляются пакетами размера hibernate.jdbc.batch_size,
+     * значения, совпадающие с предыдущими, продлевают интервалы предыдущих записей.
+     *
+     * @param entities сущности сохраняемые в бд
+     */
+    @Transactional
+    @Override
+    public void insertAll(Collection<TemperatureEntity> entities) {
+        log.info(
+                "Сохраняем данные для {} городов в бд",
+                entities.size()
+        );
+        save(entities);
+        log.info(
+                "Успешное сохранение данных для {} городов в бд",
+                entities.size()
+        );
+    }
+
     /**
      * Поиск сохраненных температур по локации и дате
+     * Период внутри окна последних значений читается из памяти,
+     * значения месяцев, перенесенных из бд, - из хранилища сегментов.
      *
      * @param location локация поиска
      * @param date     дата поиска
@@ -95,14 +196,16 @@ public class TemperatureServiceImpl implements TemperatureService {
                 date
         );
 
-        Collection<TemperatureEntity> entities = temperatureRepository.findAllByTimeCreateBetweenAndCityOrCountry(
-                date.atStartOfDay(),
-                date.plusDays(1).atStartOfDay(),
-                location,
-                location
-        );
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        Set<Integer> ids = locationDirectory.resolve(location);
+        StringBuilder sb = new StringBuilder();
+        int count = ids.isEmpty() ? 0 : readingWindow.appendTo(ids, start, end, sb);
+        if (count < 0) {
+            count = appendStored(ids, start, end, sb);
+        }
 
-        if (entities.isEmpty()) {
+        if (count == 0) {
             log.warn(
                     "Данных по локации {} и дате {} не найдены.",
                     location,
@@ -114,17 +217,39 @@ public class TemperatureServiceImpl implements TemperatureService {
                     "Количество найденных записей для локации {} и даты {} равно {}",
                     location,
                     date,
-                    entities.size()
+                    count
             );
-            StringBuffer sb = new StringBuffer();
-            entities.forEach(entity -> sb.append(entity.getTemperature()).append(" | ").append(entity.getTimeCreate())
-                    .append("\n"));
             return sb.toString();
         }
     }
 
     /**
-     * Поиск сохраненных температур по локации
+     * Дописывает значения локаций за период из бд и хранилища сегментов.
+     *
+     * @return количество значений
+     */
+    private int appendStored(Set<Integer> ids, LocalDateTime start, LocalDateTime end, StringBuilder sb) {
+        LocalDateTime from = readingIntervals.lookback(start);
+        List<TemperatureEntity> entities = segmentStore.merge(
+                readingIntervals.expand(temperatureRepository.findAllByTimeCreateBetweenAndLocationIdIn(
+                        from,
+                        end,
+                        ids
+                )),
+                ids,
+                from,
+                end
+        );
+        entities.removeIf(entity -> entity.getTimeCreate().isBefore(start) || entity.getTimeCreate().isAfter(end));
+        entities.forEach(entity -> sb.append(entity.getTemperature()).append(" | ").append(entity.getTimeCreate())
+                .append("\n"));
+        return entities.size();
+    }
+
+    /**
+     * Поиск сохраненных температур по локации.
+     * Последнее значение берется из кэша, при отсутствии в кэше - из бд с учетом интервалов,
+     * открытых на этом экземпляре.
      *
      * @param location локация поиска
      * @return результат поиска
@@ -135,8 +260,21 @@ public class TemperatureServiceImpl implements TemperatureService {
                 "Запрос поиска последней сохраненной температуры для локации {}",
                 location
         );
-        Optional<TemperatureEntity> optional = temperatureRepository
-                .findDistinctFirstByCityOrCountryOrderByTimeCreateDesc(location, location);
+        Optional<TemperatureEntity> optional = latestTemperatureCache.get(location);
+        if (!optional.isPresent()) {
+            Set<Integer> ids = locationDirectory.resolve(location);
+            if (!ids.isEmpty()) {
+                List<TemperatureEntity> rows = temperatureRepository.findLastByLocationIdIn(
+                        ids,
+                        readingIntervals.getMaxInterval().getSeconds()
+                );
+                optional = rows.stream()
+                        .map(locationDirectory::fill)
+                        .map(readingIntervals::last)
+                        .max(Comparator.comparing(TemperatureEntity::getTimeCreate));
+                optional.ifPresent(latestTemperatureCache::put);
+            }
+        }
 
         if (optional.isPresent()) {
             log.debug(
@@ -155,90 +293,136 @@ public class TemperatureServiceImpl implements TemperatureService {
     }
 
     /**
-     * Получение температуры в указанном городе из указанного сервиса
+     * Поиск агрегатов температуры по локации и дате
      *
-     * @param location     город и страна
-     * @param source       ключ и урл
-     * @param serviceName  имя сервиса
-     * @return температура
+     * @param location    локация поиска
+     * @param date        дата поиска, если не задана - текущая дата
+     * @param granularity детализация, для RAW возвращаются сохраненные записи
+     * @return результат поиска
      */
-    private Double requestTemperature(
-            Map.Entry<String, String> location,
-            Map<String, String> source,
-            String serviceName
-    ) throws HttpClientErrorException, IncorrectResponseException {
-        switch (serviceName) {
-            case "openweathermap": {
-                String url = UriComponentsBuilder.fromHttpUrl(source.get("url"))
-                        .queryParam("appid", source.get("key"))
-                        .queryParam("q", location.getKey())
-                        .queryParam("units", "metric")
-                        .encode().toUriString();
-
-                log.debug(
-                        "Сформированный URL для запроса температуры в локации {}: {}",
-                        location,
-                        url
-                );
-                OpenWeatherMapDto dto = restTemplate.getForObject(url, OpenWeatherMapDto.class);
-                if (dto != null) {
-                    return dto.getTemperature();
-                }
-                else {
-                    log.error(
-                            "При запросе к сервису {} был получен не корректный результат.",
-                            serviceName
-                    );
-                    throw new IncorrectResponseException("В ответ на запрос получен не корректный результат.");
-                }
-            }
-            case "weatherapi": {
-                String url = UriComponentsBuilder.fromHttpUrl(source.get("url"))
-                        .queryParam("key", source.get("key"))
-                        .queryParam("q", location.getKey())
-                        .encode().toUriString();
-
-                log.debug(
-                        "Сформированный URL для запроса температуры в локации {}: {}",
-                        location,
-                        url
-                );
-                WeatherApiDto dto = restTemplate.getForObject(url, WeatherApiDto.class);
-                if (dto != null) {
-                    return dto.getTemperature();
-                } else {
-                    log.error(
-                            "При запросе к сервису {} был получен не корректный результат.",
-                            serviceName
-                    );
-                    throw new IncorrectResponseException("В ответ на запрос получен не корректный результат.");
-                }
-            }
-            case "weatherbit": {
-                String url = UriComponentsBuilder.fromHttpUrl(source.get("url"))
-                        .queryParam("key", source.get("key"))
-                        .queryParam("city", location.getKey())
-                        .encode().toUriString();
-
-                log.debug(
-                        "Сформированный URL для запроса температуры в локации {}: {}",
-                        location,
-                        url
-                );
+    @Override
+    public String getTemperature(String location, LocalDate date, Granularity granularity) {
+        if (granularity == Granularity.RAW) return getTemperature(location, date);
+        LocalDate day = date != null ? date : LocalDate.now();
+        log.info(
+                "Запрос поиска агрегатов температуры {} для локации {} и даты {}",
+                granularity,
+                location,
+                day
+        );
 
-                WeatherBitDto dto = restTemplate.getForObject(url, WeatherBitDto.class);
-                if (dto != null) {
-                    return dto.getTemperature();
-                } else {
-                    log.error(
-                            "При запросе к сервису {} был получен не корректный результат.",
-                            serviceName
-                    );
-                    throw new IncorrectResponseException("В ответ на запрос получен не корректный результат.");
+        List<TemperatureRollupDto> rollups = temperatureRollupRepository.find(
+                granularity,
+                location,
+                day.atStartOfDay(),
+                day.plusDays(1).atStartOfDay()
+        );
+
+        if (rollups.isEmpty()) {
+            log.warn(
+                    "Данных по локации {} и дате {} не найдены.",
+                    location,
+                    day
+            );
+            return "Данных по указанной локации и дате не найдены.";
+        }
+        StringBuilder sb = new StringBuilder();
+        rollups.forEach(rollup -> sb.append(BigDecimal.valueOf(rollup.getAvgTemperature())
+                        .setScale(2, RoundingMode.HALF_EVEN).doubleValue())
+                .append(" | ").append(rollup.getMinTemperature())
+                .append(" | ").append(rollup.getMaxTemperature())
+                .append(" | ").append(rollup.getCount())
+                .append(" | ").append(rollup.getBucket())
+                .append("\n"));
+        return sb.toString();
+    }
+
+    /**
+     * Записывает в бд интервалы, которые не записывались дольше flush-interval, например,
+     * если значение локации перестало приходить, и закрывает интервалы локаций,
+     * которые больше не опрашиваются этим экземпляром.
+     */
+    @Scheduled(
+            fixedDelayString = "#{@weatherProperties.intervals.flushInterval.toMillis()}",
+            initialDelayString = "#{@weatherProperties.intervals.flushInterval.toMillis()}"
+    )
+    public void flushStaleIntervals() {
+        Predicate<Map.Entry<String, String>> owned = clusterMembership.ownership();
+        List<TemperatureEntity> rows = readingIntervals.flush(id -> {
+            Map.Entry<String, String> location = locationDirectory.describe(id);
+            return location != null && owned.test(location);
+        });
+        if (!rows.isEmpty()) {
+            updateIntervals(rows);
+        }
+    }
+
+    /**
+     * Записывает в бд интервалы, продленные после последней записи, чтобы не потерять значения при остановке.
+     */
+    @PreDestroy
+    public void flushIntervals() {
+        List<TemperatureEntity> rows = readingIntervals.drain();
+        if (!rows.isEmpty() && updateIntervals(rows)) {
+            log.info(
+                    "При остановке записано {} интервалов значений температуры",
+                    rows.size()
+            );
+        }
+    }
+
+    /**
+     * @return false, если интервалы не записаны из-за ошибки бд
+     */
+    private boolean updateIntervals(List<TemperatureEntity> rows) {
+        try {
+            temperatureRecordRepository.updateIntervals(rows);
+            return true;
+        } catch (DataAccessException e) {
+            log.error(
+                    "Не удалось записать {} интервалов значений температуры",
+                    rows.size(),
+                    e
+            );
+            return false;
+        }
+    }
+
+    /**
+     * Вставляет новые значения и продлевает интервалы повторяющихся значений.
+     * Агрегаты и кэш последних значений учитывают все значения.
+     */
+    private void save(Collection<TemperatureEntity> entities) {
+        entities.forEach(locationDirectory::assign);
+        ReadingIntervals.Plan plan = readingIntervals.plan(entities);
+        temperatureRepository.saveAll(plan.getInserts());
+        temperatureRecordRepository.updateIntervals(plan.getUpdates());
+        temperatureRollupRepository.add(entities);
+        afterCommit(() -> {
+            readingIntervals.commit(plan);
+            latestTemperatureCache.putAll(entities);
+            readingWindow.addAll(plan.getRows());
+        });
+        log.debug(
+                "Вставлено {} записей, обновлено {} интервалов",
+                plan.getInserts().size(),
+                plan.getUpdates().size()
+        );
+    }
+
+    /**
+     * Выполняет действие после фиксации текущей транзакции или сразу, если транзакции нет.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
                 }
-            }
-            default:
-                throw new IllegalStateException("Unexpected value: " + serviceName);
+            });
+        } else {
+            action.run();
         }
     }
 }
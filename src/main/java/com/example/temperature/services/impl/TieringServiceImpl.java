@@ -0,0 +1,257 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.readings.ReadingIntervals;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис переноса старых значений из бд в хранилище сегментов.
+ * Секция таблицы reading за месяц, конец которого старше weather.tiering.after, отсоединяется
+ * и переименовывается в reading_tier_yyyyMM, затем ее значения записываются в хранилище сегментов
+ * и таблица удаляется. Значения, сохраненные за этот месяц после отсоединения, попадают в секцию
+ * reading_default и читаются из бд. Если перенос прервался, он продолжается со следующего запуска.
+ * Значения интервала, который продолжается после конца месяца, не попадают в сегмент месяца,
+ * а сохраняются в бд новой записью, начинающейся с первого из них, и переносятся вместе со своим месяцем.
+ */
+@Service
+@Slf4j
+public class TieringServiceImpl {
+    private static final String TABLE = "reading";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String TIER_PREFIX = TABLE + "_tier_";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int FETCH_SIZE = 10_000;
+    private static final String INSERT_OVERFLOW = "INSERT INTO " + TABLE +
+            " (location_id, time_create, temperature, valid_to, samples) VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final WeatherProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate detachTemplate;
+    private final ClusterMembership clusterMembership;
+    private final SegmentStore segmentStore;
+    private final ReadingIntervals readingIntervals;
+
+    @Autowired
+    public TieringServiceImpl(
+            WeatherProperties properties,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ClusterMembership clusterMembership,
+            SegmentStore segmentStore,
+            ReadingIntervals readingIntervals
+    ) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.detachTemplate = new TransactionTemplate(transactionManager);
+        this.clusterMembership = clusterMembership;
+        this.segmentStore = segmentStore;
+        this.readingIntervals = readingIntervals;
+    }
+
+    /**
+     * Задача переноса, запускающаяся по таймеру.
+     * В кластерном режиме выполняется только лидером.
+     */
+    @Scheduled(cron = "${weather.tiering.cron:0 30 3 * * *}")
+    public void moveAgedMonths() {
+        if (!properties.getTiering().isEnabled()) {
+            return;
+        }
+        if (!clusterMembership.isLeader()) {
+            log.debug("Перенос старых значений выполняет лидер кластера");
+            return;
+        }
+        moveAgedMonths(LocalDateTime.now());
+    }
+
+    void moveAgedMonths(LocalDateTime now) {
+        LocalDateTime boundary = now.minus(properties.getTiering().getAfter());
+        for (String partition : tables(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = ?",
+                TABLE
+        )) {
+            YearMonth month = parseMonth(partition, PARTITION_PREFIX);
+            if (month == null || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(boundary)) {
+                continue;
+            }
+            log.info("Отсоединение секции {} для переноса в хранилище сегментов", partition);
+            try {
+                detachTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+                    jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + TIER_PREFIX + month.format(SUFFIX));
+                });
+            } catch (DataAccessException | TransactionException e) {
+                log.error(
+                        "Не удалось отсоединить секцию {}",
+                        partition,
+                        e
+                );
+            }
+        }
+        for (String table : tables(
+                "SELECT relname FROM pg_class WHERE relkind = 'r' AND relname LIKE ?",
+                TIER_PREFIX + "%"
+        )) {
+            YearMonth month = parseMonth(table, TIER_PREFIX);
+            if (month == null) {
+                continue;
+            }
+            try {
+                move(table, month);
+            } catch (DataAccessException | UncheckedIOException e) {
+                log.error(
+                        "Не удалось перенести таблицу {} в хранилище сегментов",
+                        table,
+                        e
+                );
+            }
+        }
+    }
+
+    /**
+     * Записывает значения таблицы в хранилище и удаляет таблицу.
+     * Значения читаются курсором в порядке локации и времени, интервалы повторяющихся значений
+     * разворачиваются, поэтому в памяти хранится только сжатый сегмент текущей локации.
+     * Значения после конца месяца вставляются в бд до записи месяца в хранилище,
+     * поэтому при повторном переносе не теряются и не дублируются.
+     */
+    private void move(String table, YearMonth month) {
+        if (!segmentStore.contains(month)) {
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+            List<TemperatureEntity> overflow = new ArrayList<>();
+            try (SegmentStore.MonthWriter writer = segmentStore.open(month)) {
+                transactionTemplate.execute(status -> {
+                    jdbcTemplate.query(
+                            connection -> {
+                                PreparedStatement statement = connection.prepareStatement(
+                                        "SELECT location_id, time_create, temperature, valid_to, samples FROM " +
+                                                table + " ORDER BY location_id, time_create"
+                                );
+                                statement.setFetchSize(FETCH_SIZE);
+                                return statement;
+                            },
+                            (RowCallbackHandler) resultSet -> {
+                                List<TemperatureEntity> samples = readingIntervals.expand(toEntity(resultSet));
+                                int inMonth = 0;
+                                while (inMonth < samples.size() && samples.get(inMonth).getTimeCreate().isBefore(end)) {
+                                    add(writer, samples.get(inMonth++));
+                                }
+                                if (inMonth < samples.size()) {
+                                    overflow.add(row(samples.subList(inMonth, samples.size())));
+                                }
+                            }
+                    );
+                    return null;
+                });
+                if (!overflow.isEmpty()) {
+                    insert(overflow);
+                    log.info(
+                            "Значения {} интервалов после конца месяца {} сохранены в бд новыми записями",
+                            overflow.size(),
+                            month
+                    );
+                }
+                writer.commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        log.info("Удаление перенесенной таблицы {}", table);
+        jdbcTemplate.execute("DROP TABLE " + table);
+    }
+
+    private void insert(List<TemperatureEntity> rows) {
+        jdbcTemplate.batchUpdate(INSERT_OVERFLOW, rows, rows.size(), (statement, row) -> {
+            statement.setInt(1, row.getLocationId());
+            statement.setTimestamp(2, Timestamp.valueOf(row.getTimeCreate()));
+            if (row.getTemperature() != null) {
+                statement.setShort(3, (short) Math.round(row.getTemperature() * 100));
+            } else {
+                statement.setNull(3, Types.SMALLINT);
+            }
+            statement.setTimestamp(4, row.getValidTo() != null ? Timestamp.valueOf(row.getValidTo()) : null);
+            statement.setInt(5, row.getSamples());
+        });
+    }
+
+    /**
+     * Запись интервала из последовательных значений одной записи.
+     */
+    private static TemperatureEntity row(List<TemperatureEntity> samples) {
+        TemperatureEntity first = samples.get(0);
+        TemperatureEntity row = new TemperatureEntity();
+        row.setLocationId(first.getLocationId());
+        row.setTemperature(first.getTemperature());
+        row.setTimeCreate(first.getTimeCreate());
+        row.setValidTo(samples.size() > 1 ? samples.get(samples.size() - 1).getTimeCreate() : null);
+        row.setSamples(samples.size());
+        return row;
+    }
+
+    private List<String> tables(String sql, String argument) {
+        return jdbcTemplate.queryForList(sql, String.class, argument);
+    }
+
+    private static void add(SegmentStore.MonthWriter writer, TemperatureEntity sample) {
+        try {
+            writer.add(sample);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TemperatureEntity toEntity(ResultSet resultSet) throws SQLException {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(resultSet.getInt("location_id"));
+        entity.setTimeCreate(resultSet.getTimestamp("time_create").toLocalDateTime());
+        short temperature = resultSet.getShort("temperature");
+        entity.setTemperature(resultSet.wasNull() ? null : temperature / 100.0);
+        Timestamp validTo = resultSet.getTimestamp("valid_to");
+        entity.setValidTo(validTo != null ? validTo.toLocalDateTime() : null);
+        entity.setSamples(resultSet.getInt("samples"));
+        return entity;
+    }
+
+    private static YearMonth parseMonth(String table, String prefix) {
+        if (!table.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(table.substring(prefix.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.threads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Создание исполнителей на виртуальных потоках.
+ * Вариант для профиля java21: API виртуальных потоков вызывается напрямую,
+ * класс собирается компилятором JDK 21 отдельно от остального приложения.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true, класс Java 21 загружается только на JVM с виртуальными потоками
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Исполнитель, создающий отдельный виртуальный поток для каждой задачи.
+     *
+     * @param prefix префикс имени потоков
+     * @return исполнитель
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+    }
+}
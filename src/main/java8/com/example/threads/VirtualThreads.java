@@ -0,0 +1,67 @@
+package com.example.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Создание исполнителей на виртуальных потоках.
+ * Вариант по умолчанию: API виртуальных потоков (Java 21) вызывается через reflection,
+ * в профиле java21 класс заменяется вариантом из src/main/java21.
+ * Пакет не сканируется Spring, потому что вариант для Java 21 собирается в классы версии 65,
+ * которые Spring Framework 5.3 не читает.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true, если JVM поддерживает виртуальные потоки
+     */
+    public static boolean isSupported() {
+        try {
+            createFactory("probe-");
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Исполнитель, создающий отдельный виртуальный поток для каждой задачи.
+     *
+     * @param prefix префикс имени потоков
+     * @return исполнитель
+     * @throws IllegalStateException если JVM не поддерживает виртуальные потоки
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = createFactory(prefix);
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Виртуальные потоки не поддерживаются", unwrap(e));
+        }
+    }
+
+    private static ThreadFactory createFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual")
+                    .getMethod("name", String.class, long.class)
+                    .invoke(builder, prefix, 0L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory")
+                    .invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Виртуальные потоки не поддерживаются", unwrap(e));
+        }
+    }
+
+    private static Throwable unwrap(ReflectiveOperationException e) {
+        return e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+    }
+}
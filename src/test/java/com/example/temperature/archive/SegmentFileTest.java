@@ -0,0 +1,110 @@
+package com.example.temperature.archive;
+
+import com.example.temperature.entities.TemperatureEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class SegmentFileTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2022, 9, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readShouldBeReturnWrittenValues() throws Exception {
+        Random random = new Random(1);
+        List<TemperatureEntity> expected = new ArrayList<>();
+        LocalDateTime time = START;
+        for (int i = 0; i < 5000; i++) {
+            switch (i % 5) {
+                case 0:
+                    time = time.plusSeconds(5);
+                    break;
+                case 1:
+                    time = time.plusNanos(5_000_000_000L + random.nextInt(10_000) * 1000L);
+                    break;
+                case 2:
+                    time = time.plusDays(random.nextInt(3));
+                    break;
+                default:
+                    time = time.plusNanos(random.nextInt(1_000_000) * 1000L);
+            }
+            Double temperature = i % 97 == 0 ? null : Math.round(random.nextGaussian() * 1500) / 100.0;
+            if (i % 3 != 0 && !expected.isEmpty()) {
+                temperature = expected.get(expected.size() - 1).getTemperature();
+            }
+            expected.add(entity(time, temperature));
+        }
+        Path path = write(expected, 100);
+
+        List<TemperatureEntity> actualResult = SegmentFile.read(path, START, START.plusYears(100));
+
+        Assertions.assertEquals(expected.size(), actualResult.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getTimeCreate(), actualResult.get(i).getTimeCreate());
+            Assertions.assertEquals(expected.get(i).getTemperature(), actualResult.get(i).getTemperature());
+            Assertions.assertEquals(Integer.valueOf(7), actualResult.get(i).getLocationId());
+        }
+    }
+
+    @Test
+    void readShouldBeReturnOnlyValuesOfPeriod() throws Exception {
+        List<TemperatureEntity> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(entity(START.plusSeconds(5L * i), 10.5));
+        }
+        Path path = write(values, 64);
+
+        List<TemperatureEntity> actualResult = SegmentFile.read(path, START.plusSeconds(500), START.plusSeconds(1000));
+
+        Assertions.assertEquals(101, actualResult.size());
+        Assertions.assertEquals(START.plusSeconds(500), actualResult.get(0).getTimeCreate());
+        Assertions.assertEquals(START.plusSeconds(1000), actualResult.get(100).getTimeCreate());
+        Assertions.assertTrue(SegmentFile.read(path, START.minusDays(1), START.minusSeconds(1)).isEmpty());
+    }
+
+    @Test
+    void repeatedValuesWithRegularTimeShouldBeCompressedToFewBits() throws Exception {
+        List<TemperatureEntity> values = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            values.add(entity(START.plusSeconds(5L * i), i < 50_000 ? 10.5 : 11.0));
+        }
+
+        Path path = write(values, 1024);
+
+        Assertions.assertTrue(Files.size(path) < 100_000 * 3 / 8, "Размер сегмента " + Files.size(path));
+    }
+
+    @Test
+    void writerShouldBeRejectValuesOutOfTimeOrder() {
+        SegmentFile.Writer writer = new SegmentFile.Writer(7, 16);
+        writer.add(entity(START.plusSeconds(5), 10.5));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> writer.add(entity(START, 10.5)));
+    }
+
+    private Path write(List<TemperatureEntity> values, int blockSize) throws Exception {
+        SegmentFile.Writer writer = new SegmentFile.Writer(7, blockSize);
+        values.forEach(writer::add);
+        Path path = directory.resolve("7.seg");
+        writer.writeTo(path);
+        return path;
+    }
+
+    private static TemperatureEntity entity(LocalDateTime timeCreate, Double temperature) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(7);
+        entity.setTimeCreate(timeCreate);
+        entity.setTemperature(temperature);
+        return entity;
+    }
+}
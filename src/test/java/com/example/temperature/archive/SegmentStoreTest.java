@@ -0,0 +1,158 @@
+package com.example.temperature.archive;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class SegmentStoreTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2022, 9);
+    private static final LocalDateTime START = MONTH.atDay(1).atStartOfDay();
+
+    @TempDir
+    Path directory;
+
+    private SegmentStore segmentStore;
+
+    @BeforeEach
+    void setUp() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.getTiering().setDirectory(directory.toString());
+        properties.getTiering().setBlockSize(4);
+        segmentStore = new SegmentStore(properties);
+    }
+
+    @Test
+    void committedMonthShouldBeReadByLocation() throws Exception {
+        try (SegmentStore.MonthWriter writer = segmentStore.open(MONTH)) {
+            for (int i = 0; i < 10; i++) {
+                writer.add(entity(1, START.plusHours(i), i));
+            }
+            for (int i = 0; i < 10; i++) {
+                writer.add(entity(2, START.plusHours(i), 100 + i));
+            }
+            Assertions.assertEquals(20, writer.commit());
+        }
+
+        List<TemperatureEntity> actualResult = segmentStore.read(
+                Collections.singleton(2),
+                START.plusHours(3),
+                START.plusHours(5)
+        );
+
+        Assertions.assertTrue(segmentStore.contains(MONTH));
+        Assertions.assertEquals(
+                Arrays.asList(103.0, 104.0, 105.0),
+                actualResult.stream().map(TemperatureEntity::getTemperature).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    void uncommittedMonthShouldBeNotVisible() throws Exception {
+        try (SegmentStore.MonthWriter writer = segmentStore.open(MONTH)) {
+            writer.add(entity(1, START, 1));
+        }
+
+        Assertions.assertFalse(segmentStore.contains(MONTH));
+        Assertions.assertTrue(segmentStore.read(Collections.singleton(1), START, START.plusDays(1)).isEmpty());
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void mergeShouldBeReturnValuesInTimeOrderWithoutDuplicates() throws Exception {
+        try (SegmentStore.MonthWriter writer = segmentStore.open(MONTH)) {
+            writer.add(entity(1, START, 1));
+            writer.add(entity(1, START.plusHours(2), 3));
+            writer.commit();
+        }
+        List<TemperatureEntity> values = Arrays.asList(
+                entity(1, START.plusHours(1), 2),
+                entity(1, START.plusHours(2), 3)
+        );
+
+        List<TemperatureEntity> actualResult = segmentStore.merge(
+                values,
+                Collections.singleton(1),
+                START,
+                START.plusDays(1)
+        );
+
+        Assertions.assertEquals(
+                Arrays.asList(1.0, 2.0, 3.0),
+                actualResult.stream().map(TemperatureEntity::getTemperature).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    void mergeWithoutArchivedMonthsShouldBeReturnValues() {
+        List<TemperatureEntity> values = Collections.singletonList(entity(1, START, 1));
+
+        Assertions.assertSame(values, segmentStore.merge(values, Collections.singleton(1), START, START.plusDays(1)));
+    }
+
+    @Test
+    void iteratorMergeShouldBeReadAllLocationsOfArchivedMonthsBeforeEnd() throws Exception {
+        try (SegmentStore.MonthWriter writer = segmentStore.open(MONTH)) {
+            writer.add(entity(1, START, 1));
+            writer.add(entity(1, START.plusHours(3), 4));
+            writer.add(entity(2, START.plusHours(1), 2));
+            writer.commit();
+        }
+        List<TemperatureEntity> values = Arrays.asList(
+                entity(2, START.plusHours(1), 2),
+                entity(1, START.plusHours(2), 3)
+        );
+        List<Double> actualResult = new ArrayList<>();
+
+        segmentStore.merge(values.iterator(), null, START, START.plusHours(3))
+                .forEachRemaining(sample -> actualResult.add(sample.getTemperature()));
+
+        Assertions.assertEquals(Arrays.asList(1.0, 2.0, 3.0), actualResult);
+    }
+
+    @Test
+    void lastShouldBeSearchedFromLatestMonth() throws Exception {
+        try (SegmentStore.MonthWriter writer = segmentStore.open(MONTH.minusMonths(1))) {
+            writer.add(entity(1, START.minusDays(1), 1));
+            writer.add(entity(2, START.minusDays(2), 2));
+            writer.add(entity(2, START.minusDays(1), 3));
+            writer.commit();
+        }
+        try (SegmentStore.MonthWriter writer = segmentStore.open(MONTH)) {
+            writer.add(entity(1, START, 4));
+            writer.add(entity(1, START.plusDays(1), 5));
+            writer.commit();
+        }
+
+        Map<Integer, TemperatureEntity> actualResult = segmentStore.last(Arrays.asList(1, 2, 3));
+
+        Assertions.assertEquals(2, actualResult.size());
+        Assertions.assertEquals(5.0, actualResult.get(1).getTemperature());
+        Assertions.assertEquals(3.0, actualResult.get(2).getTemperature());
+    }
+
+    private static TemperatureEntity entity(int locationId, LocalDateTime timeCreate, double temperature) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(locationId);
+        entity.setTimeCreate(timeCreate);
+        entity.setTemperature(temperature);
+        return entity;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.temperature.cache;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.LocationRepository;
+import com.example.temperature.repositories.TemperatureRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+
+class LatestTemperatureCacheTest {
+
+    private LatestTemperatureCache cache;
+    private TemperatureRepository temperatureRepository;
+    private LocationRepository locationRepository;
+    private WeatherProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        temperatureRepository = Mockito.mock(TemperatureRepository.class);
+        locationRepository = Mockito.mock(LocationRepository.class);
+        properties = new WeatherProperties();
+        LocationDirectory locationDirectory = new LocationDirectory(locationRepository);
+        cache = new LatestTemperatureCache(
+                temperatureRepository,
+                properties,
+                locationDirectory,
+                new ReadingIntervals(properties, locationDirectory)
+        );
+    }
+
+    @Test
+    void getShouldBeReturnLatestEntityOfCountry() {
+        TemperatureEntity moscow = entity("Moscow", "Russia", LocalDateTime.of(2022, 9, 12, 2, 26));
+        TemperatureEntity izhevsk = entity("Izhevsk", "Russia", LocalDateTime.of(2022, 9, 12, 2, 27));
+
+        cache.putAll(Arrays.asList(izhevsk, moscow));
+
+        Assertions.assertSame(izhevsk, cache.get("Russia").orElse(null));
+        Assertions.assertSame(moscow, cache.get("Moscow").orElse(null));
+        Assertions.assertFalse(cache.get("Paris").isPresent());
+    }
+
+    @Test
+    void putShouldBeIgnoreOlderEntity() {
+        TemperatureEntity newer = entity("Izhevsk", "Russia", LocalDateTime.of(2022, 9, 12, 2, 27));
+        TemperatureEntity older = entity("Izhevsk", "Russia", LocalDateTime.of(2022, 9, 12, 2, 26));
+
+        cache.put(newer);
+        cache.put(older);
+
+        Assertions.assertSame(newer, cache.get("Izhevsk").orElse(null));
+    }
+
+    @Test
+    void warmUpShouldBeLoadLatestEntitiesOfConfiguredCities() {
+        Map<String, String> locations = new LinkedHashMap<>();
+        locations.put("Izhevsk", "Russia");
+        properties.setLocations(locations);
+        LocationEntity location = new LocationEntity();
+        location.setId(7L);
+        location.setCity("Izhevsk");
+        location.setCountry("Russia");
+        when(locationRepository.findAll()).thenReturn(Collections.singletonList(location));
+        TemperatureEntity izhevsk = new TemperatureEntity();
+        izhevsk.setLocationId(7);
+        izhevsk.setTemperature(10.0);
+        izhevsk.setTimeCreate(LocalDateTime.of(2022, 9, 12, 2, 27));
+        when(temperatureRepository.findFirstByLocationIdOrderByTimeCreateDesc(7)).thenReturn(Optional.of(izhevsk));
+
+        cache.warmUp();
+
+        Assertions.assertSame(izhevsk, cache.get("Izhevsk").orElse(null));
+        Assertions.assertSame(izhevsk, cache.get("Russia").orElse(null));
+    }
+
+    private static TemperatureEntity entity(String city, String country, LocalDateTime timeCreate) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setCity(city);
+        entity.setCountry(country);
+        entity.setTemperature(10.0);
+        entity.setTimeCreate(timeCreate);
+        return entity;
+    }
+}
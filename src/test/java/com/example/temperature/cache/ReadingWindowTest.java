@@ -0,0 +1,249 @@
+package com.example.temperature.cache;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.locations.LocationRemovedEvent;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.TemperatureRecordRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+class ReadingWindowTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 9, 12, 12, 0);
+    private static final LocalDateTime START = NOW.toLocalDate().atStartOfDay();
+    private static final LocalDateTime END = START.plusDays(1);
+
+    private ReadingWindow readingWindow;
+    private WeatherProperties properties;
+    private TemperatureRecordRepository temperatureRecordRepository;
+    private ReadingIntervals readingIntervals;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        properties.getWindow().setEnabled(true);
+        properties.getWindow().setCapacity(4);
+        temperatureRecordRepository = Mockito.mock(TemperatureRecordRepository.class);
+        readingIntervals = new ReadingIntervals(properties, Mockito.mock(LocationDirectory.class));
+        readingWindow = new ReadingWindow(properties, temperatureRecordRepository, readingIntervals, () -> NOW);
+    }
+
+    @Test
+    void periodInsideWindowShouldBeReadFromMemory() {
+        doAnswer(invocation -> {
+            Consumer<TemperatureEntity> action = invocation.getArgument(1);
+            action.accept(entity(1, 10.5, START.plusHours(1)));
+            return null;
+        }).when(temperatureRecordRepository).forEachSince(eq(NOW.minusHours(24)), any());
+        readingWindow.rebuild();
+        readingWindow.addAll(Arrays.asList(
+                entity(1, 11.0, START.plusHours(2).plusSeconds(5)),
+                entity(1, null, START.plusHours(3).plusNanos(123_000_000))
+        ));
+        StringBuilder out = new StringBuilder();
+
+        int actualResult = readingWindow.appendTo(Collections.singleton(1), START, END, out);
+
+        Assertions.assertEquals(3, actualResult);
+        Assertions.assertEquals(
+                "10.5 | " + START.plusHours(1) + "\n"
+                        + "11.0 | " + START.plusHours(2).plusSeconds(5) + "\n"
+                        + "null | " + START.plusHours(3).plusNanos(123_000_000) + "\n",
+                out.toString()
+        );
+        Assertions.assertEquals(1, readingWindow.getHits());
+    }
+
+    @Test
+    void periodBeforeWindowShouldBeReadFromDatabase() {
+        readingWindow.rebuild();
+
+        int actualResult = readingWindow.appendTo(
+                Collections.singleton(1),
+                START.minusDays(1),
+                START,
+                new StringBuilder()
+        );
+
+        Assertions.assertEquals(-1, actualResult);
+        Assertions.assertEquals(1, readingWindow.getMisses());
+    }
+
+    @Test
+    void windowShouldBeNotUsedBeforeRebuild() {
+        readingWindow.addAll(Collections.singletonList(entity(1, 10.5, NOW)));
+
+        Assertions.assertEquals(-1, readingWindow.appendTo(Collections.singleton(1), NOW, END, new StringBuilder()));
+    }
+
+    @Test
+    void evictedValuesShouldBeReadFromDatabase() {
+        readingWindow.rebuild();
+        for (int i = 0; i < 6; i++) {
+            readingWindow.addAll(Collections.singletonList(entity(1, (double) i, NOW.plusMinutes(i))));
+        }
+        StringBuilder out = new StringBuilder();
+
+        Assertions.assertEquals(-1, readingWindow.appendTo(Collections.singleton(1), START, END, out));
+        Assertions.assertEquals(4, readingWindow.appendTo(Collections.singleton(1), NOW.plusMinutes(1).plusSeconds(1),
+                END, out));
+        Assertions.assertTrue(out.toString().startsWith("2.0 | "));
+    }
+
+    @Test
+    void valuesShouldBeKeptInTimeOrderWithoutDuplicates() {
+        readingWindow.rebuild();
+        readingWindow.addAll(Arrays.asList(
+                entity(1, 3.0, NOW.plusMinutes(3)),
+                entity(1, 1.0, NOW.plusMinutes(1)),
+                entity(1, 2.0, NOW.plusMinutes(2)),
+                entity(1, 5.0, NOW.plusMinutes(1))
+        ));
+        StringBuilder out = new StringBuilder();
+
+        readingWindow.appendTo(Collections.singleton(1), START, END, out);
+
+        Assertions.assertEquals(
+                "1.0 | " + NOW.plusMinutes(1) + "\n"
+                        + "2.0 | " + NOW.plusMinutes(2) + "\n"
+                        + "3.0 | " + NOW.plusMinutes(3) + "\n",
+                out.toString()
+        );
+    }
+
+    @Test
+    void severalLocationsShouldBeMergedByTimeAndLocation() {
+        readingWindow.rebuild();
+        readingWindow.addAll(Arrays.asList(
+                entity(2, 2.0, NOW),
+                entity(1, 1.0, NOW),
+                entity(2, 4.0, NOW.plusMinutes(2)),
+                entity(1, 3.0, NOW.plusMinutes(1))
+        ));
+        StringBuilder out = new StringBuilder();
+
+        int actualResult = readingWindow.appendTo(Arrays.asList(2, 1, 3), START, END, out);
+
+        Assertions.assertEquals(4, actualResult);
+        Assertions.assertEquals(
+                "1.0 | " + NOW + "\n"
+                        + "2.0 | " + NOW + "\n"
+                        + "3.0 | " + NOW.plusMinutes(1) + "\n"
+                        + "4.0 | " + NOW.plusMinutes(2) + "\n",
+                out.toString()
+        );
+    }
+
+    @Test
+    void locationsOverLimitShouldBeReadFromDatabase() {
+        properties.getWindow().setMaxLocations(1);
+        readingWindow.rebuild();
+        readingWindow.addAll(Arrays.asList(entity(1, 1.0, NOW), entity(2, 2.0, NOW)));
+
+        Assertions.assertEquals(1, readingWindow.size());
+        Assertions.assertEquals(64, readingWindow.memory());
+        Assertions.assertEquals(1, readingWindow.appendTo(Collections.singleton(1), START, END, new StringBuilder()));
+        Assertions.assertEquals(-1, readingWindow.appendTo(Collections.singleton(2), START, END, new StringBuilder()));
+    }
+
+    @Test
+    void windowShouldBeDisabledInClusterMode() {
+        properties.getCluster().setEnabled(true);
+        readingWindow = new ReadingWindow(properties, temperatureRecordRepository, readingIntervals, () -> NOW);
+        readingWindow.rebuild();
+        readingWindow.addAll(Collections.singletonList(entity(1, 1.0, NOW)));
+
+        Assertions.assertEquals(-1, readingWindow.appendTo(Collections.singleton(1), START, END, new StringBuilder()));
+        Assertions.assertEquals(0, readingWindow.size());
+    }
+
+    @Test
+    void extendedIntervalShouldBeReplaceValuesOfPreviousSave() {
+        readingWindow.rebuild();
+        readingWindow.addAll(Collections.singletonList(row(NOW, NOW.plusMinutes(2), 3)));
+        readingWindow.addAll(Collections.singletonList(row(NOW, NOW.plusMinutes(3), 4)));
+        StringBuilder out = new StringBuilder();
+
+        int actualResult = readingWindow.appendTo(Collections.singleton(1), START, END, out);
+
+        StringBuilder expectedResult = new StringBuilder();
+        for (TemperatureEntity sample : readingIntervals.expand(row(NOW, NOW.plusMinutes(3), 4))) {
+            expectedResult.append("10.5 | ").append(sample.getTimeCreate()).append('\n');
+        }
+        Assertions.assertEquals(4, actualResult);
+        Assertions.assertEquals(expectedResult.toString(), out.toString());
+    }
+
+    @Test
+    void removedLocationShouldBeReleasedAndReadFromDatabase() {
+        readingWindow.rebuild();
+        readingWindow.addAll(Arrays.asList(entity(1, 1.0, NOW), entity(2, 2.0, NOW)));
+
+        readingWindow.onLocationRemoved(new LocationRemovedEvent(1, "Izhevsk", "Russia"));
+        readingWindow.addAll(Collections.singletonList(entity(1, 3.0, NOW.plusMinutes(1))));
+
+        Assertions.assertEquals(1, readingWindow.size());
+        Assertions.assertEquals(-1, readingWindow.appendTo(Collections.singleton(1), START, END, new StringBuilder()));
+        Assertions.assertEquals(1, readingWindow.appendTo(Collections.singleton(2), START, END, new StringBuilder()));
+    }
+
+    @Test
+    void appendTimeShouldBeSameAsLocalDateTimeToString() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long micros = (long) (random.nextDouble() * 4_000_000_000L - 2_000_000_000L) * 1_000_000L;
+            switch (i % 4) {
+                case 1:
+                    micros += random.nextInt(60) * 1_000_000L;
+                    break;
+                case 2:
+                    micros += random.nextInt(1000) * 1000L;
+                    break;
+                case 3:
+                    micros += random.nextInt(1_000_000);
+                    break;
+                default:
+            }
+            LocalDateTime time = LocalDateTime.ofEpochSecond(
+                    Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1000,
+                    ZoneOffset.UTC
+            );
+            StringBuilder out = new StringBuilder();
+
+            ReadingWindow.appendTime(micros, out);
+
+            Assertions.assertEquals(time.toString(), out.toString());
+        }
+    }
+
+    private static TemperatureEntity row(LocalDateTime timeCreate, LocalDateTime validTo, int samples) {
+        TemperatureEntity row = entity(1, 10.5, timeCreate);
+        row.setValidTo(validTo);
+        row.setSamples(samples);
+        return row;
+    }
+
+    private static TemperatureEntity entity(int locationId, Double temperature, LocalDateTime timeCreate) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(locationId);
+        entity.setTemperature(temperature);
+        entity.setTimeCreate(timeCreate);
+        return entity;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.temperature.clients;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.exceptions.QuotaExceededException;
+import com.example.temperature.quota.LocationDemand;
+import com.example.temperature.quota.QuotaScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WeatherResponseCacheTest {
+    private static final String URL = "https://api.weatherapi.com/v1/current.json?q=Izhevsk";
+
+    private WeatherProperties properties;
+    private WeatherClient delegate;
+    private AtomicLong now;
+    private WeatherClient client;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        Map<String, Map<String, String>> sources = new HashMap<>();
+        sources.put("weatherapi", Collections.singletonMap("cache-ttl", "2m"));
+        Map<String, String> weatherBit = new HashMap<>();
+        weatherBit.put("requests-per-day", "50");
+        sources.put("weatherbit", weatherBit);
+        properties.setSources(sources);
+        delegate = Mockito.mock(WeatherClient.class);
+        now = new AtomicLong();
+        client = createCache().forSource("weatherapi", delegate);
+    }
+
+    @Test
+    void freshResponseShouldBeReturnedWithoutRequest() {
+        when(delegate.exchange(eq(URL), any(), eq(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(response("first", "\"v1\"", HttpStatus.OK)));
+
+        Assertions.assertEquals("first", client.get(URL, String.class).join());
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        Assertions.assertEquals("first", client.get(URL, String.class).join());
+
+        verify(delegate, times(1)).exchange(eq(URL), any(), eq(String.class));
+    }
+
+    @Test
+    void staleResponseShouldBeRevalidatedWithEtag() {
+        when(delegate.exchange(eq(URL), any(), eq(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(response("first", "\"v1\"", HttpStatus.OK)))
+                .thenReturn(CompletableFuture.completedFuture(response(null, "\"v1\"", HttpStatus.NOT_MODIFIED)));
+
+        client.get(URL, String.class).join();
+        now.addAndGet(Duration.ofMinutes(3).toNanos());
+        String actualResult = client.get(URL, String.class).join();
+
+        ArgumentCaptor<HttpHeaders> headers = ArgumentCaptor.forClass(HttpHeaders.class);
+        verify(delegate, times(2)).exchange(eq(URL), headers.capture(), eq(String.class));
+        Assertions.assertEquals("first", actualResult);
+        Assertions.assertTrue(headers.getAllValues().get(0).getIfNoneMatch().isEmpty());
+        Assertions.assertEquals(Collections.singletonList("\"v1\""), headers.getAllValues().get(1).getIfNoneMatch());
+    }
+
+    @Test
+    void maxAgeShouldBeOverrideSourceTtl() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("max-age=10");
+        when(delegate.exchange(eq(URL), any(), eq(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(new ResponseEntity<>("first", headers, HttpStatus.OK)))
+                .thenReturn(CompletableFuture.completedFuture(response("second", null, HttpStatus.OK)));
+
+        client.get(URL, String.class).join();
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        Assertions.assertEquals("second", client.get(URL, String.class).join());
+    }
+
+    @Test
+    void noStoreResponseShouldBeNotCached() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("no-store");
+        when(delegate.exchange(eq(URL), any(), eq(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(new ResponseEntity<>("first", headers, HttpStatus.OK)));
+
+        client.get(URL, String.class).join();
+        client.get(URL, String.class).join();
+
+        verify(delegate, times(2)).exchange(eq(URL), any(), eq(String.class));
+    }
+
+    @Test
+    void leastRecentlyUsedResponseShouldBeEvicted() {
+        properties.getResponseCache().setMaxEntries(2);
+        WeatherResponseCache cache = createCache();
+        client = cache.forSource("weatherapi", delegate);
+        when(delegate.exchange(any(), any(), eq(String.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                        response(invocation.getArgument(0), null, HttpStatus.OK)
+                ));
+
+        client.get("a", String.class).join();
+        client.get("b", String.class).join();
+        client.get("a", String.class).join();
+        client.get("c", String.class).join();
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNotNull(cache.get("a"));
+        Assertions.assertNull(cache.get("b"));
+    }
+
+    @Test
+    void requestShouldBeFailedWhenQuotaExceeded() {
+        client = createCache().forSource("weatherbit", delegate);
+        when(delegate.exchange(any(), any(), eq(String.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                        response(invocation.getArgument(0), null, HttpStatus.OK)
+                ));
+
+        client.get("a", String.class).join();
+        Assertions.assertEquals("a", client.get("a", String.class).join());
+        CompletableFuture<String> actualResult = client.get("b", String.class);
+
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, actualResult::join);
+        Assertions.assertTrue(exception.getCause() instanceof QuotaExceededException);
+        verify(delegate, times(1)).exchange(any(), any(), eq(String.class));
+    }
+
+    private WeatherResponseCache createCache() {
+        return new WeatherResponseCache(
+                properties,
+                new QuotaScheduler(properties, new LocationDemand()),
+                now::get
+        );
+    }
+
+    private static ResponseEntity<String> response(String body, String etag, HttpStatus status) {
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        return new ResponseEntity<>(body, headers, status);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.temperature.cluster;
+
+import com.example.temperature.configuration.WeatherProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Несколько экземпляров кластера в одной JVM с общей базой.
+ */
+@SpringBootTest(properties = "cron=-")
+class ClusterMembershipTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<ClusterMembership> members = new ArrayList<>();
+    private List<Map.Entry<String, String>> locations;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM cluster_instance WHERE instance_id LIKE 'test-%'");
+        locations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            locations.add(new AbstractMap.SimpleEntry<>("City" + i, "Country" + i % 7));
+        }
+        for (int i = 0; i < 3; i++) {
+            members.add(member("test-" + i));
+        }
+        members.forEach(ClusterMembership::heartbeat);
+        members.forEach(ClusterMembership::heartbeat);
+    }
+
+    @AfterEach
+    void tearDown() {
+        members.forEach(ClusterMembership::leave);
+    }
+
+    @Test
+    void locationsShouldBeAssignedToExactlyOneInstance() {
+        assertPartitioned(members);
+        Assertions.assertEquals(1, members.stream().filter(ClusterMembership::isLeader).count());
+        Assertions.assertTrue(members.get(0).isLeader());
+    }
+
+    @Test
+    void locationsShouldBeRebalancedWhenInstanceLeaves() {
+        ClusterMembership leaving = members.remove(0);
+        List<Map.Entry<String, String>> kept = members.get(0).assign(locations);
+
+        leaving.leave();
+        members.forEach(ClusterMembership::heartbeat);
+
+        assertPartitioned(members);
+        Assertions.assertTrue(members.get(0).assign(locations).containsAll(kept));
+        Assertions.assertTrue(members.get(0).isLeader());
+    }
+
+    @Test
+    void locationsShouldBeRebalancedWhenInstanceJoins() {
+        ClusterMembership joined = member("test-3");
+        members.add(joined);
+
+        joined.heartbeat();
+        members.forEach(ClusterMembership::heartbeat);
+
+        assertPartitioned(members);
+        Assertions.assertFalse(joined.assign(locations).isEmpty());
+        Assertions.assertFalse(joined.isLeader());
+    }
+
+    @Test
+    void instanceWithExpiredLeaseShouldBeNotPollLocations() {
+        now.addAndGet(Duration.ofSeconds(16).toNanos());
+
+        members.forEach(member -> Assertions.assertTrue(member.assign(locations).isEmpty()));
+        members.forEach(member -> Assertions.assertFalse(member.isLeader()));
+    }
+
+    private void assertPartitioned(List<ClusterMembership> cluster) {
+        Set<Map.Entry<String, String>> assigned = new HashSet<>();
+        int total = 0;
+        for (ClusterMembership member : cluster) {
+            List<Map.Entry<String, String>> own = member.assign(locations);
+            total += own.size();
+            assigned.addAll(own);
+        }
+        Assertions.assertEquals(locations.size(), total);
+        Assertions.assertEquals(new HashSet<>(locations), assigned);
+    }
+
+    private ClusterMembership member(String instanceId) {
+        WeatherProperties properties = new WeatherProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setInstanceId(instanceId);
+        return new ClusterMembership(properties, jdbcTemplate, now::get);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.temperature.cluster;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+class ConsistentHashRingTest {
+
+    @Test
+    void emptyRingShouldBeReturnNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(Collections.emptyList(), 64);
+
+        Assertions.assertNull(ring.getOwner("Izhevsk,Russia"));
+    }
+
+    @Test
+    void keysShouldBeSpreadAcrossMembers() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 64);
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(ring.getOwner("city-" + i), 1, Integer::sum);
+        }
+
+        Assertions.assertEquals(3, counts.size());
+        counts.values().forEach(count -> Assertions.assertTrue(count > 500, counts.toString()));
+    }
+
+    @Test
+    void addedMemberShouldBeTakeKeysOnlyFromOtherMembers() {
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 64);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 64);
+        int moved = 0;
+
+        for (int i = 0; i < 3000; i++) {
+            String key = "city-" + i;
+            String owner = after.getOwner(key);
+            if (!owner.equals(before.getOwner(key))) {
+                Assertions.assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        Assertions.assertTrue(moved > 0 && moved < 1500, String.valueOf(moved));
+    }
+}
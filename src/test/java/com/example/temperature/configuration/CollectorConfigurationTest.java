@@ -0,0 +1,37 @@
+package com.example.temperature.configuration;
+
+import com.example.threads.VirtualThreads;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class CollectorConfigurationTest {
+
+    @Test
+    void collectorExecutorShouldBeUseVirtualThreadsWhenSupported() throws Exception {
+        WeatherProperties properties = new WeatherProperties();
+        properties.getThreads().setVirtual(true);
+        ExecutorService executor = new CollectorConfiguration().collectorExecutor(properties);
+        try {
+            String threadName = executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+            Assertions.assertTrue(threadName.startsWith("collector-"), threadName);
+            Assertions.assertEquals(
+                    VirtualThreads.isSupported(),
+                    executor.submit(CollectorConfigurationTest::isVirtual).get(5, TimeUnit.SECONDS)
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean isVirtual() throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.temperature.configuration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class DatabaseConcurrencyFilterTest {
+
+    @Test
+    void requestShouldBeRejectedWhenAllConnectionsAreBusy() throws Exception {
+        DatabaseConcurrencyFilter filter = new DatabaseConcurrencyFilter(1, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/temperature"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            started.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/temperature"), rejected,
+                (request, response) -> Assertions.fail("Запрос должен быть отклонен"));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.getStatus());
+        Assertions.assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void asyncRequestShouldBeHoldPermitUntilComplete() throws Exception {
+        DatabaseConcurrencyFilter filter = new DatabaseConcurrencyFilter(1, 50);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/temperature/export");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        AsyncContext asyncContext = request.getAsyncContext();
+
+        Assertions.assertEquals(0, filter.availablePermits());
+        asyncContext.complete();
+        Assertions.assertEquals(1, filter.availablePermits());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.temperature.configuration;
+
+import com.example.temperature.clients.RestTemplateWeatherClient;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class WeatherClientConfigurationTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(5000);
+                exchange.sendResponseHeaders(200, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void timeoutsShouldBeBoundedByTickTimeout() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.getClient().setConnectTimeout(Duration.ofSeconds(2));
+        properties.getClient().setReadTimeout(Duration.ofSeconds(6));
+        properties.getCollector().setTickTimeout(Duration.ofSeconds(4));
+
+        Duration[] actualResult = WeatherClientConfiguration.timeouts(properties);
+
+        Assertions.assertEquals(Duration.ofSeconds(1), actualResult[0]);
+        Assertions.assertEquals(Duration.ofSeconds(3), actualResult[1]);
+    }
+
+    @Test
+    void slowProviderShouldBeNotHoldExecutorThreadIntoNextTick() throws Exception {
+        WeatherProperties properties = new WeatherProperties();
+        properties.getCollector().setTickTimeout(Duration.ofMillis(500));
+        RestTemplateWeatherClient client = new RestTemplateWeatherClient(
+                new WeatherClientConfiguration().restTemplate(new RestTemplateBuilder(), properties),
+                executor
+        );
+        String url = "http://localhost:" + server.getAddress().getPort() + "/";
+
+        CompletableFuture<String> slow = client.get(url, String.class);
+        Thread.sleep(properties.getCollector().getTickTimeout().toMillis());
+
+        Assertions.assertTrue(executor.submit(() -> true).get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(slow.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.temperature.controllers;
+
+import com.example.temperature.dto.LocationDto;
+import com.example.temperature.services.LocationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(LocationController.class)
+class LocationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private LocationService locationService;
+
+    @Test
+    void getLocationsShouldBeReturnPage() throws Exception {
+        when(locationService.findAll(1, 10)).thenReturn(Collections.singletonList(location()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/locations")
+                        .queryParam("page", "1")
+                        .queryParam("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].city").value("Izhevsk"));
+    }
+
+    @Test
+    void getUnknownLocationShouldBeReturnNotFound() throws Exception {
+        when(locationService.find(1)).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/locations/1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void createLocationShouldBeReturnCreated() throws Exception {
+        when(locationService.create(any())).thenReturn(location());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/locations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"city\":\"Izhevsk\",\"country\":\"Russia\",\"pollIntervalSeconds\":60,\"priority\":1}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void createLocationWithoutCityShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/locations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"country\":\"Russia\"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(locationService, never()).create(any());
+    }
+
+    @Test
+    void deleteUnknownLocationShouldBeReturnNotFound() throws Exception {
+        when(locationService.delete(eq(1L))).thenReturn(false);
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/locations/1"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static LocationDto location() {
+        return LocationDto.builder()
+                .id(1L)
+                .city("Izhevsk")
+                .country("Russia")
+                .pollIntervalSeconds(60)
+                .priority(1)
+                .build();
+    }
+}
@@ -1,5 +1,14 @@
 package com.example.temperature.controllers;
 
+import com.example.temperature.dto.ExportFormat;
+import com.example.temperature.dto.Granularity;
+import com.example.temperature.dto.TemperatureCursor;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.dto.TemperatureField;
+import com.example.temperature.dto.TemperaturePageDto;
+import com.example.temperature.quota.LocationDemand;
+import com.example.temperature.services.ExportService;
+import com.example.temperature.services.TemperatureQueryService;
 import com.example.temperature.services.TemperatureService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,13 +17,31 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.EnumSet;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TemperatureController.class)
@@ -24,6 +51,12 @@ class TemperatureControllerTest {
     private MockMvc mockMvc;
     @MockBean
     private TemperatureService temperatureService;
+    @MockBean
+    private ExportService exportService;
+    @MockBean
+    private TemperatureQueryService temperatureQueryService;
+    @MockBean
+    private LocationDemand locationDemand;
 
     @BeforeEach
     void setUp() {
@@ -62,4 +95,164 @@ class TemperatureControllerTest {
 
         Assertions.assertEquals(expectedResult, actualResult);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTemperatureWithGranularityShouldBeReturnRollupResult() throws Exception {
+        String expectedResult = "11.33 | 10.5 | 12.5 | 3 | 2022-09-12T01:00\n";
+        when(temperatureService.getTemperature("Moscow", LocalDate.of(2022, 9, 12), Granularity.HOUR))
+                .thenReturn(expectedResult);
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature")
+                        .queryParam("location", "Moscow")
+                        .queryParam("date", "2022-09-12")
+                        .queryParam("granularity", "hour"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals(expectedResult, mvcResult.getResponse().getContentAsString());
+        verify(locationDemand).record("Moscow");
+    }
+
+    @Test
+    void getTemperatureWithUnknownGranularityShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature")
+                        .queryParam("location", "Moscow")
+                        .queryParam("granularity", "minute"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportShouldBeStreamRecordsForPeriod() throws Exception {
+        String expectedResult = "city,country,temperature,time_create\nMoscow,Russia,10.5,2022-09-12T01:00\n";
+        when(exportService.export(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(4);
+            outputStream.write(expectedResult.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature/export")
+                        .queryParam("location", "Moscow")
+                        .queryParam("from", "2022-09-12")
+                        .queryParam("to", "2022-09-13"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string(expectedResult));
+        verify(exportService).export(
+                eq("Moscow"),
+                eq(LocalDate.of(2022, 9, 12).atStartOfDay()),
+                eq(LocalDate.of(2022, 9, 14).atStartOfDay()),
+                eq(ExportFormat.CSV),
+                any()
+        );
+    }
+
+    @Test
+    void exportWithoutPeriodShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature/export")
+                        .queryParam("format", "ndjson"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRecordsShouldBeReturnPageWithSelectedFields() throws Exception {
+        TemperatureCursor cursor = new TemperatureCursor(LocalDateTime.of(2022, 9, 12, 1, 0), 7);
+        TemperaturePageDto page = TemperaturePageDto.builder()
+                .items(Collections.singletonList(TemperatureDto.builder()
+                        .temperature(10.5)
+                        .timeCreate(LocalDateTime.of(2022, 9, 12, 1, 5))
+                        .build()))
+                .nextCursor("next")
+                .build();
+        when(temperatureQueryService.findRecords(any(), any(), any(), any(), Mockito.anyInt(), any()))
+                .thenReturn(page);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature/records")
+                        .queryParam("location", "Moscow")
+                        .queryParam("from", "2022-09-12")
+                        .queryParam("to", "2022-09-13")
+                        .queryParam("cursor", cursor.encode())
+                        .queryParam("limit", "1")
+                        .queryParam("fields", "temperature,time_create"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].temperature").value(10.5))
+                .andExpect(jsonPath("$.items[0].timeCreate").value("2022-09-12T01:05:00"))
+                .andExpect(jsonPath("$.items[0].city").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        verify(temperatureQueryService).findRecords(
+                "Moscow",
+                LocalDate.of(2022, 9, 12),
+                LocalDate.of(2022, 9, 13),
+                cursor,
+                1,
+                EnumSet.of(TemperatureField.TEMPERATURE, TemperatureField.TIME_CREATE)
+        );
+    }
+
+    @Test
+    void getRecordsWithIncorrectCursorShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature/records")
+                        .queryParam("location", "Moscow")
+                        .queryParam("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRecordsWithUnknownFieldShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature/records")
+                        .queryParam("location", "Moscow")
+                        .queryParam("fields", "humidity"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRecordsWithTooLargeLimitShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("https://localhost:8888/api/temperature/records")
+                        .queryParam("location", "Moscow")
+                        .queryParam("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getBulkShouldBeReturnLatestRecordsForAllLocations() throws Exception {
+        Map<String, List<TemperatureDto>> result = new LinkedHashMap<>();
+        result.put("Moscow", Collections.singletonList(TemperatureDto.builder()
+                .city("Moscow")
+                .country("Russia")
+                .temperature(10.5)
+                .timeCreate(LocalDateTime.of(2022, 9, 12, 1, 5))
+                .build()));
+        result.put("Paris", Collections.emptyList());
+        when(temperatureQueryService.findBulk(any(), any(), any())).thenReturn(result);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("https://localhost:8888/api/temperature/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"locations\": [\"Moscow\", \"Paris\", \"Moscow\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Moscow[0].temperature").value(10.5))
+                .andExpect(jsonPath("$.Paris").isEmpty());
+        verify(temperatureQueryService).findBulk(
+                new LinkedHashSet<>(Arrays.asList("Moscow", "Paris")),
+                null,
+                null
+        );
+        verify(locationDemand).record("Paris");
+    }
+
+    @Test
+    void getBulkWithoutLocationsShouldBeReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("https://localhost:8888/api/temperature/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"locations\": [], \"from\": \"2022-09-12\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
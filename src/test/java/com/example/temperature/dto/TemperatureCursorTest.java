@@ -0,0 +1,22 @@
+package com.example.temperature.dto;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+class TemperatureCursorTest {
+
+    @Test
+    void parseShouldBeReturnEncodedCursor() {
+        TemperatureCursor cursor = new TemperatureCursor(LocalDateTime.of(2022, 9, 12, 1, 0, 5, 123_000), 42);
+
+        Assertions.assertEquals(cursor, TemperatureCursor.parse(cursor.encode()));
+    }
+
+    @Test
+    void parseWithIncorrectValueShouldBeThrowIllegalArgumentException() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TemperatureCursor.parse("not a cursor"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TemperatureCursor.parse("MjAyMg"));
+    }
+}
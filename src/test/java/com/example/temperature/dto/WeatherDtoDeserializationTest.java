@@ -0,0 +1,89 @@
+package com.example.temperature.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+class WeatherDtoDeserializationTest {
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Test
+    void openWeatherMapShouldBeReadTemperatureAndSkipOtherFields() throws Exception {
+        String json = "{\"coord\":{\"lon\":53.23,\"lat\":56.85}," +
+                "\"weather\":[{\"id\":804,\"main\":\"Clouds\"}]," +
+                "\"main\":{\"temp\":12.56,\"feels_like\":11.82,\"pressure\":1012}," +
+                "\"id\":554840,\"name\":\"Izhevsk\",\"cod\":200}";
+
+        OpenWeatherMapDto actualResult = objectMapper.readValue(json, OpenWeatherMapDto.class);
+
+        Assertions.assertEquals(554840L, actualResult.getId());
+        Assertions.assertEquals("Izhevsk", actualResult.getCity());
+        Assertions.assertEquals(12.56, actualResult.getTemperature());
+    }
+
+    @Test
+    void openWeatherMapGroupShouldBeReadEveryItem() throws Exception {
+        String json = "{\"cnt\":2,\"list\":[" +
+                "{\"id\":554840,\"name\":\"Izhevsk\",\"main\":{\"temp\":5}}," +
+                "{\"id\":2643743,\"name\":\"London\",\"main\":{\"temp\":-1.5}}]}";
+
+        OpenWeatherMapGroupDto actualResult = objectMapper.readValue(json, OpenWeatherMapGroupDto.class);
+
+        Assertions.assertEquals(2, actualResult.getList().size());
+        Assertions.assertEquals(5.0, actualResult.getList().get(0).getTemperature());
+        Assertions.assertEquals(2643743L, actualResult.getList().get(1).getId());
+        Assertions.assertEquals(-1.5, actualResult.getList().get(1).getTemperature());
+    }
+
+    @Test
+    void weatherApiShouldBeReadIntegerTemperature() throws Exception {
+        String json = "{\"location\":{\"name\":\"London\",\"region\":\"City of London\",\"country\":\"United Kingdom\"}," +
+                "\"current\":{\"temp_c\":5,\"condition\":{\"text\":\"Sunny\",\"code\":1000}}}";
+
+        WeatherApiDto actualResult = objectMapper.readValue(json, WeatherApiDto.class);
+
+        Assertions.assertEquals("London", actualResult.getCity());
+        Assertions.assertEquals("United Kingdom", actualResult.getCountry());
+        Assertions.assertEquals(5.0, actualResult.getTemperature());
+    }
+
+    @Test
+    void weatherApiBulkShouldBeReadCustomId() throws Exception {
+        String json = "{\"bulk\":[{\"query\":{\"custom_id\":\"Paris\",\"q\":\"Paris\"," +
+                "\"location\":{\"name\":\"Paris\",\"country\":\"France\"},\"current\":{\"temp_c\":18.2}}}]}";
+
+        WeatherApiBulkDto actualResult = objectMapper.readValue(json, WeatherApiBulkDto.class);
+
+        WeatherApiDto query = actualResult.getBulk().get(0).getQuery();
+        Assertions.assertEquals("Paris", query.getCustomId());
+        Assertions.assertEquals(18.2, query.getTemperature());
+    }
+
+    @Test
+    void weatherBitShouldBeReadFirstDataItem() throws Exception {
+        String json = "{\"data\":[" +
+                "{\"city_name\":\"Paris\",\"weather\":{\"code\":804},\"sources\":[\"analysis\"],\"temp\":17}," +
+                "{\"city_name\":\"London\",\"temp\":10.5}],\"count\":2}";
+
+        WeatherBitDto actualResult = objectMapper.readValue(json, WeatherBitDto.class);
+
+        Assertions.assertEquals("Paris", actualResult.getCity());
+        Assertions.assertEquals(17.0, actualResult.getTemperature());
+    }
+
+    @Test
+    void weatherBitWithEmptyDataShouldBeReturnEmptyDto() throws Exception {
+        WeatherBitDto actualResult = objectMapper.readValue("{\"data\":[],\"count\":0}", WeatherBitDto.class);
+
+        Assertions.assertNull(actualResult.getCity());
+        Assertions.assertEquals(0.0, actualResult.getTemperature());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.temperature.health;
+
+import com.example.temperature.configuration.WeatherProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CircuitBreakerTest {
+
+    private AtomicLong now;
+    private WeatherProperties.CircuitBreaker settings;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        settings = new WeatherProperties.CircuitBreaker();
+        settings.setWindowSize(4);
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(50);
+        settings.setSlowCallDuration(Duration.ofMillis(100));
+        settings.setSlowCallRateThreshold(75);
+        settings.setOpenDuration(Duration.ofSeconds(30));
+        breaker = new CircuitBreaker("openweathermap", settings, now::get);
+    }
+
+    @Test
+    void breakerShouldBeOpenWhenFailureRateReachesThreshold() {
+        breaker.onSuccess(0);
+        breaker.onFailure();
+        breaker.onSuccess(0);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        Assertions.assertTrue(breaker.onFailure());
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void breakerShouldBeCountOnlyLastWindowSizeCalls() {
+        breaker.onFailure();
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+
+        Assertions.assertFalse(breaker.onFailure());
+
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void breakerShouldBeOpenWhenSlowCallRateReachesThreshold() {
+        breaker.onSuccess(Duration.ofMillis(500).toNanos());
+        breaker.onSuccess(Duration.ofMillis(500).toNanos());
+        breaker.onSuccess(0);
+
+        Assertions.assertTrue(breaker.onSuccess(Duration.ofMillis(500).toNanos()));
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void breakerShouldBeAllowSingleProbeAfterOpenDuration() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.tryAcquire());
+
+        Assertions.assertTrue(breaker.onSuccess(0));
+
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assertions.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void breakerShouldBeOpenAgainWhenProbeFails() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        Assertions.assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertFalse(breaker.tryAcquire());
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        Assertions.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void releasedProbeShouldBeAllowAnotherProbe() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        Assertions.assertTrue(breaker.tryAcquire());
+
+        breaker.release();
+
+        Assertions.assertTrue(breaker.tryAcquire());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < settings.getMinimumCalls(); i++) {
+            breaker.onFailure();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
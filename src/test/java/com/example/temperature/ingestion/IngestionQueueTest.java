@@ -0,0 +1,167 @@
+package com.example.temperature.ingestion;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.services.TemperatureService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+class IngestionQueueTest {
+    @TempDir
+    Path directory;
+
+    private WeatherProperties properties;
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private final AtomicBoolean databaseSlow = new AtomicBoolean();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private IngestionQueue ingestionQueue;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        WeatherProperties.Ingestion settings = properties.getIngestion();
+        settings.setBatchSize(2);
+        settings.setFlushInterval(Duration.ofMillis(100));
+        settings.setOfferTimeout(Duration.ofMillis(100));
+        settings.setRetryInterval(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        databaseSlow.set(false);
+        if (ingestionQueue != null) {
+            ingestionQueue.stop();
+        }
+    }
+
+    @Test
+    void offerShouldBeWriteEntitiesInBatches() {
+        start();
+
+        Assertions.assertEquals(5, ingestionQueue.offer(entities("City", 5)));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> ingestionQueue.getWritten() == 5);
+        batches.forEach(batch -> Assertions.assertTrue(batch.size() <= 2));
+        Assertions.assertEquals(names("City", 5), flatten());
+    }
+
+    @Test
+    void offerShouldBeSpillEntitiesToFileWhileDatabaseIsDownAndReplayThemAfterwards() {
+        properties.getIngestion().setSpillFile(directory.resolve("spill.ndjson").toString());
+        databaseDown.set(true);
+        start();
+
+        ingestionQueue.offer(entities("Down", 3));
+        await().atMost(Duration.ofSeconds(5)).until(() -> ingestionQueue.getSpilled() == 3);
+        Assertions.assertTrue(Files.exists(directory.resolve("spill.ndjson"))
+                || Files.exists(directory.resolve("spill.ndjson.replay")));
+
+        databaseDown.set(false);
+        ingestionQueue.offer(entities("Up", 1));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> flatten().size() == 4
+                && !Files.exists(directory.resolve("spill.ndjson"))
+                && !Files.exists(directory.resolve("spill.ndjson.replay")));
+        Assertions.assertTrue(flatten().containsAll(names("Down", 3)));
+        Assertions.assertTrue(ingestionQueue.getReplayed() >= 3);
+    }
+
+    @Test
+    void offerShouldBeDropEntitiesWhenQueueIsFullAndDatabaseIsDown() {
+        properties.getIngestion().setCapacity(2);
+        properties.getIngestion().setBatchSize(1);
+        databaseDown.set(true);
+        start();
+
+        int accepted = ingestionQueue.offer(entities("City", 10));
+
+        Assertions.assertTrue(accepted < 10);
+        Assertions.assertEquals(10 - accepted, ingestionQueue.getDropped());
+    }
+
+    @Test
+    void stopShouldBeSpillEntitiesLeftInQueueWhenDatabaseIsSlow() throws Exception {
+        properties.getIngestion().setSpillFile(directory.resolve("spill.ndjson").toString());
+        databaseSlow.set(true);
+        start();
+        ingestionQueue.offer(entities("Slow", 5));
+        await().atMost(Duration.ofSeconds(5)).until(() -> ingestionQueue.size() == 3);
+
+        ingestionQueue.stop();
+
+        Assertions.assertEquals(3, ingestionQueue.getSpilled());
+        Assertions.assertEquals(0, ingestionQueue.getDropped());
+        Assertions.assertEquals(3, Files.readAllLines(directory.resolve("spill.ndjson")).size());
+    }
+
+    private void start() {
+        TemperatureService temperatureService = Mockito.mock(TemperatureService.class);
+        doAnswer(invocation -> {
+            if (databaseDown.get()) {
+                throw new CannotCreateTransactionException("Бд недоступна");
+            }
+            while (databaseSlow.get()) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                    // поток записи не прерывается во время запроса к бд
+                }
+            }
+            Collection<TemperatureEntity> entities = invocation.getArgument(0);
+            List<String> batch = new ArrayList<>();
+            entities.forEach(entity -> batch.add(entity.getCity()));
+            batches.add(batch);
+            return null;
+        }).when(temperatureService).insertAll(any());
+        ingestionQueue = new IngestionQueue(properties, temperatureService, new ObjectMapper().findAndRegisterModules());
+        ingestionQueue.start();
+    }
+
+    private List<String> flatten() {
+        List<String> result = new ArrayList<>();
+        batches.forEach(result::addAll);
+        return result;
+    }
+
+    private static List<TemperatureEntity> entities(String prefix, int count) {
+        List<TemperatureEntity> entities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TemperatureEntity entity = new TemperatureEntity();
+            entity.setCity(prefix + i);
+            entity.setCountry("Country");
+            entity.setTemperature(10.0 + i);
+            entity.setTimeCreate(LocalDateTime.of(2022, 9, 12, 1, i));
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        return Collections.unmodifiableList(names);
+    }
+}
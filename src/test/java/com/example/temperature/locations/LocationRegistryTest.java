@@ -0,0 +1,110 @@
+package com.example.temperature.locations;
+
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.repositories.LocationRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocationRegistryTest {
+
+    private LocationRegistry registry;
+    private LocationRepository locationRepository;
+    private WeatherProperties properties;
+    private final AtomicLong now = new AtomicLong();
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        locationRepository = Mockito.mock(LocationRepository.class);
+        registry = new LocationRegistry(
+                properties,
+                locationRepository,
+                new LocationDirectory(locationRepository),
+                new ClusterMembership(properties, Mockito.mock(JdbcTemplate.class)),
+                events::add,
+                now::get
+        );
+    }
+
+    @Test
+    void refreshShouldBeReadOnlyChangesSinceLastRefresh() {
+        Instant updatedAt = Instant.parse("2022-12-01T10:00:00Z");
+        when(locationRepository.findAllByUpdatedAtAfter(any())).thenReturn(Arrays.asList(
+                location(1, "Izhevsk", true, false, updatedAt),
+                location(2, "London", true, false, updatedAt.minusSeconds(5))
+        ));
+
+        registry.refresh();
+        registry.refresh();
+
+        verify(locationRepository).findAllByUpdatedAtAfter(Instant.EPOCH.minus(Duration.ofSeconds(30)));
+        verify(locationRepository).findAllByUpdatedAtAfter(updatedAt.minus(Duration.ofSeconds(30)));
+        Assertions.assertEquals(2, registry.size());
+        Assertions.assertEquals(2, registry.takeDue().size());
+    }
+
+    @Test
+    void disabledAndDeletedLocationsShouldBeRemoved() {
+        Instant updatedAt = Instant.parse("2022-12-01T10:00:00Z");
+        when(locationRepository.findAllByUpdatedAtAfter(any()))
+                .thenReturn(Arrays.asList(
+                        location(1, "Izhevsk", true, false, updatedAt),
+                        location(2, "London", true, false, updatedAt),
+                        location(3, "Paris", true, false, updatedAt)
+                ))
+                .thenReturn(Arrays.asList(
+                        location(1, "Izhevsk", false, false, updatedAt.plusSeconds(1)),
+                        location(2, "London", true, true, updatedAt.plusSeconds(1))
+                ));
+
+        registry.refresh();
+        registry.refresh();
+
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertEquals("Paris", registry.takeDue().get(0).getKey());
+        Assertions.assertEquals(Arrays.asList(
+                new LocationRemovedEvent(1, "Izhevsk", "Country"),
+                new LocationRemovedEvent(2, "London", "Country")
+        ), events);
+    }
+
+    @Test
+    void locationsFromConfigurationShouldBeAddedOnStartup() {
+        properties.setLocations(Collections.singletonMap("Izhevsk", "Russia"));
+        when(locationRepository.findAllByUpdatedAtAfter(any())).thenReturn(Collections.emptyList());
+
+        registry.onStartup();
+
+        verify(locationRepository).insertIfAbsent(eq("Izhevsk"), eq("Russia"));
+    }
+
+    private static LocationEntity location(long id, String city, boolean enabled, boolean deleted, Instant updatedAt) {
+        LocationEntity entity = new LocationEntity();
+        entity.setId(id);
+        entity.setCity(city);
+        entity.setCountry("Country");
+        entity.setEnabled(enabled);
+        entity.setDeleted(deleted);
+        entity.setUpdatedAt(updatedAt);
+        return entity;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.temperature.locations;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+class LocationScheduleTest {
+    private static final Predicate<Map.Entry<String, String>> ALL = location -> true;
+
+    private LocationSchedule schedule;
+
+    @BeforeEach
+    void setUp() {
+        schedule = new LocationSchedule();
+    }
+
+    @Test
+    void newLocationsShouldBeDueImmediatelyInPriorityOrder() {
+        schedule.put(1, "Izhevsk", "Russia", 5000, 0, 0);
+        schedule.put(2, "London", "United Kingdom", 5000, 10, 0);
+
+        List<Map.Entry<String, String>> actualResult = schedule.takeDue(0, 100, ALL);
+
+        Assertions.assertEquals(Arrays.asList(location("London", "United Kingdom"), location("Izhevsk", "Russia")),
+                actualResult);
+        Assertions.assertTrue(schedule.takeDue(4999, 100, ALL).isEmpty());
+    }
+
+    @Test
+    void locationsShouldBeDueAccordingToTheirIntervals() {
+        schedule.put(1, "Izhevsk", "Russia", 5000, 0, 0);
+        schedule.put(2, "Paris", "France", 60000, 0, 0);
+        schedule.takeDue(0, 100, ALL);
+
+        Assertions.assertEquals(Collections.singletonList(location("Izhevsk", "Russia")), schedule.takeDue(5000, 100, ALL));
+        Assertions.assertEquals(Collections.singletonList(location("Izhevsk", "Russia")), schedule.takeDue(10000, 100, ALL));
+        Assertions.assertEquals(2, schedule.takeDue(60000, 100, ALL).size());
+    }
+
+    @Test
+    void locationsOverLimitShouldBeLeftForNextTick() {
+        schedule.put(1, "Izhevsk", "Russia", 5000, 0, 0);
+        schedule.put(2, "London", "United Kingdom", 5000, 1, 0);
+        schedule.put(3, "Paris", "France", 5000, 2, 0);
+
+        Assertions.assertEquals(Arrays.asList(location("Paris", "France"), location("London", "United Kingdom")),
+                schedule.takeDue(0, 2, ALL));
+        Assertions.assertEquals(Collections.singletonList(location("Izhevsk", "Russia")), schedule.takeDue(100, 2, ALL));
+    }
+
+    @Test
+    void locationsOfOtherInstancesShouldBeNotCountedInLimit() {
+        schedule.put(1, "Izhevsk", "Russia", 5000, 0, 0);
+        schedule.put(2, "London", "United Kingdom", 5000, 1, 0);
+        schedule.put(3, "Paris", "France", 5000, 2, 0);
+        Predicate<Map.Entry<String, String>> owned = location -> !location.getKey().equals("Paris");
+
+        Assertions.assertEquals(Arrays.asList(location("London", "United Kingdom"), location("Izhevsk", "Russia")),
+                schedule.takeDue(0, 2, owned));
+        Assertions.assertTrue(schedule.takeDue(100, 2, ALL).isEmpty());
+        Assertions.assertEquals(3, schedule.takeDue(5000, 3, ALL).size());
+    }
+
+    @Test
+    void removedLocationShouldBeNotDue() {
+        schedule.put(1, "Izhevsk", "Russia", 5000, 0, 0);
+        schedule.put(2, "London", "United Kingdom", 5000, 0, 0);
+        schedule.remove(1);
+
+        Assertions.assertEquals(Collections.singletonList(location("London", "United Kingdom")), schedule.takeDue(0, 100, ALL));
+        Assertions.assertEquals(1, schedule.size());
+    }
+
+    @Test
+    void changedIntervalShouldBeAppliedWithoutDuplicates() {
+        schedule.put(1, "Izhevsk", "Russia", 60000, 0, 0);
+        schedule.takeDue(0, 100, ALL);
+        schedule.put(1, "Izhevsk", "Russia", 5000, 0, 1000);
+
+        Assertions.assertTrue(schedule.takeDue(5000, 100, ALL).isEmpty());
+        Assertions.assertEquals(Collections.singletonList(location("Izhevsk", "Russia")), schedule.takeDue(6000, 100, ALL));
+    }
+
+    private static Map.Entry<String, String> location(String city, String country) {
+        return new AbstractMap.SimpleImmutableEntry<>(city, country);
+    }
+}
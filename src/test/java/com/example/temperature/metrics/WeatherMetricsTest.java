@@ -0,0 +1,87 @@
+package com.example.temperature.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+class WeatherMetricsTest {
+    private final MutableClock clock = new MutableClock();
+    private MeterRegistry registry;
+    private WeatherMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new WeatherMetrics(registry, "0/5 * * * * *", clock);
+    }
+
+    @Test
+    void startTickShouldBeRecordLagRelativeToSchedule() {
+        clock.set(LocalDateTime.of(2022, 9, 12, 10, 0, 0, 100_000_000));
+        metrics.startTick();
+        clock.set(LocalDateTime.of(2022, 9, 12, 10, 0, 5, 300_000_000));
+        metrics.startTick();
+
+        Timer lag = registry.get("weather.tick.lag").timer();
+        Assertions.assertEquals(1, lag.count());
+        Assertions.assertEquals(300, lag.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        Assertions.assertEquals(0, registry.get("weather.tick.missed").counter().count());
+    }
+
+    @Test
+    void startTickShouldBeCountMissedTicksAfterLongTick() {
+        clock.set(LocalDateTime.of(2022, 9, 12, 10, 0, 0));
+        metrics.startTick();
+        clock.set(LocalDateTime.of(2022, 9, 12, 10, 0, 21));
+        metrics.startTick();
+        clock.set(LocalDateTime.of(2022, 9, 12, 10, 0, 25));
+        metrics.startTick();
+
+        Timer lag = registry.get("weather.tick.lag").timer();
+        Assertions.assertEquals(2, lag.count());
+        Assertions.assertEquals(16, lag.max(TimeUnit.SECONDS), 0.001);
+        Assertions.assertEquals(3, registry.get("weather.tick.missed").counter().count());
+    }
+
+    @Test
+    void finishTickShouldBeRecordInsertedRowsAndUnresolvedLocations() {
+        metrics.finishTick(metrics.startTick(), 10, 8, 2);
+
+        Assertions.assertEquals(1, registry.get("weather.tick.duration").timer().count());
+        Assertions.assertEquals(8, registry.get("weather.tick.rows.inserted").summary().totalAmount());
+        Assertions.assertEquals(2, registry.get("weather.locations.unresolved").counter().count());
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant instant = Instant.EPOCH;
+
+        void set(LocalDateTime dateTime) {
+            instant = dateTime.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
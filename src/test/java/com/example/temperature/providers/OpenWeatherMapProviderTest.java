@@ -0,0 +1,119 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.OpenWeatherMapDto;
+import com.example.temperature.dto.OpenWeatherMapGroupDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenWeatherMapProviderTest {
+
+    private WeatherClient weatherClient;
+    private WeatherProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        weatherClient = Mockito.mock(WeatherClient.class);
+        WeatherProperties properties = new WeatherProperties();
+        Map<String, String> source = new HashMap<>();
+        source.put("key", "key");
+        source.put("url", "https://api.openweathermap.org/data/2.5/weather");
+        properties.setSources(Collections.singletonMap("openweathermap", source));
+        properties.getCityIds().put("London", "2643743");
+        properties.getCityIds().put("Paris", "2988507");
+        provider = new OpenWeatherMapProvider(properties);
+    }
+
+    @Test
+    void requestTemperaturesShouldBeRequestKnownCitiesWithOneGroupRequest() {
+        String groupUrl = "https://api.openweathermap.org/data/2.5/group?appid=key&id=2643743%2C2988507&units=metric";
+        String singleUrl = "https://api.openweathermap.org/data/2.5/weather?appid=key&q=Izhevsk&units=metric";
+        Map.Entry<String, String> izhevsk = new AbstractMap.SimpleEntry<>("Izhevsk", "Russia");
+        Map.Entry<String, String> london = new AbstractMap.SimpleEntry<>("London", "United Kingdom");
+        Map.Entry<String, String> paris = new AbstractMap.SimpleEntry<>("Paris", "France");
+        List<Map.Entry<String, String>> locations = Arrays.asList(izhevsk, london, paris);
+
+        OpenWeatherMapGroupDto group = new OpenWeatherMapGroupDto();
+        group.setList(Arrays.asList(dto(2988507L, 15), dto(2643743L, 12)));
+        when(weatherClient.get(groupUrl, OpenWeatherMapGroupDto.class))
+                .thenReturn(CompletableFuture.completedFuture(group));
+        when(weatherClient.get(singleUrl, OpenWeatherMapDto.class))
+                .thenReturn(CompletableFuture.completedFuture(dto(554840L, -3)));
+
+        Map<Map.Entry<String, String>, Double> actualResult = provider.requestTemperatures(locations, weatherClient)
+                .join();
+
+        verify(weatherClient, times(2)).get(any(), any());
+        Assertions.assertEquals(-3.0, actualResult.get(izhevsk));
+        Assertions.assertEquals(12.0, actualResult.get(london));
+        Assertions.assertEquals(15.0, actualResult.get(paris));
+    }
+
+    @Test
+    void requestTemperaturesShouldBeFailWhenGroupRequestFailed() {
+        String singleUrl = "https://api.openweathermap.org/data/2.5/weather?appid=key&q=Izhevsk&units=metric";
+        Map.Entry<String, String> izhevsk = new AbstractMap.SimpleEntry<>("Izhevsk", "Russia");
+        Map.Entry<String, String> london = new AbstractMap.SimpleEntry<>("London", "United Kingdom");
+        Map.Entry<String, String> paris = new AbstractMap.SimpleEntry<>("Paris", "France");
+
+        CompletableFuture<OpenWeatherMapGroupDto> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("error"));
+        when(weatherClient.get(any(), eq(OpenWeatherMapGroupDto.class))).thenReturn(failed);
+        when(weatherClient.get(singleUrl, OpenWeatherMapDto.class))
+                .thenReturn(CompletableFuture.completedFuture(dto(554840L, -3)));
+
+        CompletableFuture<Map<Map.Entry<String, String>, Double>> actualResult = provider
+                .requestTemperatures(Arrays.asList(izhevsk, london, paris), weatherClient);
+
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, actualResult::join);
+        Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void requestTemperaturesShouldBeSkipOnlyFailedSingleRequests() {
+        Map.Entry<String, String> izhevsk = new AbstractMap.SimpleEntry<>("Izhevsk", "Russia");
+        Map.Entry<String, String> moscow = new AbstractMap.SimpleEntry<>("Moscow", "Russia");
+        CompletableFuture<OpenWeatherMapDto> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("error"));
+        when(weatherClient.get(any(), eq(OpenWeatherMapDto.class))).thenReturn(failed);
+        when(weatherClient.get(
+                "https://api.openweathermap.org/data/2.5/weather?appid=key&q=Izhevsk&units=metric",
+                OpenWeatherMapDto.class
+        )).thenReturn(CompletableFuture.completedFuture(dto(554840L, -3)));
+
+        Map<Map.Entry<String, String>, Double> actualResult = provider
+                .requestTemperatures(Arrays.asList(izhevsk, moscow), weatherClient)
+                .join();
+
+        Assertions.assertEquals(Collections.singletonMap(izhevsk, -3.0), actualResult);
+        Assertions.assertThrows(
+                CompletionException.class,
+                () -> provider.requestTemperatures(Collections.singletonList(moscow), weatherClient).join()
+        );
+    }
+
+    private static OpenWeatherMapDto dto(Long id, double temperature) {
+        OpenWeatherMapDto dto = new OpenWeatherMapDto();
+        dto.setId(id);
+        dto.setTemperature(temperature);
+        return dto;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.WeatherApiBulkDto;
+import com.example.temperature.dto.WeatherApiDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WeatherApiProviderTest {
+
+    private WeatherClient weatherClient;
+    private WeatherProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        weatherClient = Mockito.mock(WeatherClient.class);
+        WeatherProperties properties = new WeatherProperties();
+        Map<String, String> source = new HashMap<>();
+        source.put("key", "key");
+        source.put("url", "http://api.weatherapi.com/v1/current.json");
+        properties.setSources(Collections.singletonMap("weatherapi", source));
+        provider = new WeatherApiProvider(properties);
+    }
+
+    @Test
+    void requestTemperaturesShouldBeRequestAllLocationsWithOneBulkRequest() {
+        String bulkUrl = "http://api.weatherapi.com/v1/current.json?key=key&q=bulk";
+        Map.Entry<String, String> izhevsk = new AbstractMap.SimpleEntry<>("Izhevsk", "Russia");
+        Map.Entry<String, String> london = new AbstractMap.SimpleEntry<>("London", "United Kingdom");
+        Map.Entry<String, String> paris = new AbstractMap.SimpleEntry<>("Paris", "France");
+        List<Map.Entry<String, String>> locations = Arrays.asList(izhevsk, london, paris);
+
+        WeatherApiBulkDto bulk = new WeatherApiBulkDto();
+        bulk.setBulk(Arrays.asList(item("Paris", 15), item("Izhevsk", -3), item("London", 12)));
+        when(weatherClient.post(eq(bulkUrl), any(), eq(WeatherApiBulkDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(bulk));
+
+        Map<Map.Entry<String, String>, Double> actualResult = provider.requestTemperatures(locations, weatherClient)
+                .join();
+
+        verify(weatherClient, times(1)).post(any(), any(), any());
+        verify(weatherClient, never()).get(any(), any());
+        Assertions.assertEquals(-3.0, actualResult.get(izhevsk));
+        Assertions.assertEquals(12.0, actualResult.get(london));
+        Assertions.assertEquals(15.0, actualResult.get(paris));
+    }
+
+    private static WeatherApiBulkDto.Item item(String customId, double temperature) {
+        WeatherApiDto dto = new WeatherApiDto();
+        dto.setCustomId(customId);
+        dto.setTemperature(temperature);
+        WeatherApiBulkDto.Item item = new WeatherApiBulkDto.Item();
+        item.setQuery(dto);
+        return item;
+    }
+}
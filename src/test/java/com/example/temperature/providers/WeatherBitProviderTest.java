@@ -0,0 +1,92 @@
+package com.example.temperature.providers;
+
+import com.example.temperature.clients.WeatherClient;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.WeatherBitBatchDto;
+import com.example.temperature.dto.WeatherBitDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WeatherBitProviderTest {
+
+    private WeatherClient weatherClient;
+    private WeatherProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        weatherClient = Mockito.mock(WeatherClient.class);
+        WeatherProperties properties = new WeatherProperties();
+        Map<String, String> source = new HashMap<>();
+        source.put("key", "key");
+        source.put("url", "https://api.weatherbit.io/v2.0/current");
+        properties.setSources(Collections.singletonMap("weatherbit", source));
+        properties.getCityIds().put("Paris", "2988507");
+        properties.getCityIds().put("London", "2643743");
+        provider = new WeatherBitProvider(properties);
+    }
+
+    @Test
+    void batchResultsShouldBeMatchedByCityAndCountry() {
+        String url = "https://api.weatherbit.io/v2.0/current?key=key&cities=2988507%2C2643743";
+        Map.Entry<String, String> parisFrance = new AbstractMap.SimpleEntry<>("Paris", "France");
+        Map.Entry<String, String> parisUsa = new AbstractMap.SimpleEntry<>("Paris", "United States");
+        Map.Entry<String, String> london = new AbstractMap.SimpleEntry<>("London", "GB");
+        List<Map.Entry<String, String>> locations = Arrays.asList(parisFrance, parisUsa, london);
+        WeatherBitBatchDto dto = new WeatherBitBatchDto();
+        dto.setData(Arrays.asList(item("Paris", "US", 25), item("London", "GB", 12), item("Paris", "FR", 15)));
+        when(weatherClient.get(any(), eq(WeatherBitBatchDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(dto));
+
+        Map<Map.Entry<String, String>, Double> actualResult = provider.requestTemperatures(locations, weatherClient)
+                .join();
+
+        verify(weatherClient, times(1)).get(eq(url), eq(WeatherBitBatchDto.class));
+        Assertions.assertEquals(15.0, actualResult.get(parisFrance));
+        Assertions.assertEquals(25.0, actualResult.get(parisUsa));
+        Assertions.assertEquals(12.0, actualResult.get(london));
+    }
+
+    @Test
+    void sameCityWithUnknownCountryShouldBeRequestedSeparately() {
+        Map.Entry<String, String> paris = new AbstractMap.SimpleEntry<>("Paris", "France");
+        Map.Entry<String, String> unknown = new AbstractMap.SimpleEntry<>("Paris", "Unknown");
+        Map.Entry<String, String> london = new AbstractMap.SimpleEntry<>("London", "United Kingdom");
+        WeatherBitBatchDto dto = new WeatherBitBatchDto();
+        dto.setData(Arrays.asList(item("Paris", "FR", 15), item("London", "GB", 12)));
+        when(weatherClient.get(any(), eq(WeatherBitBatchDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(dto));
+        when(weatherClient.get(any(), eq(WeatherBitDto.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        provider.requestTemperatures(Arrays.asList(paris, unknown, london), weatherClient);
+
+        verify(weatherClient, times(1)).get(eq("https://api.weatherbit.io/v2.0/current?key=key&city=Paris"),
+                eq(WeatherBitDto.class));
+        verify(weatherClient, never()).get(eq("https://api.weatherbit.io/v2.0/current?key=key&city=London"), any());
+    }
+
+    private static WeatherBitBatchDto.Item item(String city, String countryCode, double temperature) {
+        WeatherBitBatchDto.Item item = new WeatherBitBatchDto.Item();
+        item.setCity(city);
+        item.setCountryCode(countryCode);
+        item.setTemperature(temperature);
+        return item;
+    }
+}
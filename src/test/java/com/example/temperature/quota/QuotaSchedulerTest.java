@@ -0,0 +1,135 @@
+package com.example.temperature.quota;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.locations.LocationRemovedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+class QuotaSchedulerTest {
+
+    private QuotaScheduler quotaScheduler;
+    private LocationDemand locationDemand;
+    private List<Map.Entry<String, String>> locations;
+
+    @BeforeEach
+    void setUp() {
+        WeatherProperties properties = new WeatherProperties();
+        Map<String, Map<String, String>> sources = new HashMap<>();
+        Map<String, String> weatherBit = new HashMap<>();
+        weatherBit.put("requests-per-day", "50");
+        sources.put("weatherbit", weatherBit);
+        sources.put("weatherapi", Collections.emptyMap());
+        properties.setSources(sources);
+        locationDemand = new LocationDemand();
+        quotaScheduler = new QuotaScheduler(properties, locationDemand);
+        locations = Arrays.asList(
+                new AbstractMap.SimpleEntry<>("Izhevsk", "Russia"),
+                new AbstractMap.SimpleEntry<>("London", "United Kingdom"),
+                new AbstractMap.SimpleEntry<>("Paris", "France")
+        );
+    }
+
+    @Test
+    void sourceWithoutLimitsShouldBeAlwaysAllowed() {
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(quotaScheduler.tryAcquire("weatherapi"));
+        }
+        Assertions.assertEquals(locations, quotaScheduler.prioritize("weatherapi", locations));
+    }
+
+    @Test
+    void dailyQuotaShouldBeAllowSingleRequestBurst() {
+        Assertions.assertTrue(quotaScheduler.tryAcquire("weatherbit"));
+        Assertions.assertFalse(quotaScheduler.tryAcquire("weatherbit"));
+    }
+
+    @Test
+    void locationsWithoutReadingsShouldBeFirst() {
+        quotaScheduler.onFetched("weatherbit", locations.get(0));
+
+        List<Map.Entry<String, String>> actualResult = quotaScheduler.prioritize("weatherbit", locations);
+
+        Assertions.assertEquals(locations.get(0), actualResult.get(2));
+    }
+
+    @Test
+    void locationsQueriedMoreOftenShouldBeFirst() throws InterruptedException {
+        locations.forEach(location -> quotaScheduler.onFetched("weatherbit", location));
+        Thread.sleep(5);
+        for (int i = 0; i < 10; i++) {
+            locationDemand.record("france");
+        }
+        locationDemand.record("London");
+
+        List<Map.Entry<String, String>> actualResult = quotaScheduler.prioritize("weatherbit", locations);
+
+        Assertions.assertEquals(Arrays.asList(locations.get(2), locations.get(1), locations.get(0)), actualResult);
+    }
+
+    @Test
+    void locationsSkippedInPreviousTickShouldBeFirstFromOldest() throws InterruptedException {
+        quotaScheduler.onFetched("weatherbit", locations.get(1));
+        Thread.sleep(5);
+        quotaScheduler.onFetched("weatherbit", locations.get(0));
+        Thread.sleep(5);
+        quotaScheduler.onFetched("weatherbit", locations.get(2));
+        quotaScheduler.prioritize("weatherbit", locations);
+        quotaScheduler.onFetched("weatherbit", locations.get(2));
+        for (int i = 0; i < 10; i++) {
+            locationDemand.record("france");
+        }
+
+        List<Map.Entry<String, String>> actualResult = quotaScheduler.prioritize("weatherbit", locations);
+
+        Assertions.assertEquals(Arrays.asList(locations.get(1), locations.get(0), locations.get(2)), actualResult);
+    }
+
+    @Test
+    void locationThatAlwaysFailsShouldBeNotStarveOthers() throws InterruptedException {
+        List<Map.Entry<String, String>> requested = new ArrayList<>();
+        for (int tick = 0; tick < locations.size(); tick++) {
+            Map.Entry<String, String> location = quotaScheduler.prioritize("weatherbit", locations).get(0);
+            requested.add(location);
+            if (location.equals(locations.get(0))) {
+                quotaScheduler.onFailed("weatherbit", location);
+            } else {
+                quotaScheduler.onFetched("weatherbit", location);
+            }
+            Thread.sleep(5);
+        }
+
+        Assertions.assertEquals(new HashSet<>(locations), new HashSet<>(requested));
+    }
+
+    @Test
+    void onlyLocationsNotRequestedShouldBeDeferred() {
+        quotaScheduler.prioritize("weatherbit", locations);
+        quotaScheduler.onFetched("weatherbit", locations.get(0));
+        quotaScheduler.onFailed("weatherbit", locations.get(1));
+
+        Assertions.assertFalse(quotaScheduler.isDeferred(locations.get(0)));
+        Assertions.assertFalse(quotaScheduler.isDeferred(locations.get(1)));
+        Assertions.assertTrue(quotaScheduler.isDeferred(locations.get(2)));
+    }
+
+    @Test
+    void removedLocationShouldBeForgotten() {
+        quotaScheduler.onFetched("weatherbit", locations.get(0));
+        quotaScheduler.onFetched("weatherbit", locations.get(1));
+        quotaScheduler.onFetched("weatherbit", locations.get(2));
+
+        quotaScheduler.onLocationRemoved(new LocationRemovedEvent(1, "Izhevsk", "Russia"));
+
+        Assertions.assertEquals(locations.get(0), quotaScheduler.prioritize("weatherbit", locations).get(0));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.temperature.quota;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class TokenBucketTest {
+
+    @Test
+    void bucketShouldBeAllowBurstAndThenRefillAtRate() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 2, now::get);
+
+        Assertions.assertTrue(bucket.tryAcquire());
+        Assertions.assertTrue(bucket.tryAcquire());
+        Assertions.assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        Assertions.assertFalse(bucket.tryAcquire());
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        Assertions.assertTrue(bucket.tryAcquire());
+        Assertions.assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void bucketShouldBeNotAccumulateMoreThanCapacity() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 2, now::get);
+
+        now.addAndGet(Duration.ofHours(1).toNanos());
+
+        Assertions.assertEquals(2, bucket.available());
+    }
+}
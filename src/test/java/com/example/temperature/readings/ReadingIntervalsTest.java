@@ -0,0 +1,286 @@
+package com.example.temperature.readings;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationRemovedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ReadingIntervalsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2022, 9, 12, 0, 0);
+
+    private ReadingIntervals readingIntervals;
+    private AtomicLong nanoTime;
+    private Map<Integer, Duration> pollIntervals;
+
+    @BeforeEach
+    void setUp() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.getIntervals().setEnabled(true);
+        properties.getRegistry().setDefaultPollInterval(Duration.ofMinutes(1));
+        nanoTime = new AtomicLong();
+        pollIntervals = new HashMap<>();
+        readingIntervals = new ReadingIntervals(properties, pollIntervals::get, nanoTime::get);
+    }
+
+    @Test
+    void repeatedValueShouldBeExtendIntervalInsteadOfInsert() {
+        ReadingIntervals.Plan first = readingIntervals.plan(Collections.singletonList(entity(1, 10.5, START)));
+        readingIntervals.commit(first);
+        ReadingIntervals.Plan second = readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START.plusMinutes(1)),
+                entity(1, 10.5, START.plusMinutes(2))
+        ));
+        readingIntervals.commit(second);
+
+        Assertions.assertEquals(1, first.getInserts().size());
+        Assertions.assertTrue(second.getInserts().isEmpty());
+        Assertions.assertTrue(second.getUpdates().isEmpty());
+        List<TemperatureEntity> actualResult = readingIntervals.drain();
+        Assertions.assertEquals(1, actualResult.size());
+        Assertions.assertEquals(START, actualResult.get(0).getTimeCreate());
+        Assertions.assertEquals(START.plusMinutes(2), actualResult.get(0).getValidTo());
+        Assertions.assertEquals(3, actualResult.get(0).getSamples());
+        Assertions.assertTrue(readingIntervals.drain().isEmpty());
+    }
+
+    @Test
+    void changedValueShouldBeCloseIntervalAndInsertRecord() {
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(1, 10.5, START.plusMinutes(1))
+        )));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Collections.singletonList(
+                entity(1, 11.0, START.plusMinutes(2))
+        ));
+
+        Assertions.assertEquals(1, actualResult.getInserts().size());
+        Assertions.assertEquals(1, actualResult.getUpdates().size());
+        Assertions.assertEquals(START.plusMinutes(1), actualResult.getUpdates().get(0).getValidTo());
+        Assertions.assertEquals(2, actualResult.getUpdates().get(0).getSamples());
+    }
+
+    @Test
+    void extendedIntervalShouldBeUpdatedAfterFlushInterval() {
+        readingIntervals.commit(readingIntervals.plan(Collections.singletonList(entity(1, 10.5, START))));
+        nanoTime.set(TimeUnit.MINUTES.toNanos(1));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Collections.singletonList(
+                entity(1, 10.5, START.plusMinutes(1))
+        ));
+
+        Assertions.assertTrue(actualResult.getInserts().isEmpty());
+        Assertions.assertEquals(1, actualResult.getUpdates().size());
+        Assertions.assertEquals(2, actualResult.getUpdates().get(0).getSamples());
+    }
+
+    @Test
+    void intervalShouldBeNotLongerThanMaxInterval() {
+        readingIntervals.commit(readingIntervals.plan(Collections.singletonList(entity(1, 10.5, START))));
+        List<TemperatureEntity> readings = new ArrayList<>();
+        for (int i = 1; i <= 61; i++) {
+            readings.add(entity(1, 10.5, START.plusMinutes(i)));
+        }
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(readings);
+
+        Assertions.assertEquals(1, actualResult.getInserts().size());
+        Assertions.assertEquals(START.plusMinutes(61), actualResult.getInserts().get(0).getTimeCreate());
+    }
+
+    @Test
+    void valueAfterGapShouldBeInsertRecord() {
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(1, 10.5, START.plusMinutes(1))
+        )));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Collections.singletonList(
+                entity(1, 10.5, START.plusMinutes(3))
+        ));
+
+        Assertions.assertEquals(1, actualResult.getInserts().size());
+        Assertions.assertEquals(1, actualResult.getUpdates().size());
+        Assertions.assertEquals(START.plusMinutes(1), actualResult.getUpdates().get(0).getValidTo());
+    }
+
+    @Test
+    void maxGapShouldBeCountedFromLocationPollInterval() {
+        pollIntervals.put(2, Duration.ofMinutes(10));
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(2, 10.5, START)
+        )));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START.plusMinutes(10)),
+                entity(2, 10.5, START.plusMinutes(10))
+        ));
+
+        Assertions.assertEquals(1, actualResult.getInserts().size());
+        Assertions.assertEquals(1, actualResult.getInserts().get(0).getLocationId());
+    }
+
+    @Test
+    void valueAfterQuotaSkipShouldBeExtendInterval() {
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(1, 10.5, START.plusMinutes(1))
+        )));
+        readingIntervals.skip(1, START.plusMinutes(2));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Collections.singletonList(
+                entity(1, 10.5, START.plusMinutes(3))
+        ));
+        readingIntervals.commit(actualResult);
+
+        Assertions.assertTrue(actualResult.getInserts().isEmpty());
+        List<TemperatureEntity> rows = readingIntervals.drain();
+        Assertions.assertEquals(START.plusMinutes(3), rows.get(0).getValidTo());
+        Assertions.assertEquals(3, rows.get(0).getSamples());
+    }
+
+    @Test
+    void flushShouldBeWriteIntervalsNotWrittenForFlushIntervalAndCloseNotOwned() {
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(1, 10.5, START.plusMinutes(1)),
+                entity(2, 11.0, START),
+                entity(2, 11.0, START.plusMinutes(1))
+        )));
+
+        Assertions.assertTrue(readingIntervals.flush(id -> true).isEmpty());
+        nanoTime.set(TimeUnit.MINUTES.toNanos(1));
+        List<TemperatureEntity> actualResult = readingIntervals.flush(id -> id == 1);
+
+        Assertions.assertEquals(2, actualResult.size());
+        Assertions.assertEquals(1, readingIntervals.size());
+        Assertions.assertTrue(readingIntervals.flush(id -> true).isEmpty());
+    }
+
+    @Test
+    void removedLocationIntervalShouldBeClosed() {
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(1, 10.5, START.plusMinutes(1))
+        )));
+
+        readingIntervals.onLocationRemoved(new LocationRemovedEvent(1, "Izhevsk", "Russia"));
+
+        Assertions.assertEquals(0, readingIntervals.size());
+        List<TemperatureEntity> actualResult = readingIntervals.flush(id -> true);
+        Assertions.assertEquals(1, actualResult.size());
+        Assertions.assertEquals(2, actualResult.get(0).getSamples());
+        Assertions.assertEquals(1, readingIntervals.plan(Collections.singletonList(
+                entity(1, 10.5, START.plusMinutes(2))
+        )).getInserts().size());
+    }
+
+    @Test
+    void planRowsShouldBeLatestStateOfEveryChangedRecord() {
+        readingIntervals.commit(readingIntervals.plan(Collections.singletonList(entity(1, 10.5, START))));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START.plusMinutes(1)),
+                entity(1, 11.0, START.plusMinutes(2)),
+                entity(1, 11.0, START.plusMinutes(3))
+        ));
+
+        List<TemperatureEntity> rows = actualResult.getRows();
+        Assertions.assertEquals(2, rows.size());
+        Assertions.assertEquals(START, rows.get(0).getTimeCreate());
+        Assertions.assertEquals(2, rows.get(0).getSamples());
+        Assertions.assertEquals(START.plusMinutes(2), rows.get(1).getTimeCreate());
+        Assertions.assertEquals(START.plusMinutes(3), rows.get(1).getValidTo());
+        Assertions.assertEquals(2, rows.get(1).getSamples());
+    }
+
+    @Test
+    void disabledIntervalsShouldBeInsertEveryValue() {
+        WeatherProperties properties = new WeatherProperties();
+        readingIntervals = new ReadingIntervals(properties, pollIntervals::get, nanoTime::get);
+        readingIntervals.commit(readingIntervals.plan(Collections.singletonList(entity(1, 10.5, START))));
+
+        ReadingIntervals.Plan actualResult = readingIntervals.plan(Collections.singletonList(
+                entity(1, 10.5, START.plusMinutes(1))
+        ));
+
+        Assertions.assertEquals(1, actualResult.getInserts().size());
+        Assertions.assertTrue(readingIntervals.drain().isEmpty());
+    }
+
+    @Test
+    void expandShouldBeSpreadSamplesOverInterval() {
+        TemperatureEntity row = entity(1, 10.5, START);
+        row.setValidTo(START.plusMinutes(2));
+        row.setSamples(3);
+
+        List<TemperatureEntity> actualResult = readingIntervals.expand(row);
+
+        Assertions.assertEquals(3, actualResult.size());
+        Assertions.assertEquals(START, actualResult.get(0).getTimeCreate());
+        Assertions.assertEquals(START.plusMinutes(1), actualResult.get(1).getTimeCreate());
+        Assertions.assertEquals(START.plusMinutes(2), actualResult.get(2).getTimeCreate());
+        actualResult.forEach(sample -> Assertions.assertEquals(10.5, sample.getTemperature()));
+        Assertions.assertEquals(START.plusMinutes(2), readingIntervals.last(row).getTimeCreate());
+    }
+
+    @Test
+    void expandShouldBeIncludeValuesNotYetWrittenToDatabase() {
+        TemperatureEntity row = entity(1, 10.5, START);
+        readingIntervals.commit(readingIntervals.plan(Arrays.asList(
+                entity(1, 10.5, START),
+                entity(1, 10.5, START.plusMinutes(1))
+        )));
+
+        List<TemperatureEntity> actualResult = readingIntervals.expand(row);
+
+        Assertions.assertEquals(2, actualResult.size());
+        Assertions.assertEquals(START.plusMinutes(1), readingIntervals.last(row).getTimeCreate());
+    }
+
+    @Test
+    void expandIteratorShouldBeMergeIntervalsInTimeOrderWithinPeriod() {
+        TemperatureEntity first = entity(1, 10.5, START.minusMinutes(30));
+        first.setValidTo(START.plusMinutes(30));
+        first.setSamples(3);
+        TemperatureEntity second = entity(2, 11.0, START.plusMinutes(10));
+
+        Iterator<TemperatureEntity> iterator = readingIntervals.expand(
+                Arrays.asList(first, second).iterator(),
+                START,
+                START.plusMinutes(30)
+        );
+        List<TemperatureEntity> actualResult = new ArrayList<>();
+        iterator.forEachRemaining(actualResult::add);
+
+        Assertions.assertEquals(2, actualResult.size());
+        Assertions.assertEquals(START, actualResult.get(0).getTimeCreate());
+        Assertions.assertEquals(Integer.valueOf(1), actualResult.get(0).getLocationId());
+        Assertions.assertEquals(START.plusMinutes(10), actualResult.get(1).getTimeCreate());
+        Assertions.assertEquals(Integer.valueOf(2), actualResult.get(1).getLocationId());
+    }
+
+    private static TemperatureEntity entity(int locationId, double temperature, LocalDateTime timeCreate) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(locationId);
+        entity.setTemperature(temperature);
+        entity.setTimeCreate(timeCreate);
+        return entity;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.temperature.repositories;
+
+import com.example.temperature.dto.TemperatureCursor;
+import com.example.temperature.dto.TemperatureDto;
+import com.example.temperature.dto.TemperatureField;
+import com.example.temperature.dto.TemperaturePageDto;
+import com.example.temperature.entities.TemperatureEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@SpringBootTest(properties = "cron=-")
+class TemperatureRecordRepositoryTest {
+    @Autowired
+    private TemperatureRecordRepository temperatureRecordRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        for (int i = 0; i < 5; i++) {
+            insert("RecordsTestCity1", "RecordsTestCountry", i, start.plusMinutes(i));
+            insert("RecordsTestCity2", "RecordsTestCountry", 10 + i, start.plusMinutes(i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM reading WHERE location_id IN " +
+                "(SELECT id FROM location WHERE country = 'RecordsTestCountry')");
+    }
+
+    @Test
+    void findShouldBeReturnAllRecordsPageByPage() {
+        TemperatureCursor cursor = null;
+        List<Double> temperatures = new ArrayList<>();
+        int pages = 0;
+        do {
+            TemperaturePageDto page = temperatureRecordRepository.find(
+                    "RecordsTestCity1",
+                    start,
+                    start.plusHours(1),
+                    cursor,
+                    2,
+                    EnumSet.of(TemperatureField.TEMPERATURE)
+            );
+            page.getItems().forEach(item -> {
+                Assertions.assertNull(item.getCity());
+                Assertions.assertNull(item.getTimeCreate());
+                temperatures.add(item.getTemperature());
+            });
+            cursor = page.getNextCursor() != null ? TemperatureCursor.parse(page.getNextCursor()) : null;
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertEquals(Arrays.asList(0.0, 1.0, 2.0, 3.0, 4.0), temperatures);
+        Assertions.assertEquals(3, pages);
+    }
+
+    @Test
+    void findLatestShouldBeReturnLatestRecordForEachLocation() {
+        Map<String, TemperatureEntity> latest = temperatureRecordRepository.findLatest(
+                Arrays.asList("RecordsTestCity1", "RecordsTestCountry", "RecordsTestUnknown")
+        );
+
+        Assertions.assertEquals(2, latest.size());
+        Assertions.assertEquals(4.0, latest.get("RecordsTestCity1").getTemperature());
+        Assertions.assertEquals(start.plusMinutes(4), latest.get("RecordsTestCountry").getTimeCreate());
+    }
+
+    @Test
+    void findAllShouldBeReturnRecordsForEachLocation() {
+        Map<String, List<TemperatureEntity>> records = temperatureRecordRepository.findAll(
+                Arrays.asList("RecordsTestCity2", "RecordsTestCountry"),
+                start.plusMinutes(1),
+                start.plusMinutes(3)
+        );
+
+        Assertions.assertEquals(
+                Arrays.asList(11.0, 12.0),
+                records.get("RecordsTestCity2").stream().map(TemperatureEntity::getTemperature).collect(Collectors.toList())
+        );
+        Assertions.assertEquals(4, records.get("RecordsTestCountry").size());
+    }
+
+    @Test
+    void findShouldBeExpandIntervalsOfRepeatedValues() {
+        insert("RecordsTestCity3", "RecordsTestCountry", 20, start.minusMinutes(2));
+        jdbcTemplate.update(
+                "UPDATE reading SET valid_to = ?, samples = 5 WHERE time_create = ? AND location_id = " +
+                        "(SELECT id FROM location WHERE city = 'RecordsTestCity3')",
+                start.plusMinutes(2),
+                start.minusMinutes(2)
+        );
+
+        TemperaturePageDto first = temperatureRecordRepository.find(
+                "RecordsTestCity3",
+                start,
+                start.plusHours(1),
+                null,
+                2,
+                EnumSet.of(TemperatureField.TIME_CREATE)
+        );
+        TemperaturePageDto second = temperatureRecordRepository.find(
+                "RecordsTestCity3",
+                start,
+                start.plusHours(1),
+                TemperatureCursor.parse(first.getNextCursor()),
+                2,
+                EnumSet.of(TemperatureField.TIME_CREATE)
+        );
+
+        Assertions.assertEquals(
+                Arrays.asList(start, start.plusMinutes(1), start.plusMinutes(2)),
+                Stream.concat(first.getItems().stream(), second.getItems().stream())
+                        .map(TemperatureDto::getTimeCreate)
+                        .collect(Collectors.toList())
+        );
+        Assertions.assertNull(second.getNextCursor());
+        Assertions.assertEquals(
+                start.plusMinutes(2),
+                temperatureRecordRepository.findLatest(Arrays.asList("RecordsTestCity3"))
+                        .get("RecordsTestCity3")
+                        .getTimeCreate()
+        );
+    }
+
+    private void insert(String city, String country, double temperature, LocalDateTime timeCreate) {
+        jdbcTemplate.update(
+                "INSERT INTO location (city, country, enabled) VALUES (?, ?, false) ON CONFLICT DO NOTHING",
+                city,
+                country
+        );
+        jdbcTemplate.update(
+                "INSERT INTO reading (location_id, time_create, temperature) " +
+                        "SELECT id, ?, ? FROM location WHERE city = ? AND country = ?",
+                timeCreate,
+                Math.round(temperature * 100),
+                city,
+                country
+        );
+    }
+}
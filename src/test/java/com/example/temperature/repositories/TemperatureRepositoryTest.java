@@ -0,0 +1,75 @@
+package com.example.temperature.repositories;
+
+import com.example.temperature.entities.TemperatureEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+
+@SpringBootTest(properties = "cron=-")
+class TemperatureRepositoryTest {
+    @Autowired
+    private TemperatureRepository temperatureRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime time = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+    private Integer locationId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO location (city, country, enabled) " +
+                "VALUES ('DuplicateTestCity', 'DuplicateTestCountry', false) ON CONFLICT DO NOTHING");
+        locationId = jdbcTemplate.queryForObject(
+                "SELECT id FROM location WHERE city = 'DuplicateTestCity' AND country = 'DuplicateTestCountry'",
+                Integer.class
+        );
+        tearDown();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM reading WHERE location_id = ?", locationId);
+        jdbcTemplate.update("DELETE FROM reading_duplicate WHERE location_id = ?", locationId);
+    }
+
+    @Test
+    void duplicateShouldBeSavedToReadingDuplicate() {
+        temperatureRepository.save(entity(1.5));
+        temperatureRepository.save(entity(2.5));
+        temperatureRepository.save(entity(3.5));
+
+        Assertions.assertEquals(
+                Collections.singletonList(150),
+                jdbcTemplate.queryForList(
+                        "SELECT temperature FROM reading WHERE location_id = ?", Integer.class, locationId
+                )
+        );
+        Assertions.assertEquals(
+                Arrays.asList(250, 350),
+                jdbcTemplate.queryForList(
+                        "SELECT temperature FROM reading_duplicate WHERE location_id = ? AND time_create = ? " +
+                                "ORDER BY temperature",
+                        Integer.class,
+                        locationId,
+                        time
+                )
+        );
+    }
+
+    private TemperatureEntity entity(double temperature) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(locationId);
+        entity.setTimeCreate(time);
+        entity.setTemperature(temperature);
+        return entity;
+    }
+}
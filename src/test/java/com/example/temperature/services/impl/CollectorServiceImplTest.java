@@ -0,0 +1,270 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.exceptions.IncorrectResponseException;
+import com.example.temperature.exceptions.QuotaExceededException;
+import com.example.temperature.health.CircuitBreaker;
+import com.example.temperature.health.ProviderHealthRegistry;
+import com.example.temperature.metrics.WeatherMetrics;
+import com.example.temperature.providers.OpenWeatherMapProvider;
+import com.example.temperature.providers.WeatherApiProvider;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.quota.LocationDemand;
+import com.example.temperature.quota.QuotaScheduler;
+import com.example.temperature.services.CollectorService;
+import com.example.temperature.services.TemperatureService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CollectorServiceImplTest {
+
+    private CollectorService collectorService;
+    private TemperatureService temperatureService;
+    private WeatherProperties properties;
+    private ExecutorService executor;
+    private Collection<String> sources;
+    private List<Map.Entry<String, String>> locations;
+    private ProviderHealthRegistry healthRegistry;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        temperatureService = Mockito.mock(TemperatureService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new WeatherProperties();
+        executor = Executors.newFixedThreadPool(4);
+        Map<String, Map<String, String>> sourceProperties = new LinkedHashMap<>();
+        Map<String, String> openWeatherMap = new HashMap<>();
+        openWeatherMap.put("concurrency", "2");
+        openWeatherMap.put("batch-size", "1");
+        sourceProperties.put("openweathermap", openWeatherMap);
+        sourceProperties.put("weatherapi", Collections.singletonMap("batch-size", "1"));
+        properties.setSources(sourceProperties);
+        healthRegistry = new ProviderHealthRegistry(properties);
+        WeatherProviderRegistry providerRegistry = new WeatherProviderRegistry(
+                Arrays.asList(new OpenWeatherMapProvider(properties), new WeatherApiProvider(properties)),
+                properties
+        );
+        collectorService = new CollectorServiceImpl(
+                properties,
+                temperatureService,
+                providerRegistry,
+                healthRegistry,
+                new QuotaScheduler(properties, new LocationDemand()),
+                new WeatherMetrics(meterRegistry, Scheduled.CRON_DISABLED)
+        );
+        sources = providerRegistry.getNames();
+        locations = Arrays.asList(
+                new AbstractMap.SimpleEntry<>("Izhevsk", "Russia"),
+                new AbstractMap.SimpleEntry<>("London", "United Kingdom"),
+                new AbstractMap.SimpleEntry<>("Paris", "France")
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void collectShouldBeReturnTemperaturesFromAllSourcesInSourceOrder() {
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> 10.0, executor));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0));
+
+        Map<Map.Entry<String, String>, List<Double>> actualResult = collectorService.collect(locations, sources);
+
+        Assertions.assertEquals(locations, Arrays.asList(actualResult.keySet().toArray()));
+        actualResult.values().forEach(temperatures -> Assertions.assertEquals(Arrays.asList(10.0, 20.0), temperatures));
+    }
+
+    @Test
+    void collectShouldBeSkipFailedSource() {
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+                    throw new IncorrectResponseException("error");
+                }, executor));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0));
+
+        Map<Map.Entry<String, String>, List<Double>> actualResult = collectorService.collect(locations, sources);
+
+        actualResult.values().forEach(temperatures ->
+                Assertions.assertEquals(Collections.singletonList(20.0), temperatures));
+        Assertions.assertEquals(3, meterRegistry.get("weather.provider.requests")
+                .tags("source", "weatherapi", "outcome", "success")
+                .timer()
+                .count());
+        Assertions.assertTrue(meterRegistry.get("weather.provider.requests")
+                .tags("source", "openweathermap", "outcome", "error", "exception", "IncorrectResponseException")
+                .timer()
+                .count() > 0);
+    }
+
+    @Test
+    void collectShouldBeIgnoreRequestsCompletedAfterTickTimeout() {
+        properties.getCollector().setTickTimeout(Duration.ofMillis(200));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+                    sleep(2000);
+                    return 10.0;
+                }, executor));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0));
+
+        long start = System.nanoTime();
+        Map<Map.Entry<String, String>, List<Double>> actualResult = collectorService.collect(locations, sources);
+        long elapsed = System.nanoTime() - start;
+
+        Assertions.assertTrue(elapsed < Duration.ofMillis(1500).toNanos());
+        actualResult.values().forEach(temperatures ->
+                Assertions.assertEquals(Collections.singletonList(20.0), temperatures));
+    }
+
+    @Test
+    void collectShouldBeCancelRequestsInFlightAfterTickTimeout() {
+        properties.getCollector().setTickTimeout(Duration.ofMillis(200));
+        List<CompletableFuture<Double>> pending = new CopyOnWriteArrayList<>();
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenAnswer(invocation -> {
+                    CompletableFuture<Double> future = new CompletableFuture<>();
+                    pending.add(future);
+                    return future;
+                });
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0));
+
+        collectorService.collect(locations, sources);
+
+        Assertions.assertEquals(2, pending.size());
+        pending.forEach(future -> Assertions.assertTrue(future.isCancelled()));
+        Assertions.assertNull(meterRegistry.find("weather.provider.requests")
+                .tags("source", "openweathermap")
+                .timer());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, healthRegistry.get("openweathermap").getState());
+    }
+
+    @Test
+    void collectShouldBeRequestLocationsInBatchesWhenProviderSupportsIt() {
+        properties.getSources().put("weatherapi", Collections.singletonMap("batch-size", "2"));
+        WeatherProviderRegistry providerRegistry = new WeatherProviderRegistry(
+                Arrays.asList(new OpenWeatherMapProvider(properties), new WeatherApiProvider(properties)),
+                properties
+        );
+        collectorService = new CollectorServiceImpl(
+                properties,
+                temperatureService,
+                providerRegistry,
+                healthRegistry,
+                new QuotaScheduler(properties, new LocationDemand()),
+                new WeatherMetrics(meterRegistry, Scheduled.CRON_DISABLED)
+        );
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenReturn(CompletableFuture.completedFuture(10.0));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0));
+        when(temperatureService.identifyTemperaturesAsync(any(), eq("weatherapi")))
+                .thenAnswer(invocation -> {
+                    List<Map.Entry<String, String>> batch = invocation.getArgument(0);
+                    Map<Map.Entry<String, String>, Double> result = new HashMap<>();
+                    batch.forEach(location -> result.put(location, 20.0));
+                    return CompletableFuture.completedFuture(result);
+                });
+
+        Map<Map.Entry<String, String>, List<Double>> actualResult = collectorService.collect(locations, sources);
+
+        verify(temperatureService, times(1)).identifyTemperaturesAsync(any(), eq("weatherapi"));
+        verify(temperatureService, times(1)).identifyTemperatureAsync(any(), eq("weatherapi"));
+        actualResult.values().forEach(temperatures -> Assertions.assertEquals(Arrays.asList(10.0, 20.0), temperatures));
+    }
+
+    @Test
+    void collectShouldBeStopRequestingSourceAfterFailures() {
+        properties.getCircuitBreaker().setMinimumCalls(3);
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+                    throw new IncorrectResponseException("error");
+                }, executor));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0));
+
+        collectorService.collect(locations, sources);
+        Map<Map.Entry<String, String>, List<Double>> actualResult = collectorService.collect(locations, sources);
+
+        verify(temperatureService, times(3)).identifyTemperatureAsync(any(), eq("openweathermap"));
+        verify(temperatureService, times(6)).identifyTemperatureAsync(any(), eq("weatherapi"));
+        actualResult.values().forEach(temperatures ->
+                Assertions.assertEquals(Collections.singletonList(20.0), temperatures));
+    }
+
+    @Test
+    void collectShouldBeStopRequestingSourceWhenQuotaExceeded() {
+        properties.getCircuitBreaker().setMinimumCalls(1);
+        Map<String, String> weatherApi = new HashMap<>();
+        weatherApi.put("concurrency", "1");
+        weatherApi.put("batch-size", "1");
+        properties.getSources().put("weatherapi", weatherApi);
+        WeatherProviderRegistry providerRegistry = new WeatherProviderRegistry(
+                Arrays.asList(new OpenWeatherMapProvider(properties), new WeatherApiProvider(properties)),
+                properties
+        );
+        collectorService = new CollectorServiceImpl(
+                properties,
+                temperatureService,
+                providerRegistry,
+                healthRegistry,
+                new QuotaScheduler(properties, new LocationDemand()),
+                new WeatherMetrics(meterRegistry, Scheduled.CRON_DISABLED)
+        );
+        when(temperatureService.identifyTemperatureAsync(any(), eq("openweathermap")))
+                .thenReturn(CompletableFuture.completedFuture(10.0));
+        CompletableFuture<Double> quotaExceeded = new CompletableFuture<>();
+        quotaExceeded.completeExceptionally(new QuotaExceededException("quota"));
+        when(temperatureService.identifyTemperatureAsync(any(), eq("weatherapi")))
+                .thenReturn(CompletableFuture.completedFuture(20.0))
+                .thenReturn(quotaExceeded);
+
+        Map<Map.Entry<String, String>, List<Double>> actualResult = collectorService.collect(locations, sources);
+
+        verify(temperatureService, times(2)).identifyTemperatureAsync(any(), eq("weatherapi"));
+        Assertions.assertEquals(Arrays.asList(10.0, 20.0), actualResult.get(locations.get(0)));
+        Assertions.assertEquals(Collections.singletonList(10.0), actualResult.get(locations.get(1)));
+        Assertions.assertEquals(Collections.singletonList(10.0), actualResult.get(locations.get(2)));
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, healthRegistry.get("weatherapi").getState());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.ExportFormat;
+import com.example.temperature.entities.LocationEntity;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.LocationRepository;
+import com.example.temperature.repositories.TemperatureRepository;
+import com.example.temperature.services.ExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private ExportService exportService;
+    private WeatherProperties properties;
+    private TemperatureRepository temperatureRepository;
+    private EntityManager entityManager;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        properties.getTiering().setDirectory(directory.toString());
+        temperatureRepository = Mockito.mock(TemperatureRepository.class);
+        entityManager = Mockito.mock(EntityManager.class);
+        LocationRepository locationRepository = Mockito.mock(LocationRepository.class);
+        when(locationRepository.findAll()).thenReturn(Arrays.asList(
+                location(1, "Moscow", "Russia"),
+                location(2, "Moscow", "Russia, \"RU\""),
+                location(3, "Paris", "France")
+        ));
+        LocationDirectory locationDirectory = new LocationDirectory(locationRepository);
+        exportService = new ExportServiceImpl(
+                temperatureRepository,
+                entityManager,
+                new ObjectMapper(),
+                locationDirectory,
+                new ReadingIntervals(new WeatherProperties(), locationDirectory),
+                new SegmentStore(properties)
+        );
+        start = LocalDateTime.of(2022, 9, 12, 0, 0);
+        end = LocalDateTime.of(2022, 9, 13, 0, 0);
+    }
+
+    @Test
+    void exportCsvShouldBeWriteHeaderAndEscapedRows() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(temperatureRepository.streamAllByTimeCreateBetweenAndLocationIdIn(
+                start.minusHours(1),
+                end,
+                new HashSet<>(Arrays.asList(1, 2))
+        )).thenReturn(Stream.of(
+                entity(1, 10.5, start.plusHours(1)),
+                entity(2, 11.0, start.plusHours(2))
+        ).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long actualCount = exportService.export("Moscow", start, end, ExportFormat.CSV, outputStream);
+
+        String expectedResult = "city,country,temperature,time_create\n" +
+                "Moscow,Russia,10.5,2022-09-12T01:00\n" +
+                "Moscow,\"Russia, \"\"RU\"\"\",11.0,2022-09-12T02:00\n";
+        Assertions.assertEquals(2, actualCount);
+        Assertions.assertEquals(expectedResult, outputStream.toString(StandardCharsets.UTF_8.name()));
+        Assertions.assertTrue(closed.get());
+        verify(entityManager, times(2)).detach(Mockito.any());
+    }
+
+    @Test
+    void exportNdjsonWithoutLocationShouldBeWriteAllRecords() throws Exception {
+        when(temperatureRepository.streamAllByTimeCreateBetween(start.minusHours(1), end))
+                .thenReturn(Stream.of(
+                        entity(1, 10.5, start.plusHours(1)),
+                        entity(3, null, start.plusHours(2))
+                ));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long actualCount = exportService.export(null, start, end, ExportFormat.NDJSON, outputStream);
+
+        String expectedResult =
+                "{\"city\":\"Moscow\",\"country\":\"Russia\",\"temperature\":10.5,\"time_create\":\"2022-09-12T01:00\"}\n" +
+                "{\"city\":\"Paris\",\"country\":\"France\",\"temperature\":null,\"time_create\":\"2022-09-12T02:00\"}\n";
+        Assertions.assertEquals(2, actualCount);
+        Assertions.assertEquals(expectedResult, outputStream.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    void exportShouldBeIncludeValuesOfArchivedMonths() throws Exception {
+        YearMonth month = YearMonth.from(start.minusMonths(1));
+        try (SegmentStore.MonthWriter writer = new SegmentStore(properties).open(month)) {
+            writer.add(entity(3, 9.0, start.minusDays(20)));
+            writer.add(entity(1, 8.0, start.minusDays(20)));
+            writer.commit();
+        }
+        when(temperatureRepository.streamAllByTimeCreateBetweenAndLocationIdIn(
+                start.minusMonths(1).minusHours(1),
+                end,
+                new HashSet<>(Arrays.asList(1, 2))
+        )).thenReturn(Stream.of(entity(1, 10.5, start.plusHours(1))));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long actualCount = exportService.export("Moscow", start.minusMonths(1), end, ExportFormat.CSV, outputStream);
+
+        String expectedResult = "city,country,temperature,time_create\n" +
+                "Moscow,Russia,8.0,2022-08-23T00:00\n" +
+                "Moscow,Russia,10.5,2022-09-12T01:00\n";
+        Assertions.assertEquals(2, actualCount);
+        Assertions.assertEquals(expectedResult, outputStream.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    private static TemperatureEntity entity(int locationId, Double temperature, LocalDateTime time) {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setLocationId(locationId);
+        entity.setTemperature(temperature);
+        entity.setTimeCreate(time);
+        return entity;
+    }
+
+    private static LocationEntity location(long id, String city, String country) {
+        LocationEntity location = new LocationEntity();
+        location.setId(id);
+        location.setCity(city);
+        location.setCountry(country);
+        return location;
+    }
+}
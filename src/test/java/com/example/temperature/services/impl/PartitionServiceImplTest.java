@@ -0,0 +1,129 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.InOrder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionServiceImplTest {
+
+    private PartitionServiceImpl partitionService;
+    private WeatherProperties properties;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        partitionService = new PartitionServiceImpl(
+                properties,
+                jdbcTemplate,
+                Mockito.mock(PlatformTransactionManager.class),
+                new ClusterMembership(properties, jdbcTemplate)
+        );
+    }
+
+    @Test
+    void maintainPartitionsShouldBeCreateCurrentAndFuturePartitions() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq("reading_p202212"))).thenReturn(true);
+
+        partitionService.maintainPartitions(YearMonth.of(2022, 12));
+
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE reading_p202212"));
+        verify(jdbcTemplate).execute("CREATE TABLE reading_p202301 (LIKE reading INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        verify(jdbcTemplate).execute("ALTER TABLE reading ATTACH PARTITION reading_p202301 " +
+                "FOR VALUES FROM ('2023-01-01') TO ('2023-02-01')");
+        verify(jdbcTemplate).execute("ALTER TABLE reading ATTACH PARTITION reading_p202302 " +
+                "FOR VALUES FROM ('2023-02-01') TO ('2023-03-01')");
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), any());
+    }
+
+    @Test
+    void createdPartitionShouldBeFilledFromDefaultPartitionBeforeAttach() {
+        partitionService.maintainPartitions(YearMonth.of(2022, 12));
+
+        InOrder inOrder = Mockito.inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute(startsWith("CREATE TABLE reading_p202212"));
+        inOrder.verify(jdbcTemplate).update("WITH moved AS (DELETE FROM reading_default " +
+                "WHERE time_create >= '2022-12-01' AND time_create < '2023-01-01' RETURNING *) " +
+                "INSERT INTO reading_p202212 SELECT * FROM moved");
+        inOrder.verify(jdbcTemplate).execute(startsWith("ALTER TABLE reading ATTACH PARTITION reading_p202212"));
+    }
+
+    @Test
+    void failedPartitionShouldBeNotStopOtherPartitions() {
+        properties.getPartitions().setRetentionMonths(3);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(Arrays.asList("reading_p202207", "reading_p202208"));
+        doThrow(new CannotAcquireLockException("lock"))
+                .when(jdbcTemplate).execute("ALTER TABLE reading DETACH PARTITION reading_p202207");
+
+        partitionService.maintainPartitions(YearMonth.of(2022, 12));
+
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reading_p202207 RENAME TO reading_archive_202207");
+        verify(jdbcTemplate).execute("ALTER TABLE reading_p202208 RENAME TO reading_archive_202208");
+    }
+
+    @Test
+    void maintainPartitionsShouldBeArchiveExpiredPartitions() {
+        properties.getPartitions().setRetentionMonths(3);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any())).thenReturn(Arrays.asList(
+                "reading_default",
+                "reading_p202208",
+                "reading_p202209",
+                "reading_p202212"
+        ));
+
+        partitionService.maintainPartitions(YearMonth.of(2022, 12));
+
+        verify(jdbcTemplate).execute("ALTER TABLE reading DETACH PARTITION reading_p202208");
+        verify(jdbcTemplate).execute("ALTER TABLE reading_p202208 RENAME TO reading_archive_202208");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reading DETACH PARTITION reading_p202209");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reading DETACH PARTITION reading_default");
+    }
+
+    @Test
+    void maintainPartitionsShouldBeDropExpiredPartitionsWithoutArchive() {
+        properties.getPartitions().setRetentionMonths(3);
+        properties.getPartitions().setArchive(false);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(Arrays.asList("reading_p202208", "reading_p202212"));
+
+        partitionService.maintainPartitions(YearMonth.of(2022, 12));
+
+        verify(jdbcTemplate).execute("DROP TABLE reading_p202208");
+        verify(jdbcTemplate, never()).execute("DROP TABLE reading_p202212");
+    }
+
+    @Test
+    void maintainPartitionsShouldBeSkippedWhenInstanceIsNotLeader() {
+        properties.getCluster().setEnabled(true);
+        partitionService = new PartitionServiceImpl(
+                properties,
+                jdbcTemplate,
+                Mockito.mock(PlatformTransactionManager.class),
+                new ClusterMembership(properties, jdbcTemplate)
+        );
+
+        partitionService.maintainPartitions();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
@@ -1,26 +1,59 @@
 package com.example.temperature.services.impl;
 
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.cache.LatestTemperatureCache;
+import com.example.temperature.cache.ReadingWindow;
+import com.example.temperature.clients.RestTemplateWeatherClient;
+import com.example.temperature.clients.WeatherResponseCache;
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.dto.Granularity;
 import com.example.temperature.dto.OpenWeatherMapDto;
+import com.example.temperature.dto.TemperatureRollupDto;
 import com.example.temperature.dto.WeatherApiDto;
 import com.example.temperature.dto.WeatherBitDto;
+import com.example.temperature.entities.LocationEntity;
 import com.example.temperature.entities.TemperatureEntity;
 import com.example.temperature.exceptions.IncorrectResponseException;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.providers.OpenWeatherMapProvider;
+import com.example.temperature.providers.WeatherApiProvider;
+import com.example.temperature.providers.WeatherBitProvider;
+import com.example.temperature.providers.WeatherProviderRegistry;
+import com.example.temperature.quota.LocationDemand;
+import com.example.temperature.quota.QuotaScheduler;
+import com.example.temperature.readings.ReadingIntervals;
+import com.example.temperature.repositories.LocationRepository;
+import com.example.temperature.repositories.TemperatureRecordRepository;
 import com.example.temperature.repositories.TemperatureRepository;
+import com.example.temperature.repositories.TemperatureRollupRepository;
 import com.example.temperature.services.TemperatureService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class TemperatureServiceImplTest {
@@ -30,12 +63,55 @@ class TemperatureServiceImplTest {
     private TemperatureRepository temperatureRepository;
     @Mock
     private RestTemplate restTemplate;
+    @Mock
+    private TemperatureRollupRepository temperatureRollupRepository;
+    @Mock
+    private LocationRepository locationRepository;
+    @Mock
+    private TemperatureRecordRepository temperatureRecordRepository;
 
     @BeforeEach
     void setUp() {
         restTemplate = Mockito.mock(RestTemplate.class);
         temperatureRepository = Mockito.mock(TemperatureRepository.class);
-        temperatureService = new TemperatureServiceImpl(temperatureRepository, restTemplate);
+        temperatureRollupRepository = Mockito.mock(TemperatureRollupRepository.class);
+        locationRepository = Mockito.mock(LocationRepository.class);
+        temperatureRecordRepository = Mockito.mock(TemperatureRecordRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(locationRepository.findByCityAndCountry(any(), any())).thenAnswer(invocation -> Optional.of(
+                location(ids.incrementAndGet(), invocation.getArgument(0), invocation.getArgument(1))
+        ));
+        configure("openweathermap", new HashMap<>());
+    }
+
+    private void configure(String serviceName, Map<String, String> source) {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setSources(Collections.singletonMap(serviceName, source));
+        properties.getResponseCache().setEnabled(false);
+        WeatherProviderRegistry providerRegistry = new WeatherProviderRegistry(
+                Arrays.asList(
+                        new OpenWeatherMapProvider(properties),
+                        new WeatherApiProvider(properties),
+                        new WeatherBitProvider(properties)
+                ),
+                properties
+        );
+        LocationDirectory locationDirectory = new LocationDirectory(locationRepository);
+        ReadingIntervals readingIntervals = new ReadingIntervals(properties, locationDirectory);
+        temperatureService = new TemperatureServiceImpl(
+                temperatureRepository,
+                temperatureRollupRepository,
+                providerRegistry,
+                new RestTemplateWeatherClient(restTemplate, Runnable::run),
+                new WeatherResponseCache(properties, new QuotaScheduler(properties, new LocationDemand())),
+                new LatestTemperatureCache(temperatureRepository, properties, locationDirectory, readingIntervals),
+                locationDirectory,
+                readingIntervals,
+                temperatureRecordRepository,
+                new SegmentStore(properties),
+                new ReadingWindow(properties, temperatureRecordRepository, readingIntervals),
+                new ClusterMembership(properties, Mockito.mock(JdbcTemplate.class))
+        );
     }
 
     @Test
@@ -50,10 +126,11 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, OpenWeatherMapDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), OpenWeatherMapDto.class)).thenReturn(dto);
         double actualTemperature = temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         );
         double expectedTemperature = dto.getTemperature();
@@ -73,10 +150,11 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, OpenWeatherMapDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), OpenWeatherMapDto.class)).thenReturn(dto);
         double actualTemperature = temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         );
         double expectedTemperature = 20;
@@ -84,6 +162,29 @@ class TemperatureServiceImplTest {
         Assertions.assertNotEquals(actualTemperature, expectedTemperature);
     }
 
+    @Test
+    void identifyTemperatureShouldBeEncodeLocationWithOpenWeatherMap() {
+        String url = "https://api.openweathermap.org/data/2.5/weather?appid=1d7659b294d1085934bf0a736e0d35b3&q=New%20York&units=metric";
+        Map.Entry<String, String> entry = new AbstractMap.SimpleEntry<>("New York", "United States");
+        Map<String, String> sources = new HashMap<>();
+        sources.put("key", "1d7659b294d1085934bf0a736e0d35b3");
+        sources.put("url", "https://api.openweathermap.org/data/2.5/weather");
+        String serviceName = "openweathermap";
+        OpenWeatherMapDto dto = new OpenWeatherMapDto();
+        dto.setCity("New York");
+        dto.setTemperature(10);
+
+        configure(serviceName, sources);
+        when(restTemplate.getForObject(URI.create(url), OpenWeatherMapDto.class)).thenReturn(dto);
+        double actualTemperature = temperatureService.identifyTemperature(
+                entry,
+                serviceName
+        );
+        double expectedTemperature = dto.getTemperature();
+
+        Assertions.assertEquals(actualTemperature, expectedTemperature);
+    }
+
     @Test
     void identifyTemperatureShouldBeCorrectResultWithWeatherApi() {
         String url = "http://api.weatherapi.com/v1/current.json?key=29d973a0d4f943799c064943221109&q=Izhevsk";
@@ -96,10 +197,11 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherApiDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherApiDto.class)).thenReturn(dto);
         double actualTemperature = temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         );
         double expectedTemperature = dto.getTemperature();
@@ -119,10 +221,11 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherApiDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherApiDto.class)).thenReturn(dto);
         double actualTemperature = temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         );
         double expectedTemperature = 20;
@@ -142,10 +245,11 @@ class TemperatureServiceImplTest {
         dto.setCity("Izhevsk");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherBitDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherBitDto.class)).thenReturn(dto);
         double actualTemperature = temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         );
         double expectedTemperature = dto.getTemperature();
@@ -165,10 +269,11 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherBitDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherBitDto.class)).thenReturn(dto);
         double actualTemperature = temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         );
         double expectedTemperature = 20;
@@ -188,11 +293,12 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, OpenWeatherMapDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), OpenWeatherMapDto.class)).thenReturn(dto);
 
         Assertions.assertThrows(IncorrectResponseException.class, () -> temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         ));
     }
@@ -209,11 +315,12 @@ class TemperatureServiceImplTest {
         dto.setCity("city");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherApiDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherApiDto.class)).thenReturn(dto);
 
         Assertions.assertThrows(IncorrectResponseException.class, () -> temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         ));
     }
@@ -230,11 +337,12 @@ class TemperatureServiceImplTest {
         dto.setCity("Izhevsk");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherBitDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherBitDto.class)).thenReturn(dto);
 
         Assertions.assertThrows(IncorrectResponseException.class, () -> temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         ));
     }
@@ -251,15 +359,50 @@ class TemperatureServiceImplTest {
         dto.setCity("Izhevsk");
         dto.setTemperature(10);
 
-        when(restTemplate.getForObject(url, WeatherBitDto.class)).thenReturn(dto);
+        configure(serviceName, sources);
+
+        when(restTemplate.getForObject(URI.create(url), WeatherBitDto.class)).thenReturn(dto);
 
         Assertions.assertThrows(IllegalStateException.class, () -> temperatureService.identifyTemperature(
                 entry,
-                sources,
                 serviceName
         ));
     }
 
+    @Test
+    void insertAllShouldBeSaveAllEntitiesWithOneCall() {
+        TemperatureEntity first = new TemperatureEntity();
+        first.setCity("Izhevsk");
+        TemperatureEntity second = new TemperatureEntity();
+        second.setCity("London");
+        List<TemperatureEntity> entities = Arrays.asList(first, second);
+
+        temperatureService.insertAll(entities);
+
+        verify(temperatureRepository, times(1)).saveAll(entities);
+        verify(temperatureRollupRepository, times(1)).add(entities);
+        Assertions.assertNotNull(first.getLocationId());
+        Assertions.assertNotEquals(first.getLocationId(), second.getLocationId());
+    }
+
+    @Test
+    void getTemperatureWithNullDateShouldBeReturnInsertedEntityWithoutDatabaseQuery() {
+        TemperatureEntity entity = new TemperatureEntity();
+        entity.setCity("Izhevsk");
+        entity.setCountry("Russia");
+        entity.setTemperature(-3.5);
+        entity.setTimeCreate(LocalDateTime.of(2022, 9, 12, 2, 26));
+
+        temperatureService.insertAll(Collections.singletonList(entity));
+        String actualCityResult = temperatureService.getTemperature("Izhevsk", null);
+        String actualCountryResult = temperatureService.getTemperature("Russia", null);
+
+        String expectedResult = "-3.5 | " + entity.getTimeCreate();
+        Assertions.assertEquals(expectedResult, actualCityResult);
+        Assertions.assertEquals(expectedResult, actualCountryResult);
+        verify(temperatureRepository, never()).findLastByLocationIdIn(any(), anyLong());
+    }
+
     @Test
     void getTemperatureWithIncorrectLocationAndNullDateShouldBeNotResult() {
         String location = "location";
@@ -285,16 +428,16 @@ class TemperatureServiceImplTest {
         String location = "location";
         LocalDateTime date = LocalDateTime.now();
         TemperatureEntity entity = new TemperatureEntity();
-        entity.setId(1L);
-        entity.setCity("location");
+        entity.setLocationId(1);
         entity.setTemperature(36.6);
         entity.setTimeCreate(date);
 
-        when(temperatureRepository.findAllByTimeCreateBetweenAndCityOrCountry(
-                date.toLocalDate().atStartOfDay(),
+        when(locationRepository.findAllByCityOrCountry(location, location))
+                .thenReturn(List.of(location(1, location, "")));
+        when(temperatureRepository.findAllByTimeCreateBetweenAndLocationIdIn(
+                date.toLocalDate().atStartOfDay().minusHours(1),
                 date.plusDays(1).toLocalDate().atStartOfDay(),
-                location,
-                location
+                Set.of(1)
         )).thenReturn(List.of(entity));
         String actualResult = temperatureService.getTemperature(location, date.toLocalDate());
 
@@ -306,17 +449,66 @@ class TemperatureServiceImplTest {
     void getTemperatureWithCorrectLocationAndNullDateShouldBeCorrectResult() {
         String location = "location";
         TemperatureEntity entity = new TemperatureEntity();
-        entity.setId(1L);
-        entity.setCity("location");
+        entity.setLocationId(1);
         entity.setTemperature(36.6);
         entity.setTimeCreate(LocalDateTime.of(2022, 9, 12, 2, 26));
 
-        when(temperatureRepository
-                .findDistinctFirstByCityOrCountryOrderByTimeCreateDesc(location, location))
-                .thenReturn(java.util.Optional.of(entity));
+        when(locationRepository.findAllByCityOrCountry(location, location))
+                .thenReturn(List.of(location(1, location, "")));
+        when(locationRepository.findById(1L)).thenReturn(Optional.of(location(1, location, "")));
+        when(temperatureRepository.findLastByLocationIdIn(Set.of(1), 3600))
+                .thenReturn(List.of(entity));
         String actualResult = temperatureService.getTemperature(location, null);
 
         String expectedResult = "36.6 | " + entity.getTimeCreate();
         Assertions.assertEquals(expectedResult, actualResult);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTemperatureWithHourGranularityShouldBeReturnRollups() {
+        String location = "location";
+        LocalDate date = LocalDate.of(2022, 9, 12);
+        when(temperatureRollupRepository.find(
+                Granularity.HOUR,
+                location,
+                date.atStartOfDay(),
+                date.plusDays(1).atStartOfDay()
+        )).thenReturn(Arrays.asList(
+                TemperatureRollupDto.builder()
+                        .bucket(date.atTime(1, 0))
+                        .minTemperature(10.5)
+                        .maxTemperature(12.5)
+                        .avgTemperature(11.3333333)
+                        .count(3)
+                        .build(),
+                TemperatureRollupDto.builder()
+                        .bucket(date.atTime(2, 0))
+                        .minTemperature(9)
+                        .maxTemperature(9)
+                        .avgTemperature(9)
+                        .count(1)
+                        .build()
+        ));
+
+        String actualResult = temperatureService.getTemperature(location, date, Granularity.HOUR);
+
+        String expectedResult = "11.33 | 10.5 | 12.5 | 3 | 2022-09-12T01:00\n" +
+                "9.0 | 9.0 | 9.0 | 1 | 2022-09-12T02:00\n";
+        Assertions.assertEquals(expectedResult, actualResult);
+    }
+
+    @Test
+    void getTemperatureWithDayGranularityAndNoRollupsShouldBeNotResult() {
+        String actualResult = temperatureService.getTemperature("location", LocalDate.now(), Granularity.DAY);
+
+        Assertions.assertEquals("Данных по указанной локации и дате не найдены.", actualResult);
+    }
+
+    private static LocationEntity location(long id, String city, String country) {
+        LocationEntity location = new LocationEntity();
+        location.setId(id);
+        location.setCity(city);
+        location.setCountry(country);
+        return location;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.temperature.services.impl;
+
+import com.example.temperature.archive.SegmentStore;
+import com.example.temperature.cluster.ClusterMembership;
+import com.example.temperature.configuration.WeatherProperties;
+import com.example.temperature.entities.TemperatureEntity;
+import com.example.temperature.locations.LocationDirectory;
+import com.example.temperature.readings.ReadingIntervals;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TieringServiceImplTest {
+
+    private static final LocalDateTime MONTH_END = LocalDateTime.of(2022, 9, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private TieringServiceImpl tieringService;
+    private WeatherProperties properties;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WeatherProperties();
+        properties.getTiering().setDirectory(directory.toString());
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        tieringService = new TieringServiceImpl(
+                properties,
+                jdbcTemplate,
+                Mockito.mock(PlatformTransactionManager.class),
+                new ClusterMembership(properties, jdbcTemplate),
+                new SegmentStore(properties),
+                new ReadingIntervals(properties, Mockito.mock(LocationDirectory.class))
+        );
+    }
+
+    @Test
+    void moveAgedMonthsShouldBeDetachOnlyMonthsOlderThanAfter() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("reading"))).thenReturn(Arrays.asList(
+                "reading_default",
+                "reading_p202208",
+                "reading_p202209",
+                "reading_p202212"
+        ));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("reading_tier_%")))
+                .thenReturn(Collections.emptyList());
+
+        tieringService.moveAgedMonths(LocalDateTime.of(2022, 12, 15, 3, 30));
+
+        verify(jdbcTemplate).execute("ALTER TABLE reading DETACH PARTITION reading_p202208");
+        verify(jdbcTemplate).execute("ALTER TABLE reading_p202208 RENAME TO reading_tier_202208");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reading DETACH PARTITION reading_p202209");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reading DETACH PARTITION reading_p202212");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reading DETACH PARTITION reading_default");
+    }
+
+    @Test
+    void valuesAfterMonthEndShouldBeInsertedIntoDatabaseInsteadOfSegment() throws Exception {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("reading")))
+                .thenReturn(Collections.emptyList());
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("reading_tier_%")))
+                .thenReturn(Collections.singletonList("reading_tier_202208"));
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        when(resultSet.getInt("location_id")).thenReturn(1);
+        when(resultSet.getTimestamp("time_create")).thenReturn(Timestamp.valueOf(MONTH_END.minusMinutes(2)));
+        when(resultSet.getShort("temperature")).thenReturn((short) 1050);
+        when(resultSet.getTimestamp("valid_to")).thenReturn(Timestamp.valueOf(MONTH_END.plusMinutes(2)));
+        when(resultSet.getInt("samples")).thenReturn(5);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        ArgumentCaptor<List<TemperatureEntity>> rows = ArgumentCaptor.forClass(List.class);
+
+        tieringService.moveAgedMonths(LocalDateTime.of(2022, 12, 15, 3, 30));
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO reading"), rows.capture(), eq(1), any());
+        TemperatureEntity overflow = rows.getValue().get(0);
+        Assertions.assertEquals(MONTH_END, overflow.getTimeCreate());
+        Assertions.assertEquals(MONTH_END.plusMinutes(2), overflow.getValidTo());
+        Assertions.assertEquals(3, overflow.getSamples());
+        Assertions.assertEquals(2, new SegmentStore(properties).read(
+                Collections.singleton(1),
+                MONTH_END.minusMonths(1),
+                MONTH_END.plusMonths(1)
+        ).size());
+        verify(jdbcTemplate).execute("DROP TABLE reading_tier_202208");
+    }
+
+    @Test
+    void moveAgedMonthsShouldBeSkippedWhenDisabled() {
+        tieringService.moveAgedMonths();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}